@@ -0,0 +1,196 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.Appointment;
+import com.rebelle.models.Expense;
+import com.rebelle.models.Payment;
+import com.rebelle.utils.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.time.LocalDate;
+
+/**
+ * AnalyticsDAO - Narrow bulk reads used to build the columnar analytics store.
+ * Only the columns needed for aggregation are selected and rows are streamed
+ * straight into a sink, so no model objects are created during a load.
+ */
+public class AnalyticsDAO {
+    
+    private static final long MINUTES_PER_DAY = 24 * 60;
+    
+    private final DatabaseManager dbManager;
+    private final DatabaseConnection dbConnection;
+    
+    public AnalyticsDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+    
+    /**
+     * Receives one narrow row at a time
+     */
+    public interface RowSink {
+        void accept(int id, int epochDay, long value, int code, int secondaryCode, int ref);
+    }
+    
+    /**
+     * Stream payments as (id, day, cents, method, -, patient), read from the
+     * payment store that PaymentDAO writes to
+     */
+    public void loadPayments(RowSink sink) throws SQLException {
+        String sql = "SELECT id, patient_id, amount, payment_method, payment_date FROM payments";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                Date paymentDate = rs.getDate("payment_date");
+                if (paymentDate == null) {
+                    continue;
+                }
+                Payment.PaymentMethod method = parseEnum(Payment.PaymentMethod.class,
+                    rs.getString("payment_method"), Payment.PaymentMethod.OTHER);
+                sink.accept(rs.getInt("id"),
+                    (int) paymentDate.toLocalDate().toEpochDay(),
+                    toCents(rs.getBigDecimal("amount")),
+                    method.ordinal(), 0,
+                    rs.getInt("patient_id"));
+            }
+        }
+    }
+    
+    /**
+     * Stream expenses as (id, day, cents, category, method, -)
+     */
+    public void loadExpenses(RowSink sink) throws SQLException {
+        String sql = "SELECT id, amount, category, payment_method, expense_date FROM business_expenses";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                // ExpenseDAO writes the date as ISO text
+                String expenseDate = rs.getString("expense_date");
+                if (expenseDate == null) {
+                    continue;
+                }
+                Expense.Category category = parseEnum(Expense.Category.class,
+                    rs.getString("category"), Expense.Category.OTHER);
+                Expense.PaymentMethod method = parseEnum(Expense.PaymentMethod.class,
+                    rs.getString("payment_method"), Expense.PaymentMethod.OTHER);
+                sink.accept(rs.getInt("id"),
+                    (int) LocalDate.parse(expenseDate).toEpochDay(),
+                    toCents(rs.getBigDecimal("amount")),
+                    category.ordinal(), method.ordinal(), 0);
+            }
+        }
+    }
+    
+    /**
+     * Stream appointments as (id, day, duration minutes, status, -, patient)
+     */
+    public void loadAppointments(RowSink sink) throws SQLException {
+        String sql = "SELECT id, patient_id, start_minute, duration_minutes, status FROM appointments " +
+                     "WHERE start_minute IS NOT NULL";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            streamAppointments(rs, sink);
+        }
+    }
+    
+    private static void streamAppointments(ResultSet rs, RowSink sink) throws SQLException {
+        while (rs.next()) {
+            Appointment.Status status = parseEnum(Appointment.Status.class,
+                rs.getString("status"), Appointment.Status.SCHEDULED);
+            sink.accept(rs.getInt("id"),
+                (int) Math.floorDiv(rs.getLong("start_minute"), MINUTES_PER_DAY),
+                rs.getInt("duration_minutes"),
+                status.ordinal(), 0,
+                rs.getInt("patient_id"));
+        }
+    }
+    
+    /**
+     * Stream the appointments starting between two dates inclusive, in the
+     * same shape as loadAppointments
+     */
+    public void loadAppointments(LocalDate startDate, LocalDate endDate, RowSink sink) throws SQLException {
+        String sql = "SELECT id, patient_id, start_minute, duration_minutes, status FROM appointments " +
+                     "WHERE start_minute >= ? AND start_minute < ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setLong(1, startDate.toEpochDay() * MINUTES_PER_DAY);
+            stmt.setLong(2, (endDate.toEpochDay() + 1) * MINUTES_PER_DAY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                streamAppointments(rs, sink);
+            }
+        }
+    }
+    
+    /**
+     * Stream the appointments starting on or after a date, in the same shape
+     * as loadAppointments
+     */
+    public void loadAppointmentsFrom(LocalDate startDate, RowSink sink) throws SQLException {
+        String sql = "SELECT id, patient_id, start_minute, duration_minutes, status FROM appointments " +
+                     "WHERE start_minute >= ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setLong(1, startDate.toEpochDay() * MINUTES_PER_DAY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                streamAppointments(rs, sink);
+            }
+        }
+    }
+    
+    /**
+     * Stream patients as (id, birth day, -, 1 if the birth date is known, -, -)
+     */
+    public void loadPatients(RowSink sink) throws SQLException {
+        String sql = "SELECT id, date_of_birth FROM patients";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                String dateOfBirth = rs.getString("date_of_birth");
+                boolean known = dateOfBirth != null && !dateOfBirth.isEmpty();
+                sink.accept(rs.getInt("id"),
+                    known ? (int) LocalDate.parse(dateOfBirth).toEpochDay() : 0,
+                    0, known ? 1 : 0, 0, 0);
+            }
+        }
+    }
+    
+    /**
+     * Convert a money amount to whole cents
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+    
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String raw, E fallback) {
+        if (raw == null) {
+            return fallback;
+        }
+        try {
+            return Enum.valueOf(type, raw.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,691 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.AnalyticsDAO;
+import com.rebelle.dao.AppointmentDAO;
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.dao.ExpenseDAO;
+import com.rebelle.dao.PaymentDAO;
+import com.rebelle.models.Appointment;
+import com.rebelle.models.Expense;
+import com.rebelle.models.Payment;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * AnalyticsStore - Columnar in-memory copy of payments, expenses and appointments
+ * for reporting. Each table is held as parallel primitive arrays (epoch day,
+ * cents or minutes, enum ordinal codes) and kept fresh from DAO change
+ * notifications. Each table loads on first use, so a report never waits on a
+ * store it does not read. Aggregations are tight loops over the arrays, split
+ * across the fork-join pool for large tables.
+ */
+public class AnalyticsStore {
+    
+    private static AnalyticsStore instance;
+    
+    /** Rows per fork-join leaf; smaller tables are scanned on the calling thread */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    
+    public enum Bucket { DAY, WEEK, MONTH }
+    
+    private final AnalyticsDAO analyticsDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // payments: value = cents, code = payment method, ref = patient id
+    private final ColumnTable payments = new ColumnTable();
+    // expenses: value = cents, code = category, code2 = payment method
+    private final ColumnTable expenses = new ColumnTable();
+    // appointments: value = duration minutes, code = status, ref = patient id
+    private final ColumnTable appointments = new ColumnTable();
+    
+    private AnalyticsStore() {
+        this.analyticsDAO = new AnalyticsDAO();
+        registerListeners();
+    }
+    
+    public static synchronized AnalyticsStore getInstance() {
+        if (instance == null) {
+            instance = new AnalyticsStore();
+        }
+        return instance;
+    }
+    
+    /**
+     * Payment totals per method for an inclusive date range
+     */
+    public ServiceResult<Map<Payment.PaymentMethod, BigDecimal>> getPaymentTotalsByMethod(LocalDate startDate, LocalDate endDate) {
+        return groupTotals(payments, startDate, endDate, false, Payment.PaymentMethod.class);
+    }
+    
+    /**
+     * Expense totals per category for an inclusive date range
+     */
+    public ServiceResult<Map<Expense.Category, BigDecimal>> getExpenseTotalsByCategory(LocalDate startDate, LocalDate endDate) {
+        return groupTotals(expenses, startDate, endDate, false, Expense.Category.class);
+    }
+    
+    /**
+     * Expense totals per payment method for an inclusive date range
+     */
+    public ServiceResult<Map<Expense.PaymentMethod, BigDecimal>> getExpenseTotalsByMethod(LocalDate startDate, LocalDate endDate) {
+        return groupTotals(expenses, startDate, endDate, true, Expense.PaymentMethod.class);
+    }
+    
+    /**
+     * Appointment counts per status for an inclusive date range
+     */
+    public ServiceResult<Map<Appointment.Status, Integer>> getAppointmentCountsByStatus(LocalDate startDate, LocalDate endDate) {
+        ServiceResult<long[]> result = aggregate(appointments, startDate, endDate, Mode.CODE,
+            Appointment.Status.values().length, null);
+        if (!result.isSuccess()) {
+            return ServiceResult.error(result.getMessage());
+        }
+        
+        long[] acc = result.getData();
+        int groups = Appointment.Status.values().length;
+        Map<Appointment.Status, Integer> counts = new EnumMap<>(Appointment.Status.class);
+        for (Appointment.Status status : Appointment.Status.values()) {
+            counts.put(status, (int) acc[groups + status.ordinal()]);
+        }
+        return ServiceResult.success(counts);
+    }
+    
+    /**
+     * Payment revenue bucketed by day, week or month
+     */
+    public ServiceResult<TimeSeries> getPaymentSeries(LocalDate startDate, LocalDate endDate, Bucket bucket) {
+        return series(payments, startDate, endDate, bucket);
+    }
+    
+    /**
+     * Expense spend bucketed by day, week or month
+     */
+    public ServiceResult<TimeSeries> getExpenseSeries(LocalDate startDate, LocalDate endDate, Bucket bucket) {
+        return series(expenses, startDate, endDate, bucket);
+    }
+    
+    /**
+     * Appointment counts and booked minutes bucketed by day, week or month
+     */
+    public ServiceResult<TimeSeries> getAppointmentSeries(LocalDate startDate, LocalDate endDate, Bucket bucket) {
+        return series(appointments, startDate, endDate, bucket);
+    }
+    
+    /**
+     * Payment revenue for an inclusive date range
+     */
+    public ServiceResult<BigDecimal> getPaymentTotal(LocalDate startDate, LocalDate endDate) {
+        ServiceResult<Long> income = total(payments, startDate, endDate, Payment.PaymentMethod.values().length);
+        if (!income.isSuccess()) {
+            return ServiceResult.error(income.getMessage());
+        }
+        return ServiceResult.success(BigDecimal.valueOf(income.getData(), 2));
+    }
+    
+    /**
+     * Expense spend for an inclusive date range
+     */
+    public ServiceResult<BigDecimal> getExpenseTotal(LocalDate startDate, LocalDate endDate) {
+        ServiceResult<Long> spend = total(expenses, startDate, endDate, Expense.Category.values().length);
+        if (!spend.isSuccess()) {
+            return ServiceResult.error(spend.getMessage());
+        }
+        return ServiceResult.success(BigDecimal.valueOf(spend.getData(), 2));
+    }
+    
+    /**
+     * Payments minus expenses for an inclusive date range
+     */
+    public ServiceResult<BigDecimal> getNetIncome(LocalDate startDate, LocalDate endDate) {
+        ServiceResult<Long> income = total(payments, startDate, endDate, Payment.PaymentMethod.values().length);
+        if (!income.isSuccess()) {
+            return ServiceResult.error(income.getMessage());
+        }
+        ServiceResult<Long> spend = total(expenses, startDate, endDate, Expense.Category.values().length);
+        if (!spend.isSuccess()) {
+            return ServiceResult.error(spend.getMessage());
+        }
+        return ServiceResult.success(BigDecimal.valueOf(income.getData() - spend.getData(), 2));
+    }
+    
+    /**
+     * Drop everything held in memory; the next query reloads from the database
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            payments.clear();
+            expenses.clear();
+            appointments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private <E extends Enum<E>> ServiceResult<Map<E, BigDecimal>> groupTotals(ColumnTable table, LocalDate startDate,
+                                                                          LocalDate endDate, boolean secondary,
+                                                                          Class<E> type) {
+        E[] keys = type.getEnumConstants();
+        ServiceResult<long[]> result = aggregate(table, startDate, endDate,
+            secondary ? Mode.CODE2 : Mode.CODE, keys.length, null);
+        if (!result.isSuccess()) {
+            return ServiceResult.error(result.getMessage());
+        }
+        
+        long[] acc = result.getData();
+        Map<E, BigDecimal> totals = new EnumMap<>(type);
+        for (E key : keys) {
+            totals.put(key, BigDecimal.valueOf(acc[key.ordinal()], 2));
+        }
+        return ServiceResult.success(totals);
+    }
+    
+    private ServiceResult<TimeSeries> series(ColumnTable table, LocalDate startDate, LocalDate endDate, Bucket bucket) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            return ServiceResult.error("A valid date range is required");
+        }
+        
+        int from = (int) startDate.toEpochDay();
+        int span = (int) (endDate.toEpochDay() - from) + 1;
+        int[] bucketOfDay = new int[span];
+        List<LocalDate> starts = new ArrayList<>();
+        
+        LocalDate day = startDate;
+        LocalDate currentStart = null;
+        for (int i = 0; i < span; i++, day = day.plusDays(1)) {
+            LocalDate start = bucketStart(day, bucket);
+            if (!start.equals(currentStart)) {
+                currentStart = start;
+                starts.add(start);
+            }
+            bucketOfDay[i] = starts.size() - 1;
+        }
+        
+        ServiceResult<long[]> result = aggregate(table, startDate, endDate, Mode.BUCKET, starts.size(), bucketOfDay);
+        if (!result.isSuccess()) {
+            return ServiceResult.error(result.getMessage());
+        }
+        
+        long[] acc = result.getData();
+        int buckets = starts.size();
+        return ServiceResult.success(new TimeSeries(starts,
+            Arrays.copyOfRange(acc, 0, buckets),
+            Arrays.copyOfRange(acc, buckets, buckets * 2)));
+    }
+    
+    private static LocalDate bucketStart(LocalDate day, Bucket bucket) {
+        switch (bucket) {
+            case WEEK:
+                return day.with(DayOfWeek.MONDAY);
+            case MONTH:
+                return day.withDayOfMonth(1);
+            default:
+                return day;
+        }
+    }
+    
+    /**
+     * Run one aggregation pass. The result holds value sums in [0, keys) and
+     * row counts in [keys, 2 * keys).
+     */
+    private ServiceResult<long[]> aggregate(ColumnTable table, LocalDate startDate, LocalDate endDate,
+                                            Mode mode, int keys, int[] bucketOfDay) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            return ServiceResult.error("A valid date range is required");
+        }
+        
+        try {
+            ensureLoaded(table);
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+        
+        lock.readLock().lock();
+        try {
+            AggregateTask task = new AggregateTask(table, 0, table.size, (int) startDate.toEpochDay(),
+                (int) endDate.toEpochDay(), mode, keys, bucketOfDay);
+            long[] acc = table.size > PARALLEL_THRESHOLD
+                ? ForkJoinPool.commonPool().invoke(task)
+                : task.compute();
+            return ServiceResult.success(acc);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private ServiceResult<Long> total(ColumnTable table, LocalDate startDate, LocalDate endDate, int keys) {
+        ServiceResult<long[]> result = aggregate(table, startDate, endDate, Mode.CODE, keys, null);
+        if (!result.isSuccess()) {
+            return ServiceResult.error(result.getMessage());
+        }
+        return ServiceResult.success(sumValues(result.getData(), keys));
+    }
+    
+    private static long sumValues(long[] acc, int keys) {
+        long total = 0;
+        for (int i = 0; i < keys; i++) {
+            total += acc[i];
+        }
+        return total;
+    }
+    
+    private void ensureLoaded(ColumnTable table) throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (table.loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            if (table.loaded) {
+                return;
+            }
+            table.clear();
+            if (table == payments) {
+                analyticsDAO.loadPayments(table::upsert);
+            } else if (table == expenses) {
+                analyticsDAO.loadExpenses(table::upsert);
+            } else {
+                analyticsDAO.loadAppointments(table::upsert);
+            }
+            table.loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Apply a change only once the table has been loaded. Changes that arrive
+     * earlier are picked up by the load itself, and upserts are idempotent.
+     */
+    private void applyChange(ColumnTable table, Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (table.loaded) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void registerListeners() {
+        PaymentDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Payment payment) {
+                onUpdated(payment);
+            }
+            
+            @Override
+            public void onUpdated(Payment payment) {
+                if (payment.getPaymentDate() == null || payment.getPaymentMethod() == null) {
+                    return;
+                }
+                applyChange(payments, () -> payments.upsert(payment.getId(),
+                    (int) payment.getPaymentDate().toEpochDay(), AnalyticsDAO.toCents(payment.getAmount()),
+                    payment.getPaymentMethod().ordinal(), 0, payment.getPatientId()));
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                applyChange(payments, () -> payments.delete(id));
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+        
+        ExpenseDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Expense expense) {
+                onUpdated(expense);
+            }
+            
+            @Override
+            public void onUpdated(Expense expense) {
+                if (expense.getExpenseDate() == null || expense.getCategory() == null
+                        || expense.getPaymentMethod() == null) {
+                    return;
+                }
+                applyChange(expenses, () -> expenses.upsert(expense.getId(),
+                    (int) expense.getExpenseDate().toEpochDay(), AnalyticsDAO.toCents(expense.getAmount()),
+                    expense.getCategory().ordinal(), expense.getPaymentMethod().ordinal(), 0));
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                applyChange(expenses, () -> expenses.delete(id));
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+        
+        AppointmentDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Appointment appointment) {
+                onUpdated(appointment);
+            }
+            
+            @Override
+            public void onUpdated(Appointment appointment) {
+                if (appointment.getAppointmentDate() == null || appointment.getStatus() == null) {
+                    return;
+                }
+                applyChange(appointments, () -> appointments.upsert(appointment.getId(),
+                    (int) appointment.getAppointmentDate().toEpochDay(), appointment.getDurationMinutes(),
+                    appointment.getStatus().ordinal(), 0, appointment.getPatientId()));
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                applyChange(appointments, () -> appointments.delete(id));
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    private enum Mode { CODE, CODE2, BUCKET }
+    
+    /**
+     * Parallel primitive columns for one table. Deleted rows keep their slot
+     * with an out-of-range day so scans need no extra branch; the table is
+     * compacted once a quarter of it is dead. Rows are found by id through an
+     * open-addressing int table, kept at most half full.
+     */
+    static final class ColumnTable {
+        private static final int TOMBSTONE = Integer.MIN_VALUE;
+        private static final int NONE = -1;
+        
+        int size;
+        int[] ids = new int[1024];
+        int[] days = new int[1024];
+        long[] values = new long[1024];
+        byte[] codes = new byte[1024];
+        byte[] codes2 = new byte[1024];
+        int[] refs = new int[1024];
+        boolean loaded;
+        private int[] slots = emptySlots(2048);   // hash slot -> live row, or NONE
+        private int mask = 2047;
+        private int dead;
+        
+        void upsert(int id, int epochDay, long value, int code, int code2, int ref) {
+            int slot = findSlot(id);
+            int row = slots[slot];
+            if (row == NONE) {
+                ensureCapacity(size + 1);
+                if ((size + 1) * 2 > slots.length) {
+                    rehash(slots.length << 1);
+                    slot = findSlot(id);
+                }
+                row = size++;
+                slots[slot] = row;
+            }
+            ids[row] = id;
+            days[row] = epochDay;
+            values[row] = value;
+            codes[row] = (byte) code;
+            codes2[row] = (byte) code2;
+            refs[row] = ref;
+        }
+        
+        void delete(int id) {
+            int slot = findSlot(id);
+            int row = slots[slot];
+            if (row == NONE) {
+                return;
+            }
+            deleteSlot(slot);
+            days[row] = TOMBSTONE;
+            dead++;
+            if (dead > 1024 && dead > size / 4) {
+                compact();
+            }
+        }
+        
+        void clear() {
+            size = 0;
+            dead = 0;
+            loaded = false;
+            Arrays.fill(slots, NONE);
+        }
+        
+        private void ensureCapacity(int needed) {
+            if (needed <= ids.length) {
+                return;
+            }
+            int capacity = Math.max(needed, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            days = Arrays.copyOf(days, capacity);
+            values = Arrays.copyOf(values, capacity);
+            codes = Arrays.copyOf(codes, capacity);
+            codes2 = Arrays.copyOf(codes2, capacity);
+            refs = Arrays.copyOf(refs, capacity);
+        }
+        
+        private void compact() {
+            int out = 0;
+            Arrays.fill(slots, NONE);
+            for (int i = 0; i < size; i++) {
+                if (days[i] == TOMBSTONE) {
+                    continue;
+                }
+                ids[out] = ids[i];
+                days[out] = days[i];
+                values[out] = values[i];
+                codes[out] = codes[i];
+                codes2[out] = codes2[i];
+                refs[out] = refs[i];
+                slots[findSlot(ids[out])] = out;
+                out++;
+            }
+            size = out;
+            dead = 0;
+        }
+        
+        /**
+         * The slot holding the row with this id, or the empty slot where it would go
+         */
+        private int findSlot(int id) {
+            for (int slot = hash(id); ; slot = (slot + 1) & mask) {
+                int row = slots[slot];
+                if (row == NONE || ids[row] == id) {
+                    return slot;
+                }
+            }
+        }
+        
+        /**
+         * Linear-probing delete with backward shift, so lookups never need tombstones
+         */
+        private void deleteSlot(int slot) {
+            slots[slot] = NONE;
+            for (int probe = (slot + 1) & mask; slots[probe] != NONE; probe = (probe + 1) & mask) {
+                int home = hash(ids[slots[probe]]);
+                // Move the row back if its home slot is not between the hole and its current slot
+                boolean movable = slot <= probe ? (home <= slot || home > probe) : (home <= slot && home > probe);
+                if (movable) {
+                    slots[slot] = slots[probe];
+                    slots[probe] = NONE;
+                    slot = probe;
+                }
+            }
+        }
+        
+        private void rehash(int length) {
+            slots = emptySlots(length);
+            mask = length - 1;
+            for (int i = 0; i < size; i++) {
+                if (days[i] != TOMBSTONE) {
+                    slots[findSlot(ids[i])] = i;
+                }
+            }
+        }
+        
+        private int hash(int id) {
+            int h = id * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+        
+        private static int[] emptySlots(int length) {
+            int[] table = new int[length];
+            Arrays.fill(table, NONE);
+            return table;
+        }
+    }
+    
+    /**
+     * Sums values and counts rows per key over a slice of a column table
+     */
+    private static final class AggregateTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+        
+        private final ColumnTable table;
+        private final int lo;
+        private final int hi;
+        private final int from;
+        private final int to;
+        private final Mode mode;
+        private final int keys;
+        private final int[] bucketOfDay;
+        
+        AggregateTask(ColumnTable table, int lo, int hi, int from, int to, Mode mode, int keys, int[] bucketOfDay) {
+            this.table = table;
+            this.lo = lo;
+            this.hi = hi;
+            this.from = from;
+            this.to = to;
+            this.mode = mode;
+            this.keys = keys;
+            this.bucketOfDay = bucketOfDay;
+        }
+        
+        @Override
+        protected long[] compute() {
+            if (hi - lo > PARALLEL_THRESHOLD && getPool() != null) {
+                int mid = (lo + hi) >>> 1;
+                AggregateTask left = new AggregateTask(table, lo, mid, from, to, mode, keys, bucketOfDay);
+                AggregateTask right = new AggregateTask(table, mid, hi, from, to, mode, keys, bucketOfDay);
+                left.fork();
+                long[] acc = right.compute();
+                long[] other = left.join();
+                for (int i = 0; i < acc.length; i++) {
+                    acc[i] += other[i];
+                }
+                return acc;
+            }
+            return scan();
+        }
+        
+        private long[] scan() {
+            long[] acc = new long[keys * 2];
+            int[] days = table.days;
+            long[] values = table.values;
+            
+            switch (mode) {
+                case CODE:
+                case CODE2: {
+                    byte[] codes = mode == Mode.CODE ? table.codes : table.codes2;
+                    for (int i = lo; i < hi; i++) {
+                        int d = days[i];
+                        if (d >= from && d <= to) {
+                            int key = codes[i];
+                            acc[key] += values[i];
+                            acc[keys + key]++;
+                        }
+                    }
+                    break;
+                }
+                case BUCKET: {
+                    for (int i = lo; i < hi; i++) {
+                        int d = days[i];
+                        if (d >= from && d <= to) {
+                            int key = bucketOfDay[d - from];
+                            acc[key] += values[i];
+                            acc[keys + key]++;
+                        }
+                    }
+                    break;
+                }
+            }
+            return acc;
+        }
+    }
+    
+    /**
+     * Bucketed totals. Values are cents for money tables and minutes for appointments.
+     */
+    public static class TimeSeries {
+        private final List<LocalDate> bucketStarts;
+        private final long[] values;
+        private final long[] counts;
+        
+        public TimeSeries(List<LocalDate> bucketStarts, long[] values, long[] counts) {
+            this.bucketStarts = Collections.unmodifiableList(bucketStarts);
+            this.values = values;
+            this.counts = counts;
+        }
+        
+        public int size() { return bucketStarts.size(); }
+        public LocalDate getBucketStart(int index) { return bucketStarts.get(index); }
+        public List<LocalDate> getBucketStarts() { return bucketStarts; }
+        public long getValue(int index) { return values[index]; }
+        public long getCount(int index) { return counts[index]; }
+        public BigDecimal getAmount(int index) { return BigDecimal.valueOf(values[index], 2); }
+    }
+    
+    /**
+     * Service result wrapper class
+     */
+    public static class ServiceResult<T> {
+        private final boolean success;
+        private final T data;
+        private final String message;
+        
+        private ServiceResult(boolean success, T data, String message) {
+            this.success = success;
+            this.data = data;
+            this.message = message;
+        }
+        
+        public static <T> ServiceResult<T> success(T data) {
+            return new ServiceResult<>(true, data, null);
+        }
+        
+        public static <T> ServiceResult<T> success(T data, String message) {
+            return new ServiceResult<>(true, data, message);
+        }
+        
+        public static <T> ServiceResult<T> error(String message) {
+            return new ServiceResult<>(false, null, message);
+        }
+        
+        public boolean isSuccess() { return success; }
+        public T getData() { return data; }
+        public String getMessage() { return message; }
+    }
+}
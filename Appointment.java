@@ -42,6 +42,8 @@ public class Appointment {
     private String notes;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Integer seriesId; // Set for occurrences of a recurring series
+    private int version;
     
     // Related objects (loaded separately)
     private Patient patient;
@@ -157,6 +159,23 @@ public class Appointment {
         this.updatedAt = updatedAt;
     }
     
+    public Integer getSeriesId() {
+        return seriesId;
+    }
+    
+    public void setSeriesId(Integer seriesId) {
+        this.seriesId = seriesId;
+    }
+    
+    /** Row version, bumped by every update; an update must name the version it read */
+    public int getVersion() {
+        return version;
+    }
+    
+    public void setVersion(int version) {
+        this.version = version;
+    }
+    
     public Patient getPatient() {
         return patient;
     }
@@ -195,6 +214,20 @@ public class Appointment {
         }
     }
     
+    /**
+     * Copy of this appointment, sharing the related patient and service
+     */
+    public Appointment copy() {
+        Appointment copy = new Appointment(id, patientId, serviceId, appointmentDate, appointmentTime,
+                                           durationMinutes, status, notes, createdAt);
+        copy.updatedAt = updatedAt;
+        copy.seriesId = seriesId;
+        copy.version = version;
+        copy.patient = patient;
+        copy.service = service;
+        return copy;
+    }
+    
     /**
      * Get end time of appointment
      */
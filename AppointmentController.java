@@ -1,6 +1,8 @@
 package com.rebelle.controllers;
 
+import com.rebelle.dao.Page;
 import com.rebelle.models.Appointment;
+import com.rebelle.models.CalendarDay;
 import com.rebelle.models.Service;
 import com.rebelle.services.AppointmentService;
 import com.rebelle.services.AppointmentService.ServiceResult;
@@ -15,6 +17,7 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
 import javafx.scene.paint.Color;
 import javafx.stage.Modality;
@@ -23,7 +26,9 @@ import javafx.util.Callback;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.TextStyle;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 /**
@@ -50,21 +55,32 @@ public class AppointmentController {
     @FXML private TableColumn<Appointment, String> statusColumn;
     @FXML private TableColumn<Appointment, String> notesColumn;
     
+    @FXML private HBox calendarStrip;
+    
     @FXML private Label statusLabel;
     @FXML private Label appointmentCountLabel;
+    @FXML private ProgressIndicator loadingIndicator;
+    
+    private static final int PAGE_SIZE = 100;
     
     private final AppointmentService appointmentService;
     private final ObservableList<Appointment> appointments;
+    private final BackgroundLoader loader;
+    private PagedTableDataSource<Appointment> pagedAppointments;
+    private int weekBooked = -1;
     
     public AppointmentController() {
         this.appointmentService = new AppointmentService();
         this.appointments = FXCollections.observableArrayList();
+        this.loader = new BackgroundLoader();
     }
     
     @FXML
     public void initialize() {
+        loader.attachProgress(loadingIndicator);
         setupTableColumns();
         setupTableSelection();
+        setupPaging();
         loadAppointments();
         updateStatusBar();
     }
@@ -73,38 +89,65 @@ public class AppointmentController {
         // ID Column
         idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
         
+        // Rows that are still loading have no appointment yet, so every factory is null-safe
+        
         // Date Column
-        dateColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(DateTimeUtils.formatDate(cellData.getValue().getAppointmentDate())));
+        dateColumn.setCellValueFactory(cellData -> {
+            Appointment appointment = cellData.getValue();
+            return new SimpleStringProperty(appointment != null
+                ? DateTimeUtils.formatDate(appointment.getAppointmentDate()) : "");
+        });
         
         // Time Column
-        timeColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(DateTimeUtils.formatTime(cellData.getValue().getAppointmentTime())));
+        timeColumn.setCellValueFactory(cellData -> {
+            Appointment appointment = cellData.getValue();
+            return new SimpleStringProperty(appointment != null
+                ? DateTimeUtils.formatTime(appointment.getAppointmentTime()) : "");
+        });
         
         // Patient Column
-        patientColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getPatient().getFullName()));
+        patientColumn.setCellValueFactory(cellData -> {
+            Appointment appointment = cellData.getValue();
+            return new SimpleStringProperty(appointment != null ? appointment.getPatientName() : "");
+        });
         
         // Service Column
         serviceColumn.setCellValueFactory(cellData -> {
-            Service service = cellData.getValue().getService();
+            Service service = cellData.getValue() != null ? cellData.getValue().getService() : null;
             return new SimpleStringProperty(service != null ? service.getName() : "");
         });
         
         // Duration Column
-        durationColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getDurationMinutes() + " min"));
+        durationColumn.setCellValueFactory(cellData -> {
+            Appointment appointment = cellData.getValue();
+            return new SimpleStringProperty(appointment != null ? appointment.getDurationMinutes() + " min" : "");
+        });
         
         // Status Column
-        statusColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getStatus().getDisplayName()));
+        statusColumn.setCellValueFactory(cellData -> {
+            Appointment appointment = cellData.getValue();
+            return new SimpleStringProperty(appointment != null ? appointment.getStatus().getDisplayName() : "");
+        });
         
         // Notes Column
-        notesColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getNotes()));
-        
-        // Set table data
-        appointmentTable.setItems(appointments);
+        notesColumn.setCellValueFactory(cellData -> {
+            Appointment appointment = cellData.getValue();
+            return new SimpleStringProperty(appointment != null ? appointment.getNotes() : "");
+        });
+    }
+    
+    /**
+     * Setup the lazily loaded list used for the unfiltered view
+     */
+    private void setupPaging() {
+        pagedAppointments = new PagedTableDataSource<>(PAGE_SIZE, "date", false);
+        pagedAppointments.sortColumn(idColumn, "id")
+                         .sortColumn(dateColumn, "date")
+                         .sortColumn(durationColumn, "duration")
+                         .sortColumn(statusColumn, "status");
+        pagedAppointments.setOnPageLoaded(this::updateStatusBar);
+        pagedAppointments.setOnError(message -> showError("Error Loading Appointments", message));
+        pagedAppointments.attach(appointmentTable);
     }
     
     private void setupTableSelection() {
@@ -128,58 +171,117 @@ public class AppointmentController {
     }
     
     private void loadAppointments() {
-        ServiceResult<List<Appointment>> result = appointmentService.getAllAppointments();
-        if (result.isSuccess()) {
-            appointments.setAll(result.getData());
-            updateStatusBar();
-        } else {
-            showError("Error Loading Appointments", result.getMessage());
-        }
+        // A date load still running must not replace the unfiltered list
+        loader.cancel("rows");
+        pagedAppointments.setFetcher(request -> {
+            ServiceResult<Page<Appointment>> result = appointmentService.getAppointmentPage(null, null, request);
+            if (!result.isSuccess()) {
+                throw new IllegalStateException(result.getMessage());
+            }
+            return result.getData();
+        });
+        updateStatusBar();
     }
     
     private void loadAppointmentsByDate(LocalDate date) {
-        ServiceResult<List<Appointment>> result = appointmentService.getAppointmentsByDate(date);
-        if (result.isSuccess()) {
-            appointments.setAll(result.getData());
-            updateStatusBar();
-        } else {
-            showError("Error Loading Appointments", result.getMessage());
-        }
+        loader.load("rows", appointmentService.async(s -> s.getAppointmentsByDate(date)), result -> {
+            if (result.isSuccess()) {
+                appointments.setAll(result.getData());
+                appointmentTable.setItems(appointments);
+                updateStatusBar();
+            } else {
+                showError("Error Loading Appointments", result.getMessage());
+            }
+        });
     }
     
     private void updateStatusBar() {
-        ServiceResult<AppointmentStats> result = appointmentService.getAppointmentStatistics();
-        if (result.isSuccess()) {
-            AppointmentStats stats = result.getData();
+        if (appointmentTable.getItems() == pagedAppointments) {
+            appointmentCountLabel.setText(pagedAppointments.formatCount("appointment", "appointments"));
+        } else {
             appointmentCountLabel.setText(String.format("%d appointments", appointments.size()));
-            statusLabel.setText(String.format("Today: %d | Upcoming: %d", 
-                stats.getTodaysAppointments(), stats.getUpcomingAppointments()));
         }
+        
+        loader.load("stats", appointmentService.async(AppointmentService::getAppointmentStatistics), result -> {
+            if (result.isSuccess()) {
+                AppointmentStats stats = result.getData();
+                String text = String.format("Today: %d | Upcoming: %d",
+                    stats.getTodaysAppointments(), stats.getUpcomingAppointments());
+                if (weekBooked >= 0) {
+                    text += String.format(" | This week: %d booked", weekBooked);
+                }
+                statusLabel.setText(text);
+            }
+        });
     }
     
     @FXML
     private void handleFilterToday() {
+        showCalendarStrip(false);
         filterDatePicker.setValue(LocalDate.now());
         loadAppointmentsByDate(LocalDate.now());
     }
     
+    /**
+     * Show the week as one button per day drawn from the calendar aggregates;
+     * appointment rows are only loaded for the day that is opened
+     */
     @FXML
     private void handleFilterWeek() {
         LocalDate today = LocalDate.now();
-        LocalDate weekStart = today.minusDays(today.getDayOfWeek().getValue() - 1);
-        LocalDate weekEnd = weekStart.plusDays(6);
+        loader.load("calendar", appointmentService.async(s -> s.getCalendarWeek(today)), result -> {
+            if (result.isSuccess()) {
+                showWeek(today, result.getData());
+            } else {
+                showError("Error Loading Appointments", result.getMessage());
+            }
+        });
+    }
+    
+    private void showWeek(LocalDate today, List<CalendarDay> week) {
+        ToggleGroup group = new ToggleGroup();
+        calendarStrip.getChildren().clear();
+        int weekTotal = 0;
+        for (CalendarDay day : week) {
+            ToggleButton button = new ToggleButton(formatCalendarDay(day));
+            button.setToggleGroup(group);
+            button.setOnAction(event -> {
+                filterDatePicker.setValue(day.getDate());
+                loadAppointmentsByDate(day.getDate());
+            });
+            button.setSelected(day.getDate().equals(today));
+            calendarStrip.getChildren().add(button);
+            weekTotal += day.getBookedCount();
+        }
+        weekBooked = weekTotal;
+        showCalendarStrip(true);
         
-        ServiceResult<List<Appointment>> result = appointmentService.getAppointmentsByDateRange(weekStart, weekEnd);
-        if (result.isSuccess()) {
-            appointments.setAll(result.getData());
-            updateStatusBar();
-        } else {
-            showError("Error Loading Appointments", result.getMessage());
+        filterDatePicker.setValue(today);
+        loadAppointmentsByDate(today);
+    }
+    
+    private static String formatCalendarDay(CalendarDay day) {
+        String label = day.getDate().getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.getDefault())
+            + " " + day.getDate().getDayOfMonth();
+        if (day.getBookedCount() == 0) {
+            return label + "\nFree";
+        }
+        int minutes = day.getBookedMinutes();
+        return String.format("%s\n%d booked, %dh %02dm", label, day.getBookedCount(), minutes / 60, minutes % 60);
+    }
+    
+    private void showCalendarStrip(boolean show) {
+        if (!show) {
+            loader.cancel("calendar");
+            weekBooked = -1;
         }
+        calendarStrip.setVisible(show);
+        calendarStrip.setManaged(show);
     }
     
     @FXML
     private void handleClearFilter() {
+        showCalendarStrip(false);
         filterDatePicker.setValue(null);
         loadAppointments();
     }
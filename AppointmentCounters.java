@@ -0,0 +1,185 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.AnalyticsDAO;
+import com.rebelle.dao.AppointmentDAO;
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.models.Appointment;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * AppointmentCounters - Today's appointment counts by status and the number of
+ * upcoming scheduled appointments, for status bars and the dashboard.
+ *
+ * Appointments from today on are read once; after that the counters move by
+ * deltas from AppointmentDAO change events and reads come straight from
+ * atomics. The day and status each appointment was counted under are kept,
+ * so at midnight the counters are rebuilt from memory without a query.
+ */
+public class AppointmentCounters {
+    
+    private static AppointmentCounters instance;
+    
+    private static final Appointment.Status[] STATUSES = Appointment.Status.values();
+    
+    private final AnalyticsDAO analyticsDAO;
+    private final AtomicIntegerArray todayByStatus = new AtomicIntegerArray(STATUSES.length);
+    private final AtomicInteger upcomingScheduled = new AtomicInteger();
+    
+    // appointment id -> (epoch day << 8 | status) for appointments on or after currentDay
+    private final Map<Integer, Long> counted = new HashMap<>();
+    private volatile long currentDay = Long.MIN_VALUE;
+    private volatile boolean loaded;
+    
+    private AppointmentCounters() {
+        this.analyticsDAO = new AnalyticsDAO();
+        registerListener();
+    }
+    
+    public static synchronized AppointmentCounters getInstance() {
+        if (instance == null) {
+            instance = new AppointmentCounters();
+        }
+        return instance;
+    }
+    
+    /**
+     * All appointments today, cancelled ones included
+     */
+    public int getTodaysCount() throws SQLException {
+        ensureCurrent();
+        int total = 0;
+        for (int i = 0; i < STATUSES.length; i++) {
+            total += todayByStatus.get(i);
+        }
+        return total;
+    }
+    
+    /**
+     * Today's appointments with the given status
+     */
+    public int getTodaysCount(Appointment.Status status) throws SQLException {
+        ensureCurrent();
+        return todayByStatus.get(status.ordinal());
+    }
+    
+    /**
+     * Scheduled appointments after today
+     */
+    public int getUpcomingCount() throws SQLException {
+        ensureCurrent();
+        return upcomingScheduled.get();
+    }
+    
+    /**
+     * Forget everything; the next read loads again
+     */
+    public synchronized void invalidate() {
+        loaded = false;
+        counted.clear();
+    }
+    
+    private void ensureCurrent() throws SQLException {
+        if (!loaded || currentDay != LocalDate.now().toEpochDay()) {
+            refresh();
+        }
+    }
+    
+    private synchronized void refresh() throws SQLException {
+        long today = LocalDate.now().toEpochDay();
+        if (!loaded) {
+            counted.clear();
+            analyticsDAO.loadAppointmentsFrom(LocalDate.ofEpochDay(today),
+                (id, epochDay, minutes, status, unused, patientId) -> counted.put(id, pack(epochDay, status)));
+        } else if (currentDay == today) {
+            return;
+        } else {
+            // Midnight passed: yesterday's appointments no longer count
+            counted.values().removeIf(key -> day(key) < today);
+        }
+        
+        currentDay = today;
+        int upcoming = 0;
+        int[] byStatus = new int[STATUSES.length];
+        for (long key : counted.values()) {
+            if (day(key) == today) {
+                byStatus[status(key)]++;
+            } else if (STATUSES[status(key)] == Appointment.Status.SCHEDULED) {
+                upcoming++;
+            }
+        }
+        for (int i = 0; i < byStatus.length; i++) {
+            todayByStatus.set(i, byStatus[i]);
+        }
+        upcomingScheduled.set(upcoming);
+        loaded = true;
+    }
+    
+    private synchronized void apply(int appointmentId, Appointment appointment) {
+        if (!loaded) {
+            // The next read loads from the database, this change included
+            return;
+        }
+        Long previous = counted.remove(appointmentId);
+        if (previous != null) {
+            count(previous, -1);
+        }
+        if (appointment != null && appointment.getAppointmentDate() != null
+                && appointment.getAppointmentDate().toEpochDay() >= currentDay) {
+            Appointment.Status status = appointment.getStatus() != null
+                ? appointment.getStatus() : Appointment.Status.SCHEDULED;
+            long key = pack(appointment.getAppointmentDate().toEpochDay(), status.ordinal());
+            counted.put(appointmentId, key);
+            count(key, 1);
+        }
+    }
+    
+    private void count(long key, int delta) {
+        if (day(key) == currentDay) {
+            todayByStatus.addAndGet(status(key), delta);
+        } else if (day(key) > currentDay && STATUSES[status(key)] == Appointment.Status.SCHEDULED) {
+            upcomingScheduled.addAndGet(delta);
+        }
+    }
+    
+    private void registerListener() {
+        AppointmentDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Appointment appointment) {
+                apply(appointment.getId(), appointment);
+            }
+            
+            @Override
+            public void onUpdated(Appointment appointment) {
+                apply(appointment.getId(), appointment);
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                apply(id, null);
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    private static long pack(long epochDay, int status) {
+        return (epochDay << 8) | status;
+    }
+    
+    private static long day(long key) {
+        return key >> 8;
+    }
+    
+    private static int status(long key) {
+        return (int) (key & 0xFF);
+    }
+}
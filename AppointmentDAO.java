@@ -3,6 +3,7 @@ package com.rebelle.dao;
 import com.rebelle.models.Appointment;
 import com.rebelle.models.Patient;
 import com.rebelle.models.Service;
+import com.rebelle.utils.DateTimeUtils;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -10,6 +11,7 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -17,30 +19,39 @@ import java.util.Optional;
  */
 public class AppointmentDAO {
     
+    private static final ChangeNotifier<Appointment> CHANGES = new ChangeNotifier<>();
+    
+    private static final Map<String, String[]> PAGE_SORT_COLUMNS = Map.of(
+        "date", new String[] {"COALESCE(a.start_minute, 0)"},
+        "duration", new String[] {"COALESCE(a.duration_minutes, 0)"},
+        "status", new String[] {"COALESCE(a.status, '')"},
+        "id", new String[0]
+    );
+    
+    /** How long a booking waits for another station's write lock */
+    private static final int BOOKING_BUSY_TIMEOUT_MS = 5000;
+    
     private final DatabaseManager dbManager;
     
     public AppointmentDAO() {
         this.dbManager = DatabaseManager.getInstance();
     }
     
+    /**
+     * Listener registry notified after successful appointment writes
+     */
+    public static ChangeNotifier<Appointment> changes() {
+        return CHANGES;
+    }
+    
     /**
      * Create a new appointment
      */
     public Appointment createAppointment(Appointment appointment) {
-        String sql = "INSERT INTO appointments (patient_id, service_id, appointment_date, start_time, " +
-                    "duration_minutes, status, notes, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-                    
         try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
             
-            stmt.setInt(1, appointment.getPatientId());
-            stmt.setObject(2, appointment.getServiceId());
-            stmt.setDate(3, Date.valueOf(appointment.getAppointmentDate()));
-            stmt.setTime(4, Time.valueOf(appointment.getAppointmentTime()));
-            stmt.setInt(5, appointment.getDurationMinutes());
-            stmt.setString(6, appointment.getStatus().name());
-            stmt.setString(7, appointment.getNotes());
-            stmt.setTimestamp(8, Timestamp.valueOf(appointment.getCreatedAt()));
+            bindInsert(stmt, appointment);
             
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
@@ -50,6 +61,7 @@ public class AppointmentDAO {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     appointment.setId(generatedKeys.getInt(1));
+                    CHANGES.fireInserted(appointment);
                     return appointment;
                 }
             }
@@ -62,32 +74,300 @@ public class AppointmentDAO {
     }
     
     /**
-     * Update an existing appointment
+     * Insert an appointment only if its slot is still free. The conflict check
+     * and the insert run in one BEGIN IMMEDIATE transaction on a dedicated
+     * connection, which takes the database write lock up front, so a booking
+     * from another thread or station cannot land between the two. Returns the
+     * conflicting appointments; when the list is empty the appointment was
+     * inserted and has its id set.
      */
-    public boolean updateAppointment(Appointment appointment) {
-        String sql = "UPDATE appointments SET patient_id = ?, service_id = ?, appointment_date = ?, " +
-                    "start_time = ?, duration_minutes = ?, status = ?, notes = ?, updated_at = ? " +
-                    "WHERE id = ?";
-                    
+    public List<Appointment> createAppointmentIfFree(Appointment appointment) throws SQLException {
+        List<Appointment> conflicts;
+        
+        try (Connection conn = dbManager.openConnection();
+             Statement tx = conn.createStatement()) {
+            
+            // Wait for another station's booking to finish instead of failing at once
+            tx.execute("PRAGMA busy_timeout = " + BOOKING_BUSY_TIMEOUT_MS);
+            tx.execute("BEGIN IMMEDIATE");
+            try {
+                conflicts = queryConflicts(conn, appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+                                           appointment.getDurationMinutes(), null);
+                if (conflicts.isEmpty()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                        bindInsert(stmt, appointment);
+                        stmt.executeUpdate();
+                        try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                            if (!generatedKeys.next()) {
+                                throw new SQLException("Creating appointment failed, no ID obtained.");
+                            }
+                            appointment.setId(generatedKeys.getInt(1));
+                        }
+                    }
+                }
+                tx.execute("COMMIT");
+            } catch (SQLException e) {
+                tx.execute("ROLLBACK");
+                appointment.setId(0);
+                throw e;
+            }
+        }
+        
+        if (conflicts.isEmpty()) {
+            CHANGES.fireInserted(appointment);
+        }
+        return conflicts;
+    }
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO appointments (patient_id, service_id, appointment_date, start_time, " +
+        "duration_minutes, status, notes, created_at, start_minute, end_minute, series_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static void bindInsert(PreparedStatement stmt, Appointment appointment) throws SQLException {
+        stmt.setInt(1, appointment.getPatientId());
+        stmt.setObject(2, appointment.getServiceId());
+        stmt.setDate(3, Date.valueOf(appointment.getAppointmentDate()));
+        stmt.setTime(4, Time.valueOf(appointment.getAppointmentTime()));
+        stmt.setInt(5, appointment.getDurationMinutes());
+        stmt.setString(6, appointment.getStatus().name());
+        stmt.setString(7, appointment.getNotes());
+        stmt.setTimestamp(8, Timestamp.valueOf(appointment.getCreatedAt()));
+        setMinutes(stmt, 9, appointment);
+        stmt.setObject(11, appointment.getSeriesId());
+    }
+    
+    /**
+     * Create a recurring series if all its slots are still free. Like
+     * createAppointmentIfFree, the occurrences are checked again inside one
+     * BEGIN IMMEDIATE transaction, then the series row and all occurrences are
+     * inserted as a single batch. Returns the conflicting appointments; when
+     * the list is empty the series was inserted and the occurrences have their
+     * ids and the series id set.
+     */
+    public List<Appointment> createAppointmentSeries(int patientId, String rule, List<Appointment> occurrences)
+            throws SQLException {
+        List<Appointment> conflicts = new ArrayList<>();
+        
+        try (Connection conn = dbManager.openConnection();
+             Statement tx = conn.createStatement()) {
+            
+            tx.execute("PRAGMA busy_timeout = " + BOOKING_BUSY_TIMEOUT_MS);
+            tx.execute("BEGIN IMMEDIATE");
+            try {
+                for (Appointment appointment : occurrences) {
+                    conflicts.addAll(queryConflicts(conn, appointment.getAppointmentDate(),
+                                                    appointment.getAppointmentTime(),
+                                                    appointment.getDurationMinutes(), null));
+                }
+                if (!conflicts.isEmpty()) {
+                    tx.execute("ROLLBACK");
+                    return conflicts;
+                }
+                
+                int seriesId;
+                String seriesSql = "INSERT INTO appointment_series (patient_id, rule, created_at) VALUES (?, ?, ?)";
+                try (PreparedStatement stmt = conn.prepareStatement(seriesSql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setInt(1, patientId);
+                    stmt.setString(2, rule);
+                    stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                    stmt.executeUpdate();
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        if (!keys.next()) {
+                            throw new SQLException("Creating appointment series failed, no ID obtained.");
+                        }
+                        seriesId = keys.getInt(1);
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+                    for (Appointment appointment : occurrences) {
+                        appointment.setSeriesId(seriesId);
+                        bindInsert(stmt, appointment);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                
+                // Batches do not report generated keys reliably; read them back in insert order
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT id FROM appointments WHERE series_id = ? ORDER BY id")) {
+                    stmt.setInt(1, seriesId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        for (Appointment appointment : occurrences) {
+                            if (!rs.next()) {
+                                throw new SQLException("Appointment series was only partly inserted.");
+                            }
+                            appointment.setId(rs.getInt("id"));
+                        }
+                    }
+                }
+                
+                tx.execute("COMMIT");
+            } catch (SQLException e) {
+                tx.execute("ROLLBACK");
+                for (Appointment appointment : occurrences) {
+                    appointment.setSeriesId(null);
+                    appointment.setId(0);
+                }
+                throw e;
+            }
+        }
+        
+        for (Appointment appointment : occurrences) {
+            CHANGES.fireInserted(appointment);
+        }
+        return conflicts;
+    }
+    
+    /**
+     * Update an existing appointment if it is still at the version it was read
+     * at. Returns false if the appointment no longer exists and throws
+     * OptimisticLockException if someone else updated it first.
+     */
+    public boolean updateAppointment(Appointment appointment) throws SQLException {
         try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, appointment.getPatientId());
-            stmt.setObject(2, appointment.getServiceId());
-            stmt.setDate(3, Date.valueOf(appointment.getAppointmentDate()));
-            stmt.setTime(4, Time.valueOf(appointment.getAppointmentTime()));
-            stmt.setInt(5, appointment.getDurationMinutes());
-            stmt.setString(6, appointment.getStatus().name());
-            stmt.setString(7, appointment.getNotes());
-            stmt.setTimestamp(8, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setInt(9, appointment.getId());
-            
-            return stmt.executeUpdate() > 0;
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+            
+            bindUpdate(stmt, appointment);
+            boolean updated = Versioning.update(stmt, conn, "appointments", appointment.getId(),
+                                                appointment.getVersion());
+            if (updated) {
+                appointment.setVersion(appointment.getVersion() + 1);
+                CHANGES.fireUpdated(appointment);
+            }
+            return updated;
+        }
+    }
+    
+    /**
+     * Update an appointment only if its slot is still free. As in
+     * createAppointmentIfFree, the conflict check and the versioned update run
+     * in one BEGIN IMMEDIATE transaction, so two stations cannot move two
+     * appointments into the same slot. Returns the conflicting appointments
+     * (nothing was written), an empty list once updated, or null if the
+     * appointment no longer exists; throws OptimisticLockException if someone
+     * else updated it first.
+     */
+    public List<Appointment> updateAppointmentIfFree(Appointment appointment) throws SQLException {
+        List<Appointment> conflicts = new ArrayList<>();
+        boolean updated = false;
+        
+        try (Connection conn = dbManager.openConnection();
+             Statement tx = conn.createStatement()) {
+            
+            tx.execute("PRAGMA busy_timeout = " + BOOKING_BUSY_TIMEOUT_MS);
+            tx.execute("BEGIN IMMEDIATE");
+            try {
+                if (appointment.getStatus() != Appointment.Status.CANCELLED) {
+                    conflicts = queryConflicts(conn, appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+                                               appointment.getDurationMinutes(), appointment.getId());
+                }
+                if (conflicts.isEmpty()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+                        bindUpdate(stmt, appointment);
+                        updated = Versioning.update(stmt, conn, "appointments", appointment.getId(),
+                                                    appointment.getVersion());
+                    }
+                }
+                tx.execute("COMMIT");
+            } catch (SQLException e) {
+                tx.execute("ROLLBACK");
+                throw e;
+            }
+        }
+        
+        if (updated) {
+            appointment.setVersion(appointment.getVersion() + 1);
+            CHANGES.fireUpdated(appointment);
+        } else if (conflicts.isEmpty()) {
+            return null;
         }
+        return conflicts;
+    }
+    
+    private static final String UPDATE_SQL =
+        "UPDATE appointments SET patient_id = ?, service_id = ?, appointment_date = ?, " +
+        "start_time = ?, duration_minutes = ?, status = ?, notes = ?, updated_at = ?, " +
+        "start_minute = ?, end_minute = ?, version = version + 1 WHERE id = ? AND version = ?";
+    
+    private static void bindUpdate(PreparedStatement stmt, Appointment appointment) throws SQLException {
+        stmt.setInt(1, appointment.getPatientId());
+        stmt.setObject(2, appointment.getServiceId());
+        stmt.setDate(3, Date.valueOf(appointment.getAppointmentDate()));
+        stmt.setTime(4, Time.valueOf(appointment.getAppointmentTime()));
+        stmt.setInt(5, appointment.getDurationMinutes());
+        stmt.setString(6, appointment.getStatus().name());
+        stmt.setString(7, appointment.getNotes());
+        stmt.setTimestamp(8, Timestamp.valueOf(LocalDateTime.now()));
+        setMinutes(stmt, 9, appointment);
+        stmt.setInt(11, appointment.getId());
+        stmt.setInt(12, appointment.getVersion());
+    }
+    
+    /**
+     * Apply a bulk reschedule in one transaction: every row is updated at the
+     * version it was planned from, then each moved (not cancelled) row is
+     * checked for overlaps in its new slot. Returns the overlapping
+     * appointments, in which case nothing was changed; throws
+     * OptimisticLockException if any row changed since it was read.
+     */
+    public List<Appointment> rescheduleAppointments(List<Appointment> moves) throws SQLException {
+        String sql = "UPDATE appointments SET appointment_date = ?, start_time = ?, status = ?, notes = ?, " +
+                    "updated_at = ?, start_minute = ?, end_minute = ?, version = version + 1 " +
+                    "WHERE id = ? AND version = ?";
+        List<Appointment> conflicts = new ArrayList<>();
+        
+        try (Connection conn = dbManager.openConnection();
+             Statement tx = conn.createStatement()) {
+            
+            tx.execute("PRAGMA busy_timeout = " + BOOKING_BUSY_TIMEOUT_MS);
+            tx.execute("BEGIN IMMEDIATE");
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    for (Appointment appointment : moves) {
+                        stmt.setDate(1, Date.valueOf(appointment.getAppointmentDate()));
+                        stmt.setTime(2, Time.valueOf(appointment.getAppointmentTime()));
+                        stmt.setString(3, appointment.getStatus().name());
+                        stmt.setString(4, appointment.getNotes());
+                        stmt.setTimestamp(5, now);
+                        setMinutes(stmt, 6, appointment);
+                        stmt.setInt(8, appointment.getId());
+                        stmt.setInt(9, appointment.getVersion());
+                        stmt.addBatch();
+                    }
+                    int[] counts = stmt.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 0) {
+                            Appointment stale = moves.get(i);
+                            throw new OptimisticLockException("appointments", stale.getId(), stale.getVersion());
+                        }
+                    }
+                }
+                
+                // Every row is in its new place now, so any overlap found is real
+                for (Appointment appointment : moves) {
+                    if (appointment.getStatus() != Appointment.Status.CANCELLED) {
+                        conflicts.addAll(queryConflicts(conn, appointment.getAppointmentDate(),
+                                                        appointment.getAppointmentTime(),
+                                                        appointment.getDurationMinutes(), appointment.getId()));
+                    }
+                }
+                tx.execute(conflicts.isEmpty() ? "COMMIT" : "ROLLBACK");
+            } catch (SQLException e) {
+                tx.execute("ROLLBACK");
+                throw e;
+            }
+        }
+        
+        if (conflicts.isEmpty()) {
+            for (Appointment appointment : moves) {
+                appointment.setVersion(appointment.getVersion() + 1);
+                CHANGES.fireUpdated(appointment);
+            }
+        }
+        return conflicts;
     }
     
     /**
@@ -100,7 +380,11 @@ public class AppointmentDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+            boolean deleted = stmt.executeUpdate() > 0;
+            if (deleted) {
+                CHANGES.fireDeleted(id);
+            }
+            return deleted;
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -144,15 +428,15 @@ public class AppointmentDAO {
                     "FROM appointments a " +
                     "LEFT JOIN patients p ON a.patient_id = p.id " +
                     "LEFT JOIN services s ON a.service_id = s.id " +
-                    "WHERE a.appointment_date = ? " +
-                    "ORDER BY a.start_time";
+                    "WHERE a.start_minute >= ? AND a.start_minute < ? " +
+                    "ORDER BY a.start_minute";
                     
         List<Appointment> appointments = new ArrayList<>();
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(date));
+            setDayRange(stmt, 1, date, date);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -176,7 +460,7 @@ public class AppointmentDAO {
                     "LEFT JOIN patients p ON a.patient_id = p.id " +
                     "LEFT JOIN services s ON a.service_id = s.id " +
                     "WHERE a.patient_id = ? " +
-                    "ORDER BY a.appointment_date DESC, a.start_time";
+                    "ORDER BY a.start_minute DESC";
                     
         List<Appointment> appointments = new ArrayList<>();
         
@@ -206,16 +490,15 @@ public class AppointmentDAO {
                     "FROM appointments a " +
                     "LEFT JOIN patients p ON a.patient_id = p.id " +
                     "LEFT JOIN services s ON a.service_id = s.id " +
-                    "WHERE a.appointment_date BETWEEN ? AND ? " +
-                    "ORDER BY a.appointment_date, a.start_time";
+                    "WHERE a.start_minute >= ? AND a.start_minute < ? " +
+                    "ORDER BY a.start_minute";
                     
         List<Appointment> appointments = new ArrayList<>();
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(startDate));
-            stmt.setDate(2, Date.valueOf(endDate));
+            setDayRange(stmt, 1, startDate, endDate);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -238,7 +521,7 @@ public class AppointmentDAO {
                     "FROM appointments a " +
                     "LEFT JOIN patients p ON a.patient_id = p.id " +
                     "LEFT JOIN services s ON a.service_id = s.id " +
-                    "ORDER BY a.appointment_date DESC, a.start_time";
+                    "ORDER BY a.start_minute DESC";
                     
         List<Appointment> appointments = new ArrayList<>();
         
@@ -257,6 +540,37 @@ public class AppointmentDAO {
         return appointments;
     }
     
+    /**
+     * Get one page of appointments using keyset pagination, optionally limited
+     * to a date range. Sort keys: date (default), duration, status, id.
+     */
+    public Page<Appointment> getAppointmentPage(LocalDate startDate, LocalDate endDate, PageRequest request) {
+        String[] sortColumns = PAGE_SORT_COLUMNS.getOrDefault(request.getSortKey(), PAGE_SORT_COLUMNS.get("date"));
+        String from = "appointments a " +
+                     "LEFT JOIN patients p ON a.patient_id = p.id " +
+                     "LEFT JOIN services s ON a.service_id = s.id";
+        
+        String where = null;
+        List<Object> params = new ArrayList<>();
+        if (startDate != null && endDate != null) {
+            where = "a.start_minute >= ? AND a.start_minute < ?";
+            params.add(DateTimeUtils.toEpochMinute(startDate));
+            params.add(DateTimeUtils.toEpochMinute(endDate.plusDays(1)));
+        }
+        
+        try (Connection conn = dbManager.getConnection()) {
+            return KeysetPager.fetch(conn, "a.*, p.name AS patient_name, s.name AS service_name", from, where,
+                params, sortColumns, "a.id", request, rs -> {
+                    Appointment appointment = mapResultSetToAppointment(rs);
+                    attachJoinedNames(rs, appointment);
+                    return appointment;
+                });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Page.empty();
+        }
+    }
+    
     /**
      * Get today's appointments
      */
@@ -268,12 +582,13 @@ public class AppointmentDAO {
      * Get today's appointment count
      */
     public int getTodaysAppointmentCount() {
-        String sql = "SELECT COUNT(*) FROM appointments WHERE appointment_date = ?";
+        String sql = "SELECT COUNT(*) FROM appointments WHERE start_minute >= ? AND start_minute < ?";
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(LocalDate.now()));
+            LocalDate today = LocalDate.now();
+            setDayRange(stmt, 1, today, today);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -292,12 +607,12 @@ public class AppointmentDAO {
      * Get upcoming appointment count
      */
     public int getUpcomingAppointmentCount() {
-        String sql = "SELECT COUNT(*) FROM appointments WHERE appointment_date > ? AND status = 'SCHEDULED'";
+        String sql = "SELECT COUNT(*) FROM appointments WHERE start_minute >= ? AND status = 'SCHEDULED'";
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(LocalDate.now()));
+            stmt.setLong(1, DateTimeUtils.toEpochMinute(LocalDate.now().plusDays(1)));
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -313,54 +628,159 @@ public class AppointmentDAO {
     }
     
     /**
-     * Find conflicting appointments
+     * Find conflicting appointments on the same day, as a range scan over the
+     * partial index of active appointments. Callers that check often should use
+     * ScheduleIndex instead.
      */
     public List<Appointment> findConflictingAppointments(LocalDate date, LocalTime startTime, 
                                                        int durationMinutes, Integer excludeAppointmentId) {
+        try (Connection conn = dbManager.getConnection()) {
+            return queryConflicts(conn, date, startTime, durationMinutes, excludeAppointmentId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        
+        return new ArrayList<>();
+    }
+    
+    private List<Appointment> queryConflicts(Connection conn, LocalDate date, LocalTime startTime,
+                                             int durationMinutes, Integer excludeAppointmentId) throws SQLException {
         String sql = "SELECT a.*, p.name as patient_name, s.name as service_name " +
                     "FROM appointments a " +
                     "LEFT JOIN patients p ON a.patient_id = p.id " +
                     "LEFT JOIN services s ON a.service_id = s.id " +
-                    "WHERE a.appointment_date = ? " +
-                    "AND a.status != 'CANCELLED' " +
-                    "AND ((a.start_time <= ? AND a.start_time + INTERVAL '1 minute' * a.duration_minutes > ?) " +
-                    "OR (a.start_time < ? + INTERVAL '1 minute' * ? AND a.start_time >= ?))";
+                    "WHERE a.status != 'CANCELLED' " +
+                    "AND a.start_minute >= ? AND a.start_minute < ? AND a.end_minute > ?";
                     
         if (excludeAppointmentId != null) {
             sql += " AND a.id != ?";
         }
+        sql += " ORDER BY a.start_minute";
         
         List<Appointment> appointments = new ArrayList<>();
         
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            LocalTime endTime = startTime.plusMinutes(durationMinutes);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(date));
-            stmt.setTime(2, Time.valueOf(endTime));
-            stmt.setTime(3, Time.valueOf(startTime));
-            stmt.setTime(4, Time.valueOf(startTime));
-            stmt.setInt(5, durationMinutes);
-            stmt.setTime(6, Time.valueOf(startTime));
+            long slotStart = DateTimeUtils.toEpochMinute(date, startTime);
+            stmt.setLong(1, DateTimeUtils.toEpochMinute(date));
+            stmt.setLong(2, slotStart + durationMinutes);
+            stmt.setLong(3, slotStart);
             
             if (excludeAppointmentId != null) {
-                stmt.setInt(7, excludeAppointmentId);
+                stmt.setInt(4, excludeAppointmentId);
             }
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    appointments.add(mapResultSetToAppointment(rs));
+                    Appointment appointment = mapResultSetToAppointment(rs);
+                    attachJoinedNames(rs, appointment);
+                    appointments.add(appointment);
                 }
             }
+        }
+        
+        return appointments;
+    }
+    
+    /**
+     * Everything booking needs to know about a patient and service, in one
+     * joined read. Empty when the patient does not exist.
+     */
+    public Optional<BookingContext> getBookingContext(int patientId, Integer serviceId) throws SQLException {
+        String sql = "SELECT p.id, s.id as service_id, s.is_active, s.duration_minutes " +
+                    "FROM patients p " +
+                    "LEFT JOIN services s ON s.id = ? " +
+                    "WHERE p.id = ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-        } catch (SQLException e) {
-            e.printStackTrace();
+            stmt.setObject(1, serviceId);
+            stmt.setInt(2, patientId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                rs.getInt("service_id");
+                if (rs.wasNull()) {
+                    return Optional.of(new BookingContext(false, false, 0));
+                }
+                return Optional.of(new BookingContext(true, rs.getBoolean("is_active"),
+                                                      rs.getInt("duration_minutes")));
+            }
+        }
+    }
+    
+    /**
+     * Appointments of one day that occupy the schedule (all but cancelled), with
+     * patient and service names, in start time order
+     */
+    public List<Appointment> getActiveAppointmentsByDate(LocalDate date) throws SQLException {
+        return getActiveAppointmentsByDateRange(date, date);
+    }
+    
+    /**
+     * Appointments that occupy the schedule between two dates inclusive, with
+     * patient and service names, in start order
+     */
+    public List<Appointment> getActiveAppointmentsByDateRange(LocalDate startDate, LocalDate endDate)
+            throws SQLException {
+        String sql = "SELECT a.*, p.name as patient_name, s.name as service_name " +
+                    "FROM appointments a " +
+                    "LEFT JOIN patients p ON a.patient_id = p.id " +
+                    "LEFT JOIN services s ON a.service_id = s.id " +
+                    "WHERE a.status != 'CANCELLED' " +
+                    "AND a.start_minute >= ? AND a.start_minute < ? " +
+                    "ORDER BY a.start_minute";
+        
+        List<Appointment> appointments = new ArrayList<>();
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            setDayRange(stmt, 1, startDate, endDate);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Appointment appointment = mapResultSetToAppointment(rs);
+                    attachJoinedNames(rs, appointment);
+                    appointments.add(appointment);
+                }
+            }
         }
         
         return appointments;
     }
     
+    /**
+     * Stream (id, start minute, end minute) of the appointments that occupy the
+     * schedule between two dates inclusive, in start order
+     */
+    public void loadActiveIntervals(LocalDate startDate, LocalDate endDate, IntervalSink sink) throws SQLException {
+        String sql = "SELECT id, start_minute, end_minute FROM appointments " +
+                    "WHERE status != 'CANCELLED' AND start_minute >= ? AND start_minute < ? " +
+                    "ORDER BY start_minute";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            setDayRange(stmt, 1, startDate, endDate);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(rs.getInt("id"), rs.getLong("start_minute"), rs.getLong("end_minute"));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Receives one booked interval in epoch minutes, end exclusive
+     */
+    public interface IntervalSink {
+        void accept(int id, long startMinute, long endMinute);
+    }
+    
     /**
      * Get appointment statistics
      */
@@ -371,12 +791,12 @@ public class AppointmentDAO {
                     "SUM(CASE WHEN status = 'COMPLETED' THEN 1 ELSE 0 END) as completed, " +
                     "SUM(CASE WHEN status = 'CANCELLED' THEN 1 ELSE 0 END) as cancelled " +
                     "FROM appointments " +
-                    "WHERE appointment_date = ?";
+                    "WHERE start_minute >= ? AND start_minute < ?";
                     
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(date));
+            setDayRange(stmt, 1, date, date);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -396,19 +816,45 @@ public class AppointmentDAO {
         return new AppointmentStats(0, 0, 0, 0);
     }
     
+    /**
+     * Bind the start and end epoch minutes of an appointment to two consecutive parameters
+     */
+    private static void setMinutes(PreparedStatement stmt, int index, Appointment appointment) throws SQLException {
+        long startMinute = DateTimeUtils.toEpochMinute(appointment.getAppointmentDate(), appointment.getAppointmentTime());
+        stmt.setLong(index, startMinute);
+        stmt.setLong(index + 1, startMinute + appointment.getDurationMinutes());
+    }
+    
+    /**
+     * Bind the half-open epoch minute range covering whole days from startDate to endDate
+     */
+    private static void setDayRange(PreparedStatement stmt, int index, LocalDate startDate, LocalDate endDate)
+            throws SQLException {
+        stmt.setLong(index, DateTimeUtils.toEpochMinute(startDate));
+        stmt.setLong(index + 1, DateTimeUtils.toEpochMinute(endDate.plusDays(1)));
+    }
+    
     /**
      * Map ResultSet to Appointment object
      */
-    private Appointment mapResultSetToAppointment(ResultSet rs) throws SQLException {
+    Appointment mapResultSetToAppointment(ResultSet rs) throws SQLException {
         Appointment appointment = new Appointment();
         appointment.setId(rs.getInt("id"));
         appointment.setPatientId(rs.getInt("patient_id"));
         appointment.setServiceId(rs.getInt("service_id"));
-        appointment.setAppointmentDate(rs.getDate("appointment_date").toLocalDate());
-        appointment.setAppointmentTime(rs.getTime("start_time").toLocalTime());
+        long startMinute = rs.getLong("start_minute");
+        if (!rs.wasNull()) {
+            appointment.setAppointmentDateTime(DateTimeUtils.fromEpochMinute(startMinute));
+        } else {
+            appointment.setAppointmentDate(rs.getDate("appointment_date").toLocalDate());
+            appointment.setAppointmentTime(rs.getTime("start_time").toLocalTime());
+        }
         appointment.setDurationMinutes(rs.getInt("duration_minutes"));
+        int seriesId = rs.getInt("series_id");
+        appointment.setSeriesId(rs.wasNull() ? null : seriesId);
         appointment.setStatus(Appointment.Status.valueOf(rs.getString("status")));
         appointment.setNotes(rs.getString("notes"));
+        appointment.setVersion(rs.getInt("version"));
         appointment.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
         
         Timestamp updatedAt = rs.getTimestamp("updated_at");
@@ -419,6 +865,46 @@ public class AppointmentDAO {
         return appointment;
     }
     
+    /**
+     * Attach lightweight patient and service objects from joined name columns
+     */
+    void attachJoinedNames(ResultSet rs, Appointment appointment) throws SQLException {
+        String patientName = rs.getString("patient_name");
+        if (patientName != null) {
+            Patient patient = new Patient();
+            patient.setId(appointment.getPatientId());
+            patient.setName(patientName);
+            appointment.setPatient(patient);
+        }
+        
+        String serviceName = rs.getString("service_name");
+        if (serviceName != null) {
+            Service service = new Service();
+            service.setId(appointment.getServiceId());
+            service.setName(serviceName);
+            appointment.setService(service);
+        }
+    }
+    
+    /**
+     * Whether the requested service exists and is bookable, and its default duration
+     */
+    public static class BookingContext {
+        private final boolean serviceFound;
+        private final boolean serviceActive;
+        private final int serviceDuration;
+        
+        public BookingContext(boolean serviceFound, boolean serviceActive, int serviceDuration) {
+            this.serviceFound = serviceFound;
+            this.serviceActive = serviceActive;
+            this.serviceDuration = serviceDuration;
+        }
+        
+        public boolean isServiceFound() { return serviceFound; }
+        public boolean isServiceActive() { return serviceActive; }
+        public int getServiceDuration() { return serviceDuration; }
+    }
+    
     /**
      * Appointment statistics class
      */
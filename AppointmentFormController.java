@@ -1,5 +1,6 @@
 package com.rebelle.controllers;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
@@ -8,10 +9,10 @@ import javafx.scene.control.*;
 import javafx.stage.Stage;
 import javafx.util.StringConverter;
 import com.rebelle.models.Appointment;
-import com.rebelle.models.Patient;
+import com.rebelle.models.PatientSummary;
 import com.rebelle.models.Service;
 import com.rebelle.services.AppointmentService;
-import com.rebelle.services.PatientService;
+import com.rebelle.utils.ThreeWayMerge;
 
 import java.net.URL;
 import java.time.LocalDate;
@@ -19,6 +20,7 @@ import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * AppointmentFormController - Controls the appointment schedule/edit form dialog
@@ -26,8 +28,18 @@ import java.util.ResourceBundle;
 public class AppointmentFormController implements Initializable {
     
     // FXML Controls
+    /** Fields merged when the appointment was changed elsewhere during the edit */
+    private static final ThreeWayMerge<Appointment> MERGE = new ThreeWayMerge<Appointment>()
+        .field("Patient", Appointment::getPatientId, Appointment::setPatientId)
+        .field("Service", Appointment::getServiceId, Appointment::setServiceId)
+        .field("Date", Appointment::getAppointmentDate, Appointment::setAppointmentDate)
+        .field("Time", Appointment::getAppointmentTime, Appointment::setAppointmentTime)
+        .field("Duration", Appointment::getDurationMinutes, Appointment::setDurationMinutes)
+        .field("Status", Appointment::getStatus, Appointment::setStatus)
+        .field("Notes", Appointment::getNotes, Appointment::setNotes);
+    
     @FXML private Label formTitleLabel;
-    @FXML private ComboBox<Patient> patientComboBox;
+    @FXML private ComboBox<PatientSummary> patientComboBox;
     @FXML private Button newPatientBtn;
     @FXML private ComboBox<Service> serviceComboBox;
     @FXML private DatePicker dateField;
@@ -43,15 +55,16 @@ public class AppointmentFormController implements Initializable {
     
     // Services and state
     private AppointmentService appointmentService;
-    private PatientService patientService;
+    private PatientAutocomplete patientAutocomplete;
     private AppointmentController parentController;
     private Appointment editingAppointment;
     private boolean isEditMode = false;
+    private boolean retriedAfterConflict;
+    private CompletableFuture<AppointmentService.ServiceResult<List<Appointment>>> pendingConflictCheck;
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         appointmentService = new AppointmentService();
-        patientService = new PatientService();
         
         setupForm();
         setupValidation();
@@ -62,18 +75,8 @@ public class AppointmentFormController implements Initializable {
      * Setup form initial state
      */
     private void setupForm() {
-        // Setup patient combo box
-        patientComboBox.setConverter(new StringConverter<Patient>() {
-            @Override
-            public String toString(Patient patient) {
-                return patient != null ? patient.getDisplayName() : "";
-            }
-            
-            @Override
-            public Patient fromString(String string) {
-                return null; // Not needed for display-only combo box
-            }
-        });
+        // Setup patient combo box (type-ahead; suggestions come from the autocomplete index)
+        patientAutocomplete = PatientAutocomplete.attach(patientComboBox);
         
         // Setup service combo box
         serviceComboBox.setConverter(new StringConverter<Service>() {
@@ -182,7 +185,10 @@ public class AppointmentFormController implements Initializable {
     private void setupValidation() {
         // Add listeners for real-time validation
         patientComboBox.valueProperty().addListener((obs, oldPatient, newPatient) -> validateForm());
-        dateField.valueProperty().addListener((obs, oldDate, newDate) -> validateForm());
+        dateField.valueProperty().addListener((obs, oldDate, newDate) -> {
+            validateForm();
+            checkForConflicts();
+        });
         timeComboBox.valueProperty().addListener((obs, oldTime, newTime) -> {
             validateForm();
             checkForConflicts();
@@ -191,26 +197,9 @@ public class AppointmentFormController implements Initializable {
     }
     
     /**
-     * Load form data (patients and services)
+     * Load form data (services; patients are suggested as the user types)
      */
     private void loadFormData() {
-        // Load patients
-        Task<PatientService.ServiceResult<List<Patient>>> patientTask = new Task<>() {
-            @Override
-            protected PatientService.ServiceResult<List<Patient>> call() {
-                return patientService.getAllPatients();
-            }
-        };
-        
-        patientTask.setOnSucceeded(e -> {
-            PatientService.ServiceResult<List<Patient>> result = patientTask.getValue();
-            if (result.isSuccess()) {
-                patientComboBox.setItems(FXCollections.observableArrayList(result.getData()));
-            }
-        });
-        
-        new Thread(patientTask).start();
-        
         // Load services
         Task<AppointmentService.ServiceResult<List<Service>>> serviceTask = new Task<>() {
             @Override
@@ -270,7 +259,7 @@ public class AppointmentFormController implements Initializable {
     private void populateForm(Appointment appointment) {
         // Select patient
         if (appointment.getPatient() != null) {
-            patientComboBox.getSelectionModel().select(appointment.getPatient());
+            patientAutocomplete.select(PatientSummary.from(appointment.getPatient()));
         }
         
         // Select service
@@ -298,7 +287,7 @@ public class AppointmentFormController implements Initializable {
      * Validate form inputs
      */
     private void validateForm() {
-        Patient patient = patientComboBox.getValue();
+        PatientSummary patient = patientComboBox.getValue();
         LocalDate date = dateField.getValue();
         LocalTime time = timeComboBox.getValue();
         
@@ -342,15 +331,37 @@ public class AppointmentFormController implements Initializable {
         LocalTime time = timeComboBox.getValue();
         Integer duration = durationComboBox.getValue();
         
+        // Only the latest check may update the label
+        if (pendingConflictCheck != null) {
+            pendingConflictCheck.cancel(true);
+            pendingConflictCheck = null;
+        }
+        
         if (date == null || time == null || duration == null) {
             conflictLabel.setVisible(false);
             return;
         }
         
-        // TODO: Check for conflicts with existing appointments
-        // This would require calling the appointment service to check conflicts
-        // For now, we'll hide the conflict label
-        conflictLabel.setVisible(false);
+        Integer excludeId = isEditMode && editingAppointment != null ? editingAppointment.getId() : null;
+        CompletableFuture<AppointmentService.ServiceResult<List<Appointment>>> check =
+            appointmentService.async(s -> s.findConflicts(date, time, duration, excludeId));
+        pendingConflictCheck = check;
+        
+        check.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (pendingConflictCheck != check || error != null) {
+                return;
+            }
+            pendingConflictCheck = null;
+            
+            if (result.isSuccess() && !result.getData().isEmpty()) {
+                Appointment conflict = result.getData().get(0);
+                conflictLabel.setText(String.format("Conflicts with %s at %s (%s)",
+                    conflict.getPatientName(), conflict.getFormattedTime(), conflict.getDurationString()));
+                conflictLabel.setVisible(true);
+            } else {
+                conflictLabel.setVisible(false);
+            }
+        }));
     }
     
     /**
@@ -367,54 +378,60 @@ public class AppointmentFormController implements Initializable {
      */
     @FXML
     private void handleSave() {
+        retriedAfterConflict = false;
+        save();
+    }
+    
+    private void save() {
         if (!validateFormForSave()) {
             return;
         }
         
-        Patient patient = patientComboBox.getValue();
+        PatientSummary patient = patientComboBox.getValue();
         Service service = serviceComboBox.getValue();
         LocalDate date = dateField.getValue();
         LocalTime time = timeComboBox.getValue();
         Integer duration = durationComboBox.getValue();
         String notes = notesField.getText().trim();
         
-        // Disable save button to prevent double-clicking
+        // Disable save button to prevent double-clicking; a started save cannot
+        // be called back, so Cancel waits for it too
         saveBtn.setDisable(true);
         saveBtn.setText("Saving...");
+        cancelBtn.setDisable(true);
         
-        Task<AppointmentService.ServiceResult<?>> task;
+        CompletableFuture<AppointmentService.ServiceResult<Appointment>> save;
         
         if (isEditMode && editingAppointment != null) {
-            // Update existing appointment
+            // Update existing appointment, only if nobody has changed it since it was loaded
             Appointment.Status status = statusComboBox.getValue();
-            task = new Task<>() {
-                @Override
-                protected AppointmentService.ServiceResult<?> call() {
-                    return appointmentService.updateAppointment(
-                        editingAppointment.getId(),
-                        patient.getId(),
-                        service != null ? service.getId() : null,
-                        date, time, duration, status, notes
-                    );
-                }
-            };
+            int appointmentId = editingAppointment.getId();
+            int version = editingAppointment.getVersion();
+            save = appointmentService.async(s -> s.updateAppointment(
+                appointmentId,
+                patient.getId(),
+                service != null ? service.getId() : null,
+                date, time, duration, status, notes, version
+            ));
         } else {
-            // Create new appointment
-            task = new Task<>() {
-                @Override
-                protected AppointmentService.ServiceResult<?> call() {
-                    return appointmentService.createAppointment(
-                        patient.getId(),
-                        service != null ? service.getId() : null,
-                        date, time, duration, notes
-                    );
-                }
-            };
+            // Create new appointment (validate, conflict-check, insert)
+            save = appointmentService.createAppointmentAsync(
+                patient.getId(),
+                service != null ? service.getId() : null,
+                date, time, duration, notes
+            );
         }
         
-        task.setOnSucceeded(e -> {
-            AppointmentService.ServiceResult<?> result = task.getValue();
-            if (result.isSuccess()) {
+        save.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                showError("Save Failed", error.getMessage());
+                resetSaveButton();
+                return;
+            }
+            
+            if (result.isConflict()) {
+                resolveConflict(result.getData());
+            } else if (result.isSuccess()) {
                 // Notify parent controller
                 if (parentController != null) {
                     parentController.onAppointmentSaved();
@@ -431,14 +448,62 @@ public class AppointmentFormController implements Initializable {
                 showError("Save Failed", result.getMessage());
                 resetSaveButton();
             }
-        });
+        }));
+    }
+    
+    /**
+     * The appointment was saved by someone else while this form was open.
+     * Merge their changes with the form's; save straight away when no field
+     * was changed by both, otherwise ask whose values win.
+     */
+    private void resolveConflict(Appointment current) {
+        Appointment mine = new Appointment(patientComboBox.getValue().getId(), dateField.getValue(),
+                                           timeComboBox.getValue());
+        Service service = serviceComboBox.getValue();
+        Integer duration = durationComboBox.getValue();
+        mine.setServiceId(service != null ? service.getId() : null);
+        mine.setDurationMinutes(duration != null ? duration : editingAppointment.getDurationMinutes());
+        mine.setStatus(statusComboBox.getValue());
+        mine.setNotes(notesField.getText().trim());
+        
+        ThreeWayMerge.Result<Appointment> merge = MERGE.merge(editingAppointment, mine, current);
+        boolean keepMine = !merge.hasConflicts() || confirmKeepMine(merge.getConflicts());
+        Appointment merged = keepMine ? merge.getMerged() : merge.keepTheirs();
+        
+        // Select their patient and service where the merge took them
+        if (merged.getPatientId() == current.getPatientId()) {
+            merged.setPatient(current.getPatient());
+        }
+        if (java.util.Objects.equals(merged.getServiceId(), current.getServiceId())) {
+            merged.setService(current.getService());
+        }
         
-        task.setOnFailed(e -> {
-            showError("Database Error", "Failed to save appointment to database");
+        // The saved appointment is the new starting point of this edit
+        editingAppointment = current;
+        populateForm(merged);
+        if (keepMine && !retriedAfterConflict) {
+            // Retry once by itself; if it is changed again meanwhile, the user takes over
+            retriedAfterConflict = true;
+            save();
+        } else {
+            if (keepMine) {
+                showInfo("Edit Conflict", "This appointment was changed again while saving. Check the merged values and save again.");
+            }
             resetSaveButton();
-        });
-        
-        new Thread(task).start();
+        }
+    }
+    
+    /**
+     * Ask whether the form's values replace the saved ones for fields both changed
+     */
+    private boolean confirmKeepMine(List<String> fields) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Edit Conflict");
+        alert.setHeaderText("This appointment was changed by someone else");
+        alert.setContentText("Both of you changed: " + String.join(", ", fields) + ".\n\n"
+            + "OK saves your values. Cancel loads the saved values into the form for review; "
+            + "your other changes are kept.");
+        return alert.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK;
     }
     
     /**
@@ -465,7 +530,7 @@ public class AppointmentFormController implements Initializable {
      * Validate form for save operation
      */
     private boolean validateFormForSave() {
-        Patient patient = patientComboBox.getValue();
+        PatientSummary patient = patientComboBox.getValue();
         LocalDate date = dateField.getValue();
         LocalTime time = timeComboBox.getValue();
         
@@ -508,10 +573,10 @@ public class AppointmentFormController implements Initializable {
     private boolean hasUnsavedChanges() {
         if (isEditMode && editingAppointment != null) {
             // Compare current form values with original appointment data
-            Patient selectedPatient = patientComboBox.getValue();
+            PatientSummary selectedPatient = patientComboBox.getValue();
             Service selectedService = serviceComboBox.getValue();
             
-            return !java.util.Objects.equals(selectedPatient, editingAppointment.getPatient()) ||
+            return !java.util.Objects.equals(selectedPatient, PatientSummary.from(editingAppointment.getPatient())) ||
                    !java.util.Objects.equals(selectedService, editingAppointment.getService()) ||
                    !java.util.Objects.equals(dateField.getValue(), editingAppointment.getAppointmentDate()) ||
                    !java.util.Objects.equals(timeComboBox.getValue(), editingAppointment.getAppointmentTime()) ||
@@ -534,6 +599,7 @@ public class AppointmentFormController implements Initializable {
     private void resetSaveButton() {
         saveBtn.setDisable(false);
         saveBtn.setText(isEditMode ? "Update Appointment" : "Schedule Appointment");
+        cancelBtn.setDisable(false);
     }
     
     /**
@@ -575,7 +641,7 @@ public class AppointmentFormController implements Initializable {
         this.isEditMode = true;
         
         // Populate form fields
-        patientComboBox.setValue(appointment.getPatient());
+        patientAutocomplete.select(PatientSummary.from(appointment.getPatient()));
         serviceComboBox.setValue(appointment.getService());
         dateField.setValue(appointment.getAppointmentDate());
         timeComboBox.setValue(appointment.getAppointmentTime());
@@ -1,30 +1,46 @@
 package com.rebelle.services;
 
 import com.rebelle.dao.AppointmentDAO;
-import com.rebelle.dao.PatientDAO;
+import com.rebelle.dao.OptimisticLockException;
+import com.rebelle.dao.Page;
+import com.rebelle.dao.PageRequest;
 import com.rebelle.dao.ServiceDAO;
 import com.rebelle.models.Appointment;
-import com.rebelle.models.Patient;
+import com.rebelle.models.AvailableSlot;
+import com.rebelle.models.CalendarDay;
+import com.rebelle.models.RecurrenceRule;
+import com.rebelle.models.RescheduleStrategy;
 import com.rebelle.models.Service;
+import com.rebelle.utils.DateTimeUtils;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * AppointmentService - Business logic layer for appointment operations
  */
 public class AppointmentService {
     
+    private static final String CONFLICT_MESSAGE =
+        "This appointment was changed by someone else while you were editing it.";
+    
+    /** Attempts at a status change before giving up on a busy appointment */
+    private static final int MAX_STATUS_ATTEMPTS = 3;
+    
     private final AppointmentDAO appointmentDAO;
-    private final PatientDAO patientDAO;
     private final ServiceDAO serviceDAO;
     
     public AppointmentService() {
         this.appointmentDAO = new AppointmentDAO();
-        this.patientDAO = new PatientDAO();
         this.serviceDAO = new ServiceDAO();
     }
     
@@ -34,34 +50,467 @@ public class AppointmentService {
     public ServiceResult<Appointment> createAppointment(int patientId, Integer serviceId, 
                                                       LocalDate appointmentDate, LocalTime appointmentTime, 
                                                       Integer durationMinutes, String notes) {
+        ServiceResult<Integer> validated = validateNewAppointment(patientId, serviceId, appointmentDate,
+                                                                  appointmentTime, durationMinutes);
+        if (!validated.isSuccess()) {
+            return ServiceResult.error(validated.getMessage());
+        }
+        
+        ServiceResult<Integer> checked = checkConflicts(appointmentDate, appointmentTime, validated.getData(), null);
+        if (!checked.isSuccess()) {
+            return ServiceResult.error(checked.getMessage());
+        }
+        
+        return insertAppointment(patientId, serviceId, appointmentDate, appointmentTime, checked.getData(), notes);
+    }
+    
+    /**
+     * Create a new appointment asynchronously: validate, then conflict-check,
+     * then insert, each as its own step on the service executor. A failed step
+     * short-circuits the rest; cancelling the returned future abandons the
+     * remaining steps.
+     */
+    public CompletableFuture<ServiceResult<Appointment>> createAppointmentAsync(int patientId, Integer serviceId,
+                                                                               LocalDate appointmentDate,
+                                                                               LocalTime appointmentTime,
+                                                                               Integer durationMinutes, String notes) {
+        ServiceExecutor executor = ServiceExecutor.getInstance();
+        
+        CompletableFuture<ServiceResult<Integer>> validated = executor.submit(
+            () -> validateNewAppointment(patientId, serviceId, appointmentDate, appointmentTime, durationMinutes),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+        
+        CompletableFuture<ServiceResult<Integer>> checked = executor.thenSubmit(validated,
+            result -> result.isSuccess()
+                ? checkConflicts(appointmentDate, appointmentTime, result.getData(), null)
+                : result,
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+        
+        return executor.thenSubmit(checked,
+            result -> result.isSuccess()
+                ? insertAppointment(patientId, serviceId, appointmentDate, appointmentTime, result.getData(), notes)
+                : ServiceResult.<Appointment>error(result.getMessage()),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+    }
+    
+    /**
+     * Validate a new appointment and resolve its duration. The date, time and
+     * duration are checked first; the patient and service then take one joined read.
+     */
+    private ServiceResult<Integer> validateNewAppointment(int patientId, Integer serviceId, LocalDate appointmentDate,
+                                                          LocalTime appointmentTime, Integer durationMinutes) {
         // Validate input
-        ValidationResult validation = validateAppointmentData(patientId, serviceId, appointmentDate, 
-                                                            appointmentTime, durationMinutes, null);
+        ValidationResult validation = validateAppointmentData(appointmentDate, appointmentTime, durationMinutes);
         if (!validation.isValid()) {
             return ServiceResult.error(validation.getErrorMessage());
         }
         
+        Optional<AppointmentDAO.BookingContext> context;
+        try {
+            context = appointmentDAO.getBookingContext(patientId, serviceId);
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error during validation: " + e.getMessage());
+        }
+        if (context.isEmpty()) {
+            return ServiceResult.error("Patient not found.");
+        }
+        
         // Set default duration if not provided
         int duration = durationMinutes != null ? durationMinutes : 30;
         
         // If service is provided, use service's default duration
         if (serviceId != null) {
-            Optional<Service> service = serviceDAO.getServiceById(serviceId);
-            if (service.isPresent()) {
-                duration = service.get().getDurationMinutes();
+            if (!context.get().isServiceFound()) {
+                return ServiceResult.error("Service not found.");
             }
+            if (!context.get().isServiceActive()) {
+                return ServiceResult.error("Selected service is not active.");
+            }
+            duration = context.get().getServiceDuration();
         }
         
-        // Check for conflicts
-        List<Appointment> conflicts = appointmentDAO.findConflictingAppointments(
-            appointmentDate, appointmentTime, duration, null);
+        return ServiceResult.success(duration);
+    }
+    
+    /**
+     * Check a time slot for conflicts; passes the duration through on success
+     */
+    private ServiceResult<Integer> checkConflicts(LocalDate appointmentDate, LocalTime appointmentTime,
+                                                  int duration, Integer excludeAppointmentId) {
+        ServiceResult<List<Appointment>> conflicts = findConflicts(appointmentDate, appointmentTime, duration,
+                                                                   excludeAppointmentId);
+        if (!conflicts.isSuccess()) {
+            return ServiceResult.error(conflicts.getMessage());
+        }
         
-        if (!conflicts.isEmpty()) {
+        if (!conflicts.getData().isEmpty()) {
             return ServiceResult.error(
                 String.format("Appointment conflicts with existing appointment at %s", 
-                            conflicts.get(0).getFormattedTime()));
+                            conflicts.getData().get(0).getFormattedTime()));
+        }
+        
+        return ServiceResult.success(duration);
+    }
+    
+    /**
+     * Booked appointments overlapping a time slot, answered from the schedule index
+     */
+    public ServiceResult<List<Appointment>> findConflicts(LocalDate appointmentDate, LocalTime appointmentTime,
+                                                          int durationMinutes, Integer excludeAppointmentId) {
+        try {
+            return ServiceResult.success(ScheduleIndex.getInstance().findConflicts(
+                appointmentDate, appointmentTime, durationMinutes, excludeAppointmentId));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * The first free slots of a given length between two dates, soonest first
+     */
+    public ServiceResult<List<AvailableSlot>> findAvailableSlots(LocalDate startDate, LocalDate endDate,
+                                                                 int durationMinutes, int limit) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            return ServiceResult.error("A valid date range is required.");
+        }
+        if (startDate.plusYears(1).isBefore(endDate)) {
+            return ServiceResult.error("Search at most one year ahead.");
+        }
+        if (durationMinutes < 5 || durationMinutes > 480) {
+            return ServiceResult.error("Duration must be between 5 minutes and 8 hours.");
+        }
+        
+        try {
+            return ServiceResult.success(
+                AvailabilityEngine.getInstance().findSlots(startDate, endDate, durationMinutes, limit));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * The first free slots long enough for a service between two dates, soonest first
+     */
+    public ServiceResult<List<AvailableSlot>> findAvailableSlotsForService(int serviceId, LocalDate startDate,
+                                                                           LocalDate endDate, int limit) {
+        Optional<Service> service = serviceDAO.getServiceById(serviceId);
+        if (service.isEmpty()) {
+            return ServiceResult.error("Service not found.");
+        }
+        return findAvailableSlots(startDate, endDate, service.get().getDurationMinutes(), limit);
+    }
+    
+    /**
+     * Expand a recurrence rule and check every occurrence against the schedule
+     * in one pass, without saving anything
+     */
+    public ServiceResult<SeriesPlan> planRecurringAppointments(int patientId, Integer serviceId,
+                                                             LocalTime appointmentTime, Integer durationMinutes,
+                                                             String notes, RecurrenceRule rule) {
+        if (rule == null) {
+            return ServiceResult.error("A recurrence rule is required.");
+        }
+        ServiceResult<Integer> validated = validateNewAppointment(patientId, serviceId, rule.getStartDate(),
+                                                                  appointmentTime, durationMinutes);
+        if (!validated.isSuccess()) {
+            return ServiceResult.error(validated.getMessage());
+        }
+        
+        List<Appointment> occurrences = new ArrayList<>();
+        for (LocalDate date : rule.expand()) {
+            Appointment appointment = new Appointment(patientId, date, appointmentTime);
+            appointment.setServiceId(serviceId);
+            appointment.setDurationMinutes(validated.getData());
+            appointment.setNotes(notes);
+            appointment.setStatus(Appointment.Status.SCHEDULED);
+            occurrences.add(appointment);
+        }
+        
+        try {
+            List<List<Appointment>> conflicts = ScheduleIndex.getInstance().findConflicts(occurrences);
+            List<Appointment> accepted = new ArrayList<>();
+            List<SeriesClash> clashes = new ArrayList<>();
+            for (int i = 0; i < occurrences.size(); i++) {
+                if (conflicts.get(i).isEmpty()) {
+                    accepted.add(occurrences.get(i));
+                } else {
+                    clashes.add(new SeriesClash(occurrences.get(i), conflicts.get(i)));
+                }
+            }
+            return ServiceResult.success(new SeriesPlan(accepted, clashes));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Create a recurring series. With skipConflicts the clashing occurrences
+     * are left out (and reported in the result); otherwise any clash fails the
+     * whole series. Accepted occurrences are inserted in one transaction.
+     */
+    public ServiceResult<SeriesPlan> createRecurringAppointments(int patientId, Integer serviceId,
+                                                               LocalTime appointmentTime, Integer durationMinutes,
+                                                               String notes, RecurrenceRule rule,
+                                                               boolean skipConflicts) {
+        ServiceResult<SeriesPlan> planned = planRecurringAppointments(patientId, serviceId, appointmentTime,
+                                                                      durationMinutes, notes, rule);
+        if (!planned.isSuccess()) {
+            return planned;
+        }
+        
+        SeriesPlan plan = planned.getData();
+        if (plan.hasClashes() && !skipConflicts) {
+            Appointment first = plan.getClashes().get(0).getOccurrence();
+            return ServiceResult.error(String.format(
+                "%d of %d occurrences conflict with existing appointments (first on %s).",
+                plan.getClashes().size(), plan.getClashes().size() + plan.getAccepted().size(),
+                first.getFormattedDate()));
+        }
+        if (plan.getAccepted().isEmpty()) {
+            return ServiceResult.error("Every occurrence conflicts with an existing appointment.");
+        }
+        
+        // The occurrences are checked again inside the insert transaction
+        try {
+            List<Appointment> conflicts = appointmentDAO.createAppointmentSeries(patientId, rule.toString(),
+                                                                                 plan.getAccepted());
+            if (!conflicts.isEmpty()) {
+                Appointment first = conflicts.get(0);
+                return ServiceResult.error(String.format(
+                    "An occurrence now conflicts with an appointment booked meanwhile (%s at %s).",
+                    first.getFormattedDate(), first.getFormattedTime()));
+            }
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
         }
         
+        String message = plan.getAccepted().size() + " appointments scheduled";
+        if (plan.hasClashes()) {
+            message += ", " + plan.getClashes().size() + " skipped because of conflicts";
+        }
+        return ServiceResult.success(plan, message + ".");
+    }
+    
+    /**
+     * Plan moving the scheduled appointments that start within a window of
+     * one day (the whole day when the window bounds are null), e.g. when a
+     * provider is off sick. Everything is checked in memory against the
+     * schedule and the moves against each other; nothing is saved.
+     */
+    public ServiceResult<ReschedulePlan> planReschedule(LocalDate day, LocalTime windowStart, LocalTime windowEnd,
+                                                        RescheduleStrategy strategy) {
+        if (day == null || strategy == null) {
+            return ServiceResult.error("A day and a reschedule strategy are required.");
+        }
+        LocalTime from = windowStart != null ? windowStart : LocalTime.MIDNIGHT;
+        int fromMinute = from.toSecondOfDay() / 60;
+        int toMinute = windowEnd != null ? windowEnd.toSecondOfDay() / 60 : 24 * 60;
+        if (toMinute <= fromMinute) {
+            return ServiceResult.error("The end of the window must be after its start.");
+        }
+        
+        try {
+            // Copies, as the index hands out the appointments it holds
+            List<Appointment> source = new ArrayList<>();
+            for (Appointment appointment : ScheduleIndex.getInstance().findConflicts(day, from,
+                                                                                     toMinute - fromMinute, null)) {
+                if (appointment.getStatus() == Appointment.Status.SCHEDULED
+                        && !appointment.getAppointmentTime().isBefore(from)) {
+                    source.add(appointment.copy());
+                }
+            }
+            
+            List<RescheduleMove> moves = new ArrayList<>();
+            List<RescheduleMove> clashes = new ArrayList<>();
+            switch (strategy.getKind()) {
+                case CANCEL:
+                    for (Appointment original : source) {
+                        Appointment planned = original.copy();
+                        planned.setStatus(Appointment.Status.CANCELLED);
+                        planned.setNotes(appendNote(original.getNotes(), strategy.getReason()));
+                        moves.add(new RescheduleMove(original, planned, new ArrayList<>(), null));
+                    }
+                    break;
+                case SHIFT:
+                    planShift(source, strategy, moves, clashes);
+                    break;
+                default:
+                    planFreeSlots(source, strategy, moves, clashes);
+                    break;
+            }
+            return ServiceResult.success(new ReschedulePlan(moves, clashes));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Apply the accepted moves of a plan in one transaction. If any of the
+     * appointments changed since the plan was made, or a new slot has been
+     * taken meanwhile, nothing is changed.
+     */
+    public ServiceResult<ReschedulePlan> applyReschedule(ReschedulePlan plan) {
+        if (plan == null || plan.getMoves().isEmpty()) {
+            return ServiceResult.error("There is nothing to reschedule.");
+        }
+        List<Appointment> planned = new ArrayList<>(plan.getMoves().size());
+        for (RescheduleMove move : plan.getMoves()) {
+            planned.add(move.getPlanned());
+        }
+        
+        try {
+            List<Appointment> conflicts = appointmentDAO.rescheduleAppointments(planned);
+            if (!conflicts.isEmpty()) {
+                return ServiceResult.error(String.format(
+                    "The schedule changed since the plan was made (%s is now taken). Nothing was changed.",
+                    conflicts.get(0).getFormattedDateTime()));
+            }
+        } catch (OptimisticLockException e) {
+            return ServiceResult.error(
+                "An appointment was changed since the plan was made. Nothing was changed, please plan again.");
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+        
+        String message = plan.getMoves().size() + " appointments "
+            + (planned.get(0).getStatus() == Appointment.Status.CANCELLED ? "cancelled" : "rescheduled");
+        if (plan.hasClashes()) {
+            message += ", " + plan.getClashes().size() + " left in place";
+        }
+        return ServiceResult.success(plan, message + ".");
+    }
+    
+    /**
+     * Shift each appointment by the offset. The appointments being moved free
+     * their old slots, so only overlaps with the rest of the schedule and with
+     * the moves accepted before count. A move that is turned down stays where
+     * it is, though, and its old slot then blocks the moves into it; those are
+     * turned down as well, and the moves are checked again until no more are.
+     */
+    private void planShift(List<Appointment> source, RescheduleStrategy strategy,
+                           List<RescheduleMove> moves, List<RescheduleMove> clashes) throws SQLException {
+        List<Appointment> planned = new ArrayList<>(source.size());
+        for (Appointment original : source) {
+            Appointment copy = original.copy();
+            copy.setAppointmentDateTime(original.getAppointmentDateTime().plus(strategy.getOffset()));
+            planned.add(copy);
+        }
+        
+        settleShift(source, planned, ScheduleIndex.getInstance().findConflicts(planned), LocalDateTime.now(),
+                    moves, clashes);
+    }
+    
+    /**
+     * Accept or turn down each shifted appointment, given the booked
+     * appointments overlapping each new slot (found)
+     */
+    static void settleShift(List<Appointment> source, List<Appointment> planned, List<List<Appointment>> found,
+                            LocalDateTime now, List<RescheduleMove> moves, List<RescheduleMove> clashes) {
+        Set<Integer> moving = new HashSet<>();
+        for (Appointment original : source) {
+            moving.add(original.getId());
+        }
+        
+        RescheduleMove[] rejected = new RescheduleMove[source.size()];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            List<Appointment> accepted = new ArrayList<>();
+            for (int i = 0; i < source.size(); i++) {
+                if (rejected[i] != null) {
+                    continue;
+                }
+                Appointment target = planned.get(i);
+                List<Appointment> conflicts = new ArrayList<>();
+                for (Appointment booked : found.get(i)) {
+                    if (!moving.contains(booked.getId())) {
+                        conflicts.add(booked);
+                    }
+                }
+                for (int j = 0; j < source.size(); j++) {
+                    if (rejected[j] != null && overlaps(source.get(j), target)) {
+                        conflicts.add(source.get(j));
+                    }
+                }
+                for (Appointment other : accepted) {
+                    if (overlaps(other, target)) {
+                        conflicts.add(other);
+                    }
+                }
+                
+                if (target.getAppointmentDateTime().isBefore(now)) {
+                    rejected[i] = new RescheduleMove(source.get(i), target, conflicts, "The new time is in the past.");
+                    changed = true;
+                } else if (!conflicts.isEmpty()) {
+                    rejected[i] = new RescheduleMove(source.get(i), target, conflicts,
+                        String.format("Overlaps %d appointment(s) from %s.", conflicts.size(),
+                                      conflicts.get(0).getFormattedTime()));
+                    changed = true;
+                } else {
+                    accepted.add(target);
+                }
+            }
+        }
+        
+        for (int i = 0; i < source.size(); i++) {
+            if (rejected[i] != null) {
+                clashes.add(rejected[i]);
+            } else {
+                moves.add(new RescheduleMove(source.get(i), planned.get(i), new ArrayList<>(), null));
+            }
+        }
+    }
+    
+    /**
+     * Add a line to existing notes, keeping what is already there
+     */
+    static String appendNote(String notes, String note) {
+        if (note == null || note.isBlank()) {
+            return notes;
+        }
+        if (notes == null || notes.isBlank()) {
+            return note.trim();
+        }
+        return notes + "\n" + note.trim();
+    }
+    
+    private static boolean overlaps(Appointment a, Appointment b) {
+        return a.getAppointmentDateTime().isBefore(b.getEndDateTime())
+            && b.getAppointmentDateTime().isBefore(a.getEndDateTime());
+    }
+    
+    /**
+     * Give each appointment, in start order, the earliest free slot left in
+     * the search range. The old slots stay blocked, as the day being cleared
+     * is usually the one that cannot be worked.
+     */
+    private void planFreeSlots(List<Appointment> source, RescheduleStrategy strategy,
+                               List<RescheduleMove> moves, List<RescheduleMove> clashes) throws SQLException {
+        List<Integer> durations = new ArrayList<>(source.size());
+        for (Appointment original : source) {
+            durations.add(original.getDurationMinutes());
+        }
+        List<AvailableSlot> slots = AvailabilityEngine.getInstance().planSlots(strategy.getSearchFrom(),
+                                                                              strategy.getSearchUntil(), durations);
+        for (int i = 0; i < source.size(); i++) {
+            AvailableSlot slot = slots.get(i);
+            if (slot == null) {
+                clashes.add(new RescheduleMove(source.get(i), null, new ArrayList<>(),
+                    "No free slot until " + DateTimeUtils.formatDate(strategy.getSearchUntil()) + "."));
+            } else {
+                Appointment target = source.get(i).copy();
+                target.setAppointmentDate(slot.getDate());
+                target.setAppointmentTime(slot.getStartTime());
+                moves.add(new RescheduleMove(source.get(i), target, new ArrayList<>(), null));
+            }
+        }
+    }
+    
+    /**
+     * Insert a validated, conflict-free appointment
+     */
+    private ServiceResult<Appointment> insertAppointment(int patientId, Integer serviceId, LocalDate appointmentDate,
+                                                         LocalTime appointmentTime, int duration, String notes) {
         // Create appointment
         Appointment appointment = new Appointment(patientId, appointmentDate, appointmentTime);
         appointment.setServiceId(serviceId);
@@ -69,11 +518,18 @@ public class AppointmentService {
         appointment.setNotes(notes);
         appointment.setStatus(Appointment.Status.SCHEDULED);
         
-        Appointment createdAppointment = appointmentDAO.createAppointment(appointment);
-        if (createdAppointment != null) {
-            return ServiceResult.success(createdAppointment, "Appointment scheduled successfully.");
-        } else {
-            return ServiceResult.error("Failed to create appointment.");
+        // The slot is checked again inside the insert transaction, so a booking
+        // made elsewhere since the index check cannot be double-booked
+        try {
+            List<Appointment> conflicts = appointmentDAO.createAppointmentIfFree(appointment);
+            if (!conflicts.isEmpty()) {
+                return ServiceResult.error(
+                    String.format("Appointment conflicts with existing appointment at %s",
+                                conflicts.get(0).getFormattedTime()));
+            }
+            return ServiceResult.success(appointment, "Appointment scheduled successfully.");
+        } catch (SQLException e) {
+            return ServiceResult.error("Failed to create appointment: " + e.getMessage());
         }
     }
     
@@ -83,38 +539,40 @@ public class AppointmentService {
     public ServiceResult<Appointment> updateAppointment(int appointmentId, int patientId, Integer serviceId, 
                                                        LocalDate appointmentDate, LocalTime appointmentTime, 
                                                        Integer durationMinutes, Appointment.Status status, String notes) {
+        return updateAppointment(appointmentId, patientId, serviceId, appointmentDate, appointmentTime,
+                                 durationMinutes, status, notes, null);
+    }
+    
+    /**
+     * Update an appointment that was read at expectedVersion. If it has changed
+     * since, nothing is written and the result is a conflict carrying the
+     * current appointment, so the caller can merge and retry.
+     */
+    public ServiceResult<Appointment> updateAppointment(int appointmentId, int patientId, Integer serviceId,
+                                                       LocalDate appointmentDate, LocalTime appointmentTime,
+                                                       Integer durationMinutes, Appointment.Status status, String notes,
+                                                       Integer expectedVersion) {
         // Check if appointment exists
         Optional<Appointment> existingAppointment = appointmentDAO.getAppointmentById(appointmentId);
         if (existingAppointment.isEmpty()) {
             return ServiceResult.error("Appointment not found.");
         }
-        
-        // Validate input
-        ValidationResult validation = validateAppointmentData(patientId, serviceId, appointmentDate, 
-                                                            appointmentTime, durationMinutes, appointmentId);
-        if (!validation.isValid()) {
-            return ServiceResult.error(validation.getErrorMessage());
+        if (expectedVersion != null && existingAppointment.get().getVersion() != expectedVersion) {
+            return ServiceResult.conflict(existingAppointment.get(), CONFLICT_MESSAGE);
         }
         
-        // Set default duration if not provided
-        int duration = durationMinutes != null ? durationMinutes : 30;
-        
-        // If service is provided, use service's default duration
-        if (serviceId != null) {
-            Optional<Service> service = serviceDAO.getServiceById(serviceId);
-            if (service.isPresent()) {
-                duration = service.get().getDurationMinutes();
-            }
+        // Validate input and resolve the duration
+        ServiceResult<Integer> validated = validateNewAppointment(patientId, serviceId, appointmentDate,
+                                                                  appointmentTime, durationMinutes);
+        if (!validated.isSuccess()) {
+            return ServiceResult.error(validated.getMessage());
         }
+        int duration = validated.getData();
         
-        // Check for conflicts (excluding current appointment)
-        List<Appointment> conflicts = appointmentDAO.findConflictingAppointments(
-            appointmentDate, appointmentTime, duration, appointmentId);
-        
-        if (!conflicts.isEmpty()) {
-            return ServiceResult.error(
-                String.format("Appointment conflicts with existing appointment at %s", 
-                            conflicts.get(0).getFormattedTime()));
+        // Check for conflicts (excluding current appointment) in memory first
+        ServiceResult<Integer> checked = checkConflicts(appointmentDate, appointmentTime, duration, appointmentId);
+        if (!checked.isSuccess()) {
+            return ServiceResult.error(checked.getMessage());
         }
         
         // Update appointment data
@@ -127,13 +585,27 @@ public class AppointmentService {
         appointment.setStatus(status != null ? status : Appointment.Status.SCHEDULED);
         appointment.setNotes(notes);
         
-        boolean updated = appointmentDAO.updateAppointment(appointment);
-        if (updated) {
+        // The slot is checked again inside the update transaction, as for new bookings
+        try {
+            List<Appointment> conflicts = appointmentDAO.updateAppointmentIfFree(appointment);
+            if (conflicts == null) {
+                return ServiceResult.error("Appointment not found.");
+            }
+            if (!conflicts.isEmpty()) {
+                return ServiceResult.error(
+                    String.format("Appointment conflicts with existing appointment at %s",
+                                conflicts.get(0).getFormattedTime()));
+            }
             // Reload appointment with related objects
             Optional<Appointment> updatedAppointment = appointmentDAO.getAppointmentById(appointmentId);
             return ServiceResult.success(updatedAppointment.get(), "Appointment updated successfully.");
-        } else {
-            return ServiceResult.error("Failed to update appointment.");
+        } catch (OptimisticLockException e) {
+            Optional<Appointment> current = appointmentDAO.getAppointmentById(appointmentId);
+            return current.isPresent()
+                ? ServiceResult.conflict(current.get(), CONFLICT_MESSAGE)
+                : ServiceResult.error("Appointment not found.");
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
         }
     }
     
@@ -157,6 +629,13 @@ public class AppointmentService {
         return ServiceResult.success(appointments);
     }
     
+    /**
+     * Get one page of appointments, optionally within a date range
+     */
+    public ServiceResult<Page<Appointment>> getAppointmentPage(LocalDate startDate, LocalDate endDate, PageRequest request) {
+        return ServiceResult.success(appointmentDAO.getAppointmentPage(startDate, endDate, request));
+    }
+    
     /**
      * Get appointments for today
      */
@@ -190,45 +669,71 @@ public class AppointmentService {
     }
     
     /**
-     * Cancel an appointment
+     * Per-day counts and booked minutes for a month calendar, without loading appointments
      */
-    public ServiceResult<Appointment> cancelAppointment(int appointmentId, String reason) {
-        Optional<Appointment> appointment = appointmentDAO.getAppointmentById(appointmentId);
-        if (appointment.isEmpty()) {
-            return ServiceResult.error("Appointment not found.");
+    public ServiceResult<List<CalendarDay>> getCalendarMonth(YearMonth month) {
+        try {
+            return ServiceResult.success(CalendarAggregateStore.getInstance().getMonth(month));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
         }
-        
-        Appointment appt = appointment.get();
-        appt.setStatus(Appointment.Status.CANCELLED);
-        appt.setNotes(reason);
-        
-        boolean updated = appointmentDAO.updateAppointment(appt);
-        if (updated) {
-            return ServiceResult.success(appt, "Appointment cancelled successfully.");
-        } else {
-            return ServiceResult.error("Failed to cancel appointment.");
+    }
+    
+    /**
+     * Per-day counts and booked minutes for the Monday to Sunday week containing a day
+     */
+    public ServiceResult<List<CalendarDay>> getCalendarWeek(LocalDate day) {
+        try {
+            return ServiceResult.success(CalendarAggregateStore.getInstance().getWeek(day));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
         }
     }
     
+    /**
+     * Cancel an appointment
+     */
+    public ServiceResult<Appointment> cancelAppointment(int appointmentId, String reason) {
+        return changeStatus(appointmentId, Appointment.Status.CANCELLED, reason,
+                            "Appointment cancelled successfully.", "Failed to cancel appointment.");
+    }
+    
     /**
      * Complete an appointment
      */
     public ServiceResult<Appointment> completeAppointment(int appointmentId, String notes) {
-        Optional<Appointment> appointment = appointmentDAO.getAppointmentById(appointmentId);
-        if (appointment.isEmpty()) {
-            return ServiceResult.error("Appointment not found.");
-        }
-        
-        Appointment appt = appointment.get();
-        appt.setStatus(Appointment.Status.COMPLETED);
-        appt.setNotes(notes);
-        
-        boolean updated = appointmentDAO.updateAppointment(appt);
-        if (updated) {
-            return ServiceResult.success(appt, "Appointment marked as completed.");
-        } else {
-            return ServiceResult.error("Failed to complete appointment.");
+        return changeStatus(appointmentId, Appointment.Status.COMPLETED, notes,
+                            "Appointment marked as completed.", "Failed to complete appointment.");
+    }
+    
+    /**
+     * Set status and notes. A status change does not depend on the rest of the
+     * row, so a concurrent edit is simply re-read and the change re-applied.
+     */
+    private ServiceResult<Appointment> changeStatus(int appointmentId, Appointment.Status status, String notes,
+                                                    String successMessage, String failureMessage) {
+        for (int attempt = 0; attempt < MAX_STATUS_ATTEMPTS; attempt++) {
+            Optional<Appointment> appointment = appointmentDAO.getAppointmentById(appointmentId);
+            if (appointment.isEmpty()) {
+                return ServiceResult.error("Appointment not found.");
+            }
+            
+            Appointment appt = appointment.get();
+            appt.setStatus(status);
+            appt.setNotes(notes);
+            
+            try {
+                if (appointmentDAO.updateAppointment(appt)) {
+                    return ServiceResult.success(appt, successMessage);
+                }
+                return ServiceResult.error(failureMessage);
+            } catch (OptimisticLockException e) {
+                // Changed between the read and the write; read it again
+            } catch (SQLException e) {
+                return ServiceResult.error("Database error: " + e.getMessage());
+            }
         }
+        return ServiceResult.error(failureMessage + " It is being edited elsewhere, please try again.");
     }
     
     /**
@@ -249,14 +754,32 @@ public class AppointmentService {
     }
     
     /**
-     * Get appointment statistics
+     * Get appointment statistics, served from the in-memory counters
      */
     public ServiceResult<AppointmentStats> getAppointmentStatistics() {
-        int todaysCount = appointmentDAO.getTodaysAppointmentCount();
-        int upcomingCount = appointmentDAO.getUpcomingAppointmentCount();
-        
-        AppointmentStats stats = new AppointmentStats(todaysCount, upcomingCount);
-        return ServiceResult.success(stats);
+        try {
+            AppointmentCounters counters = AppointmentCounters.getInstance();
+            AppointmentStats stats = new AppointmentStats(counters.getTodaysCount(), counters.getUpcomingCount());
+            return ServiceResult.success(stats);
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Today's appointments by status, served from the in-memory counters
+     */
+    public ServiceResult<AppointmentDAO.AppointmentStats> getTodaysStatusCounts() {
+        try {
+            AppointmentCounters counters = AppointmentCounters.getInstance();
+            return ServiceResult.success(new AppointmentDAO.AppointmentStats(
+                counters.getTodaysCount(),
+                counters.getTodaysCount(Appointment.Status.SCHEDULED),
+                counters.getTodaysCount(Appointment.Status.COMPLETED),
+                counters.getTodaysCount(Appointment.Status.CANCELLED)));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
     }
     
     /**
@@ -268,58 +791,44 @@ public class AppointmentService {
     }
     
     /**
-     * Validate appointment data
+     * Validate the date, time and duration of an appointment
      */
-    private ValidationResult validateAppointmentData(int patientId, Integer serviceId, 
-                                                   LocalDate appointmentDate, LocalTime appointmentTime, 
-                                                   Integer durationMinutes, Integer excludeAppointmentId) {
-        try {
-            // Patient validation
-            Optional<Patient> patient = patientDAO.getPatientById(patientId);
-            if (patient.isEmpty()) {
-                return ValidationResult.invalid("Patient not found.");
-            }
-            
-            // Service validation (if provided)
-            if (serviceId != null) {
-                Optional<Service> service = serviceDAO.getServiceById(serviceId);
-                if (service.isEmpty()) {
-                    return ValidationResult.invalid("Service not found.");
-                }
-                if (!service.get().isActive()) {
-                    return ValidationResult.invalid("Selected service is not active.");
-                }
-            }
-            
-            // Date validation
-            if (appointmentDate == null) {
-                return ValidationResult.invalid("Appointment date is required.");
-            }
-            
-            if (appointmentDate.isBefore(LocalDate.now())) {
-                return ValidationResult.invalid("Appointment date cannot be in the past.");
-            }
-            
-            // Time validation
-            if (appointmentTime == null) {
-                return ValidationResult.invalid("Appointment time is required.");
-            }
-            
-            // Check if appointment is in the past (for today's appointments)
-            if (appointmentDate.equals(LocalDate.now()) && appointmentTime.isBefore(LocalTime.now())) {
-                return ValidationResult.invalid("Appointment time cannot be in the past.");
-            }
-            
-            // Duration validation
-            if (durationMinutes != null && (durationMinutes < 5 || durationMinutes > 480)) {
-                return ValidationResult.invalid("Duration must be between 5 minutes and 8 hours.");
-            }
-            
-            return ValidationResult.valid();
-            
-        } catch (SQLException e) {
-            return ValidationResult.invalid("Database error during validation: " + e.getMessage());
+    private ValidationResult validateAppointmentData(LocalDate appointmentDate, LocalTime appointmentTime,
+                                                   Integer durationMinutes) {
+        // Date validation
+        if (appointmentDate == null) {
+            return ValidationResult.invalid("Appointment date is required.");
         }
+        
+        if (appointmentDate.isBefore(LocalDate.now())) {
+            return ValidationResult.invalid("Appointment date cannot be in the past.");
+        }
+        
+        // Time validation
+        if (appointmentTime == null) {
+            return ValidationResult.invalid("Appointment time is required.");
+        }
+        
+        // Check if appointment is in the past (for today's appointments)
+        if (appointmentDate.equals(LocalDate.now()) && appointmentTime.isBefore(LocalTime.now())) {
+            return ValidationResult.invalid("Appointment time cannot be in the past.");
+        }
+        
+        // Duration validation
+        if (durationMinutes != null && (durationMinutes < 5 || durationMinutes > 480)) {
+            return ValidationResult.invalid("Duration must be between 5 minutes and 8 hours.");
+        }
+        
+        return ValidationResult.valid();
+    }
+    
+    /**
+     * Run any call on this service asynchronously on the shared service executor,
+     * e.g. service.async(s -> s.getAllAppointments()). Cancel the future to abandon it.
+     */
+    public <T> CompletableFuture<ServiceResult<T>> async(Function<AppointmentService, ServiceResult<T>> call) {
+        return ServiceExecutor.getInstance().submit(() -> call.apply(this),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
     }
     
     /**
@@ -329,11 +838,17 @@ public class AppointmentService {
         private final boolean success;
         private final T data;
         private final String message;
+        private final boolean conflict;
         
         private ServiceResult(boolean success, T data, String message) {
+            this(success, data, message, false);
+        }
+        
+        private ServiceResult(boolean success, T data, String message, boolean conflict) {
             this.success = success;
             this.data = data;
             this.message = message;
+            this.conflict = conflict;
         }
         
         public static <T> ServiceResult<T> success(T data) {
@@ -348,7 +863,15 @@ public class AppointmentService {
             return new ServiceResult<>(false, null, message);
         }
         
+        /**
+         * The record was changed by someone else; the data is its current state
+         */
+        public static <T> ServiceResult<T> conflict(T current, String message) {
+            return new ServiceResult<>(false, current, message, true);
+        }
+        
         public boolean isSuccess() { return success; }
+        public boolean isConflict() { return conflict; }
         public T getData() { return data; }
         public String getMessage() { return message; }
     }
@@ -392,4 +915,77 @@ public class AppointmentService {
         public int getTodaysAppointments() { return todaysAppointments; }
         public int getUpcomingAppointments() { return upcomingAppointments; }
     }
+    
+    /**
+     * Occurrences of a recurring series that fit the schedule, and those that clash
+     */
+    public static class SeriesPlan {
+        private final List<Appointment> accepted;
+        private final List<SeriesClash> clashes;
+        
+        public SeriesPlan(List<Appointment> accepted, List<SeriesClash> clashes) {
+            this.accepted = accepted;
+            this.clashes = clashes;
+        }
+        
+        public List<Appointment> getAccepted() { return accepted; }
+        public List<SeriesClash> getClashes() { return clashes; }
+        public boolean hasClashes() { return !clashes.isEmpty(); }
+    }
+    
+    /**
+     * One occurrence of a series and the booked appointments it overlaps
+     */
+    public static class SeriesClash {
+        private final Appointment occurrence;
+        private final List<Appointment> conflicts;
+        
+        public SeriesClash(Appointment occurrence, List<Appointment> conflicts) {
+            this.occurrence = occurrence;
+            this.conflicts = conflicts;
+        }
+        
+        public Appointment getOccurrence() { return occurrence; }
+        public List<Appointment> getConflicts() { return conflicts; }
+    }
+    
+    /**
+     * The moves of a bulk reschedule that fit, and those that do not
+     */
+    public static class ReschedulePlan {
+        private final List<RescheduleMove> moves;
+        private final List<RescheduleMove> clashes;
+        
+        public ReschedulePlan(List<RescheduleMove> moves, List<RescheduleMove> clashes) {
+            this.moves = moves;
+            this.clashes = clashes;
+        }
+        
+        public List<RescheduleMove> getMoves() { return moves; }
+        public List<RescheduleMove> getClashes() { return clashes; }
+        public boolean hasClashes() { return !clashes.isEmpty(); }
+    }
+    
+    /**
+     * One appointment of a bulk reschedule: where it is, where it would go
+     * (null when nowhere fits) and, for a clash, what is in the way
+     */
+    public static class RescheduleMove {
+        private final Appointment original;
+        private final Appointment planned;
+        private final List<Appointment> conflicts;
+        private final String problem;
+        
+        public RescheduleMove(Appointment original, Appointment planned, List<Appointment> conflicts, String problem) {
+            this.original = original;
+            this.planned = planned;
+            this.conflicts = conflicts;
+            this.problem = problem;
+        }
+        
+        public Appointment getOriginal() { return original; }
+        public Appointment getPlanned() { return planned; }
+        public List<Appointment> getConflicts() { return conflicts; }
+        public String getProblem() { return problem; }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.rebelle.services;
+
+import com.rebelle.models.Appointment;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AppointmentServiceTest - Shift planning and cancel notes of a bulk reschedule
+ */
+class AppointmentServiceTest {
+    
+    private static final LocalDate DAY = LocalDate.now().plusDays(7);
+    private static final LocalDateTime NOW = DAY.minusDays(7).atStartOfDay();
+    
+    @Test
+    void rejectedMoveBlocksTheMovesIntoItsSlot() {
+        // A 10:00 and B 10:30 shift by 30 minutes; B's new slot is taken by C at 11:00
+        Appointment a = appointment(1, LocalTime.of(10, 0));
+        Appointment b = appointment(2, LocalTime.of(10, 30));
+        Appointment c = appointment(3, LocalTime.of(11, 0));
+        List<Appointment> source = List.of(a, b);
+        List<Appointment> planned = List.of(shifted(a, 30), shifted(b, 30));
+        List<List<Appointment>> found = List.of(List.of(b), List.of(c));
+        
+        List<AppointmentService.RescheduleMove> moves = new ArrayList<>();
+        List<AppointmentService.RescheduleMove> clashes = new ArrayList<>();
+        AppointmentService.settleShift(source, planned, found, NOW, moves, clashes);
+        
+        // B stays at 10:30, so A cannot move into it either
+        assertTrue(moves.isEmpty());
+        assertEquals(2, clashes.size());
+        assertEquals(1, clashes.get(0).getOriginal().getId());
+        assertEquals(2, clashes.get(0).getConflicts().get(0).getId());
+        assertEquals(2, clashes.get(1).getOriginal().getId());
+        assertEquals(3, clashes.get(1).getConflicts().get(0).getId());
+    }
+    
+    @Test
+    void cascadeRunsBackThroughEveryBlockedMove() {
+        // A 9:00, B 9:30 and D 10:00 shift by 30 minutes; D's new slot is taken by C
+        Appointment a = appointment(1, LocalTime.of(9, 0));
+        Appointment b = appointment(2, LocalTime.of(9, 30));
+        Appointment d = appointment(4, LocalTime.of(10, 0));
+        Appointment c = appointment(3, LocalTime.of(10, 30));
+        List<Appointment> source = List.of(a, b, d);
+        List<Appointment> planned = List.of(shifted(a, 30), shifted(b, 30), shifted(d, 30));
+        List<List<Appointment>> found = List.of(List.of(b), List.of(d), List.of(c));
+        
+        List<AppointmentService.RescheduleMove> moves = new ArrayList<>();
+        List<AppointmentService.RescheduleMove> clashes = new ArrayList<>();
+        AppointmentService.settleShift(source, planned, found, NOW, moves, clashes);
+        
+        assertTrue(moves.isEmpty());
+        assertEquals(3, clashes.size());
+    }
+    
+    @Test
+    void chainOfFreeSlotsMovesTogether() {
+        // A 10:00 and B 10:30 shift by 30 minutes into free time after B
+        Appointment a = appointment(1, LocalTime.of(10, 0));
+        Appointment b = appointment(2, LocalTime.of(10, 30));
+        List<Appointment> source = List.of(a, b);
+        List<Appointment> planned = List.of(shifted(a, 30), shifted(b, 30));
+        List<List<Appointment>> found = List.of(List.of(b), List.of());
+        
+        List<AppointmentService.RescheduleMove> moves = new ArrayList<>();
+        List<AppointmentService.RescheduleMove> clashes = new ArrayList<>();
+        AppointmentService.settleShift(source, planned, found, NOW, moves, clashes);
+        
+        assertEquals(2, moves.size());
+        assertTrue(clashes.isEmpty());
+    }
+    
+    @Test
+    void cancelReasonIsAddedBelowExistingNotes() {
+        assertEquals("Allergic to latex\nProvider sick",
+            AppointmentService.appendNote("Allergic to latex", "Provider sick"));
+        assertEquals("Provider sick", AppointmentService.appendNote(null, " Provider sick "));
+        assertEquals("Allergic to latex", AppointmentService.appendNote("Allergic to latex", ""));
+    }
+    
+    private static Appointment appointment(int id, LocalTime time) {
+        Appointment appointment = new Appointment(1, DAY, time);
+        appointment.setId(id);
+        appointment.setDurationMinutes(30);
+        return appointment;
+    }
+    
+    private static Appointment shifted(Appointment original, int minutes) {
+        Appointment copy = original.copy();
+        copy.setAppointmentDateTime(original.getAppointmentDateTime().plusMinutes(minutes));
+        return copy;
+    }
+}
@@ -0,0 +1,410 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.AppointmentDAO;
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.dao.SettingsDAO;
+import com.rebelle.models.Appointment;
+import com.rebelle.models.AvailableSlot;
+import com.rebelle.utils.DateTimeUtils;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * AvailabilityEngine - Finds free appointment slots.
+ *
+ * Each working day is a bitmap of 5-minute slots: bits inside the working
+ * hours from the settings table are set, and the slots of booked (not
+ * cancelled) appointments are cleared. A free slot of n minutes is then a run
+ * of ceil(n / 5) set bits, found with word-level trailing-zero scans. Day
+ * bitmaps are loaded for a whole date range in one query and dropped when an
+ * appointment on that day changes.
+ */
+public class AvailabilityEngine {
+    
+    private static AvailabilityEngine instance;
+    
+    public static final int SLOT_MINUTES = 5;
+    private static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    private static final int WORDS_PER_DAY = (SLOTS_PER_DAY + 63) / 64;
+    
+    /** Days kept in memory; the oldest loaded day is dropped beyond this */
+    private static final int MAX_DAYS = 400;
+    
+    private static final LocalTime DEFAULT_START = LocalTime.of(9, 0);
+    private static final LocalTime DEFAULT_END = LocalTime.of(17, 0);
+    private static final Set<DayOfWeek> DEFAULT_DAYS = EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
+    
+    private final SettingsDAO settingsDAO;
+    private final AppointmentDAO appointmentDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LinkedHashMap<LocalDate, long[]> freeByDay = new LinkedHashMap<>();
+    private final Map<Integer, LocalDate> dayById = new HashMap<>();
+    
+    // Working hours as slot indexes [firstSlot, endSlot), read from settings on first use
+    private int firstSlot = -1;
+    private int endSlot;
+    private Set<DayOfWeek> workingDays;
+    
+    private AvailabilityEngine() {
+        this.settingsDAO = new SettingsDAO();
+        this.appointmentDAO = new AppointmentDAO();
+        registerListener();
+    }
+    
+    public static synchronized AvailabilityEngine getInstance() {
+        if (instance == null) {
+            instance = new AvailabilityEngine();
+        }
+        return instance;
+    }
+    
+    /**
+     * The first free slots of the given length between two dates inclusive,
+     * soonest first, one per free window. Slots that have already started are
+     * skipped.
+     */
+    public List<AvailableSlot> findSlots(LocalDate startDate, LocalDate endDate, int durationMinutes, int limit)
+            throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        if (startDate.isBefore(now.toLocalDate())) {
+            startDate = now.toLocalDate();
+        }
+        List<AvailableSlot> slots = new ArrayList<>();
+        if (endDate.isBefore(startDate) || limit <= 0) {
+            return slots;
+        }
+        int needed = (durationMinutes + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        
+        ensureLoaded(startDate, endDate);
+        lock.readLock().lock();
+        try {
+            for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+                long[] free = freeByDay.get(day);
+                if (free == null) {
+                    // Dropped by a change since ensureLoaded; the next call reloads it
+                    continue;
+                }
+                int from = 0;
+                if (day.equals(now.toLocalDate())) {
+                    from = (now.toLocalTime().toSecondOfDay() / 60 + SLOT_MINUTES - 1) / SLOT_MINUTES;
+                }
+                
+                int runStart = nextSetBit(free, from);
+                while (runStart >= 0) {
+                    int runEnd = nextClearBit(free, runStart);
+                    if (runEnd - runStart >= needed) {
+                        slots.add(new AvailableSlot(day, slotTime(runStart), durationMinutes, slotTime(runEnd)));
+                        if (slots.size() == limit) {
+                            return slots;
+                        }
+                    }
+                    runStart = nextSetBit(free, runEnd);
+                }
+            }
+            return slots;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Place several appointments at once: each duration, in order, takes the
+     * earliest free slot between two dates inclusive that the ones before it
+     * left over. Runs on copies of the day bitmaps, so nothing is booked. The
+     * result matches the input order, with null where nothing fits.
+     */
+    public List<AvailableSlot> planSlots(LocalDate startDate, LocalDate endDate, List<Integer> durations)
+            throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        if (startDate.isBefore(now.toLocalDate())) {
+            startDate = now.toLocalDate();
+        }
+        List<AvailableSlot> slots = new ArrayList<>(durations.size());
+        if (endDate.isBefore(startDate)) {
+            for (int i = 0; i < durations.size(); i++) {
+                slots.add(null);
+            }
+            return slots;
+        }
+        int today = (now.toLocalTime().toSecondOfDay() / 60 + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        
+        ensureLoaded(startDate, endDate);
+        Map<LocalDate, long[]> claimed = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (int durationMinutes : durations) {
+                int needed = (durationMinutes + SLOT_MINUTES - 1) / SLOT_MINUTES;
+                AvailableSlot slot = null;
+                for (LocalDate day = startDate; slot == null && !day.isAfter(endDate); day = day.plusDays(1)) {
+                    long[] free = claimed.get(day);
+                    if (free == null) {
+                        free = freeByDay.get(day);
+                    }
+                    if (free == null) {
+                        continue;
+                    }
+                    int runStart = nextSetBit(free, day.equals(now.toLocalDate()) ? today : 0);
+                    while (runStart >= 0) {
+                        int runEnd = nextClearBit(free, runStart);
+                        if (runEnd - runStart >= needed) {
+                            if (!claimed.containsKey(day)) {
+                                free = free.clone();
+                                claimed.put(day, free);
+                            }
+                            clearRange(free, runStart, runStart + needed);
+                            slot = new AvailableSlot(day, slotTime(runStart), durationMinutes, slotTime(runEnd));
+                            break;
+                        }
+                        runStart = nextSetBit(free, runEnd);
+                    }
+                }
+                slots.add(slot);
+            }
+            return slots;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Drop all day bitmaps and re-read the working hours on next use
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            freeByDay.clear();
+            dayById.clear();
+            firstSlot = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void ensureLoaded(LocalDate startDate, LocalDate endDate) throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (firstSlot >= 0 && missingRange(startDate, endDate) == null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            if (firstSlot < 0) {
+                loadWorkingHours();
+            }
+            LocalDate[] missing = missingRange(startDate, endDate);
+            if (missing != null) {
+                loadDays(missing[0], missing[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * First and last working day in the range without a bitmap, or null
+     */
+    private LocalDate[] missingRange(LocalDate startDate, LocalDate endDate) {
+        LocalDate first = null;
+        LocalDate last = null;
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            if (workingDays.contains(day.getDayOfWeek()) && !freeByDay.containsKey(day)) {
+                if (first == null) {
+                    first = day;
+                }
+                last = day;
+            }
+        }
+        return first != null ? new LocalDate[] {first, last} : null;
+    }
+    
+    private void loadDays(LocalDate startDate, LocalDate endDate) throws SQLException {
+        Map<LocalDate, long[]> loaded = new LinkedHashMap<>();
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            if (workingDays.contains(day.getDayOfWeek()) && !freeByDay.containsKey(day)) {
+                long[] free = new long[WORDS_PER_DAY];
+                setRange(free, firstSlot, endSlot);
+                loaded.put(day, free);
+            }
+        }
+        
+        appointmentDAO.loadActiveIntervals(startDate, endDate, (id, startMinute, endMinute) -> {
+            LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(startMinute, 24 * 60));
+            dayById.put(id, day);
+            long dayStart = DateTimeUtils.toEpochMinute(day);
+            // An appointment running past midnight also blocks the start of the next day
+            for (; dayStart < endMinute; dayStart += 24 * 60, day = day.plusDays(1)) {
+                long[] free = loaded.get(day);
+                if (free != null) {
+                    int from = (int) Math.max(0, (startMinute - dayStart) / SLOT_MINUTES);
+                    int to = (int) Math.min(SLOTS_PER_DAY, (endMinute - dayStart + SLOT_MINUTES - 1) / SLOT_MINUTES);
+                    clearRange(free, from, to);
+                }
+            }
+        });
+        
+        freeByDay.putAll(loaded);
+        Iterator<LocalDate> oldest = freeByDay.keySet().iterator();
+        while (freeByDay.size() > MAX_DAYS) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+    
+    private void loadWorkingHours() throws SQLException {
+        Map<String, String> settings = settingsDAO.getAll();
+        LocalTime start = parseTime(settings.get("working_hours_start"), DEFAULT_START);
+        LocalTime end = parseTime(settings.get("working_hours_end"), DEFAULT_END);
+        
+        firstSlot = (start.toSecondOfDay() / 60 + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        endSlot = end.equals(LocalTime.MIDNIGHT) ? SLOTS_PER_DAY : end.toSecondOfDay() / 60 / SLOT_MINUTES;
+        workingDays = parseDays(settings.get("working_days"));
+    }
+    
+    private static LocalTime parseTime(String value, LocalTime fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return LocalTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            return fallback;
+        }
+    }
+    
+    /**
+     * Comma separated day names or abbreviations, e.g. "MON,TUE,WED,THU,FRI"
+     */
+    private static Set<DayOfWeek> parseDays(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_DAYS;
+        }
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (String part : value.split(",")) {
+            String name = part.trim().toUpperCase(Locale.ROOT);
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (!name.isEmpty() && day.name().startsWith(name)) {
+                    days.add(day);
+                }
+            }
+        }
+        return days.isEmpty() ? DEFAULT_DAYS : days;
+    }
+    
+    private static LocalTime slotTime(int slot) {
+        return slot >= SLOTS_PER_DAY ? LocalTime.MAX : LocalTime.ofSecondOfDay(slot * SLOT_MINUTES * 60L);
+    }
+    
+    private static void setRange(long[] words, int from, int to) {
+        while (from < to) {
+            int bit = from & 63;
+            int count = Math.min(64 - bit, to - from);
+            words[from >>> 6] |= (count == 64 ? -1L : (1L << count) - 1) << bit;
+            from += count;
+        }
+    }
+    
+    private static void clearRange(long[] words, int from, int to) {
+        while (from < to) {
+            int bit = from & 63;
+            int count = Math.min(64 - bit, to - from);
+            words[from >>> 6] &= ~((count == 64 ? -1L : (1L << count) - 1) << bit);
+            from += count;
+        }
+    }
+    
+    private static int nextSetBit(long[] words, int from) {
+        int index = from >>> 6;
+        if (index >= words.length) {
+            return -1;
+        }
+        long word = words[index] & (-1L << (from & 63));
+        while (word == 0) {
+            if (++index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+        return index * 64 + Long.numberOfTrailingZeros(word);
+    }
+    
+    private static int nextClearBit(long[] words, int from) {
+        int index = from >>> 6;
+        if (index >= words.length) {
+            return from;
+        }
+        long word = ~words[index] & (-1L << (from & 63));
+        while (word == 0) {
+            if (++index == words.length) {
+                return words.length * 64;
+            }
+            word = ~words[index];
+        }
+        return index * 64 + Long.numberOfTrailingZeros(word);
+    }
+    
+    private void registerListener() {
+        AppointmentDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Appointment appointment) {
+                onUpdated(appointment);
+            }
+            
+            @Override
+            public void onUpdated(Appointment appointment) {
+                lock.writeLock().lock();
+                try {
+                    drop(dayById.remove(appointment.getId()));
+                    if (appointment.getAppointmentDate() != null) {
+                        drop(appointment.getAppointmentDate());
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                lock.writeLock().lock();
+                try {
+                    drop(dayById.remove(id));
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    /**
+     * Forget a day (and the next, which a late appointment may spill into)
+     */
+    private void drop(LocalDate day) {
+        if (day != null) {
+            freeByDay.remove(day);
+            freeByDay.remove(day.plusDays(1));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.rebelle.models;
+
+import com.rebelle.utils.DateTimeUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * AvailableSlot - A free appointment slot of a requested length, and how long
+ * the free window it starts runs on for
+ */
+public final class AvailableSlot {
+    
+    private final LocalDate date;
+    private final LocalTime startTime;
+    private final int durationMinutes;
+    private final LocalTime freeUntil;
+    
+    public AvailableSlot(LocalDate date, LocalTime startTime, int durationMinutes, LocalTime freeUntil) {
+        this.date = date;
+        this.startTime = startTime;
+        this.durationMinutes = durationMinutes;
+        this.freeUntil = freeUntil;
+    }
+    
+    public LocalDate getDate() { return date; }
+    public LocalTime getStartTime() { return startTime; }
+    public int getDurationMinutes() { return durationMinutes; }
+    
+    public LocalTime getEndTime() {
+        return startTime.plusMinutes(durationMinutes);
+    }
+    
+    /** End of the free window this slot starts */
+    public LocalTime getFreeUntil() { return freeUntil; }
+    
+    public LocalDateTime getStartDateTime() {
+        return LocalDateTime.of(date, startTime);
+    }
+    
+    @Override
+    public String toString() {
+        return DateTimeUtils.formatDate(date) + " " + DateTimeUtils.formatTime(startTime)
+            + " - " + DateTimeUtils.formatTime(getEndTime());
+    }
+}
@@ -0,0 +1,106 @@
+package com.rebelle.controllers;
+
+import javafx.application.Platform;
+import javafx.scene.control.ProgressIndicator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * BackgroundLoader - Runs a screen's service calls off the JavaFX thread and
+ * hands the results back on it.
+ *
+ * Loads are named by slot (e.g. "rows", "stats"): starting a load cancels the
+ * one still running in the same slot, and only the latest load of a slot
+ * delivers its result, so a slow earlier load never overwrites a newer one.
+ * Writes go through submit, which is never cancelled by a later call. The
+ * progress indicator is shown while anything is in flight.
+ *
+ * All state is owned by the JavaFX thread.
+ */
+public class BackgroundLoader {
+    
+    private final Map<String, CompletableFuture<?>> loads = new HashMap<>();
+    private int running;
+    private ProgressIndicator progress;
+    
+    /**
+     * Show the indicator while work is in flight and hide it otherwise
+     */
+    public void attachProgress(ProgressIndicator indicator) {
+        this.progress = indicator;
+        updateProgress();
+    }
+    
+    /**
+     * Start a load in a slot, cancelling the previous one. The consumer runs on
+     * the JavaFX thread, and only if no newer load replaced this one; it should
+     * replace the screen's data in one step (e.g. ObservableList.setAll).
+     */
+    public <R> void load(String slot, CompletableFuture<R> future, Consumer<R> onLoaded) {
+        cancel(slot);
+        loads.put(slot, future);
+        track(future, result -> {
+            if (loads.get(slot) != future) {
+                return;
+            }
+            loads.remove(slot);
+            onLoaded.accept(result);
+        }, () -> loads.remove(slot, future));
+    }
+    
+    /**
+     * Run a write (or any call that must not be superseded); the consumer runs
+     * on the JavaFX thread when it finishes
+     */
+    public <R> void submit(CompletableFuture<R> future, Consumer<R> onDone) {
+        track(future, onDone, () -> { });
+    }
+    
+    /**
+     * Cancel the load running in a slot, if any
+     */
+    public void cancel(String slot) {
+        CompletableFuture<?> previous = loads.remove(slot);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+    }
+    
+    /**
+     * Cancel every running load, e.g. when the screen is closed
+     */
+    public void cancelAll() {
+        for (CompletableFuture<?> load : loads.values()) {
+            load.cancel(true);
+        }
+        loads.clear();
+    }
+    
+    public boolean isLoading() {
+        return running > 0;
+    }
+    
+    private <R> void track(CompletableFuture<R> future, Consumer<R> onDone, Runnable onCancelled) {
+        running++;
+        updateProgress();
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            running--;
+            updateProgress();
+            if (error != null) {
+                // Service futures only fail when cancelled
+                onCancelled.run();
+                return;
+            }
+            onDone.accept(result);
+        }));
+    }
+    
+    private void updateProgress() {
+        if (progress != null) {
+            progress.setVisible(running > 0);
+        }
+    }
+}
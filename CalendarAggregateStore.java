@@ -0,0 +1,266 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.AnalyticsDAO;
+import com.rebelle.dao.AppointmentDAO;
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.models.Appointment;
+import com.rebelle.models.CalendarDay;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * CalendarAggregateStore - Per-day appointment counts by status and booked
+ * minutes, so month and week calendars render without loading appointment
+ * rows.
+ *
+ * Months are loaded on first use with one narrow range query and then kept
+ * current from AppointmentDAO change events: each appointment's contribution
+ * (day, status, minutes) is remembered as one packed long, so an update
+ * subtracts the old contribution and adds the new one in constant time.
+ */
+public class CalendarAggregateStore {
+    
+    private static CalendarAggregateStore instance;
+    
+    /** Months kept in memory; the oldest loaded month is dropped beyond this */
+    private static final int MAX_MONTHS = 36;
+    
+    private static final Appointment.Status[] STATUSES = Appointment.Status.values();
+    
+    private final AnalyticsDAO analyticsDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LinkedHashMap<YearMonth, MonthAggregate> months = new LinkedHashMap<>();
+    // appointment id -> packed (epoch day, status, minutes) it was counted under
+    private final Map<Integer, Long> contributions = new HashMap<>();
+    
+    private CalendarAggregateStore() {
+        this.analyticsDAO = new AnalyticsDAO();
+        registerListener();
+    }
+    
+    public static synchronized CalendarAggregateStore getInstance() {
+        if (instance == null) {
+            instance = new CalendarAggregateStore();
+        }
+        return instance;
+    }
+    
+    /**
+     * One entry per day of the month
+     */
+    public List<CalendarDay> getMonth(YearMonth month) throws SQLException {
+        return getDays(month.atDay(1), month.atEndOfMonth());
+    }
+    
+    /**
+     * The Monday to Sunday week containing the given day
+     */
+    public List<CalendarDay> getWeek(LocalDate day) throws SQLException {
+        LocalDate monday = day.minusDays(day.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+        return getDays(monday, monday.plusDays(6));
+    }
+    
+    /**
+     * One entry per day between two dates inclusive
+     */
+    public List<CalendarDay> getDays(LocalDate startDate, LocalDate endDate) throws SQLException {
+        List<CalendarDay> days = new ArrayList<>();
+        if (endDate.isBefore(startDate)) {
+            return days;
+        }
+        
+        ensureLoaded(YearMonth.from(startDate), YearMonth.from(endDate));
+        lock.readLock().lock();
+        try {
+            for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+                MonthAggregate month = months.get(YearMonth.from(day));
+                days.add(month != null ? month.toDay(day) : new CalendarDay(day, new int[STATUSES.length], 0));
+            }
+            return days;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Drop all months; they are reloaded on next use
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            months.clear();
+            contributions.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void ensureLoaded(YearMonth first, YearMonth last) throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (missing(first, last).isEmpty()) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            List<YearMonth> missing = missing(first, last);
+            if (missing.isEmpty()) {
+                return;
+            }
+            Map<YearMonth, MonthAggregate> loaded = new HashMap<>();
+            for (YearMonth month : missing) {
+                loaded.put(month, new MonthAggregate(month));
+            }
+            YearMonth from = missing.get(0);
+            YearMonth to = missing.get(missing.size() - 1);
+            analyticsDAO.loadAppointments(from.atDay(1), to.atEndOfMonth(),
+                (id, epochDay, minutes, status, unused, patientId) -> {
+                    long key = pack(epochDay, status, (int) minutes);
+                    MonthAggregate month = loaded.get(YearMonth.from(LocalDate.ofEpochDay(epochDay)));
+                    if (month != null) {
+                        month.add(key, 1);
+                        contributions.put(id, key);
+                    }
+                });
+            months.putAll(loaded);
+            evictOldest();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private List<YearMonth> missing(YearMonth first, YearMonth last) {
+        List<YearMonth> missing = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            if (!months.containsKey(month)) {
+                missing.add(month);
+            }
+        }
+        return missing;
+    }
+    
+    private void evictOldest() {
+        Iterator<YearMonth> oldest = months.keySet().iterator();
+        while (months.size() > MAX_MONTHS) {
+            YearMonth evicted = oldest.next();
+            oldest.remove();
+            contributions.values().removeIf(key -> YearMonth.from(LocalDate.ofEpochDay(day(key))).equals(evicted));
+        }
+    }
+    
+    private void registerListener() {
+        AppointmentDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Appointment appointment) {
+                onUpdated(appointment);
+            }
+            
+            @Override
+            public void onUpdated(Appointment appointment) {
+                lock.writeLock().lock();
+                try {
+                    remove(appointment.getId());
+                    LocalDate date = appointment.getAppointmentDate();
+                    MonthAggregate month = date != null ? months.get(YearMonth.from(date)) : null;
+                    // Months not loaded yet pick the appointment up when they are
+                    if (month != null) {
+                        Appointment.Status status = appointment.getStatus() != null
+                            ? appointment.getStatus() : Appointment.Status.SCHEDULED;
+                        long key = pack((int) date.toEpochDay(), status.ordinal(), appointment.getDurationMinutes());
+                        month.add(key, 1);
+                        contributions.put(appointment.getId(), key);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                lock.writeLock().lock();
+                try {
+                    remove(id);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    private void remove(int appointmentId) {
+        Long key = contributions.remove(appointmentId);
+        if (key != null) {
+            MonthAggregate month = months.get(YearMonth.from(LocalDate.ofEpochDay(day(key))));
+            if (month != null) {
+                month.add(key, -1);
+            }
+        }
+    }
+    
+    // Packed contribution: epoch day in the high 32 bits, then 8 bits of status and 24 of minutes
+    private static long pack(int epochDay, int status, int minutes) {
+        return ((long) epochDay << 32) | ((long) status << 24) | (Math.max(0, minutes) & 0xFFFFFFL);
+    }
+    
+    private static int day(long key) {
+        return (int) (key >> 32);
+    }
+    
+    private static int status(long key) {
+        return (int) (key >>> 24) & 0xFF;
+    }
+    
+    private static int minutes(long key) {
+        return (int) key & 0xFFFFFF;
+    }
+    
+    /**
+     * Flat per-day arrays for one month: counts[(day - 1) * statuses + status]
+     */
+    private static final class MonthAggregate {
+        final int firstDay;
+        final int[] counts;
+        final int[] bookedMinutes;
+        
+        MonthAggregate(YearMonth month) {
+            this.firstDay = (int) month.atDay(1).toEpochDay();
+            this.counts = new int[month.lengthOfMonth() * STATUSES.length];
+            this.bookedMinutes = new int[month.lengthOfMonth()];
+        }
+        
+        void add(long key, int sign) {
+            int index = day(key) - firstDay;
+            counts[index * STATUSES.length + status(key)] += sign;
+            if (STATUSES[status(key)] != Appointment.Status.CANCELLED) {
+                bookedMinutes[index] += sign * minutes(key);
+            }
+        }
+        
+        CalendarDay toDay(LocalDate date) {
+            int index = (int) date.toEpochDay() - firstDay;
+            int from = index * STATUSES.length;
+            return new CalendarDay(date, Arrays.copyOfRange(counts, from, from + STATUSES.length),
+                                   bookedMinutes[index]);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.rebelle.models;
+
+import java.time.LocalDate;
+
+/**
+ * CalendarDay - Appointment counts by status and booked minutes for one day,
+ * enough to draw a month or week calendar cell without loading appointments
+ */
+public final class CalendarDay {
+    
+    private final LocalDate date;
+    private final int[] countsByStatus;
+    private final int bookedMinutes;
+    
+    public CalendarDay(LocalDate date, int[] countsByStatus, int bookedMinutes) {
+        this.date = date;
+        this.countsByStatus = countsByStatus;
+        this.bookedMinutes = bookedMinutes;
+    }
+    
+    public LocalDate getDate() { return date; }
+    
+    public int getCount(Appointment.Status status) {
+        return countsByStatus[status.ordinal()];
+    }
+    
+    /** All appointments on the day, cancelled ones included */
+    public int getTotal() {
+        int total = 0;
+        for (int count : countsByStatus) {
+            total += count;
+        }
+        return total;
+    }
+    
+    /** Appointments that still hold their slot */
+    public int getBookedCount() {
+        return getTotal() - getCount(Appointment.Status.CANCELLED);
+    }
+    
+    /** Minutes taken by appointments that are not cancelled */
+    public int getBookedMinutes() { return bookedMinutes; }
+    
+    public boolean isEmpty() {
+        return getTotal() == 0;
+    }
+}
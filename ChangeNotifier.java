@@ -0,0 +1,61 @@
+package com.rebelle.dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ChangeNotifier - Listener registry shared by a DAO and its consumers.
+ * Listeners run on the writing thread, so they must be quick and thread-safe.
+ */
+public class ChangeNotifier<T> {
+    
+    private final List<DataChangeListener<T>> listeners = new CopyOnWriteArrayList<>();
+    
+    public void addListener(DataChangeListener<T> listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(DataChangeListener<T> listener) {
+        listeners.remove(listener);
+    }
+    
+    public void fireInserted(T entity) {
+        for (DataChangeListener<T> listener : listeners) {
+            try {
+                listener.onInserted(entity);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    public void fireUpdated(T entity) {
+        for (DataChangeListener<T> listener : listeners) {
+            try {
+                listener.onUpdated(entity);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    public void fireDeleted(int id) {
+        for (DataChangeListener<T> listener : listeners) {
+            try {
+                listener.onDeleted(id);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    public void fireInvalidated() {
+        for (DataChangeListener<T> listener : listeners) {
+            try {
+                listener.onInvalidated();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.rebelle.utils;
+
+/**
+ * ContactNormalizer - Canonical forms of phone numbers and emails for duplicate detection
+ */
+public class ContactNormalizer {
+    
+    /** Country code assumed for 10-digit numbers without one (NANP) */
+    private static final String DEFAULT_COUNTRY_CODE = "1";
+    
+    /**
+     * Normalise a phone number. Numbers with a country code ("+44 20 ...",
+     * "0044 20 ...", 10-digit NANP numbers with or without a leading 1) become
+     * E.164 style "+<digits>"; shorter local numbers are kept as plain digits.
+     * Returns null when the value has no digits.
+     */
+    public static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String trimmed = phone.trim();
+        String digits = digitsOnly(trimmed);
+        if (digits.isEmpty()) {
+            return null;
+        }
+        
+        if (trimmed.startsWith("+")) {
+            return "+" + digits;
+        }
+        if (trimmed.startsWith("00") && digits.length() > 2) {
+            return "+" + digits.substring(2);
+        }
+        if (digits.length() == 10) {
+            return "+" + DEFAULT_COUNTRY_CODE + digits;
+        }
+        if (digits.length() == 11 && digits.startsWith(DEFAULT_COUNTRY_CODE)) {
+            return "+" + digits;
+        }
+        return digits;
+    }
+    
+    /**
+     * Normalise an email address: trimmed and lower-cased, null when blank
+     */
+    public static String normalizeEmail(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return null;
+        }
+        return email.trim().toLowerCase();
+    }
+    
+    /**
+     * Keep only the digits of a value
+     */
+    public static String digitsOnly(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
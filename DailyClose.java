@@ -0,0 +1,43 @@
+package com.rebelle.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DailyClose - End-of-day summary of a closed day: how its appointments
+ * ended and the payments taken
+ */
+public final class DailyClose {
+    
+    private final LocalDate closeDate;
+    private final int completed;
+    private final int cancelled;
+    private final int noShow;
+    private final BigDecimal revenue;
+    private final LocalDateTime closedAt;
+    private final int noShowsMarked;
+    
+    public DailyClose(LocalDate closeDate, int completed, int cancelled, int noShow, BigDecimal revenue,
+                      LocalDateTime closedAt, int noShowsMarked) {
+        this.closeDate = closeDate;
+        this.completed = completed;
+        this.cancelled = cancelled;
+        this.noShow = noShow;
+        this.revenue = revenue;
+        this.closedAt = closedAt;
+        this.noShowsMarked = noShowsMarked;
+    }
+    
+    public LocalDate getCloseDate() { return closeDate; }
+    public int getCompleted() { return completed; }
+    public int getCancelled() { return cancelled; }
+    public int getNoShow() { return noShow; }
+    public LocalDateTime getClosedAt() { return closedAt; }
+    
+    /** Payments taken on the day; null if the payment store could not be read */
+    public BigDecimal getRevenue() { return revenue; }
+    
+    /** Appointments this run marked as no-show; 0 when the day was already closed */
+    public int getNoShowsMarked() { return noShowsMarked; }
+}
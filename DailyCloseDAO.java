@@ -0,0 +1,172 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.Appointment;
+import com.rebelle.models.DailyClose;
+import com.rebelle.utils.DateTimeUtils;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * DailyCloseDAO - End-of-day close of the appointment book. A close marks
+ * the day's forgotten SCHEDULED appointments as no-shows with one UPDATE and
+ * records a summary row, in one transaction. Closing a day again is safe:
+ * the UPDATE finds nothing left to mark and the summary is rewritten.
+ */
+public class DailyCloseDAO {
+    
+    private static final ChangeNotifier<DailyClose> CHANGES = new ChangeNotifier<>();
+    
+    private final DatabaseManager dbManager;
+    
+    public DailyCloseDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+    
+    /**
+     * Listeners notified after a day is closed
+     */
+    public static ChangeNotifier<DailyClose> changes() {
+        return CHANGES;
+    }
+    
+    /**
+     * Close a day. Scheduled appointments of that day that ended by the cutoff
+     * become NO_SHOW; the summary counts every appointment of the day.
+     */
+    public DailyClose closeDay(LocalDate day, LocalDateTime cutoff, BigDecimal revenue) throws SQLException {
+        String markSql = "UPDATE appointments SET status = 'NO_SHOW', updated_at = ?, version = version + 1 " +
+                        "WHERE status = 'SCHEDULED' AND start_minute >= ? AND start_minute < ? AND end_minute <= ?";
+        String countSql = "SELECT status, COUNT(*) AS count FROM appointments " +
+                         "WHERE start_minute >= ? AND start_minute < ? GROUP BY status";
+        String saveSql = "INSERT OR REPLACE INTO daily_closes (close_date, completed, cancelled, no_show, " +
+                        "revenue, closed_at) VALUES (?, ?, ?, ?, ?, ?)";
+        
+        long dayStart = DateTimeUtils.toEpochMinute(day);
+        long dayEnd = DateTimeUtils.toEpochMinute(day.plusDays(1));
+        LocalDateTime now = LocalDateTime.now();
+        int marked;
+        int completed = 0;
+        int cancelled = 0;
+        int noShow = 0;
+        
+        try (Connection conn = dbManager.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(markSql)) {
+                    stmt.setTimestamp(1, Timestamp.valueOf(now));
+                    stmt.setLong(2, dayStart);
+                    stmt.setLong(3, dayEnd);
+                    stmt.setLong(4, DateTimeUtils.toEpochMinute(cutoff.toLocalDate(), cutoff.toLocalTime()));
+                    marked = stmt.executeUpdate();
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(countSql)) {
+                    stmt.setLong(1, dayStart);
+                    stmt.setLong(2, dayEnd);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String status = rs.getString("status");
+                            int count = rs.getInt("count");
+                            if (Appointment.Status.COMPLETED.name().equals(status)) {
+                                completed = count;
+                            } else if (Appointment.Status.CANCELLED.name().equals(status)) {
+                                cancelled = count;
+                            } else if (Appointment.Status.NO_SHOW.name().equals(status)) {
+                                noShow = count;
+                            }
+                        }
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(saveSql)) {
+                    stmt.setString(1, day.toString());
+                    stmt.setInt(2, completed);
+                    stmt.setInt(3, cancelled);
+                    stmt.setInt(4, noShow);
+                    stmt.setBigDecimal(5, revenue);
+                    stmt.setString(6, now.toString());
+                    stmt.executeUpdate();
+                }
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        
+        if (marked > 0) {
+            // Rows changed in bulk; indexes and counters reload
+            AppointmentDAO.changes().fireInvalidated();
+        }
+        DailyClose close = new DailyClose(day, completed, cancelled, noShow, revenue, now, marked);
+        CHANGES.fireUpdated(close);
+        return close;
+    }
+    
+    /**
+     * Summary of a closed day
+     */
+    public Optional<DailyClose> getClose(LocalDate day) throws SQLException {
+        String sql = "SELECT * FROM daily_closes WHERE close_date = ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, day.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new DailyClose(day, rs.getInt("completed"), rs.getInt("cancelled"),
+                                                  rs.getInt("no_show"), rs.getBigDecimal("revenue"),
+                                                  LocalDateTime.parse(rs.getString("closed_at")), 0));
+            }
+        }
+    }
+    
+    /**
+     * The latest day that has been closed
+     */
+    public Optional<LocalDate> getLastClosedDate() throws SQLException {
+        String sql = "SELECT MAX(close_date) AS day FROM daily_closes";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            String day = rs.next() ? rs.getString("day") : null;
+            return day != null ? Optional.of(LocalDate.parse(day)) : Optional.empty();
+        }
+    }
+    
+    /**
+     * The earliest day with a scheduled appointment that ended by the cutoff
+     */
+    public Optional<LocalDate> getEarliestOpenDate(LocalDateTime cutoff) throws SQLException {
+        String sql = "SELECT MIN(start_minute) AS first_minute FROM appointments " +
+                    "WHERE status = 'SCHEDULED' AND end_minute <= ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setLong(1, DateTimeUtils.toEpochMinute(cutoff.toLocalDate(), cutoff.toLocalTime()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    long firstMinute = rs.getLong("first_minute");
+                    if (!rs.wasNull()) {
+                        return Optional.of(DateTimeUtils.fromEpochMinute(firstMinute).toLocalDate());
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+}
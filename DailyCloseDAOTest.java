@@ -0,0 +1,104 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.DailyClose;
+import com.rebelle.utils.DateTimeUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * DailyCloseDAOTest - Closing a day marks its overdue bookings as no-shows
+ * once; closing it again changes nothing but the summary timestamp.
+ */
+class DailyCloseDAOTest {
+    
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 6);
+    
+    private Path database;
+    private DailyCloseDAO dailyCloseDAO;
+    
+    @BeforeEach
+    void openScratchDatabase() throws Exception {
+        database = Files.createTempFile("rebelle-test", ".db");
+        DatabaseManager.getInstance().useDatabase("jdbc:sqlite:" + database);
+        dailyCloseDAO = new DailyCloseDAO();
+        
+        Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO patients (id, name, created_at, updated_at) "
+                + "VALUES (1, 'Jane Doe', '2024-01-01T09:00', '2024-01-01T09:00')");
+        }
+        insertAppointment(conn, 1, DAY, "09:00", "SCHEDULED");
+        insertAppointment(conn, 2, DAY, "10:00", "COMPLETED");
+        insertAppointment(conn, 3, DAY, "11:00", "CANCELLED");
+        // Still running at the cutoff, and on the next day
+        insertAppointment(conn, 4, DAY, "17:00", "SCHEDULED");
+        insertAppointment(conn, 5, DAY.plusDays(1), "09:00", "SCHEDULED");
+    }
+    
+    @AfterEach
+    void dropScratchDatabase() throws Exception {
+        DatabaseManager.getInstance().closeConnection();
+        Files.deleteIfExists(database);
+    }
+    
+    @Test
+    void closingTwiceMarksNoShowsOnce() throws Exception {
+        BigDecimal revenue = new BigDecimal("80.00");
+        
+        DailyClose first = dailyCloseDAO.closeDay(DAY, DAY.atTime(12, 0), revenue);
+        assertEquals(1, first.getNoShowsMarked());
+        assertSummary(first);
+        
+        DailyClose second = dailyCloseDAO.closeDay(DAY, DAY.atTime(12, 0), revenue);
+        assertEquals(0, second.getNoShowsMarked());
+        assertSummary(second);
+        
+        assertEquals(1, count("SELECT COUNT(*) FROM daily_closes"));
+        assertEquals(1, count("SELECT version FROM appointments WHERE id = 1"));
+        assertEquals(2, count("SELECT COUNT(*) FROM appointments WHERE status = 'SCHEDULED'"));
+        assertSummary(dailyCloseDAO.getClose(DAY).orElseThrow());
+    }
+    
+    private static void assertSummary(DailyClose close) {
+        assertEquals(1, close.getCompleted());
+        assertEquals(1, close.getCancelled());
+        assertEquals(1, close.getNoShow());
+        assertEquals(0, new BigDecimal("80.00").compareTo(close.getRevenue()));
+    }
+    
+    private static void insertAppointment(Connection conn, int id, LocalDate date, String time, String status)
+            throws Exception {
+        String sql = "INSERT INTO appointments (id, patient_id, appointment_date, start_time, duration_minutes, "
+            + "start_minute, end_minute, status) VALUES (?, 1, ?, ?, 30, ?, ?, ?)";
+        long start = DateTimeUtils.toEpochMinute(date, LocalTime.parse(time));
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            stmt.setString(2, date.toString());
+            stmt.setString(3, time);
+            stmt.setLong(4, start);
+            stmt.setLong(5, start + 30);
+            stmt.setString(6, status);
+            stmt.executeUpdate();
+        }
+    }
+    
+    private static long count(String sql) throws Exception {
+        try (Statement stmt = DatabaseManager.getInstance().getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.DailyCloseDAO;
+import com.rebelle.dao.PaymentDAO;
+import com.rebelle.models.DailyClose;
+import com.rebelle.utils.DateTimeUtils;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * DailyCloseService - End-of-day close: forgotten scheduled appointments
+ * become no-shows and each day gets a summary. Every day is closed in its own
+ * transaction and closing it again is harmless, so an interrupted catch-up
+ * simply resumes on the next run.
+ */
+public class DailyCloseService {
+    
+    private final DailyCloseDAO dailyCloseDAO;
+    private final PaymentDAO paymentDAO;
+    
+    public DailyCloseService() {
+        this.dailyCloseDAO = new DailyCloseDAO();
+        this.paymentDAO = new PaymentDAO();
+    }
+    
+    /**
+     * Close one day. Today can be closed too, but only appointments that have
+     * already ended are marked as no-shows.
+     */
+    public ServiceResult<DailyClose> closeDay(LocalDate day) {
+        LocalDateTime now = LocalDateTime.now();
+        if (day == null || day.isAfter(now.toLocalDate())) {
+            return ServiceResult.error("Only past days and today can be closed.");
+        }
+        LocalDateTime cutoff = day.isBefore(now.toLocalDate()) ? day.plusDays(1).atStartOfDay() : now;
+        
+        try {
+            DailyClose close = dailyCloseDAO.closeDay(day, cutoff, revenueOf(day));
+            String message = "Closed " + DateTimeUtils.formatDate(day) + ": " + close.getCompleted() + " completed, "
+                + close.getCancelled() + " cancelled, " + close.getNoShow() + " no-show";
+            if (close.getNoShowsMarked() > 0) {
+                message += " (" + close.getNoShowsMarked() + " marked now)";
+            }
+            return ServiceResult.success(close, message + ".");
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Close every day up to yesterday that is not closed yet, or still has
+     * scheduled appointments left over, oldest first. Stops at the first
+     * failure; the days closed so far stay closed.
+     */
+    public ServiceResult<List<DailyClose>> closePendingDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        List<DailyClose> closed = new ArrayList<>();
+        try {
+            Optional<LocalDate> lastClosed = dailyCloseDAO.getLastClosedDate();
+            LocalDate first = lastClosed.isPresent() ? lastClosed.get().plusDays(1) : yesterday;
+            Optional<LocalDate> earliestOpen = dailyCloseDAO.getEarliestOpenDate(yesterday.plusDays(1).atStartOfDay());
+            if (earliestOpen.isPresent() && earliestOpen.get().isBefore(first)) {
+                first = earliestOpen.get();
+            }
+            
+            for (LocalDate day = first; !day.isAfter(yesterday); day = day.plusDays(1)) {
+                ServiceResult<DailyClose> result = closeDay(day);
+                if (!result.isSuccess()) {
+                    return ServiceResult.error(result.getMessage());
+                }
+                closed.add(result.getData());
+            }
+            return ServiceResult.success(closed, closed.size() + " day(s) closed.");
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Summary of a closed day
+     */
+    public ServiceResult<DailyClose> getClose(LocalDate day) {
+        try {
+            Optional<DailyClose> close = dailyCloseDAO.getClose(day);
+            if (close.isEmpty()) {
+                return ServiceResult.error("This day has not been closed.");
+            }
+            return ServiceResult.success(close.get());
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Run any call on this service asynchronously on the shared service executor
+     */
+    public <T> CompletableFuture<ServiceResult<T>> async(Function<DailyCloseService, ServiceResult<T>> call) {
+        return ServiceExecutor.getInstance().submit(() -> call.apply(this),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+    }
+    
+    /**
+     * Payments taken on the day. Payments live in a separate store, so when it
+     * cannot be read the revenue of an earlier close is kept (or left empty)
+     * and a later close fills it in.
+     */
+    private BigDecimal revenueOf(LocalDate day) throws SQLException {
+        try {
+            BigDecimal total = paymentDAO.getPaymentTotal(day, day);
+            return total != null ? total : BigDecimal.ZERO;
+        } catch (SQLException e) {
+            System.err.println("Payment total for " + day + " unavailable: " + e.getMessage());
+            return dailyCloseDAO.getClose(day).map(DailyClose::getRevenue).orElse(null);
+        }
+    }
+    
+    /**
+     * Service result wrapper class
+     */
+    public static class ServiceResult<T> {
+        private final boolean success;
+        private final T data;
+        private final String message;
+        
+        private ServiceResult(boolean success, T data, String message) {
+            this.success = success;
+            this.data = data;
+            this.message = message;
+        }
+        
+        public static <T> ServiceResult<T> success(T data) {
+            return new ServiceResult<>(true, data, null);
+        }
+        
+        public static <T> ServiceResult<T> success(T data, String message) {
+            return new ServiceResult<>(true, data, message);
+        }
+        
+        public static <T> ServiceResult<T> error(String message) {
+            return new ServiceResult<>(false, null, message);
+        }
+        
+        public boolean isSuccess() { return success; }
+        public T getData() { return data; }
+        public String getMessage() { return message; }
+    }
+}
@@ -0,0 +1,30 @@
+package com.rebelle.dao;
+
+/**
+ * DataChangeListener - Receives notifications after a DAO write succeeds.
+ * Used by in-memory indexes and caches to stay in sync with the database.
+ */
+public interface DataChangeListener<T> {
+    
+    /**
+     * Called after a row was inserted
+     */
+    void onInserted(T entity);
+    
+    /**
+     * Called after a row was updated
+     */
+    void onUpdated(T entity);
+    
+    /**
+     * Called after a row was deleted
+     */
+    void onDeleted(int id);
+    
+    /**
+     * Called after a bulk statement touched an unknown set of rows.
+     * Listeners should reload whatever they hold.
+     */
+    default void onInvalidated() {
+    }
+}
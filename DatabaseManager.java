@@ -6,11 +6,17 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.io.InputStream;
 import java.util.Scanner;
 
+import com.rebelle.utils.ContactNormalizer;
+import com.rebelle.utils.DateTimeUtils;
+import com.rebelle.utils.DoubleMetaphone;
+
 /**
  * DatabaseManager - Singleton class for managing SQLite database connection
  */
@@ -18,8 +24,10 @@ public class DatabaseManager {
     
     private static DatabaseManager instance;
     private Connection connection;
+    private boolean migrated;
     private static final String DB_NAME = "rebelle_medical.db";
     private static final String DB_URL = "jdbc:sqlite:" + DB_NAME;
+    private String url = DB_URL;
     
     private DatabaseManager() {
         // Private constructor for singleton pattern
@@ -44,7 +52,7 @@ public class DatabaseManager {
             createDatabaseDirectory();
             
             // Create connection
-            connection = DriverManager.getConnection(DB_URL);
+            connection = DriverManager.getConnection(url);
             
             // Enable foreign key constraints
             connection.createStatement().execute("PRAGMA foreign_keys = ON;");
@@ -52,7 +60,10 @@ public class DatabaseManager {
             // Execute schema creation
             createTables();
             
-            System.out.println("Database initialized successfully: " + DB_NAME);
+            // Upgrade databases created by older versions
+            runMigrations();
+            
+            System.out.println("Database initialized successfully: " + url);
             
         } catch (SQLException e) {
             System.err.println("Database initialization failed: " + e.getMessage());
@@ -63,13 +74,34 @@ public class DatabaseManager {
     /**
      * Get database connection
      */
-    public Connection getConnection() throws SQLException {
+    public synchronized Connection getConnection() throws SQLException {
         if (connection == null || connection.isClosed()) {
             initializeDatabase();
         }
         return connection;
     }
     
+    /**
+     * Open a separate connection for a query that runs in parallel with
+     * others on the shared connection. The caller closes it.
+     */
+    public Connection openConnection() throws SQLException {
+        getConnection(); // Schema and migrations must be in place first
+        return DriverManager.getConnection(url);
+    }
+    
+    /**
+     * Switch to another SQLite database, e.g. a scratch file in tests. The
+     * current connection is closed; the next use opens the new database and
+     * creates its schema.
+     */
+    public synchronized void useDatabase(String url) {
+        closeConnection();
+        this.connection = null;
+        this.url = url;
+        this.migrated = false;
+    }
+    
     /**
      * Close database connection
      */
@@ -116,8 +148,9 @@ public class DatabaseManager {
             Statement statement = connection.createStatement();
             
             while (scanner.hasNext()) {
-                String sql = scanner.next().trim();
-                if (!sql.isEmpty() && !sql.startsWith("--")) {
+                // Drop comment lines; most statements are preceded by one
+                String sql = scanner.next().replaceAll("(?m)^\\s*--.*$", "").trim();
+                if (!sql.isEmpty()) {
                     try {
                         statement.execute(sql);
                     } catch (SQLException e) {
@@ -138,6 +171,281 @@ public class DatabaseManager {
         }
     }
     
+    /**
+     * Bring an existing database up to the current schema. Every step is
+     * idempotent; they run once per process.
+     */
+    private void runMigrations() throws SQLException {
+        if (migrated) {
+            return;
+        }
+        migratePatientContacts();
+        createIndexIfMissing("idx_patients_summary", "patients(name, phone, date_of_birth)");
+        migratePatientPhonetics();
+        migrateAppointmentMinutes();
+        migrateAppointmentSeries();
+        migrateVersionColumns();
+        migrateWaitlist();
+        migrateDailyCloses();
+        migrated = true;
+    }
+    
+    /**
+     * Normalised phone/email columns for duplicate detection, backfilled and indexed
+     */
+    private void migratePatientContacts() throws SQLException {
+        addColumnIfMissing("patients", "phone_normalized", "TEXT");
+        addColumnIfMissing("patients", "email_normalized", "TEXT");
+        
+        String select = """
+            SELECT id, phone, email FROM patients
+            WHERE (phone IS NOT NULL AND phone_normalized IS NULL)
+               OR (email IS NOT NULL AND email_normalized IS NULL)
+            """;
+        String update = "UPDATE patients SET phone_normalized = ?, email_normalized = ? WHERE id = ?";
+        
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(select);
+             PreparedStatement updateStmt = connection.prepareStatement(update)) {
+            
+            int rows = 0;
+            while (rs.next()) {
+                updateStmt.setString(1, ContactNormalizer.normalizePhone(rs.getString("phone")));
+                updateStmt.setString(2, ContactNormalizer.normalizeEmail(rs.getString("email")));
+                updateStmt.setInt(3, rs.getInt("id"));
+                updateStmt.addBatch();
+                rows++;
+            }
+            if (rows > 0) {
+                updateStmt.executeBatch();
+                System.out.println("Backfilled normalised contacts for " + rows + " patients.");
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        
+        createContactIndex("phone_normalized");
+        createContactIndex("email_normalized");
+    }
+    
+    /**
+     * Double Metaphone name keys for fuzzy name search, backfilled and indexed
+     */
+    private void migratePatientPhonetics() throws SQLException {
+        addColumnIfMissing("patients", "name_phonetic", "TEXT");
+        
+        String select = "SELECT id, name FROM patients WHERE name_phonetic IS NULL AND name IS NOT NULL";
+        String update = "UPDATE patients SET name_phonetic = ? WHERE id = ?";
+        
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(select);
+             PreparedStatement updateStmt = connection.prepareStatement(update)) {
+            
+            int rows = 0;
+            while (rs.next()) {
+                updateStmt.setString(1, DoubleMetaphone.encodeName(rs.getString("name")));
+                updateStmt.setInt(2, rs.getInt("id"));
+                updateStmt.addBatch();
+                rows++;
+            }
+            if (rows > 0) {
+                updateStmt.executeBatch();
+                System.out.println("Backfilled phonetic name keys for " + rows + " patients.");
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        
+        createIndexIfMissing("idx_patients_name_phonetic", "patients(name_phonetic)");
+    }
+    
+    /**
+     * Integer start/end epoch minutes for appointments, backfilled from the
+     * date and time columns, with a range index and a partial index over the
+     * appointments that still occupy the schedule
+     */
+    private void migrateAppointmentMinutes() throws SQLException {
+        addColumnIfMissing("appointments", "start_time", "TEXT");
+        addColumnIfMissing("appointments", "updated_at", "TEXT");
+        addColumnIfMissing("appointments", "start_minute", "INTEGER");
+        addColumnIfMissing("appointments", "end_minute", "INTEGER");
+        
+        String select = """
+            SELECT id, appointment_date, start_time, duration_minutes FROM appointments
+            WHERE start_minute IS NULL AND start_time IS NOT NULL
+            """;
+        String update = "UPDATE appointments SET start_minute = ?, end_minute = ? WHERE id = ?";
+        
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(select);
+             PreparedStatement updateStmt = connection.prepareStatement(update)) {
+            
+            int rows = 0;
+            while (rs.next()) {
+                long startMinute = DateTimeUtils.toEpochMinute(rs.getDate("appointment_date").toLocalDate(),
+                                                               rs.getTime("start_time").toLocalTime());
+                updateStmt.setLong(1, startMinute);
+                updateStmt.setLong(2, startMinute + rs.getInt("duration_minutes"));
+                updateStmt.setInt(3, rs.getInt("id"));
+                updateStmt.addBatch();
+                rows++;
+            }
+            if (rows > 0) {
+                updateStmt.executeBatch();
+                System.out.println("Backfilled start/end minutes for " + rows + " appointments.");
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        
+        createIndexIfMissing("idx_appointments_minutes", "appointments(start_minute, end_minute)");
+        createIndexIfMissing("idx_appointments_active_minutes",
+                             "appointments(start_minute, end_minute) WHERE status != 'CANCELLED'");
+    }
+    
+    /**
+     * Series table and link column for recurring appointments
+     */
+    private void migrateAppointmentSeries() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS appointment_series (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    patient_id INTEGER NOT NULL,
+                    rule TEXT NOT NULL,
+                    created_at TEXT DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (patient_id) REFERENCES patients(id)
+                )
+                """);
+        }
+        addColumnIfMissing("appointments", "series_id", "INTEGER REFERENCES appointment_series(id)");
+        createIndexIfMissing("idx_appointments_series", "appointments(series_id)");
+    }
+    
+    /**
+     * Row versions for optimistic concurrency on the tables edited from forms
+     */
+    private void migrateVersionColumns() throws SQLException {
+        for (String table : new String[] {"appointments", "patients", "inventory_items"}) {
+            if (tableExists(table)) {
+                addColumnIfMissing(table, "version", "INTEGER NOT NULL DEFAULT 0");
+            }
+        }
+    }
+    
+    /**
+     * Waitlist table, indexed for loading the open entries
+     */
+    private void migrateWaitlist() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS waitlist (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    patient_id INTEGER NOT NULL,
+                    service_id INTEGER,
+                    duration_minutes INTEGER NOT NULL,
+                    earliest_date TEXT NOT NULL,
+                    latest_date TEXT NOT NULL,
+                    urgency TEXT NOT NULL DEFAULT 'ROUTINE',
+                    status TEXT NOT NULL DEFAULT 'WAITING',
+                    notes TEXT,
+                    created_at TEXT DEFAULT CURRENT_TIMESTAMP,
+                    offered_appointment_id INTEGER,
+                    offered_date TEXT,
+                    offered_time TEXT,
+                    FOREIGN KEY (patient_id) REFERENCES patients(id),
+                    FOREIGN KEY (service_id) REFERENCES services(id)
+                )
+                """);
+        }
+        createIndexIfMissing("idx_waitlist_open", "waitlist(status, latest_date)");
+    }
+    
+    /**
+     * Summary table written by the end-of-day close
+     */
+    private void migrateDailyCloses() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS daily_closes (
+                    close_date TEXT PRIMARY KEY,
+                    completed INTEGER NOT NULL DEFAULT 0,
+                    cancelled INTEGER NOT NULL DEFAULT 0,
+                    no_show INTEGER NOT NULL DEFAULT 0,
+                    revenue DECIMAL(10,2),
+                    closed_at TEXT NOT NULL
+                )
+                """);
+        }
+    }
+    
+    private boolean tableExists(String table) throws SQLException {
+        String sql = "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+    
+    /**
+     * Unique index on a normalised contact column. Databases that already hold
+     * duplicates get a plain index instead until the duplicates are merged.
+     */
+    private void createContactIndex(String column) throws SQLException {
+        String uniqueIndex = "idx_patients_" + column;
+        String plainIndex = uniqueIndex + "_lookup";
+        
+        try (Statement stmt = connection.createStatement()) {
+            try {
+                stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + uniqueIndex +
+                             " ON patients(" + column + ") WHERE " + column + " IS NOT NULL");
+                stmt.execute("DROP INDEX IF EXISTS " + plainIndex);
+            } catch (SQLException e) {
+                System.err.println("Duplicate values in patients." + column + "; using a non-unique index.");
+                stmt.execute("CREATE INDEX IF NOT EXISTS " + plainIndex + " ON patients(" + column + ")");
+            }
+        }
+    }
+    
+    private void createIndexIfMissing(String name, String definition) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS " + name + " ON " + definition);
+        }
+    }
+    
+    private void addColumnIfMissing(String table, String column, String type) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("name"))) {
+                        return;
+                    }
+                }
+            }
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+    
     /**
      * Test database connection
      */
@@ -18,6 +18,8 @@ public class DateTimeUtils {
     public static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("h:mm a");
     public static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("MMM d, yyyy h:mm a");
     
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    
     /**
      * Format LocalDate to display string
      */
@@ -172,6 +174,29 @@ public class DateTimeUtils {
         return LocalTime.parse(timeStr, TIME_FORMATTER);
     }
     
+    /**
+     * Minutes since 1970-01-01 00:00 in clinic local time, as stored in the
+     * appointments start_minute and end_minute columns
+     */
+    public static long toEpochMinute(LocalDate date, LocalTime time) {
+        return date.toEpochDay() * MINUTES_PER_DAY + time.toSecondOfDay() / 60;
+    }
+    
+    /**
+     * First epoch minute of a day
+     */
+    public static long toEpochMinute(LocalDate date) {
+        return date.toEpochDay() * MINUTES_PER_DAY;
+    }
+    
+    /**
+     * Local date and time of an epoch minute
+     */
+    public static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.of(LocalDate.ofEpochDay(Math.floorDiv(epochMinute, MINUTES_PER_DAY)),
+                                LocalTime.ofSecondOfDay(Math.floorMod(epochMinute, MINUTES_PER_DAY) * 60L));
+    }
+    
     /**
      * Check if a time is within business hours (8 AM to 6 PM)
      */
@@ -0,0 +1,638 @@
+package com.rebelle.utils;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * DoubleMetaphone - Phonetic keys for personal names (Lawrence Philips' Double
+ * Metaphone), so "Smith", "Smyth" and "Schmidt" share a key.
+ *
+ * Every word gets a primary key and, where the spelling is ambiguous (e.g.
+ * Germanic or Slavic origin), an alternate key. Keys are at most four characters.
+ */
+public class DoubleMetaphone {
+    
+    private static final int MAX_LENGTH = 4;
+    private static final String VOWELS = "AEIOUY";
+    
+    private static final String[] SILENT_START = {"GN", "KN", "PN", "WR", "PS"};
+    private static final String[] L_R_N_M_B_H_F_V_W_SPACE = {"L", "R", "N", "M", "B", "H", "F", "V", "W", " "};
+    private static final String[] ES_EP_EB_EL_EY_IB_IL_IN_IE_EI_ER =
+        {"ES", "EP", "EB", "EL", "EY", "IB", "IL", "IN", "IE", "EI", "ER"};
+    private static final String[] L_T_K_S_N_M_B_Z = {"L", "T", "K", "S", "N", "M", "B", "Z"};
+    
+    /**
+     * Primary and alternate key of one word ({primary, alternate}), or null if
+     * the word has no letters. The alternate equals the primary when the
+     * spelling is unambiguous.
+     */
+    public static String[] encode(String word) {
+        String value = clean(word);
+        if (value.isEmpty()) {
+            return null;
+        }
+        return new Encoder(value).encode();
+    }
+    
+    /**
+     * Key of a whole name as stored in patients.name_phonetic: one entry per
+     * word (hyphenated names count as separate words), separated by spaces, each "PRIMARY" or "PRIMARY|ALTERNATE".
+     * Returns null for a name without letters.
+     */
+    public static String encodeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        for (String word : name.trim().split("[\\s-]+")) {
+            String[] codes = encode(word);
+            if (codes == null) {
+                continue;
+            }
+            if (key.length() > 0) {
+                key.append(' ');
+            }
+            key.append(codes[0]);
+            if (!codes[1].equals(codes[0])) {
+                key.append('|').append(codes[1]);
+            }
+        }
+        return key.length() > 0 ? key.toString() : null;
+    }
+    
+    /**
+     * Distinct keys (primary and alternate) contained in a name key from encodeName
+     */
+    public static Set<String> codesOf(String nameKey) {
+        Set<String> codes = new LinkedHashSet<>();
+        if (nameKey == null || nameKey.isEmpty()) {
+            return codes;
+        }
+        for (String word : nameKey.split(" ")) {
+            for (String code : word.split("\\|")) {
+                if (!code.isEmpty()) {
+                    codes.add(code);
+                }
+            }
+        }
+        return codes;
+    }
+    
+    /**
+     * Upper case, accents stripped, letters only
+     */
+    private static String clean(String word) {
+        if (word == null) {
+            return "";
+        }
+        String stripped = Normalizer.normalize(word, Normalizer.Form.NFD);
+        StringBuilder letters = new StringBuilder(stripped.length());
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = Character.toUpperCase(stripped.charAt(i));
+            if (c >= 'A' && c <= 'Z') {
+                letters.append(c);
+            }
+        }
+        return letters.toString();
+    }
+    
+    /**
+     * One encoding run; the rules follow the reference implementation letter by letter
+     */
+    private static final class Encoder {
+        private final String value;
+        private final boolean slavoGermanic;
+        private final StringBuilder primary = new StringBuilder(MAX_LENGTH);
+        private final StringBuilder alternate = new StringBuilder(MAX_LENGTH);
+        
+        Encoder(String value) {
+            this.value = value;
+            this.slavoGermanic = value.indexOf('W') >= 0 || value.indexOf('K') >= 0
+                || value.contains("CZ") || value.contains("WITZ");
+        }
+        
+        String[] encode() {
+            int index = contains(0, 2, SILENT_START) ? 1 : 0;
+            while (!complete() && index < value.length()) {
+                char c = value.charAt(index);
+                switch (c) {
+                    case 'A': case 'E': case 'I': case 'O': case 'U': case 'Y':
+                        if (index == 0) {
+                            append('A');
+                        }
+                        index++;
+                        break;
+                    case 'B':
+                        append('P');
+                        index = charAt(index + 1) == 'B' ? index + 2 : index + 1;
+                        break;
+                    case 'C':
+                        index = handleC(index);
+                        break;
+                    case 'D':
+                        index = handleD(index);
+                        break;
+                    case 'F':
+                        append('F');
+                        index = charAt(index + 1) == 'F' ? index + 2 : index + 1;
+                        break;
+                    case 'G':
+                        index = handleG(index);
+                        break;
+                    case 'H':
+                        index = handleH(index);
+                        break;
+                    case 'J':
+                        index = handleJ(index);
+                        break;
+                    case 'K':
+                        append('K');
+                        index = charAt(index + 1) == 'K' ? index + 2 : index + 1;
+                        break;
+                    case 'L':
+                        index = handleL(index);
+                        break;
+                    case 'M':
+                        append('M');
+                        index = conditionM0(index) ? index + 2 : index + 1;
+                        break;
+                    case 'N':
+                        append('N');
+                        index = charAt(index + 1) == 'N' ? index + 2 : index + 1;
+                        break;
+                    case 'P':
+                        index = handleP(index);
+                        break;
+                    case 'Q':
+                        append('K');
+                        index = charAt(index + 1) == 'Q' ? index + 2 : index + 1;
+                        break;
+                    case 'R':
+                        index = handleR(index);
+                        break;
+                    case 'S':
+                        index = handleS(index);
+                        break;
+                    case 'T':
+                        index = handleT(index);
+                        break;
+                    case 'V':
+                        append('F');
+                        index = charAt(index + 1) == 'V' ? index + 2 : index + 1;
+                        break;
+                    case 'W':
+                        index = handleW(index);
+                        break;
+                    case 'X':
+                        index = handleX(index);
+                        break;
+                    case 'Z':
+                        index = handleZ(index);
+                        break;
+                    default:
+                        index++;
+                        break;
+                }
+            }
+            return new String[] {primary.toString(), alternate.toString()};
+        }
+        
+        private int handleC(int index) {
+            if (conditionC0(index)) {
+                append('K');
+                return index + 2;
+            }
+            if (index == 0 && contains(index, 6, "CAESAR")) {
+                append('S');
+                return index + 2;
+            }
+            if (contains(index, 2, "CH")) {
+                return handleCH(index);
+            }
+            if (contains(index, 2, "CZ") && !contains(index - 2, 4, "WICZ")) {
+                append('S', 'X');
+                return index + 2;
+            }
+            if (contains(index + 1, 3, "CIA")) {
+                append('X');
+                return index + 3;
+            }
+            if (contains(index, 2, "CC") && !(index == 1 && charAt(0) == 'M')) {
+                return handleCC(index);
+            }
+            if (contains(index, 2, "CK", "CG", "CQ")) {
+                append('K');
+                return index + 2;
+            }
+            if (contains(index, 2, "CI", "CE", "CY")) {
+                if (contains(index, 3, "CIO", "CIE", "CIA")) {
+                    append('S', 'X');
+                } else {
+                    append('S');
+                }
+                return index + 2;
+            }
+            append('K');
+            if (contains(index + 1, 2, " C", " Q", " G")) {
+                return index + 3;
+            }
+            if (contains(index + 1, 1, "C", "K", "Q") && !contains(index + 1, 2, "CE", "CI")) {
+                return index + 2;
+            }
+            return index + 1;
+        }
+        
+        private int handleCC(int index) {
+            if (contains(index + 2, 1, "I", "E", "H") && !contains(index + 2, 2, "HU")) {
+                if ((index == 1 && charAt(index - 1) == 'A') || contains(index - 1, 5, "UCCEE", "UCCES")) {
+                    append("KS");
+                } else {
+                    append('X');
+                }
+                return index + 3;
+            }
+            append('K');
+            return index + 2;
+        }
+        
+        private int handleCH(int index) {
+            if (index > 0 && contains(index, 4, "CHAE")) {
+                append('K', 'X');
+            } else if (conditionCH0(index) || conditionCH1(index)) {
+                append('K');
+            } else if (index > 0) {
+                if (contains(0, 2, "MC")) {
+                    append('K');
+                } else {
+                    append('X', 'K');
+                }
+            } else {
+                append('X');
+            }
+            return index + 2;
+        }
+        
+        private int handleD(int index) {
+            if (contains(index, 2, "DG")) {
+                if (contains(index + 2, 1, "I", "E", "Y")) {
+                    append('J');
+                    return index + 3;
+                }
+                append("TK");
+                return index + 2;
+            }
+            append('T');
+            return contains(index, 2, "DT", "DD") ? index + 2 : index + 1;
+        }
+        
+        private int handleG(int index) {
+            char next = charAt(index + 1);
+            if (next == 'H') {
+                return handleGH(index);
+            }
+            if (next == 'N') {
+                if (index == 1 && isVowel(charAt(0)) && !slavoGermanic) {
+                    append("KN", "N");
+                } else if (!contains(index + 2, 2, "EY") && !slavoGermanic) {
+                    append("N", "KN");
+                } else {
+                    append("KN");
+                }
+                return index + 2;
+            }
+            if (contains(index + 1, 2, "LI") && !slavoGermanic) {
+                append("KL", "L");
+                return index + 2;
+            }
+            if (index == 0 && (next == 'Y' || contains(index + 1, 2, ES_EP_EB_EL_EY_IB_IL_IN_IE_EI_ER))) {
+                append('K', 'J');
+                return index + 2;
+            }
+            if ((contains(index + 1, 2, "ER") || next == 'Y')
+                    && !contains(0, 6, "DANGER", "RANGER", "MANGER")
+                    && !contains(index - 1, 1, "E", "I")
+                    && !contains(index - 1, 3, "RGY", "OGY")) {
+                append('K', 'J');
+                return index + 2;
+            }
+            if (contains(index + 1, 1, "E", "I", "Y") || contains(index - 1, 4, "AGGI", "OGGI")) {
+                if (contains(0, 4, "VAN ", "VON ") || contains(0, 3, "SCH") || contains(index + 1, 2, "ET")) {
+                    append('K');
+                } else if (contains(index + 1, 3, "IER")) {
+                    append('J');
+                } else {
+                    append('J', 'K');
+                }
+                return index + 2;
+            }
+            append('K');
+            return next == 'G' ? index + 2 : index + 1;
+        }
+        
+        private int handleGH(int index) {
+            if (index > 0 && !isVowel(charAt(index - 1))) {
+                append('K');
+            } else if (index == 0) {
+                append(charAt(index + 2) == 'I' ? 'J' : 'K');
+            } else if ((index > 1 && contains(index - 2, 1, "B", "H", "D"))
+                    || (index > 2 && contains(index - 3, 1, "B", "H", "D"))
+                    || (index > 3 && contains(index - 4, 1, "B", "H"))) {
+                // Silent, as in "Hugh" or "bough"
+            } else if (index > 2 && charAt(index - 1) == 'U' && contains(index - 3, 1, "C", "G", "L", "R", "T")) {
+                append('F');
+            } else if (charAt(index - 1) != 'I') {
+                append('K');
+            }
+            return index + 2;
+        }
+        
+        private int handleH(int index) {
+            if ((index == 0 || isVowel(charAt(index - 1))) && isVowel(charAt(index + 1))) {
+                append('H');
+                return index + 2;
+            }
+            return index + 1;
+        }
+        
+        private int handleJ(int index) {
+            if (contains(index, 4, "JOSE") || contains(0, 4, "SAN ")) {
+                if ((index == 0 && charAt(index + 4) == ' ') || value.length() == 4 || contains(0, 4, "SAN ")) {
+                    append('H');
+                } else {
+                    append('J', 'H');
+                }
+                return index + 1;
+            }
+            if (index == 0) {
+                append('J', 'A');
+            } else if (isVowel(charAt(index - 1)) && !slavoGermanic
+                    && (charAt(index + 1) == 'A' || charAt(index + 1) == 'O')) {
+                append('J', 'H');
+            } else if (index == value.length() - 1) {
+                appendPrimary('J');
+            } else if (!contains(index + 1, 1, L_T_K_S_N_M_B_Z) && !contains(index - 1, 1, "S", "K", "L")) {
+                append('J');
+            }
+            return charAt(index + 1) == 'J' ? index + 2 : index + 1;
+        }
+        
+        private int handleL(int index) {
+            if (charAt(index + 1) == 'L') {
+                if (conditionL0(index)) {
+                    appendPrimary('L');
+                } else {
+                    append('L');
+                }
+                return index + 2;
+            }
+            append('L');
+            return index + 1;
+        }
+        
+        private int handleP(int index) {
+            if (charAt(index + 1) == 'H') {
+                append('F');
+                return index + 2;
+            }
+            append('P');
+            return contains(index + 1, 1, "P", "B") ? index + 2 : index + 1;
+        }
+        
+        private int handleR(int index) {
+            if (index == value.length() - 1 && !slavoGermanic
+                    && contains(index - 2, 2, "IE") && !contains(index - 4, 2, "ME", "MA")) {
+                appendAlternate('R');
+            } else {
+                append('R');
+            }
+            return charAt(index + 1) == 'R' ? index + 2 : index + 1;
+        }
+        
+        private int handleS(int index) {
+            if (contains(index - 1, 3, "ISL", "YSL")) {
+                return index + 1;
+            }
+            if (index == 0 && contains(index, 5, "SUGAR")) {
+                append('X', 'S');
+                return index + 1;
+            }
+            if (contains(index, 2, "SH")) {
+                append(contains(index + 1, 4, "HEIM", "HOEK", "HOLM", "HOLZ") ? 'S' : 'X');
+                return index + 2;
+            }
+            if (contains(index, 3, "SIO", "SIA") || contains(index, 4, "SIAN")) {
+                if (slavoGermanic) {
+                    append('S');
+                } else {
+                    append('S', 'X');
+                }
+                return index + 3;
+            }
+            if ((index == 0 && contains(index + 1, 1, "M", "N", "L", "W")) || contains(index + 1, 1, "Z")) {
+                append('S', 'X');
+                return contains(index + 1, 1, "Z") ? index + 2 : index + 1;
+            }
+            if (contains(index, 2, "SC")) {
+                return handleSC(index);
+            }
+            if (index == value.length() - 1 && contains(index - 2, 2, "AI", "OI")) {
+                appendAlternate('S');
+            } else {
+                append('S');
+            }
+            return contains(index + 1, 1, "S", "Z") ? index + 2 : index + 1;
+        }
+        
+        private int handleSC(int index) {
+            if (charAt(index + 2) == 'H') {
+                if (contains(index + 3, 2, "OO", "ER", "EN", "UY", "ED", "EM")) {
+                    if (contains(index + 3, 2, "ER", "EN")) {
+                        append("X", "SK");
+                    } else {
+                        append("SK");
+                    }
+                } else if (index == 0 && !isVowel(charAt(3)) && charAt(3) != 'W') {
+                    append('X', 'S');
+                } else {
+                    append('X');
+                }
+            } else if (contains(index + 2, 1, "I", "E", "Y")) {
+                append('S');
+            } else {
+                append("SK");
+            }
+            return index + 3;
+        }
+        
+        private int handleT(int index) {
+            if (contains(index, 4, "TION") || contains(index, 3, "TIA", "TCH")) {
+                append('X');
+                return index + 3;
+            }
+            if (contains(index, 2, "TH") || contains(index, 3, "TTH")) {
+                if (contains(index + 2, 2, "OM", "AM") || contains(0, 4, "VAN ", "VON ") || contains(0, 3, "SCH")) {
+                    append('T');
+                } else {
+                    append('0', 'T');
+                }
+                return index + 2;
+            }
+            append('T');
+            return contains(index + 1, 1, "T", "D") ? index + 2 : index + 1;
+        }
+        
+        private int handleW(int index) {
+            if (contains(index, 2, "WR")) {
+                append('R');
+                return index + 2;
+            }
+            if (index == 0 && (isVowel(charAt(index + 1)) || contains(index, 2, "WH"))) {
+                if (isVowel(charAt(index + 1))) {
+                    append('A', 'F');
+                } else {
+                    append('A');
+                }
+                return index + 1;
+            }
+            if ((index == value.length() - 1 && isVowel(charAt(index - 1)))
+                    || contains(index - 1, 5, "EWSKI", "EWSKY", "OWSKI", "OWSKY")
+                    || contains(0, 3, "SCH")) {
+                appendAlternate('F');
+                return index + 1;
+            }
+            if (contains(index, 4, "WICZ", "WITZ")) {
+                append("TS", "FX");
+                return index + 4;
+            }
+            return index + 1;
+        }
+        
+        private int handleX(int index) {
+            if (index == 0) {
+                append('S');
+                return index + 1;
+            }
+            boolean silentFrench = index == value.length() - 1
+                && (contains(index - 3, 3, "IAU", "EAU") || contains(index - 2, 2, "AU", "OU"));
+            if (!silentFrench) {
+                append("KS");
+            }
+            return contains(index + 1, 1, "C", "X") ? index + 2 : index + 1;
+        }
+        
+        private int handleZ(int index) {
+            if (charAt(index + 1) == 'H') {
+                append('J');
+                return index + 2;
+            }
+            if (contains(index + 1, 2, "ZO", "ZI", "ZA") || (slavoGermanic && index > 0 && charAt(index - 1) != 'T')) {
+                append("S", "TS");
+            } else {
+                append('S');
+            }
+            return charAt(index + 1) == 'Z' ? index + 2 : index + 1;
+        }
+        
+        private boolean conditionC0(int index) {
+            if (contains(index, 4, "CHIA")) {
+                return true;
+            }
+            if (index <= 1 || isVowel(charAt(index - 2)) || !contains(index - 1, 3, "ACH")) {
+                return false;
+            }
+            char c = charAt(index + 2);
+            return (c != 'I' && c != 'E') || contains(index - 2, 6, "BACHER", "MACHER");
+        }
+        
+        private boolean conditionCH0(int index) {
+            if (index != 0) {
+                return false;
+            }
+            if (!contains(index + 1, 5, "HARAC", "HARIS") && !contains(index + 1, 3, "HOR", "HYM", "HIA", "HEM")) {
+                return false;
+            }
+            return !contains(0, 5, "CHORE");
+        }
+        
+        private boolean conditionCH1(int index) {
+            return contains(0, 4, "VAN ", "VON ") || contains(0, 3, "SCH")
+                || contains(index - 2, 6, "ORCHES", "ARCHIT", "ORCHID")
+                || contains(index + 2, 1, "T", "S")
+                || ((contains(index - 1, 1, "A", "O", "U", "E") || index == 0)
+                    && (contains(index + 2, 1, L_R_N_M_B_H_F_V_W_SPACE) || index + 1 == value.length() - 1));
+        }
+        
+        private boolean conditionL0(int index) {
+            if (index == value.length() - 3 && contains(index - 1, 4, "ILLO", "ILLA", "ALLE")) {
+                return true;
+            }
+            return (contains(value.length() - 2, 2, "AS", "OS") || contains(value.length() - 1, 1, "A", "O"))
+                && contains(index - 1, 4, "ALLE");
+        }
+        
+        private boolean conditionM0(int index) {
+            if (charAt(index + 1) == 'M') {
+                return true;
+            }
+            return contains(index - 1, 3, "UMB")
+                && (index + 1 == value.length() - 1 || contains(index + 2, 2, "ER"));
+        }
+        
+        private boolean complete() {
+            return primary.length() >= MAX_LENGTH && alternate.length() >= MAX_LENGTH;
+        }
+        
+        private void append(char c) {
+            appendPrimary(c);
+            appendAlternate(c);
+        }
+        
+        private void append(char primaryChar, char alternateChar) {
+            appendPrimary(primaryChar);
+            appendAlternate(alternateChar);
+        }
+        
+        private void appendPrimary(char c) {
+            if (primary.length() < MAX_LENGTH) {
+                primary.append(c);
+            }
+        }
+        
+        private void appendAlternate(char c) {
+            if (alternate.length() < MAX_LENGTH) {
+                alternate.append(c);
+            }
+        }
+        
+        private void append(String s) {
+            append(s, s);
+        }
+        
+        private void append(String primaryPart, String alternatePart) {
+            primary.append(primaryPart, 0, Math.min(primaryPart.length(), MAX_LENGTH - Math.min(MAX_LENGTH, primary.length())));
+            alternate.append(alternatePart, 0, Math.min(alternatePart.length(), MAX_LENGTH - Math.min(MAX_LENGTH, alternate.length())));
+        }
+        
+        private char charAt(int index) {
+            return index >= 0 && index < value.length() ? value.charAt(index) : Character.MIN_VALUE;
+        }
+        
+        private boolean isVowel(char c) {
+            return VOWELS.indexOf(c) >= 0 && c != Character.MIN_VALUE;
+        }
+        
+        private boolean contains(int start, int length, String... criteria) {
+            if (start < 0 || start + length > value.length()) {
+                return false;
+            }
+            String target = value.substring(start, start + length);
+            for (String candidate : criteria) {
+                if (target.equals(candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.rebelle.controllers;
 
+import com.rebelle.dao.Page;
 import com.rebelle.models.Expense;
 import com.rebelle.services.ExpenseService;
 import javafx.collections.FXCollections;
@@ -37,8 +38,12 @@ public class ExpenseController {
     @FXML private TextField searchField;
     @FXML private Label totalLabel;
     
+    private static final int PAGE_SIZE = 100;
+    
     private final ExpenseService expenseService;
     private final ObservableList<Expense> expenses;
+    private PagedTableDataSource<Expense> pagedExpenses;
+    private SearchPipeline<Expense> searchPipeline;
     
     public ExpenseController() {
         this.expenseService = new ExpenseService();
@@ -49,12 +54,12 @@ public class ExpenseController {
     public void initialize() {
         setupTable();
         setupDatePickers();
+        setupSearch();
         loadExpenses();
         
         // Add listeners
         startDatePicker.valueProperty().addListener((obs, oldVal, newVal) -> loadExpenses());
         endDatePicker.valueProperty().addListener((obs, oldVal, newVal) -> loadExpenses());
-        searchField.textProperty().addListener((obs, oldVal, newVal) -> loadExpenses());
     }
     
     private void setupTable() {
@@ -74,8 +79,40 @@ public class ExpenseController {
             }
         );
         
-        // Set table items
-        expenseTable.setItems(expenses);
+        // Date range view is loaded page by page; search results use the plain list
+        pagedExpenses = new PagedTableDataSource<>(PAGE_SIZE, "date", false);
+        pagedExpenses.sortColumn(dateColumn, "date")
+                     .sortColumn(amountColumn, "amount")
+                     .sortColumn(categoryColumn, "category")
+                     .sortColumn(descriptionColumn, "description");
+        pagedExpenses.setOnError(message -> showError("Error", message));
+        pagedExpenses.attach(expenseTable);
+    }
+    
+    /**
+     * Debounced search; results are refined locally while the query only grows
+     */
+    private void setupSearch() {
+        searchPipeline = new SearchPipeline<>(SearchPipeline.DEFAULT_DELAY, 1, term -> {
+            ExpenseService.ServiceResult<List<Expense>> result = expenseService.searchExpenses(term);
+            if (!result.isSuccess()) {
+                throw new IllegalStateException(result.getMessage());
+            }
+            return result.getData();
+        });
+        // Mirrors the LIKE '%term%' columns of the DAO search
+        searchPipeline.refineWith((expense, query) ->
+            SearchPipeline.containsIgnoreCase(expense.getDescription(), query)
+            || SearchPipeline.containsIgnoreCase(expense.getVendor(), query)
+            || SearchPipeline.containsIgnoreCase(expense.getNotes(), query));
+        searchPipeline.setOnResults((term, results) -> {
+            expenses.setAll(results);
+            expenseTable.setItems(expenses);
+            updateTotal();
+        });
+        searchPipeline.setOnCleared(this::loadExpenses);
+        searchPipeline.setOnError(message -> showError("Error", message));
+        searchPipeline.attach(searchField);
     }
     
     private void setupDatePickers() {
@@ -94,25 +131,21 @@ public class ExpenseController {
             return;
         }
         
-        // Load expenses in background
-        new Thread(() -> {
-            ExpenseService.ServiceResult<List<Expense>> result;
-            if (!searchQuery.isEmpty()) {
-                result = expenseService.searchExpenses(searchQuery);
-            } else {
-                result = expenseService.getExpensesByDateRange(startDate, endDate);
-            }
-            
-            // Update UI on JavaFX thread
-            javafx.application.Platform.runLater(() -> {
-                if (result.isSuccess()) {
-                    expenses.setAll(result.getData());
-                    updateTotal();
-                } else {
-                    showError("Error", result.getMessage());
+        if (searchQuery.isEmpty()) {
+            pagedExpenses.setFetcher(request -> {
+                ExpenseService.ServiceResult<Page<Expense>> result =
+                    expenseService.getExpensePage(startDate, endDate, request);
+                if (!result.isSuccess()) {
+                    throw new IllegalStateException(result.getMessage());
                 }
+                return result.getData();
             });
-        }).start();
+            updateTotal();
+            return;
+        }
+        
+        // Search ignores the date range and is cached, so a date change is served from the cache
+        searchPipeline.searchNow(searchQuery);
     }
     
     private void updateTotal() {
@@ -160,7 +193,12 @@ public class ExpenseController {
                     ExpenseService.ServiceResult<Void> result = expenseService.deleteExpense(selectedExpense.getId());
                     javafx.application.Platform.runLater(() -> {
                         if (result.isSuccess()) {
-                            expenses.remove(selectedExpense);
+                            searchPipeline.invalidateCache();
+                            if (expenseTable.getItems() == pagedExpenses) {
+                                pagedExpenses.refresh();
+                            } else {
+                                expenses.remove(selectedExpense);
+                            }
                             updateTotal();
                             showInfo("Success", "Expense deleted successfully");
                         } else {
@@ -197,6 +235,7 @@ public class ExpenseController {
     }
     
     public void onExpenseSaved() {
+        searchPipeline.invalidateCache();
         loadExpenses();
     }
     
@@ -7,6 +7,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -14,12 +15,29 @@ import java.util.Optional;
  */
 public class ExpenseDAO {
     
+    private static final ChangeNotifier<Expense> CHANGES = new ChangeNotifier<>();
+    
+    private static final Map<String, String[]> PAGE_SORT_COLUMNS = Map.of(
+        "date", new String[] {"COALESCE(expense_date, '')"},
+        "amount", new String[] {"COALESCE(amount, 0)"},
+        "category", new String[] {"COALESCE(category, '')"},
+        "description", new String[] {"COALESCE(description, '')"},
+        "id", new String[0]
+    );
+    
     private final DatabaseManager dbManager;
     
     public ExpenseDAO() {
         this.dbManager = DatabaseManager.getInstance();
     }
     
+    /**
+     * Listener registry notified after successful expense writes
+     */
+    public static ChangeNotifier<Expense> changes() {
+        return CHANGES;
+    }
+    
     /**
      * Create a new business expense
      */
@@ -52,6 +70,7 @@ public class ExpenseDAO {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     expense.setId(generatedKeys.getInt(1));
+                    CHANGES.fireInserted(expense);
                     return expense;
                 } else {
                     throw new SQLException("Creating expense failed, no ID obtained.");
@@ -127,6 +146,20 @@ public class ExpenseDAO {
         return expenses;
     }
     
+    /**
+     * Get one page of expenses in a date range using keyset pagination.
+     * Sort keys: date (default), amount, category, description, id.
+     */
+    public Page<Expense> getExpensePage(LocalDate startDate, LocalDate endDate, PageRequest request) throws SQLException {
+        String[] sortColumns = PAGE_SORT_COLUMNS.getOrDefault(request.getSortKey(), PAGE_SORT_COLUMNS.get("date"));
+        List<Object> params = List.of(startDate.toString(), endDate.toString());
+        
+        try (Connection conn = dbManager.getConnection()) {
+            return KeysetPager.fetch(conn, "*", "business_expenses", "expense_date BETWEEN ? AND ?", params,
+                sortColumns, "id", request, this::mapResultSetToExpense);
+        }
+    }
+    
     /**
      * Get today's expenses
      */
@@ -178,7 +211,11 @@ public class ExpenseDAO {
             stmt.setString(8, expense.getNotes());
             stmt.setInt(9, expense.getId());
             
-            return stmt.executeUpdate() > 0;
+            boolean updated = stmt.executeUpdate() > 0;
+            if (updated) {
+                CHANGES.fireUpdated(expense);
+            }
+            return updated;
         }
     }
     
@@ -192,7 +229,11 @@ public class ExpenseDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, expenseId);
-            return stmt.executeUpdate() > 0;
+            boolean deleted = stmt.executeUpdate() > 0;
+            if (deleted) {
+                CHANGES.fireDeleted(expenseId);
+            }
+            return deleted;
         }
     }
     
@@ -240,33 +281,6 @@ public class ExpenseDAO {
         return new ExpenseStats(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0);
     }
     
-    /**
-     * Get expense total for date range
-     */
-    public BigDecimal getExpenseTotal(LocalDate startDate, LocalDate endDate) throws SQLException {
-        String sql = """
-            SELECT SUM(amount) as total
-            FROM business_expenses 
-            WHERE expense_date BETWEEN ? AND ?
-            """;
-        
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, startDate.toString());
-            stmt.setString(2, endDate.toString());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    BigDecimal total = rs.getBigDecimal("total");
-                    return total != null ? total : BigDecimal.ZERO;
-                }
-            }
-        }
-        
-        return BigDecimal.ZERO;
-    }
-    
     /**
      * Search expenses
      */
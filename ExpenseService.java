@@ -1,6 +1,8 @@
 package com.rebelle.services;
 
 import com.rebelle.dao.ExpenseDAO;
+import com.rebelle.dao.Page;
+import com.rebelle.dao.PageRequest;
 import com.rebelle.models.Expense;
 import java.math.BigDecimal;
 import java.sql.SQLException;
@@ -8,6 +10,8 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * ExpenseService - Business logic layer for business expense operations
@@ -138,6 +142,17 @@ public class ExpenseService {
         }
     }
     
+    /**
+     * Get one page of expenses within a date range
+     */
+    public ServiceResult<Page<Expense>> getExpensePage(LocalDate startDate, LocalDate endDate, PageRequest request) {
+        try {
+            return ServiceResult.success(expenseDAO.getExpensePage(startDate, endDate, request));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
     /**
      * Get today's expenses
      */
@@ -232,15 +247,17 @@ public class ExpenseService {
     }
     
     /**
-     * Get expense total for date range
+     * Get expense total for date range, summed from the in-memory analytics copy
      */
     public ServiceResult<BigDecimal> getExpenseTotal(LocalDate startDate, LocalDate endDate) {
-        try {
-            BigDecimal total = expenseDAO.getExpenseTotal(startDate, endDate);
-            return ServiceResult.success(total);
-        } catch (SQLException e) {
-            return ServiceResult.error("Database error: " + e.getMessage());
+        if (startDate != null && endDate != null && endDate.isBefore(startDate)) {
+            return ServiceResult.success(BigDecimal.ZERO);
+        }
+        AnalyticsStore.ServiceResult<BigDecimal> total = AnalyticsStore.getInstance().getExpenseTotal(startDate, endDate);
+        if (!total.isSuccess()) {
+            return ServiceResult.error(total.getMessage());
         }
+        return ServiceResult.success(total.getData());
     }
     
     /**
@@ -329,6 +346,15 @@ public class ExpenseService {
         return ValidationResult.valid();
     }
     
+    /**
+     * Run any call on this service asynchronously on the shared service executor,
+     * e.g. service.async(s -> s.getAllExpenses()). Cancel the future to abandon it.
+     */
+    public <T> CompletableFuture<ServiceResult<T>> async(Function<ExpenseService, ServiceResult<T>> call) {
+        return ServiceExecutor.getInstance().submit(() -> call.apply(this),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+    }
+    
     /**
      * Service result wrapper class
      */
@@ -23,11 +23,15 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Callback;
+import javafx.util.Duration;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public class InventoryController {
     
@@ -61,14 +65,22 @@ public class InventoryController {
     @FXML private Label totalValueLabel;
     @FXML private Label statusLabel;
     @FXML private Label itemCountLabel;
+    @FXML private ProgressIndicator loadingIndicator;
     
     private final InventoryService inventoryService;
+    private final BackgroundLoader loader;
     private final ObservableList<InventoryItem> inventoryItems;
     private final FilteredList<InventoryItem> filteredItems;
     private final SortedList<InventoryItem> sortedItems;
     
+    // Item names lower-cased once per load, so typing does not re-lowercase the whole list
+    private volatile List<SearchKey> searchKeys = new ArrayList<>();
+    private SearchPipeline<SearchKey> searchPipeline;
+    private Set<Integer> searchMatches;
+    
     public InventoryController() {
         this.inventoryService = new InventoryService();
+        this.loader = new BackgroundLoader();
         this.inventoryItems = FXCollections.observableArrayList();
         this.filteredItems = new FilteredList<>(inventoryItems);
         this.sortedItems = new SortedList<>(filteredItems);
@@ -76,6 +88,8 @@ public class InventoryController {
     
     @FXML
     public void initialize() {
+        loader.attachProgress(loadingIndicator);
+        
         // Initialize table columns
         nameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
         categoryColumn.setCellValueFactory(new PropertyValueFactory<>("category"));
@@ -127,7 +141,7 @@ public class InventoryController {
         });
         
         // Set up search and filter listeners
-        searchField.textProperty().addListener((obs, oldVal, newVal) -> applyFilters());
+        setupSearch();
         categoryFilter.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
         statusFilter.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
         
@@ -144,13 +158,44 @@ public class InventoryController {
         loadInventoryData();
     }
     
+    /**
+     * Debounced name search over the pre-lowercased keys; the result feeds applyFilters
+     */
+    private void setupSearch() {
+        searchPipeline = new SearchPipeline<>(Duration.millis(150), 1, term -> {
+            String query = term.toLowerCase();
+            List<SearchKey> matches = new ArrayList<>();
+            for (SearchKey key : searchKeys) {
+                if (key.lowerName.contains(query)) {
+                    matches.add(key);
+                }
+            }
+            return matches;
+        });
+        searchPipeline.refineWith((key, query) -> key.lowerName.contains(query));
+        searchPipeline.setOnResults((term, matches) -> {
+            Set<Integer> ids = new HashSet<>();
+            for (SearchKey key : matches) {
+                ids.add(key.id);
+            }
+            searchMatches = ids;
+            applyFilters();
+        });
+        searchPipeline.setOnCleared(() -> {
+            searchMatches = null;
+            applyFilters();
+        });
+        searchPipeline.setOnError(message -> showError("Search error", message));
+        searchPipeline.attach(searchField);
+    }
+    
     private void applyFilters() {
+        Set<Integer> matches = searchMatches;
         filteredItems.setPredicate(item -> {
             if (item == null) return false;
             
             // Search filter
-            String searchText = searchField.getText().toLowerCase();
-            if (!searchText.isEmpty() && !item.getName().toLowerCase().contains(searchText)) {
+            if (matches != null && !matches.contains(item.getId())) {
                 return false;
             }
             
@@ -171,25 +216,37 @@ public class InventoryController {
     }
     
     private void loadInventoryData() {
-        ServiceResult<List<InventoryItem>> result = inventoryService.getAllInventoryItems();
-        if (result.isSuccess()) {
-            inventoryItems.setAll(result.getData());
-            updateStatusBar();
-        } else {
-            showError("Error loading inventory", result.getMessage());
+        loader.load("items", inventoryService.async(InventoryService::getAllInventoryItems), result -> {
+            if (result.isSuccess()) {
+                inventoryItems.setAll(result.getData());
+                rebuildSearchKeys();
+                updateStatusBar();
+            } else {
+                showError("Error loading inventory", result.getMessage());
+            }
+        });
+    }
+    
+    private void rebuildSearchKeys() {
+        List<SearchKey> keys = new ArrayList<>(inventoryItems.size());
+        for (InventoryItem item : inventoryItems) {
+            keys.add(new SearchKey(item));
         }
+        searchKeys = keys;
+        searchPipeline.rerun();
     }
     
     private void updateStatusBar() {
-        ServiceResult<InventoryStats> statsResult = inventoryService.getInventoryStatistics();
-        if (statsResult.isSuccess()) {
-            InventoryStats stats = statsResult.getData();
-            totalItemsLabel.setText(String.valueOf(stats.getTotalItems()));
-            lowStockLabel.setText(String.valueOf(stats.getLowStockCount()));
-            outOfStockLabel.setText(String.valueOf(stats.getOutOfStockCount()));
-            totalValueLabel.setText(String.format("$%.2f", stats.getTotalValue()));
-            itemCountLabel.setText(String.format("%d items", inventoryItems.size()));
-        }
+        itemCountLabel.setText(String.format("%d items", inventoryItems.size()));
+        loader.load("stats", inventoryService.async(InventoryService::getInventoryStatistics), statsResult -> {
+            if (statsResult.isSuccess()) {
+                InventoryStats stats = statsResult.getData();
+                totalItemsLabel.setText(String.valueOf(stats.getTotalItems()));
+                lowStockLabel.setText(String.valueOf(stats.getLowStockCount()));
+                outOfStockLabel.setText(String.valueOf(stats.getOutOfStockCount()));
+                totalValueLabel.setText(String.format("$%.2f", stats.getTotalValue()));
+            }
+        });
     }
     
     @FXML
@@ -258,15 +315,8 @@ public class InventoryController {
         result.ifPresent(quantityStr -> {
             try {
                 int quantity = Integer.parseInt(quantityStr);
-                ServiceResult<InventoryItem> serviceResult = inventoryService.addStock(
-                    selectedItem.getId(), quantity, "Manual restock", null);
-                
-                if (serviceResult.isSuccess()) {
-                    loadInventoryData();
-                    showSuccess("Success", serviceResult.getMessage());
-                } else {
-                    showError("Error", serviceResult.getMessage());
-                }
+                loader.submit(inventoryService.async(s -> s.addStock(
+                    selectedItem.getId(), quantity, "Manual restock", null)), this::onStockChanged);
             } catch (NumberFormatException e) {
                 showError("Invalid Input", "Please enter a valid number.");
             }
@@ -287,21 +337,24 @@ public class InventoryController {
         result.ifPresent(quantityStr -> {
             try {
                 int quantity = Integer.parseInt(quantityStr);
-                ServiceResult<InventoryItem> serviceResult = inventoryService.removeStock(
-                    selectedItem.getId(), quantity, InventoryTransaction.Reason.USE, null, null);
-                
-                if (serviceResult.isSuccess()) {
-                    loadInventoryData();
-                    showSuccess("Success", serviceResult.getMessage());
-                } else {
-                    showError("Error", serviceResult.getMessage());
-                }
+                loader.submit(inventoryService.async(s -> s.removeStock(
+                    selectedItem.getId(), quantity, InventoryTransaction.Reason.USE, null, null)),
+                    this::onStockChanged);
             } catch (NumberFormatException e) {
                 showError("Invalid Input", "Please enter a valid number.");
             }
         });
     }
     
+    private void onStockChanged(ServiceResult<InventoryItem> serviceResult) {
+        if (serviceResult.isSuccess()) {
+            loadInventoryData();
+            showSuccess("Success", serviceResult.getMessage());
+        } else {
+            showError("Error", serviceResult.getMessage());
+        }
+    }
+    
     @FXML
     private void handleDeleteItem() {
         InventoryItem selectedItem = inventoryTable.getSelectionModel().getSelectedItem();
@@ -344,7 +397,7 @@ public class InventoryController {
     
     @FXML
     private void handleSearch() {
-        applyFilters();
+        searchPipeline.searchNow(searchField.getText());
     }
 
     @FXML
@@ -382,4 +435,17 @@ public class InventoryController {
         loadInventoryData();
         updateStatusBar();
     }
+    
+    /**
+     * Item id and lower-cased name, computed once per load
+     */
+    private static final class SearchKey {
+        final int id;
+        final String lowerName;
+        
+        SearchKey(InventoryItem item) {
+            this.id = item.getId();
+            this.lowerName = item.getName() != null ? item.getName().toLowerCase() : "";
+        }
+    }
 } 
\ No newline at end of file
@@ -209,22 +209,28 @@ public class InventoryDAO {
     }
     
     /**
-     * Update an existing inventory item
+     * Update an existing inventory item if it is still at the version it was
+     * read at; throws OptimisticLockException if it changed in the meantime
      */
     public boolean updateInventoryItem(InventoryItem item) throws SQLException {
         String sql = """
             UPDATE inventory_items 
             SET name = ?, category = ?, quantity = ?, unit = ?, threshold = ?, cost_per_unit = ?, 
-                supplier = ?, expiry_date = ?, notes = ?, updated_at = ?
-            WHERE id = ?
+                supplier = ?, expiry_date = ?, notes = ?, updated_at = ?, version = version + 1
+            WHERE id = ? AND version = ?
             """;
         
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             
             setItemParameters(stmt, item);
             stmt.setInt(11, item.getId());
+            stmt.setInt(12, item.getVersion());
             
-            return stmt.executeUpdate() > 0;
+            boolean updated = Versioning.update(stmt, connection, "inventory_items", item.getId(), item.getVersion());
+            if (updated) {
+                item.setVersion(item.getVersion() + 1);
+            }
+            return updated;
         }
     }
     
@@ -289,7 +295,9 @@ public class InventoryDAO {
             }
             
             // Update inventory quantity
-            String updateSql = "UPDATE inventory_items SET quantity = quantity + ?, updated_at = ? WHERE id = ?";
+            // A stock movement is a change too, so an open edit of the item sees a conflict
+            String updateSql = "UPDATE inventory_items SET quantity = quantity + ?, updated_at = ?, " +
+                               "version = version + 1 WHERE id = ?";
             try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
                 updateStmt.setInt(1, transaction.getQuantityChange());
                 updateStmt.setString(2, LocalDateTime.now().toString());
@@ -437,6 +445,7 @@ public class InventoryDAO {
         }
         
         item.setNotes(rs.getString("notes"));
+        item.setVersion(rs.getInt("version"));
         
         String lastUpdatedString = rs.getString("updated_at");
         if (lastUpdatedString != null) {
@@ -4,6 +4,7 @@ import com.rebelle.models.InventoryItem;
 import com.rebelle.models.Category;
 import com.rebelle.services.InventoryService;
 import com.rebelle.services.InventoryService.ServiceResult;
+import com.rebelle.utils.ThreeWayMerge;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
@@ -32,6 +33,17 @@ public class InventoryFormController {
     private InventoryItem currentItem;
     private boolean itemSaved;
     
+    /** Fields merged when the item was changed elsewhere during the edit; quantity moves by transactions only */
+    private static final ThreeWayMerge<InventoryItem> MERGE = new ThreeWayMerge<InventoryItem>()
+        .field("Name", InventoryItem::getName, InventoryItem::setName)
+        .field("Category", InventoryItem::getCategory, InventoryItem::setCategory)
+        .field("Unit", InventoryItem::getUnit, InventoryItem::setUnit)
+        .field("Threshold", InventoryItem::getThreshold, InventoryItem::setThreshold)
+        .field("Cost per unit", InventoryItem::getCostPerUnit, InventoryItem::setCostPerUnit)
+        .field("Supplier", InventoryItem::getSupplier, InventoryItem::setSupplier)
+        .field("Expiry date", InventoryItem::getExpiryDate, InventoryItem::setExpiryDate)
+        .field("Notes", InventoryItem::getNotes, InventoryItem::setNotes);
+    
     // Common units for inventory items
     private static final List<String> COMMON_UNITS = Arrays.asList(
         "pieces", "boxes", "bottles", "tubes", "packs", "units", "kits",
@@ -121,14 +133,19 @@ public class InventoryFormController {
                     costPerUnit, supplier, expiryDate, notes
                 );
             } else {
-                // Update existing item
+                // Update existing item, only if nobody has changed it since it was loaded
                 result = inventoryService.updateInventoryItem(
                     currentItem.getId(), name, category, unit,
-                    threshold, costPerUnit, supplier, expiryDate, notes
+                    threshold, costPerUnit, supplier, expiryDate, notes,
+                    currentItem.getVersion()
                 );
             }
             
-            if (result.isSuccess()) {
+            if (result.isConflict()) {
+                InventoryItem mine = new InventoryItem(name, category, result.getData().getQuantity(), unit,
+                                                       threshold, costPerUnit, supplier, expiryDate, notes);
+                resolveConflict(result.getData(), mine);
+            } else if (result.isSuccess()) {
                 itemSaved = true;
                 stage.close();
             } else {
@@ -142,6 +159,41 @@ public class InventoryFormController {
         }
     }
     
+    /**
+     * The item was saved elsewhere (an edit or a stock movement) while this
+     * form was open. Merge their changes with the form's; save straight away
+     * when no field was changed by both, otherwise ask whose values win.
+     */
+    private void resolveConflict(InventoryItem current, InventoryItem mine) {
+        ThreeWayMerge.Result<InventoryItem> merge = MERGE.merge(currentItem, mine, current);
+        boolean keepMine = !merge.hasConflicts() || confirmKeepMine(merge.getConflicts());
+        if (!keepMine) {
+            merge.keepTheirs();
+        }
+        
+        // The saved item is the new starting point of this edit
+        setItem(merge.getMerged());
+        currentItem = current;
+        if (keepMine) {
+            handleSave();
+        } else {
+            showValidationError("This item was changed by someone else. Review the saved values and save again.");
+        }
+    }
+    
+    /**
+     * Ask whether the form's values replace the saved ones for fields both changed
+     */
+    private boolean confirmKeepMine(List<String> fields) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Edit Conflict");
+        alert.setHeaderText("This item was changed by someone else");
+        alert.setContentText("Both of you changed: " + String.join(", ", fields) + ".\n\n"
+            + "OK saves your values. Cancel loads the saved values into the form for review; "
+            + "your other changes are kept.");
+        return alert.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK;
+    }
+    
     @FXML
     private void handleCancel() {
         stage.close();
@@ -20,6 +20,7 @@ public class InventoryItem {
     private LocalDate expiryDate;
     private String notes;
     private LocalDateTime updatedAt;
+    private int version;
 
     // Default constructor
     public InventoryItem() {
@@ -149,6 +150,15 @@ public class InventoryItem {
         this.updatedAt = updatedAt;
     }
 
+    /** Row version, bumped by every update; an update must name the version it read */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     // Utility methods
     public boolean isLowStock() {
         return quantity <= threshold;
@@ -1,6 +1,7 @@
 package com.rebelle.services;
 
 import com.rebelle.dao.InventoryDAO;
+import com.rebelle.dao.OptimisticLockException;
 import com.rebelle.models.InventoryItem;
 import com.rebelle.models.InventoryTransaction;
 import com.rebelle.models.Category;
@@ -13,12 +14,17 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * InventoryService - Business logic layer for inventory operations
  */
 public class InventoryService {
     
+    private static final String CONFLICT_MESSAGE =
+        "This item was changed by someone else while you were editing it.";
+    
     private final InventoryDAO inventoryDAO;
     
     public InventoryService() {
@@ -83,12 +89,28 @@ public class InventoryService {
     public ServiceResult<InventoryItem> updateInventoryItem(int itemId, String name, Category category,
                                                           String unit, int threshold, BigDecimal costPerUnit,
                                                           String supplier, LocalDate expiryDate, String notes) {
+        return updateInventoryItem(itemId, name, category, unit, threshold, costPerUnit, supplier, expiryDate,
+                                   notes, null);
+    }
+    
+    /**
+     * Update an item that was read at expectedVersion. If it has changed since
+     * (an edit or a stock movement), nothing is written and the result is a
+     * conflict carrying the current item, so the caller can merge and retry.
+     */
+    public ServiceResult<InventoryItem> updateInventoryItem(int itemId, String name, Category category,
+                                                          String unit, int threshold, BigDecimal costPerUnit,
+                                                          String supplier, LocalDate expiryDate, String notes,
+                                                          Integer expectedVersion) {
         try {
             // Check if item exists
             Optional<InventoryItem> existingItem = inventoryDAO.getInventoryItemById(itemId);
             if (existingItem.isEmpty()) {
                 return ServiceResult.error("Inventory item not found.");
             }
+            if (expectedVersion != null && existingItem.get().getVersion() != expectedVersion) {
+                return ServiceResult.conflict(existingItem.get(), CONFLICT_MESSAGE);
+            }
             
             // Validate input (don't validate quantity here as it's managed through transactions)
             ValidationResult validation = validateInventoryItemData(name, category, existingItem.get().getQuantity(), 
@@ -115,6 +137,15 @@ public class InventoryService {
                 return ServiceResult.error("Failed to update inventory item.");
             }
             
+        } catch (OptimisticLockException e) {
+            try {
+                Optional<InventoryItem> current = inventoryDAO.getInventoryItemById(itemId);
+                return current.isPresent()
+                    ? ServiceResult.conflict(current.get(), CONFLICT_MESSAGE)
+                    : ServiceResult.error("Inventory item not found.");
+            } catch (SQLException reloadError) {
+                return ServiceResult.error("Database error: " + reloadError.getMessage());
+            }
         } catch (SQLException e) {
             return ServiceResult.error("Database error: " + e.getMessage());
         }
@@ -466,6 +497,15 @@ public class InventoryService {
         return ValidationResult.valid();
     }
     
+    /**
+     * Run any call on this service asynchronously on the shared service executor,
+     * e.g. service.async(s -> s.getAllInventoryItems()). Cancel the future to abandon it.
+     */
+    public <T> CompletableFuture<ServiceResult<T>> async(Function<InventoryService, ServiceResult<T>> call) {
+        return ServiceExecutor.getInstance().submit(() -> call.apply(this),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+    }
+    
     /**
      * Service result wrapper class
      */
@@ -473,11 +513,17 @@ public class InventoryService {
         private final boolean success;
         private final T data;
         private final String message;
+        private final boolean conflict;
         
         private ServiceResult(boolean success, T data, String message) {
+            this(success, data, message, false);
+        }
+        
+        private ServiceResult(boolean success, T data, String message, boolean conflict) {
             this.success = success;
             this.data = data;
             this.message = message;
+            this.conflict = conflict;
         }
         
         public static <T> ServiceResult<T> success(T data) {
@@ -492,7 +538,15 @@ public class InventoryService {
             return new ServiceResult<>(false, null, message);
         }
         
+        /**
+         * The record was changed by someone else; the data is its current state
+         */
+        public static <T> ServiceResult<T> conflict(T current, String message) {
+            return new ServiceResult<>(false, current, message, true);
+        }
+        
         public boolean isSuccess() { return success; }
+        public boolean isConflict() { return conflict; }
         public T getData() { return data; }
         public String getMessage() { return message; }
     }
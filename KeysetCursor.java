@@ -0,0 +1,31 @@
+package com.rebelle.dao;
+
+import java.util.Arrays;
+
+/**
+ * KeysetCursor - Position after the last row of a page: the raw sort column
+ * values of that row plus its id as the tie-breaker.
+ */
+public final class KeysetCursor {
+    
+    private final Object[] sortValues;
+    private final int id;
+    
+    public KeysetCursor(Object[] sortValues, int id) {
+        this.sortValues = sortValues.clone();
+        this.id = id;
+    }
+    
+    public Object[] getSortValues() {
+        return sortValues.clone();
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    @Override
+    public String toString() {
+        return "KeysetCursor{" + Arrays.toString(sortValues) + ", id=" + id + "}";
+    }
+}
@@ -0,0 +1,101 @@
+package com.rebelle.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * KeysetPager - Builds and runs seek queries for keyset pagination.
+ * Pages continue with a row-value comparison on (sort columns..., id) instead
+ * of OFFSET, so every page costs the same no matter how deep it is.
+ * A row-value comparison against NULL matches nothing, so rows with a NULL
+ * sort value would drop out of every page after the first: nullable columns
+ * are passed as COALESCE expressions, which then serve the ORDER BY, the seek
+ * and the cursor alike. Callers pass whitelisted columns only.
+ */
+final class KeysetPager {
+    
+    private KeysetPager() {
+    }
+    
+    /**
+     * Maps the current row of a result set
+     */
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+    
+    /**
+     * Fetch one page. One extra row is read to learn whether more pages follow.
+     */
+    static <T> Page<T> fetch(Connection conn, String select, String from, String where, List<Object> params,
+                             String[] sortColumns, String idColumn, PageRequest request,
+                             RowMapper<T> mapper) throws SQLException {
+        String direction = request.isAscending() ? "ASC" : "DESC";
+        String comparison = request.isAscending() ? ">" : "<";
+        
+        StringBuilder sql = new StringBuilder("SELECT ").append(select);
+        for (int i = 0; i < sortColumns.length; i++) {
+            sql.append(", ").append(sortColumns[i]).append(" AS page_key_").append(i);
+        }
+        sql.append(", ").append(idColumn).append(" AS page_id FROM ").append(from);
+        
+        List<String> conditions = new ArrayList<>();
+        if (where != null && !where.isBlank()) {
+            conditions.add("(" + where + ")");
+        }
+        if (request.getAfter() != null) {
+            List<String> seekColumns = new ArrayList<>(List.of(sortColumns));
+            seekColumns.add(idColumn);
+            conditions.add("(" + String.join(", ", seekColumns) + ") " + comparison
+                + " (" + "?, ".repeat(sortColumns.length) + "?)");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        
+        sql.append(" ORDER BY ");
+        for (String column : sortColumns) {
+            sql.append(column).append(' ').append(direction).append(", ");
+        }
+        sql.append(idColumn).append(' ').append(direction).append(" LIMIT ?");
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Object param : params) {
+                stmt.setObject(index++, param);
+            }
+            if (request.getAfter() != null) {
+                for (Object value : request.getAfter().getSortValues()) {
+                    stmt.setObject(index++, value);
+                }
+                stmt.setInt(index++, request.getAfter().getId());
+            }
+            stmt.setInt(index, request.getPageSize() + 1);
+            
+            List<T> items = new ArrayList<>(request.getPageSize());
+            KeysetCursor lastCursor = null;
+            boolean hasMore = false;
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (items.size() == request.getPageSize()) {
+                        hasMore = true;
+                        break;
+                    }
+                    items.add(mapper.map(rs));
+                    Object[] keys = new Object[sortColumns.length];
+                    for (int i = 0; i < keys.length; i++) {
+                        keys[i] = rs.getObject("page_key_" + i);
+                    }
+                    lastCursor = new KeysetCursor(keys, rs.getInt("page_id"));
+                }
+            }
+            
+            return new Page<>(items, hasMore ? lastCursor : null, hasMore);
+        }
+    }
+}
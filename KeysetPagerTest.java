@@ -0,0 +1,72 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * KeysetPagerTest - Every row is read exactly once when paging through a
+ * sort column that holds NULLs, in either direction.
+ */
+class KeysetPagerTest {
+    
+    private Path database;
+    
+    @BeforeEach
+    void openScratchDatabase() throws Exception {
+        database = Files.createTempFile("rebelle-test", ".db");
+        DatabaseManager.getInstance().useDatabase("jdbc:sqlite:" + database);
+        
+        Connection conn = DatabaseManager.getInstance().getConnection();
+        String sql = "INSERT INTO patients (id, name, created_at, updated_at) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            String[] created = {"2024-03-01T09:00", null, "2024-01-15T10:30", null, "2024-03-01T09:00"};
+            for (int i = 0; i < created.length; i++) {
+                stmt.setInt(1, i + 1);
+                stmt.setString(2, "Patient " + (i + 1));
+                stmt.setString(3, created[i]);
+                stmt.setString(4, "2024-03-01T09:00");
+                stmt.executeUpdate();
+            }
+        }
+    }
+    
+    @AfterEach
+    void dropScratchDatabase() throws Exception {
+        DatabaseManager.getInstance().closeConnection();
+        Files.deleteIfExists(database);
+    }
+    
+    @Test
+    void rowsWithoutCreationDateAreNotSkipped() throws Exception {
+        // NULL sorts first ascending and last descending; ties fall back to the id
+        assertEquals(List.of(2, 4, 3, 1, 5), readAll(true));
+        assertEquals(List.of(5, 1, 3, 4, 2), readAll(false));
+    }
+    
+    private static List<Integer> readAll(boolean ascending) throws Exception {
+        PatientDAO patientDAO = new PatientDAO();
+        List<Integer> ids = new ArrayList<>();
+        PageRequest request = PageRequest.first("created", ascending, 2);
+        while (true) {
+            Page<Patient> page = patientDAO.getPatientPage(request);
+            for (Patient patient : page.getItems()) {
+                ids.add(patient.getId());
+            }
+            if (!page.hasMore()) {
+                return ids;
+            }
+            request = request.next(page);
+        }
+    }
+}
@@ -12,7 +12,11 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import javafx.application.Platform;
+import com.rebelle.dao.DailyCloseDAO;
+import com.rebelle.dao.DataChangeListener;
 import com.rebelle.dao.DatabaseManager;
+import com.rebelle.models.DailyClose;
+import com.rebelle.services.DailyCloseService;
 import com.rebelle.services.PatientService;
 import com.rebelle.services.AppointmentService;
 import com.rebelle.services.InventoryService;
@@ -21,6 +25,7 @@ import com.rebelle.controllers.PatientFormController;
 
 import java.io.IOException;
 import java.net.URL;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ResourceBundle;
@@ -37,6 +42,7 @@ public class MainController implements Initializable {
     @FXML private Label totalPatientsLabel;
     @FXML private Label pendingInvoicesLabel;
     @FXML private Label lowStockLabel;
+    @FXML private Label yesterdayCloseLabel;
     @FXML private Button newPatientBtn;
     @FXML private Button newAppointmentBtn;
     @FXML private Button viewScheduleBtn;
@@ -52,6 +58,7 @@ public class MainController implements Initializable {
     public void initialize(URL location, ResourceBundle resources) {
         initializeUI();
         startClock();
+        listenForDailyClose();
         loadDashboardData();
     }
     
@@ -110,6 +117,9 @@ public class MainController implements Initializable {
                 // Load real inventory statistics
                 loadInventoryStatistics();
                 
+                // Load yesterday's end-of-day summary
+                loadDailyCloseSummary();
+                
                 // TODO: Load other statistics (invoices)
                 // For now, set placeholder values for billing
                 pendingInvoicesLabel.setText("0");
@@ -209,6 +219,51 @@ public class MainController implements Initializable {
         new Thread(task).start();
     }
     
+    /**
+     * Load yesterday's end-of-day summary for dashboard
+     */
+    private void loadDailyCloseSummary() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        new DailyCloseService().async(service -> service.getClose(yesterday))
+            .thenAccept(result -> Platform.runLater(() -> showDailyClose(result.isSuccess() ? result.getData() : null)));
+    }
+    
+    /**
+     * Show yesterday's summary as soon as it is closed, at startup or just after midnight
+     */
+    private void listenForDailyClose() {
+        DailyCloseDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(DailyClose close) {
+                onUpdated(close);
+            }
+            
+            @Override
+            public void onUpdated(DailyClose close) {
+                if (close.getCloseDate().equals(LocalDate.now().minusDays(1))) {
+                    Platform.runLater(() -> showDailyClose(close));
+                }
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+            }
+        });
+    }
+    
+    private void showDailyClose(DailyClose close) {
+        if (close == null) {
+            yesterdayCloseLabel.setText("Not closed yet");
+            return;
+        }
+        String summary = close.getCompleted() + " completed, " + close.getCancelled() + " cancelled, "
+            + close.getNoShow() + " no-show";
+        if (close.getRevenue() != null) {
+            summary += String.format(", $%.2f taken", close.getRevenue());
+        }
+        yesterdayCloseLabel.setText(summary);
+    }
+    
     /**
      * Update status bar message
      */
@@ -0,0 +1,27 @@
+package com.rebelle.dao;
+
+import java.sql.SQLException;
+
+/**
+ * OptimisticLockException - A versioned update found the row changed since it
+ * was read. The caller should reload the row, merge and retry, or give up.
+ */
+public class OptimisticLockException extends SQLException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final String table;
+    private final int id;
+    private final int expectedVersion;
+    
+    public OptimisticLockException(String table, int id, int expectedVersion) {
+        super("Row " + id + " of " + table + " was changed since version " + expectedVersion + " was read");
+        this.table = table;
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+    }
+    
+    public String getTable() { return table; }
+    public int getId() { return id; }
+    public int getExpectedVersion() { return expectedVersion; }
+}
@@ -0,0 +1,30 @@
+package com.rebelle.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page - One slice of a keyset-paginated query
+ */
+public final class Page<T> {
+    
+    private final List<T> items;
+    private final KeysetCursor nextCursor;
+    private final boolean hasMore;
+    
+    public Page(List<T> items, KeysetCursor nextCursor, boolean hasMore) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+    
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), null, false);
+    }
+    
+    public List<T> getItems() { return items; }
+    public KeysetCursor getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return hasMore; }
+    public int size() { return items.size(); }
+    public boolean isEmpty() { return items.isEmpty(); }
+}
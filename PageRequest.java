@@ -0,0 +1,48 @@
+package com.rebelle.dao;
+
+/**
+ * PageRequest - Sort key, direction, page size and the cursor to continue from
+ */
+public final class PageRequest {
+    
+    private final String sortKey;
+    private final boolean ascending;
+    private final KeysetCursor after;
+    private final int pageSize;
+    
+    public PageRequest(String sortKey, boolean ascending, KeysetCursor after, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.sortKey = sortKey;
+        this.ascending = ascending;
+        this.after = after;
+        this.pageSize = pageSize;
+    }
+    
+    /**
+     * Request for the first page
+     */
+    public static PageRequest first(String sortKey, boolean ascending, int pageSize) {
+        return new PageRequest(sortKey, ascending, null, pageSize);
+    }
+    
+    /**
+     * Request for the page that follows the given one
+     */
+    public PageRequest next(Page<?> page) {
+        return new PageRequest(sortKey, ascending, page.getNextCursor(), pageSize);
+    }
+    
+    /**
+     * Same sort and size, continuing from another cursor
+     */
+    public PageRequest after(KeysetCursor cursor) {
+        return new PageRequest(sortKey, ascending, cursor, pageSize);
+    }
+    
+    public String getSortKey() { return sortKey; }
+    public boolean isAscending() { return ascending; }
+    public KeysetCursor getAfter() { return after; }
+    public int getPageSize() { return pageSize; }
+}
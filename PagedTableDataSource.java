@@ -0,0 +1,373 @@
+package com.rebelle.controllers;
+
+import com.rebelle.dao.KeysetCursor;
+import com.rebelle.dao.Page;
+import com.rebelle.dao.PageRequest;
+import com.rebelle.services.ServiceExecutor;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.util.Callback;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * PagedTableDataSource - Lazily loaded TableView items backed by keyset pages.
+ *
+ * Rows that are not loaded yet read as null, and one placeholder row at the end
+ * stands for the next unread page. Rows report their index as they are laid out,
+ * which pulls in the surrounding pages ahead of the scroll position; pages far
+ * from it are dropped again (their start cursors are kept, so they can be
+ * re-fetched by seek). Sorting a mapped column restarts the query server-side.
+ *
+ * All state is owned by the JavaFX thread; pages are fetched on the shared
+ * service executor, so they queue behind other database work instead of
+ * racing it. A page is only requested once its start cursor is known, and
+ * results for an older query or sort are dropped by generation.
+ */
+public class PagedTableDataSource<T> extends ObservableListBase<T> {
+    
+    /**
+     * Loads one page for a request
+     */
+    public interface PageFetcher<T> {
+        Page<T> fetch(PageRequest request) throws Exception;
+    }
+    
+    private static final int PREFETCH_PAGES = 2;
+    private static final int RETAINED_PAGES = 6;
+    private static final int MAX_RETRIES = 3;
+    private static final Duration RETRY_DELAY = Duration.seconds(2);
+    
+    private final int pageSize;
+    private final String defaultSortKey;
+    private final boolean defaultAscending;
+    private final Map<TableColumn<T, ?>, String> sortKeys = new HashMap<>();
+    
+    // pages.get(k) is null while page k is evicted; pageStarts.get(k) is the cursor that reads page k
+    private final List<List<T>> pages = new ArrayList<>();
+    private final List<KeysetCursor> pageStarts = new ArrayList<>();
+    private final Set<Integer> pending = new HashSet<>();
+    private final Map<Integer, Integer> failures = new HashMap<>();
+    
+    private PageFetcher<T> fetcher;
+    private String sortKey;
+    private boolean ascending;
+    private int knownRows;
+    private boolean exhausted = true;
+    private long generation;
+    private int focusPage;
+    private TableView<T> table;
+    
+    private Runnable onPageLoaded;
+    private Consumer<String> onError;
+    
+    public PagedTableDataSource(int pageSize, String defaultSortKey, boolean defaultAscending) {
+        this.pageSize = pageSize;
+        this.defaultSortKey = defaultSortKey;
+        this.defaultAscending = defaultAscending;
+        this.sortKey = defaultSortKey;
+        this.ascending = defaultAscending;
+    }
+    
+    /**
+     * Map a table column to a DAO sort key; unmapped columns are not sortable
+     */
+    public PagedTableDataSource<T> sortColumn(TableColumn<T, ?> column, String key) {
+        sortKeys.put(column, key);
+        return this;
+    }
+    
+    /**
+     * Install this source on a table. Call after the table's own row factory is set.
+     */
+    public void attach(TableView<T> tableView) {
+        this.table = tableView;
+        
+        for (TableColumn<T, ?> column : tableView.getColumns()) {
+            column.setSortable(sortKeys.containsKey(column));
+        }
+        
+        Callback<TableView<T>, TableRow<T>> baseFactory = tableView.getRowFactory();
+        tableView.setRowFactory(tv -> {
+            TableRow<T> row = baseFactory != null ? baseFactory.call(tv) : new TableRow<>();
+            row.indexProperty().addListener((obs, oldIndex, newIndex) -> {
+                if (tv.getItems() == this) {
+                    touch(newIndex.intValue());
+                }
+            });
+            return row;
+        });
+        
+        tableView.setSortPolicy(tv -> {
+            if (tv.getItems() != this) {
+                return TableView.DEFAULT_SORT_POLICY.call(tv);
+            }
+            applySortOrder(tv);
+            return true;
+        });
+        
+        tableView.setItems(this);
+    }
+    
+    /**
+     * Replace the query (e.g. new filter values) and reload from the first page
+     */
+    public void setFetcher(PageFetcher<T> fetcher) {
+        this.fetcher = fetcher;
+        if (table != null && table.getItems() != this) {
+            table.setItems(this);
+        }
+        reset();
+    }
+    
+    /**
+     * Reload from the first page with the current query and sort
+     */
+    public void refresh() {
+        reset();
+    }
+    
+    public void setOnPageLoaded(Runnable onPageLoaded) {
+        this.onPageLoaded = onPageLoaded;
+    }
+    
+    public void setOnError(Consumer<String> onError) {
+        this.onError = onError;
+    }
+    
+    /**
+     * Rows discovered so far
+     */
+    public int getKnownRowCount() {
+        return knownRows;
+    }
+    
+    /**
+     * True once the last page has been read
+     */
+    public boolean isFullyLoaded() {
+        return exhausted;
+    }
+    
+    /**
+     * Row count text such as "120 patients" or "200+ patients"
+     */
+    public String formatCount(String singular, String plural) {
+        String noun = knownRows == 1 && exhausted ? singular : plural;
+        return knownRows + (exhausted ? " " : "+ ") + noun;
+    }
+    
+    @Override
+    public T get(int index) {
+        int page = index / pageSize;
+        if (page >= pages.size()) {
+            return null;
+        }
+        List<T> items = pages.get(page);
+        int offset = index % pageSize;
+        return items != null && offset < items.size() ? items.get(offset) : null;
+    }
+    
+    @Override
+    public int size() {
+        return knownRows + (exhausted ? 0 : 1);
+    }
+    
+    private void applySortOrder(TableView<T> tv) {
+        String key = defaultSortKey;
+        boolean asc = defaultAscending;
+        
+        if (!tv.getSortOrder().isEmpty()) {
+            TableColumn<T, ?> column = tv.getSortOrder().get(0);
+            String mapped = sortKeys.get(column);
+            if (mapped != null) {
+                key = mapped;
+                asc = column.getSortType() == TableColumn.SortType.ASCENDING;
+            }
+        }
+        
+        if (!Objects.equals(key, sortKey) || asc != ascending) {
+            sortKey = key;
+            ascending = asc;
+            reset();
+        }
+    }
+    
+    private void reset() {
+        generation++;
+        pending.clear();
+        failures.clear();
+        
+        List<T> removed = new ArrayList<>(this);
+        pages.clear();
+        pageStarts.clear();
+        pageStarts.add(null);
+        knownRows = 0;
+        exhausted = fetcher == null;
+        focusPage = 0;
+        
+        beginChange();
+        nextReplace(0, size(), removed);
+        endChange();
+        
+        request(0);
+    }
+    
+    /**
+     * Called as rows are laid out; loads the pages around the given row
+     */
+    private void touch(int index) {
+        if (index < 0 || index >= size()) {
+            return;
+        }
+        focusPage = index / pageSize;
+        for (int page = focusPage - 1; page <= focusPage + PREFETCH_PAGES; page++) {
+            request(page);
+        }
+    }
+    
+    private void request(int page) {
+        if (fetcher == null || page < 0 || page >= pageStarts.size() || pending.contains(page)) {
+            return;
+        }
+        if (page < pages.size() && pages.get(page) != null) {
+            return;
+        }
+        
+        pending.add(page);
+        long requestGeneration = generation;
+        PageFetcher<T> pageFetcher = fetcher;
+        PageRequest pageRequest = new PageRequest(sortKey, ascending, pageStarts.get(page), pageSize);
+        
+        // The fetch hands back the step to apply on the JavaFX thread
+        CompletableFuture<Runnable> load = ServiceExecutor.getInstance().submit(() -> {
+            try {
+                Page<T> result = pageFetcher.fetch(pageRequest);
+                return () -> pageLoaded(requestGeneration, page, result);
+            } catch (Exception e) {
+                return () -> pageFailed(requestGeneration, page, e);
+            }
+        }, e -> () -> pageFailed(requestGeneration, page, e));
+        load.thenAccept(Platform::runLater);
+    }
+    
+    private void pageLoaded(long requestGeneration, int page, Page<T> result) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        pending.remove(page);
+        failures.remove(page);
+        
+        if (page == pages.size()) {
+            appendPage(result);
+        } else {
+            refillPage(page, result);
+        }
+        
+        evictDistantPages();
+        
+        for (int next = focusPage - 1; next <= focusPage + PREFETCH_PAGES; next++) {
+            request(next);
+        }
+        
+        if (onPageLoaded != null) {
+            onPageLoaded.run();
+        }
+    }
+    
+    private void appendPage(Page<T> result) {
+        int placeholder = knownRows;
+        int oldSize = size();
+        
+        pages.add(new ArrayList<>(result.getItems()));
+        knownRows += result.size();
+        if (result.hasMore()) {
+            pageStarts.add(result.getNextCursor());
+        } else {
+            exhausted = true;
+        }
+        
+        beginChange();
+        if (result.isEmpty()) {
+            nextRemove(placeholder, (T) null);
+        } else {
+            nextSet(placeholder, null);
+            if (size() > oldSize) {
+                nextAdd(oldSize, size());
+            }
+        }
+        endChange();
+    }
+    
+    /**
+     * Re-read an evicted page. The page keeps its original length so row
+     * indexes stay stable; refresh() realigns after large edits.
+     */
+    private void refillPage(int page, Page<T> result) {
+        int length = page == pages.size() - 1 ? knownRows - page * pageSize : pageSize;
+        List<T> items = new ArrayList<>(Collections.nCopies(length, (T) null));
+        for (int i = 0; i < length && i < result.size(); i++) {
+            items.set(i, result.getItems().get(i));
+        }
+        pages.set(page, items);
+        
+        beginChange();
+        for (int i = 0; i < length; i++) {
+            nextSet(page * pageSize + i, null);
+        }
+        endChange();
+    }
+    
+    private void evictDistantPages() {
+        beginChange();
+        for (int page = 0; page < pages.size(); page++) {
+            List<T> items = pages.get(page);
+            if (items == null || Math.abs(page - focusPage) <= RETAINED_PAGES) {
+                continue;
+            }
+            pages.set(page, null);
+            for (int i = 0; i < items.size(); i++) {
+                nextSet(page * pageSize + i, items.get(i));
+            }
+        }
+        endChange();
+    }
+    
+    /**
+     * Free the page for another request and retry it after a pause. The error
+     * is reported once the retries are used up; after that the page is
+     * fetched again when the rows around it are laid out.
+     */
+    private void pageFailed(long requestGeneration, int page, Throwable e) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        pending.remove(page);
+        int failed = failures.merge(page, 1, Integer::sum);
+        if (failed <= MAX_RETRIES) {
+            PauseTransition retry = new PauseTransition(RETRY_DELAY);
+            retry.setOnFinished(event -> {
+                if (requestGeneration == generation) {
+                    request(page);
+                }
+            });
+            retry.play();
+        } else if (onError != null) {
+            onError.accept(e.getMessage());
+        }
+    }
+}
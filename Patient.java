@@ -17,6 +17,7 @@ public class Patient {
     private String medicalNotes;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private int version;
     
     // Constructors
     public Patient() {
@@ -125,6 +126,15 @@ public class Patient {
         this.updatedAt = updatedAt;
     }
     
+    /** Row version, bumped by every update; an update must name the version it read */
+    public int getVersion() {
+        return version;
+    }
+    
+    public void setVersion(int version) {
+        this.version = version;
+    }
+    
     // Utility Methods
     
     /**
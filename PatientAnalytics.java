@@ -0,0 +1,464 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.AnalyticsDAO;
+import com.rebelle.dao.AppointmentDAO;
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.dao.PatientDAO;
+import com.rebelle.models.Appointment;
+import com.rebelle.models.Patient;
+import com.rebelle.utils.DateTimeUtils;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * PatientAnalytics - Demographics and retention figures for the patient base.
+ *
+ * Visits (scheduled or completed appointments) are held as one bitmap of
+ * patient ids per month, and every patient belongs to the cohort bitmap of the
+ * month of their first visit. New versus returning counts and cohort retention
+ * are then bitmap intersections instead of appointment scans. The bitmaps are
+ * kept current from patient and appointment change notifications.
+ */
+public class PatientAnalytics {
+    
+    private static PatientAnalytics instance;
+    
+    public enum AgeBand {
+        UNDER_18("Under 18"),
+        AGE_18_29("18-29"),
+        AGE_30_44("30-44"),
+        AGE_45_59("45-59"),
+        AGE_60_PLUS("60+"),
+        UNKNOWN("Unknown");
+        
+        private final String displayName;
+        
+        AgeBand(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+        
+        static AgeBand of(LocalDate dateOfBirth) {
+            if (dateOfBirth == null) {
+                return UNKNOWN;
+            }
+            int age = DateTimeUtils.calculateAge(dateOfBirth);
+            if (age < 18) return UNDER_18;
+            if (age < 30) return AGE_18_29;
+            if (age < 45) return AGE_30_44;
+            if (age < 60) return AGE_45_59;
+            return AGE_60_PLUS;
+        }
+    }
+    
+    private final AnalyticsDAO analyticsDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // patient id -> birth date, null when unknown
+    private final Map<Integer, LocalDate> birthDates = new HashMap<>();
+    
+    // appointment id -> visit key (patient id, month) of the visits counted
+    private final Map<Integer, Long> visitByAppointment = new HashMap<>();
+    // visit key -> appointments behind it; the month bit is cleared when this reaches zero
+    private final Map<Long, Integer> appointmentsPerVisit = new HashMap<>();
+    // month index -> patients with a visit that month
+    private final TreeMap<Integer, BitSet> activeByMonth = new TreeMap<>();
+    // month index -> patients whose first visit was that month
+    private final TreeMap<Integer, BitSet> cohortByMonth = new TreeMap<>();
+    // patient id -> month index of first visit
+    private final Map<Integer, Integer> firstMonth = new HashMap<>();
+    
+    private boolean loaded;
+    
+    private PatientAnalytics() {
+        this.analyticsDAO = new AnalyticsDAO();
+        registerListeners();
+    }
+    
+    public static synchronized PatientAnalytics getInstance() {
+        if (instance == null) {
+            instance = new PatientAnalytics();
+        }
+        return instance;
+    }
+    
+    /**
+     * Number of patients per age band
+     */
+    public ServiceResult<Map<AgeBand, Integer>> getAgeDistribution() {
+        ServiceResult<Void> ready = ensureLoaded();
+        if (!ready.isSuccess()) {
+            return ServiceResult.error(ready.getMessage());
+        }
+        
+        lock.readLock().lock();
+        try {
+            Map<AgeBand, Integer> counts = new EnumMap<>(AgeBand.class);
+            for (AgeBand band : AgeBand.values()) {
+                counts.put(band, 0);
+            }
+            for (LocalDate dateOfBirth : birthDates.values()) {
+                counts.merge(AgeBand.of(dateOfBirth), 1, Integer::sum);
+            }
+            return ServiceResult.success(counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * New and returning patients for each month of an inclusive range. A patient
+     * is new in the month of their first visit and returning in later months.
+     */
+    public ServiceResult<List<MonthlyPatients>> getNewVersusReturning(YearMonth from, YearMonth to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            return ServiceResult.error("A valid month range is required");
+        }
+        ServiceResult<Void> ready = ensureLoaded();
+        if (!ready.isSuccess()) {
+            return ServiceResult.error(ready.getMessage());
+        }
+        
+        lock.readLock().lock();
+        try {
+            List<MonthlyPatients> months = new ArrayList<>();
+            for (int month = monthIndex(from); month <= monthIndex(to); month++) {
+                int active = cardinality(activeByMonth.get(month));
+                int newPatients = cardinality(cohortByMonth.get(month));
+                months.add(new MonthlyPatients(yearMonth(month), newPatients, active - newPatients));
+            }
+            return ServiceResult.success(months);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Retention of each monthly cohort starting in an inclusive range, followed
+     * for up to the given number of months after the first visit
+     */
+    public ServiceResult<List<Cohort>> getCohortRetention(YearMonth from, YearMonth to, int monthsToFollow) {
+        if (from == null || to == null || to.isBefore(from)) {
+            return ServiceResult.error("A valid month range is required");
+        }
+        if (monthsToFollow < 0) {
+            return ServiceResult.error("Months to follow cannot be negative");
+        }
+        ServiceResult<Void> ready = ensureLoaded();
+        if (!ready.isSuccess()) {
+            return ServiceResult.error(ready.getMessage());
+        }
+        
+        lock.readLock().lock();
+        try {
+            List<Cohort> cohorts = new ArrayList<>();
+            for (int month = monthIndex(from); month <= monthIndex(to); month++) {
+                BitSet members = cohortByMonth.get(month);
+                int[] retained = new int[monthsToFollow + 1];
+                if (members != null) {
+                    retained[0] = members.cardinality();
+                    for (int offset = 1; offset <= monthsToFollow; offset++) {
+                        BitSet active = activeByMonth.get(month + offset);
+                        if (active != null) {
+                            BitSet both = (BitSet) members.clone();
+                            both.and(active);
+                            retained[offset] = both.cardinality();
+                        }
+                    }
+                }
+                cohorts.add(new Cohort(yearMonth(month), retained));
+            }
+            return ServiceResult.success(cohorts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Load everything ahead of the first report
+     */
+    public void warmUp() throws SQLException {
+        ServiceResult<Void> ready = ensureLoaded();
+        if (!ready.isSuccess()) {
+            throw new SQLException(ready.getMessage());
+        }
+    }
+    
+    /**
+     * Drop everything held in memory; the next query reloads from the database
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private ServiceResult<Void> ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return ServiceResult.success(null);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                clear();
+                analyticsDAO.loadPatients((id, epochDay, value, known, code2, ref) ->
+                    birthDates.put(id, known == 1 ? LocalDate.ofEpochDay(epochDay) : null));
+                analyticsDAO.loadAppointments((id, epochDay, minutes, status, code2, patientId) -> {
+                    if (isVisit(Appointment.Status.values()[status])) {
+                        addVisit(id, patientId, monthIndex(LocalDate.ofEpochDay(epochDay)));
+                    }
+                });
+                loaded = true;
+            }
+            return ServiceResult.success(null);
+        } catch (SQLException e) {
+            clear();
+            return ServiceResult.error("Database error: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void clear() {
+        birthDates.clear();
+        visitByAppointment.clear();
+        appointmentsPerVisit.clear();
+        activeByMonth.clear();
+        cohortByMonth.clear();
+        firstMonth.clear();
+    }
+    
+    private static boolean isVisit(Appointment.Status status) {
+        return status == Appointment.Status.SCHEDULED || status == Appointment.Status.COMPLETED;
+    }
+    
+    private void addVisit(int appointmentId, int patientId, int month) {
+        long visit = ((long) patientId << 32) | month;
+        visitByAppointment.put(appointmentId, visit);
+        if (appointmentsPerVisit.merge(visit, 1, Integer::sum) > 1) {
+            return;
+        }
+        
+        activeByMonth.computeIfAbsent(month, m -> new BitSet()).set(patientId);
+        Integer first = firstMonth.get(patientId);
+        if (first == null || month < first) {
+            if (first != null) {
+                cohortByMonth.get(first).clear(patientId);
+            }
+            firstMonth.put(patientId, month);
+            cohortByMonth.computeIfAbsent(month, m -> new BitSet()).set(patientId);
+        }
+    }
+    
+    private void removeVisit(int appointmentId) {
+        Long visit = visitByAppointment.remove(appointmentId);
+        if (visit == null) {
+            return;
+        }
+        if (appointmentsPerVisit.merge(visit, -1, Integer::sum) > 0) {
+            return;
+        }
+        appointmentsPerVisit.remove(visit);
+        
+        int patientId = (int) (visit >>> 32);
+        int month = (int) (long) visit;
+        activeByMonth.get(month).clear(patientId);
+        if (firstMonth.get(patientId) != month) {
+            return;
+        }
+        
+        // The first visit went away: the patient moves to the cohort of their next visit, if any
+        cohortByMonth.get(month).clear(patientId);
+        firstMonth.remove(patientId);
+        for (Map.Entry<Integer, BitSet> entry : activeByMonth.tailMap(month, false).entrySet()) {
+            if (entry.getValue().get(patientId)) {
+                firstMonth.put(patientId, entry.getKey());
+                cohortByMonth.computeIfAbsent(entry.getKey(), m -> new BitSet()).set(patientId);
+                break;
+            }
+        }
+    }
+    
+    private static int cardinality(BitSet bits) {
+        return bits != null ? bits.cardinality() : 0;
+    }
+    
+    private static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+    
+    private static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+    
+    private static YearMonth yearMonth(int monthIndex) {
+        return YearMonth.of(monthIndex / 12, monthIndex % 12 + 1);
+    }
+    
+    /**
+     * Apply a change only once the data has been loaded. Changes that arrive
+     * earlier are picked up by the load itself.
+     */
+    private void applyChange(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void registerListeners() {
+        PatientDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Patient patient) {
+                onUpdated(patient);
+            }
+            
+            @Override
+            public void onUpdated(Patient patient) {
+                applyChange(() -> birthDates.put(patient.getId(), patient.getDateOfBirth()));
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                applyChange(() -> birthDates.remove(id));
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+        
+        AppointmentDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Appointment appointment) {
+                onUpdated(appointment);
+            }
+            
+            @Override
+            public void onUpdated(Appointment appointment) {
+                applyChange(() -> {
+                    removeVisit(appointment.getId());
+                    if (appointment.getAppointmentDate() != null && isVisit(appointment.getStatus())) {
+                        addVisit(appointment.getId(), appointment.getPatientId(),
+                                 monthIndex(appointment.getAppointmentDate()));
+                    }
+                });
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                applyChange(() -> removeVisit(id));
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    /**
+     * New and returning patient counts of one month
+     */
+    public static class MonthlyPatients {
+        private final YearMonth month;
+        private final int newPatients;
+        private final int returningPatients;
+        
+        public MonthlyPatients(YearMonth month, int newPatients, int returningPatients) {
+            this.month = month;
+            this.newPatients = newPatients;
+            this.returningPatients = returningPatients;
+        }
+        
+        public YearMonth getMonth() { return month; }
+        public int getNewPatients() { return newPatients; }
+        public int getReturningPatients() { return returningPatients; }
+        public int getActivePatients() { return newPatients + returningPatients; }
+    }
+    
+    /**
+     * Patients who first visited in one month, and how many of them came back
+     * in each following month
+     */
+    public static class Cohort {
+        private final YearMonth month;
+        private final int[] retained;
+        
+        public Cohort(YearMonth month, int[] retained) {
+            this.month = month;
+            this.retained = retained;
+        }
+        
+        public YearMonth getMonth() { return month; }
+        public int getSize() { return retained[0]; }
+        public int getMonthsFollowed() { return retained.length - 1; }
+        
+        /** Cohort members with a visit the given number of months after their first */
+        public int getRetained(int monthsLater) { return retained[monthsLater]; }
+        
+        /** Share of the cohort retained, between 0 and 1 */
+        public double getRetentionRate(int monthsLater) {
+            return retained[0] == 0 ? 0.0 : (double) retained[monthsLater] / retained[0];
+        }
+    }
+    
+    /**
+     * Service result wrapper class
+     */
+    public static class ServiceResult<T> {
+        private final boolean success;
+        private final T data;
+        private final String message;
+        
+        private ServiceResult(boolean success, T data, String message) {
+            this.success = success;
+            this.data = data;
+            this.message = message;
+        }
+        
+        public static <T> ServiceResult<T> success(T data) {
+            return new ServiceResult<>(true, data, null);
+        }
+        
+        public static <T> ServiceResult<T> success(T data, String message) {
+            return new ServiceResult<>(true, data, message);
+        }
+        
+        public static <T> ServiceResult<T> error(String message) {
+            return new ServiceResult<>(false, null, message);
+        }
+        
+        public boolean isSuccess() { return success; }
+        public T getData() { return data; }
+        public String getMessage() { return message; }
+    }
+}
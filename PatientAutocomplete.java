@@ -0,0 +1,140 @@
+package com.rebelle.controllers;
+
+import com.rebelle.models.PatientSummary;
+import com.rebelle.services.PatientAutocompleteIndex;
+import com.rebelle.services.ServiceExecutor;
+import javafx.scene.control.ComboBox;
+import javafx.util.StringConverter;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * PatientAutocomplete - Type-ahead patient picker on an editable combo box.
+ *
+ * Each keystroke asks PatientAutocompleteIndex for the best few matches (name
+ * prefix, any later name word, or the last digits of the phone number) and
+ * shows only those, so the combo box never holds the whole patient registry.
+ * Lookups are in memory and run on the JavaFX thread.
+ */
+public class PatientAutocomplete {
+    
+    /** Suggestions shown in the drop-down */
+    private static final int MAX_SUGGESTIONS = 10;
+    
+    private final ComboBox<PatientSummary> comboBox;
+    private final PatientAutocompleteIndex index;
+    private boolean updating;
+    
+    private PatientAutocomplete(ComboBox<PatientSummary> comboBox) {
+        this.comboBox = comboBox;
+        this.index = PatientAutocompleteIndex.getInstance();
+    }
+    
+    /**
+     * Turn a patient combo box into an autocomplete field
+     */
+    public static PatientAutocomplete attach(ComboBox<PatientSummary> comboBox) {
+        PatientAutocomplete autocomplete = new PatientAutocomplete(comboBox);
+        autocomplete.setup();
+        return autocomplete;
+    }
+    
+    /**
+     * Select a patient programmatically (edit mode), showing it as the only suggestion
+     */
+    public void select(PatientSummary patient) {
+        updating = true;
+        try {
+            if (patient == null) {
+                comboBox.getItems().clear();
+            } else if (!comboBox.getItems().contains(patient)) {
+                comboBox.getItems().setAll(patient);
+            }
+            comboBox.setValue(patient);
+        } finally {
+            updating = false;
+        }
+    }
+    
+    private void setup() {
+        comboBox.setEditable(true);
+        comboBox.setConverter(new StringConverter<PatientSummary>() {
+            @Override
+            public String toString(PatientSummary patient) {
+                return patient != null ? patient.getDisplayName() : "";
+            }
+            
+            @Override
+            public PatientSummary fromString(String string) {
+                return findByDisplayName(string);
+            }
+        });
+        
+        comboBox.getEditor().textProperty().addListener((obs, oldText, newText) -> onTextChanged(newText));
+        
+        if (!index.isReady()) {
+            // Normally built at startup; make sure the first keystroke has something to search
+            ServiceExecutor.getInstance().submit(() -> {
+                try {
+                    index.warmUp();
+                } catch (SQLException e) {
+                    System.err.println("Patient autocomplete warm-up failed: " + e.getMessage());
+                }
+                return null;
+            }, error -> null);
+        }
+    }
+    
+    private void onTextChanged(String text) {
+        if (updating) {
+            return;
+        }
+        PatientSummary selected = comboBox.getValue();
+        if (selected != null && selected.getDisplayName().equals(text)) {
+            return; // Editor is just showing the chosen patient
+        }
+        
+        updating = true;
+        try {
+            if (text == null || text.trim().isEmpty()) {
+                comboBox.getItems().clear();
+                comboBox.hide();
+                return;
+            }
+            
+            List<PatientSummary> matches = index.complete(text, MAX_SUGGESTIONS);
+            comboBox.getItems().setAll(matches);
+            // Replacing the items can reset the editor; put back what was typed
+            if (!text.equals(comboBox.getEditor().getText())) {
+                comboBox.getEditor().setText(text);
+                comboBox.getEditor().positionCaret(text.length());
+            }
+            
+            if (matches.isEmpty()) {
+                comboBox.hide();
+            } else if (comboBox.isFocused() || comboBox.getEditor().isFocused()) {
+                comboBox.show();
+            }
+        } finally {
+            updating = false;
+        }
+    }
+    
+    private PatientSummary findByDisplayName(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        String name = text.trim();
+        PatientSummary selected = comboBox.getValue();
+        if (selected != null && selected.getDisplayName().equalsIgnoreCase(name)) {
+            return selected;
+        }
+        for (PatientSummary patient : comboBox.getItems()) {
+            if (patient.getDisplayName().equalsIgnoreCase(name)) {
+                return patient;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,356 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.dao.PatientDAO;
+import com.rebelle.models.Patient;
+import com.rebelle.models.PatientSummary;
+import com.rebelle.utils.ContactNormalizer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * PatientAutocompleteIndex - Immutable compressed prefix trie for patient type-ahead.
+ *
+ * Keys are the full normalised name (best rank), each later name token, and the
+ * digit suffixes of the phone number (so "0101" finds "555-0101"). Every node
+ * stores the top-K patients of its subtree, so a lookup is one walk down the
+ * trie plus copying at most K results, independent of the registry size.
+ *
+ * The trie is never modified: patient change events schedule a background
+ * rebuild from the shared summary list and the new trie is swapped in
+ * atomically. Readers on the JavaFX thread only ever touch the current trie.
+ */
+public class PatientAutocompleteIndex {
+    
+    private static PatientAutocompleteIndex instance;
+    
+    /** Results kept per trie node */
+    public static final int TOP_K = 10;
+    
+    private static final int MIN_PHONE_SUFFIX = 4;
+    private static final int WEIGHT_FULL_NAME = 0;
+    private static final int WEIGHT_NAME_TOKEN = 1;
+    private static final int WEIGHT_PHONE = 2;
+    
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    
+    private PatientAutocompleteIndex() {
+        registerListener();
+    }
+    
+    public static synchronized PatientAutocompleteIndex getInstance() {
+        if (instance == null) {
+            instance = new PatientAutocompleteIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Build the trie now (call off the JavaFX thread)
+     */
+    public void warmUp() throws SQLException {
+        if (current.get() == null) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * True once a trie is available; until then complete() returns nothing
+     */
+    public boolean isReady() {
+        return current.get() != null;
+    }
+    
+    /**
+     * Best matches for what has been typed so far, at most min(limit, TOP_K).
+     * Never blocks: before the first build it schedules one and returns an empty list.
+     */
+    public List<PatientSummary> complete(String typed, int limit) {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            scheduleRebuild();
+            return new ArrayList<>();
+        }
+        
+        String text = PatientSearchIndex.normalizeText(typed);
+        if (text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        int[] matches = snapshot.lookup(text);
+        String digits = ContactNormalizer.digitsOnly(typed);
+        if (digits.length() >= 3 && !digits.equals(text)) {
+            matches = mergeTop(new int[][] {matches, snapshot.lookup(digits)}, snapshot.patients.length);
+        }
+        
+        int count = Math.min(Math.min(limit, TOP_K), matches.length);
+        List<PatientSummary> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(snapshot.patients[matches[i] % snapshot.patients.length]);
+        }
+        return results;
+    }
+    
+    private void registerListener() {
+        PatientDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Patient patient) {
+                scheduleRebuild();
+            }
+            
+            @Override
+            public void onUpdated(Patient patient) {
+                scheduleRebuild();
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                scheduleRebuild();
+            }
+        });
+    }
+    
+    /**
+     * Coalesce bursts of changes into one background rebuild
+     */
+    private void scheduleRebuild() {
+        if (!rebuildPending.compareAndSet(false, true)) {
+            return;
+        }
+        ServiceExecutor.getInstance().submit(() -> {
+            rebuildPending.set(false);
+            try {
+                rebuild();
+            } catch (SQLException e) {
+                System.err.println("Patient autocomplete rebuild failed: " + e.getMessage());
+            }
+            return null;
+        }, error -> null);
+    }
+    
+    private void rebuild() throws SQLException {
+        List<PatientSummary> summaries = PatientSummaryCache.getInstance().getSummaries();
+        current.set(Snapshot.build(summaries.toArray(new PatientSummary[0])));
+    }
+    
+    /**
+     * Merge ranked score lists, dropping repeated patients, keeping the best TOP_K.
+     * A score is weight * patientCount + position, so lower is better and
+     * score % patientCount is the patient's position.
+     */
+    private static int[] mergeTop(int[][] lists, int patientCount) {
+        int total = 0;
+        for (int[] list : lists) {
+            total += list.length;
+        }
+        int[] all = new int[total];
+        int n = 0;
+        for (int[] list : lists) {
+            System.arraycopy(list, 0, all, n, list.length);
+            n += list.length;
+        }
+        Arrays.sort(all);
+        
+        int[] top = new int[Math.min(TOP_K, total)];
+        int kept = 0;
+        for (int i = 0; i < total && kept < top.length; i++) {
+            int position = all[i] % patientCount;
+            boolean seen = false;
+            for (int j = 0; j < kept; j++) {
+                if (top[j] % patientCount == position) {
+                    seen = true;
+                    break;
+                }
+            }
+            if (!seen) {
+                top[kept++] = all[i];
+            }
+        }
+        return kept == top.length ? top : Arrays.copyOf(top, kept);
+    }
+    
+    /**
+     * One immutable trie plus the patients it refers to (name order)
+     */
+    private static final class Snapshot {
+        private static final int[] NONE = new int[0];
+        
+        final PatientSummary[] patients;
+        final Node root;
+        
+        private Snapshot(PatientSummary[] patients, Node root) {
+            this.patients = patients;
+            this.root = root;
+        }
+        
+        static Snapshot build(PatientSummary[] patients) {
+            // Group by key text first: common surnames and phone suffixes repeat a
+            // lot, and sorting only the distinct texts is much cheaper
+            Map<String, Key> keys = new HashMap<>(patients.length * 4);
+            for (int position = 0; position < patients.length; position++) {
+                addKeys(keys, patients[position], position, patients.length);
+            }
+            if (keys.isEmpty()) {
+                return new Snapshot(patients, null);
+            }
+            Key[] sorted = keys.values().toArray(new Key[0]);
+            Arrays.sort(sorted, (a, b) -> a.text.compareTo(b.text));
+            return new Snapshot(patients, Node.build(sorted, 0, sorted.length, 0, patients.length));
+        }
+        
+        private static void addKeys(Map<String, Key> keys, PatientSummary patient, int position, int patientCount) {
+            String name = PatientSearchIndex.normalizeText(patient.getName());
+            if (!name.isEmpty()) {
+                addKey(keys, name, WEIGHT_FULL_NAME * patientCount + position);
+                String[] tokens = name.split(" ");
+                for (int i = 1; i < tokens.length; i++) {
+                    if (!tokens[i].isEmpty()) {
+                        addKey(keys, tokens[i], WEIGHT_NAME_TOKEN * patientCount + position);
+                    }
+                }
+            }
+            
+            String digits = ContactNormalizer.digitsOnly(patient.getPhone());
+            for (int start = 0; start + MIN_PHONE_SUFFIX <= digits.length(); start++) {
+                addKey(keys, digits.substring(start), WEIGHT_PHONE * patientCount + position);
+            }
+        }
+        
+        private static void addKey(Map<String, Key> keys, String text, int score) {
+            keys.computeIfAbsent(text, Key::new).add(score);
+        }
+        
+        int[] lookup(String prefix) {
+            Node node = root;
+            int i = 0;
+            while (node != null) {
+                String label = node.label;
+                for (int m = 0; m < label.length() && i < prefix.length(); m++, i++) {
+                    if (label.charAt(m) != prefix.charAt(i)) {
+                        return NONE;
+                    }
+                }
+                if (i == prefix.length()) {
+                    return node.top;
+                }
+                int child = Arrays.binarySearch(node.firsts, prefix.charAt(i));
+                if (child < 0) {
+                    return NONE;
+                }
+                node = node.children[child];
+            }
+            return NONE;
+        }
+    }
+    
+    /**
+     * Distinct key text with the best TOP_K scores of the patients it belongs to
+     */
+    private static final class Key {
+        final String text;
+        private int[] scores = new int[1];
+        private int size;
+        
+        Key(String text) {
+            this.text = text;
+        }
+        
+        /**
+         * Insert into the small sorted array, dropping anything past TOP_K
+         */
+        void add(int score) {
+            int i = size;
+            if (i == TOP_K) {
+                if (score >= scores[TOP_K - 1]) {
+                    return;
+                }
+                i--;
+            } else {
+                if (size == scores.length) {
+                    scores = Arrays.copyOf(scores, Math.min(TOP_K, size * 2));
+                }
+                size++;
+            }
+            while (i > 0 && scores[i - 1] > score) {
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            scores[i] = score;
+        }
+        
+        int[] top() {
+            return size == scores.length ? scores : Arrays.copyOf(scores, size);
+        }
+    }
+    
+    /**
+     * Trie node; the edge label from its parent is compressed to a string
+     */
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final char[] NO_FIRSTS = new char[0];
+        
+        final String label;
+        final char[] firsts;
+        final Node[] children;
+        final int[] top;
+        
+        private Node(String label, char[] firsts, Node[] children, int[] top) {
+            this.label = label;
+            this.firsts = firsts;
+            this.children = children;
+            this.top = top;
+        }
+        
+        /**
+         * Node for sorted distinct keys[lo, hi), which all share their first `from` characters
+         */
+        static Node build(Key[] keys, int lo, int hi, int from, int patientCount) {
+            // Sorted keys: the common prefix of the range is that of its first and last key
+            String first = keys[lo].text;
+            String last = keys[hi - 1].text;
+            int end = from;
+            while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) {
+                end++;
+            }
+            
+            // Keys are distinct, so at most one ends exactly at this node
+            List<int[]> ranked = new ArrayList<>();
+            int i = lo;
+            if (keys[i].text.length() == end) {
+                ranked.add(keys[i].top());
+                i++;
+            }
+            
+            List<Node> children = new ArrayList<>();
+            StringBuilder firsts = new StringBuilder();
+            while (i < hi) {
+                char c = keys[i].text.charAt(end);
+                int groupEnd = i + 1;
+                while (groupEnd < hi && keys[groupEnd].text.charAt(end) == c) {
+                    groupEnd++;
+                }
+                Node child = build(keys, i, groupEnd, end, patientCount);
+                children.add(child);
+                firsts.append(c);
+                ranked.add(child.top);
+                i = groupEnd;
+            }
+            
+            return new Node(
+                first.substring(from, end),
+                children.isEmpty() ? NO_FIRSTS : firsts.toString().toCharArray(),
+                children.isEmpty() ? NO_CHILDREN : children.toArray(new Node[0]),
+                mergeTop(ranked.toArray(new int[0][]), patientCount)
+            );
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.Patient;
+
+import java.util.Arrays;
+
+/**
+ * PatientCache - Bounded patient-by-id cache shared by every PatientDAO.
+ *
+ * Entries live in parallel arrays addressed by an open-addressing int hash
+ * table (no boxing, no per-entry nodes) and are chained into an LRU list.
+ * When the cache is full a TinyLFU-style admission filter decides whether the
+ * new patient is worth more than the LRU victim, using a small count-min
+ * sketch of recent access frequencies; one-off scans (e.g. a payment report
+ * touching every patient once) therefore do not flush the hot set.
+ *
+ * Patient writes go through PatientDAO, whose change events update or drop
+ * the cached copy. Callers always receive their own copy, so editing a
+ * returned patient never changes the cached one.
+ */
+public class PatientCache {
+    
+    private static PatientCache instance;
+    
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int NONE = -1;
+    
+    private final int capacity;
+    private final int mask;
+    private final int[] table;          // hash slot -> entry index, or NONE
+    private final int[] keys;
+    private final Patient[] values;
+    private final int[] prev;
+    private final int[] next;
+    private final FrequencySketch sketch;
+    
+    private int head = NONE;            // most recently used
+    private int tail = NONE;            // least recently used
+    private int size;
+    private long writeStamp;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+    
+    PatientCache(int capacity) {
+        this.capacity = capacity;
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.mask = tableSize - 1;
+        this.table = new int[tableSize];
+        Arrays.fill(table, NONE);
+        this.keys = new int[capacity];
+        this.values = new Patient[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+        this.sketch = new FrequencySketch(capacity);
+        registerListener();
+    }
+    
+    public static synchronized PatientCache getInstance() {
+        if (instance == null) {
+            instance = new PatientCache(DEFAULT_CAPACITY);
+        }
+        return instance;
+    }
+    
+    /**
+     * Copy of the cached patient, or null on a miss
+     */
+    public synchronized Patient get(int id) {
+        sketch.increment(id);
+        int index = find(id);
+        if (index == NONE) {
+            misses++;
+            return null;
+        }
+        hits++;
+        moveToFront(index);
+        return copy(values[index]);
+    }
+    
+    /**
+     * Stamp to pass to putLoaded; taken before reading a patient from the database
+     */
+    public synchronized long stamp() {
+        return writeStamp;
+    }
+    
+    /**
+     * Cache a patient read from the database, unless a write happened since the
+     * read started (the row read may already be stale)
+     */
+    public synchronized void putLoaded(Patient patient, long stamp) {
+        if (stamp == writeStamp) {
+            admit(patient);
+        }
+    }
+    
+    /**
+     * Drop one patient
+     */
+    public synchronized void remove(int id) {
+        writeStamp++;
+        int index = find(id);
+        if (index != NONE) {
+            removeEntry(index);
+        }
+    }
+    
+    /**
+     * Drop every patient
+     */
+    public synchronized void clear() {
+        writeStamp++;
+        Arrays.fill(table, NONE);
+        Arrays.fill(values, null);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+    }
+    
+    /**
+     * Hit/miss counters since startup
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, rejections, size, capacity);
+    }
+    
+    private void registerListener() {
+        PatientDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Patient patient) {
+                onUpdated(patient);
+            }
+            
+            @Override
+            public void onUpdated(Patient patient) {
+                synchronized (PatientCache.this) {
+                    writeStamp++;
+                    int index = find(patient.getId());
+                    if (index != NONE) {
+                        values[index] = copy(patient);
+                    }
+                }
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                remove(id);
+            }
+            
+            @Override
+            public void onInvalidated() {
+                clear();
+            }
+        });
+    }
+    
+    private void admit(Patient patient) {
+        int id = patient.getId();
+        int index = find(id);
+        if (index != NONE) {
+            values[index] = copy(patient);
+            moveToFront(index);
+            return;
+        }
+        
+        if (size == capacity) {
+            // Admission: keep the victim if it is used at least as often as the newcomer
+            if (sketch.frequency(id) <= sketch.frequency(keys[tail])) {
+                rejections++;
+                return;
+            }
+            removeEntry(tail);
+            evictions++;
+        }
+        
+        index = size++;
+        keys[index] = id;
+        values[index] = copy(patient);
+        insertIntoTable(id, index);
+        linkFront(index);
+    }
+    
+    private int find(int id) {
+        for (int slot = hash(id); ; slot = (slot + 1) & mask) {
+            int index = table[slot];
+            if (index == NONE) {
+                return NONE;
+            }
+            if (keys[index] == id) {
+                return index;
+            }
+        }
+    }
+    
+    private void insertIntoTable(int id, int index) {
+        int slot = hash(id);
+        while (table[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index;
+    }
+    
+    /**
+     * Remove an entry and keep the entry arrays dense by moving the last entry
+     * into the freed index
+     */
+    private void removeEntry(int index) {
+        unlink(index);
+        deleteFromTable(keys[index]);
+        
+        int last = --size;
+        if (index != last) {
+            keys[index] = keys[last];
+            values[index] = values[last];
+            prev[index] = prev[last];
+            next[index] = next[last];
+            if (prev[index] != NONE) next[prev[index]] = index; else head = index;
+            if (next[index] != NONE) prev[next[index]] = index; else tail = index;
+            table[slotOf(keys[index])] = index;
+        }
+        values[last] = null;
+    }
+    
+    /**
+     * Linear-probing delete with backward shift, so lookups never need tombstones
+     */
+    private void deleteFromTable(int id) {
+        int slot = slotOf(id);
+        table[slot] = NONE;
+        for (int probe = (slot + 1) & mask; table[probe] != NONE; probe = (probe + 1) & mask) {
+            int index = table[probe];
+            int home = hash(keys[index]);
+            // Move the entry back if its home slot is not between the hole and its current slot
+            boolean movable = slot <= probe ? (home <= slot || home > probe) : (home <= slot && home > probe);
+            if (movable) {
+                table[slot] = index;
+                table[probe] = NONE;
+                slot = probe;
+            }
+        }
+    }
+    
+    private int slotOf(int id) {
+        for (int slot = hash(id); ; slot = (slot + 1) & mask) {
+            if (table[slot] != NONE && keys[table[slot]] == id) {
+                return slot;
+            }
+        }
+    }
+    
+    private int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+    
+    private void moveToFront(int index) {
+        if (head != index) {
+            unlink(index);
+            linkFront(index);
+        }
+    }
+    
+    private void linkFront(int index) {
+        prev[index] = NONE;
+        next[index] = head;
+        if (head != NONE) {
+            prev[head] = index;
+        }
+        head = index;
+        if (tail == NONE) {
+            tail = index;
+        }
+    }
+    
+    private void unlink(int index) {
+        int p = prev[index];
+        int n = next[index];
+        if (p != NONE) next[p] = n; else head = n;
+        if (n != NONE) prev[n] = p; else tail = p;
+        prev[index] = NONE;
+        next[index] = NONE;
+    }
+    
+    private static Patient copy(Patient patient) {
+        Patient copy = new Patient(patient.getId(), patient.getName(), patient.getPhone(), patient.getEmail(),
+                                   patient.getAddress(), patient.getDateOfBirth(), patient.getMedicalNotes(),
+                                   patient.getCreatedAt(), patient.getUpdatedAt());
+        copy.setVersion(patient.getVersion());
+        return copy;
+    }
+    
+    /**
+     * Count-min sketch with four rows of small counters. All counts are halved
+     * after a sample period so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+        
+        private final byte[][] counts;
+        private final int width;
+        private final int samplePeriod;
+        private int additions;
+        
+        FrequencySketch(int capacity) {
+            this.width = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+            this.counts = new byte[ROWS][width];
+            this.samplePeriod = capacity * 10;
+        }
+        
+        void increment(int key) {
+            boolean added = false;
+            for (int row = 0; row < ROWS; row++) {
+                int column = column(key, row);
+                if (counts[row][column] < MAX_COUNT) {
+                    counts[row][column]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= samplePeriod) {
+                age();
+            }
+        }
+        
+        int frequency(int key) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                min = Math.min(min, counts[row][column(key, row)]);
+            }
+            return min;
+        }
+        
+        private int column(int key, int row) {
+            int h = key * SEEDS[row];
+            return (h ^ (h >>> 15)) & (width - 1);
+        }
+        
+        private void age() {
+            for (byte[] row : counts) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) (row[i] >> 1);
+                }
+            }
+            additions /= 2;
+        }
+    }
+    
+    /**
+     * Cache counters
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long rejections;
+        private final int size;
+        private final int capacity;
+        
+        public Stats(long hits, long misses, long evictions, long rejections, int size, int capacity) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.rejections = rejections;
+            this.size = size;
+            this.capacity = capacity;
+        }
+        
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getRejections() { return rejections; }
+        public int getSize() { return size; }
+        public int getCapacity() { return capacity; }
+        
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("PatientCache{size=%d/%d, hitRate=%.1f%%, hits=%d, misses=%d, evictions=%d, rejections=%d}",
+                                 size, capacity, getHitRate() * 100, hits, misses, evictions, rejections);
+        }
+    }
+}
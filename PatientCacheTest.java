@@ -0,0 +1,51 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * PatientCacheTest - The cache hands out copies; they must carry the row
+ * version, or every edit after the first fails its optimistic lock check.
+ */
+class PatientCacheTest {
+    
+    @Test
+    void editingTheSamePatientTwiceSeesEachNewVersion() {
+        PatientCache cache = new PatientCache(16);
+        Patient loaded = new Patient(42, "Jane Doe", "555-0199", "jane@example.com", "Main St 1",
+                                     LocalDate.of(1980, 1, 1), null, LocalDateTime.now(), LocalDateTime.now());
+        cache.putLoaded(loaded, cache.stamp());
+        
+        for (int edit = 0; edit < 2; edit++) {
+            Patient read = cache.get(42);
+            assertNotNull(read);
+            assertEquals(edit, read.getVersion());
+            
+            // What PatientDAO.updatePatient does after a successful versioned update
+            read.setAddress("Main St " + (edit + 2));
+            read.setVersion(read.getVersion() + 1);
+            PatientDAO.changes().fireUpdated(read);
+        }
+        
+        Patient latest = cache.get(42);
+        assertEquals(2, latest.getVersion());
+        assertEquals("Main St 3", latest.getAddress());
+    }
+    
+    @Test
+    void loadedPatientKeepsItsVersion() {
+        PatientCache cache = new PatientCache(16);
+        Patient loaded = new Patient(7, "John Roe", "555-0100", null, null, null, null,
+                                     LocalDateTime.now(), LocalDateTime.now());
+        loaded.setVersion(5);
+        cache.putLoaded(loaded, cache.stamp());
+        
+        assertEquals(5, cache.get(7).getVersion());
+    }
+}
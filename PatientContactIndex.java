@@ -0,0 +1,211 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.dao.PatientDAO;
+import com.rebelle.models.Patient;
+import com.rebelle.utils.ContactNormalizer;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * PatientContactIndex - In-memory hash index of normalised patient phones and
+ * emails, so duplicate checks (patient form, imports) need no database query.
+ *
+ * Loaded on first use from the normalised columns and kept current from
+ * PatientDAO change events. The unique indexes on those columns remain the
+ * final guard against concurrent writers.
+ */
+public class PatientContactIndex {
+    
+    private static PatientContactIndex instance;
+    
+    private final PatientDAO patientDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Normally one id per key; a set copes with duplicates that predate the unique indexes
+    private final Map<String, Set<Integer>> byPhone = new HashMap<>();
+    private final Map<String, Set<Integer>> byEmail = new HashMap<>();
+    private final Map<Integer, String[]> keysById = new HashMap<>();
+    private boolean loaded;
+    
+    private PatientContactIndex() {
+        this.patientDAO = new PatientDAO();
+        registerListener();
+    }
+    
+    public static synchronized PatientContactIndex getInstance() {
+        if (instance == null) {
+            instance = new PatientContactIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Load the index ahead of the first check
+     */
+    public void warmUp() throws SQLException {
+        ensureLoaded();
+    }
+    
+    /**
+     * Id of another patient with the same phone number, if any
+     */
+    public Optional<Integer> findByPhone(String phone, Integer excludeId) throws SQLException {
+        return find(byPhone, ContactNormalizer.normalizePhone(phone), excludeId);
+    }
+    
+    /**
+     * Id of another patient with the same email address, if any
+     */
+    public Optional<Integer> findByEmail(String email, Integer excludeId) throws SQLException {
+        return find(byEmail, ContactNormalizer.normalizeEmail(email), excludeId);
+    }
+    
+    /**
+     * True if another patient already uses this phone number or email
+     */
+    public boolean isDuplicate(String phone, String email, Integer excludeId) throws SQLException {
+        return findByPhone(phone, excludeId).isPresent() || findByEmail(email, excludeId).isPresent();
+    }
+    
+    /**
+     * Drop the index; it is reloaded on the next check
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            byPhone.clear();
+            byEmail.clear();
+            keysById.clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private Optional<Integer> find(Map<String, Set<Integer>> index, String key, Integer excludeId)
+            throws SQLException {
+        if (key == null) {
+            return Optional.empty();
+        }
+        ensureLoaded();
+        
+        lock.readLock().lock();
+        try {
+            Set<Integer> ids = index.get(key);
+            if (ids != null) {
+                for (Integer id : ids) {
+                    if (!id.equals(excludeId)) {
+                        return Optional.of(id);
+                    }
+                }
+            }
+            return Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void ensureLoaded() throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            byPhone.clear();
+            byEmail.clear();
+            keysById.clear();
+            patientDAO.loadContactKeys(this::put);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void registerListener() {
+        PatientDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Patient patient) {
+                onUpdated(patient);
+            }
+            
+            @Override
+            public void onUpdated(Patient patient) {
+                applyChange(() -> put(patient.getId(),
+                    ContactNormalizer.normalizePhone(patient.getPhone()),
+                    ContactNormalizer.normalizeEmail(patient.getEmail())));
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                applyChange(() -> remove(id));
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    /**
+     * Changes that arrive before the first load are covered by the load itself
+     */
+    private void applyChange(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void put(int id, String phone, String email) {
+        remove(id);
+        keysById.put(id, new String[] {phone, email});
+        if (phone != null) {
+            byPhone.computeIfAbsent(phone, k -> new HashSet<>(2)).add(id);
+        }
+        if (email != null) {
+            byEmail.computeIfAbsent(email, k -> new HashSet<>(2)).add(id);
+        }
+    }
+    
+    private void remove(int id) {
+        String[] keys = keysById.remove(id);
+        if (keys == null) {
+            return;
+        }
+        removeKey(byPhone, keys[0], id);
+        removeKey(byEmail, keys[1], id);
+    }
+    
+    private static void removeKey(Map<String, Set<Integer>> index, String key, int id) {
+        if (key == null) {
+            return;
+        }
+        Set<Integer> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
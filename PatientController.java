@@ -14,6 +14,7 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import com.rebelle.dao.Page;
 import com.rebelle.models.Patient;
 import com.rebelle.services.PatientService;
 
@@ -47,9 +48,13 @@ public class PatientController implements Initializable {
     @FXML private Label statusLabel;
     @FXML private Label patientCountLabel;
     
+    private static final int PAGE_SIZE = 100;
+    
     // Services
     private PatientService patientService;
     private ObservableList<Patient> patientList;
+    private PagedTableDataSource<Patient> pagedPatients;
+    private SearchPipeline<Patient> searchPipeline;
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -58,6 +63,7 @@ public class PatientController implements Initializable {
         
         setupTableColumns();
         setupTableSelection();
+        setupPaging();
         setupSearchField();
         loadPatients();
     }
@@ -72,37 +78,57 @@ public class PatientController implements Initializable {
         // Name Column
         nameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
         
+        // Rows that are still loading have no patient yet, so every factory is null-safe
+        
         // Age Column
-        ageColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getAgeString()));
+        ageColumn.setCellValueFactory(cellData -> {
+            Patient patient = cellData.getValue();
+            return new SimpleStringProperty(patient != null ? patient.getAgeString() : "");
+        });
         
         // Phone Column
         phoneColumn.setCellValueFactory(cellData -> {
-            String phone = cellData.getValue().getPhone();
+            String phone = cellData.getValue() != null ? cellData.getValue().getPhone() : null;
             return new SimpleStringProperty(phone != null ? phone : "");
         });
         
         // Email Column
         emailColumn.setCellValueFactory(cellData -> {
-            String email = cellData.getValue().getEmail();
+            String email = cellData.getValue() != null ? cellData.getValue().getEmail() : null;
             return new SimpleStringProperty(email != null ? email : "");
         });
         
         // Address Column
         addressColumn.setCellValueFactory(cellData -> {
-            String address = cellData.getValue().getAddress();
+            String address = cellData.getValue() != null ? cellData.getValue().getAddress() : null;
             return new SimpleStringProperty(address != null ? address : "");
         });
         
         // Created Column
         createdColumn.setCellValueFactory(cellData -> {
-            String created = cellData.getValue().getCreatedAt()
-                .format(DateTimeFormatter.ofPattern("MMM dd, yyyy"));
-            return new SimpleStringProperty(created);
+            Patient patient = cellData.getValue();
+            if (patient == null || patient.getCreatedAt() == null) {
+                return new SimpleStringProperty("");
+            }
+            return new SimpleStringProperty(patient.getCreatedAt()
+                .format(DateTimeFormatter.ofPattern("MMM dd, yyyy")));
         });
-        
-        // Bind data to table
-        patientTable.setItems(patientList);
+    }
+    
+    /**
+     * Setup the lazily loaded patient list used when no search is active
+     */
+    private void setupPaging() {
+        pagedPatients = new PagedTableDataSource<>(PAGE_SIZE, "name", true);
+        pagedPatients.sortColumn(idColumn, "id")
+                     .sortColumn(nameColumn, "name")
+                     .sortColumn(createdColumn, "created");
+        pagedPatients.setOnPageLoaded(this::updatePatientCount);
+        pagedPatients.setOnError(message -> {
+            showError("Failed to load patients", message);
+            updateStatus("Error loading patients");
+        });
+        pagedPatients.attach(patientTable);
         
         // Make table sortable
         patientTable.getSortOrder().add(nameColumn);
@@ -131,18 +157,29 @@ public class PatientController implements Initializable {
     }
     
     /**
-     * Setup search field
+     * Setup search field: debounced search as the user types, immediate on Enter
      */
     private void setupSearchField() {
-        // Search on Enter key
-        searchField.setOnAction(e -> handleSearch());
-        
-        // Auto-search as user types (with delay)
-        searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-            if (newValue.length() >= 3 || newValue.isEmpty()) {
-                handleSearch();
+        searchPipeline = new SearchPipeline<>(SearchPipeline.DEFAULT_DELAY, 1, term -> {
+            PatientService.ServiceResult<List<Patient>> result = patientService.searchPatients(term);
+            if (!result.isSuccess()) {
+                throw new IllegalStateException(result.getMessage());
             }
+            return result.getData();
+        });
+        searchPipeline.setOnSearching(term -> updateStatus("Searching patients..."));
+        searchPipeline.setOnResults((term, patients) -> {
+            patientList.setAll(patients);
+            patientTable.setItems(patientList);
+            updatePatientCount();
+            updateStatus(String.format("Found %d patients matching '%s'", patients.size(), term));
+        });
+        searchPipeline.setOnCleared(this::loadPatients);
+        searchPipeline.setOnError(message -> {
+            showError("Search Error", message);
+            updateStatus("Search failed");
         });
+        searchPipeline.attach(searchField);
     }
     
     /**
@@ -151,31 +188,13 @@ public class PatientController implements Initializable {
     private void loadPatients() {
         updateStatus("Loading patients...");
         
-        Task<PatientService.ServiceResult<List<Patient>>> task = new Task<>() {
-            @Override
-            protected PatientService.ServiceResult<List<Patient>> call() {
-                return patientService.getAllPatients();
-            }
-        };
-        
-        task.setOnSucceeded(e -> {
-            PatientService.ServiceResult<List<Patient>> result = task.getValue();
-            if (result.isSuccess()) {
-                patientList.setAll(result.getData());
-                updatePatientCount();
-                updateStatus("Patients loaded successfully");
-            } else {
-                showError("Failed to load patients", result.getMessage());
-                updateStatus("Error loading patients");
+        pagedPatients.setFetcher(request -> {
+            PatientService.ServiceResult<Page<Patient>> result = patientService.getPatientPage(request);
+            if (!result.isSuccess()) {
+                throw new IllegalStateException(result.getMessage());
             }
+            return result.getData();
         });
-        
-        task.setOnFailed(e -> {
-            showError("Database Error", "Failed to load patients from database");
-            updateStatus("Error loading patients");
-        });
-        
-        new Thread(task).start();
     }
     
     /**
@@ -183,39 +202,7 @@ public class PatientController implements Initializable {
      */
     @FXML
     private void handleSearch() {
-        String searchTerm = searchField.getText().trim();
-        updateStatus("Searching patients...");
-        
-        Task<PatientService.ServiceResult<List<Patient>>> task = new Task<>() {
-            @Override
-            protected PatientService.ServiceResult<List<Patient>> call() {
-                return patientService.searchPatients(searchTerm);
-            }
-        };
-        
-        task.setOnSucceeded(e -> {
-            PatientService.ServiceResult<List<Patient>> result = task.getValue();
-            if (result.isSuccess()) {
-                patientList.setAll(result.getData());
-                updatePatientCount();
-                if (searchTerm.isEmpty()) {
-                    updateStatus("All patients loaded");
-                } else {
-                    updateStatus(String.format("Found %d patients matching '%s'", 
-                               result.getData().size(), searchTerm));
-                }
-            } else {
-                showError("Search Error", result.getMessage());
-                updateStatus("Search failed");
-            }
-        });
-        
-        task.setOnFailed(e -> {
-            showError("Search Error", "Failed to search patients");
-            updateStatus("Search failed");
-        });
-        
-        new Thread(task).start();
+        searchPipeline.searchNow(searchField.getText());
     }
     
     /**
@@ -223,8 +210,11 @@ public class PatientController implements Initializable {
      */
     @FXML
     private void handleClearSearch() {
-        searchField.clear();
-        loadPatients();
+        if (searchField.getText().isEmpty()) {
+            loadPatients();
+        } else {
+            searchField.clear(); // the search pipeline reloads the full list
+        }
     }
     
     /**
@@ -329,7 +319,12 @@ public class PatientController implements Initializable {
         task.setOnSucceeded(e -> {
             PatientService.ServiceResult<Void> result = task.getValue();
             if (result.isSuccess()) {
-                patientList.remove(patient);
+                searchPipeline.invalidateCache();
+                if (patientTable.getItems() == pagedPatients) {
+                    pagedPatients.refresh();
+                } else {
+                    patientList.remove(patient);
+                }
                 updatePatientCount();
                 updateStatus("Patient deleted successfully");
                 showInfo("Success", "Patient deleted successfully.");
@@ -351,16 +346,31 @@ public class PatientController implements Initializable {
      * Called by PatientFormController when patient is saved
      */
     public void onPatientSaved() {
-        loadPatients(); // Refresh the list
+        // Refresh the list, or the current search results; cached searches are stale either way
+        if (searchPipeline.isActive()) {
+            searchPipeline.rerun();
+        } else {
+            searchPipeline.invalidateCache();
+            loadPatients();
+        }
     }
     
     /**
      * Update patient count label
      */
     private void updatePatientCount() {
-        int count = patientList.size();
+        String text;
+        if (patientTable.getItems() == pagedPatients) {
+            text = pagedPatients.formatCount("patient", "patients");
+            if (pagedPatients.getKnownRowCount() > 0) {
+                updateStatus("Patients loaded successfully");
+            }
+        } else {
+            int count = patientList.size();
+            text = count + (count == 1 ? " patient" : " patients");
+        }
         Platform.runLater(() -> {
-            patientCountLabel.setText(count + (count == 1 ? " patient" : " patients"));
+            patientCountLabel.setText(text);
         });
     }
     
@@ -1,11 +1,16 @@
 package com.rebelle.dao;
 
 import com.rebelle.models.Patient;
+import com.rebelle.models.PatientSummary;
+import com.rebelle.utils.ContactNormalizer;
+import com.rebelle.utils.DoubleMetaphone;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -13,10 +18,30 @@ import java.util.Optional;
  */
 public class PatientDAO {
     
+    private static final ChangeNotifier<Patient> CHANGES = new ChangeNotifier<>();
+    
+    /** SQLite's default limit on bound parameters is 999 */
+    private static final int MAX_IN_PARAMETERS = 500;
+    
+    private static final Map<String, String[]> PAGE_SORT_COLUMNS = Map.of(
+        "name", new String[] {"name"},
+        "created", new String[] {"COALESCE(created_at, '')"},
+        "id", new String[0]
+    );
+    
     private final DatabaseManager dbManager;
+    private final PatientCache cache;
     
     public PatientDAO() {
         this.dbManager = DatabaseManager.getInstance();
+        this.cache = PatientCache.getInstance();
+    }
+    
+    /**
+     * Listener registry notified after successful patient writes
+     */
+    public static ChangeNotifier<Patient> changes() {
+        return CHANGES;
     }
     
     /**
@@ -24,8 +49,9 @@ public class PatientDAO {
      */
     public Patient createPatient(Patient patient) throws SQLException {
         String sql = """
-            INSERT INTO patients (name, phone, email, address, date_of_birth, medical_notes, created_at, updated_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            INSERT INTO patients (name, phone, email, address, date_of_birth, medical_notes, created_at, updated_at,
+                                  phone_normalized, email_normalized, name_phonetic)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
             """;
         
         try (Connection conn = dbManager.getConnection();
@@ -39,6 +65,9 @@ public class PatientDAO {
             stmt.setString(6, patient.getMedicalNotes());
             stmt.setString(7, patient.getCreatedAt().toString());
             stmt.setString(8, patient.getUpdatedAt().toString());
+            stmt.setString(9, ContactNormalizer.normalizePhone(patient.getPhone()));
+            stmt.setString(10, ContactNormalizer.normalizeEmail(patient.getEmail()));
+            stmt.setString(11, DoubleMetaphone.encodeName(patient.getName()));
             
             int affectedRows = stmt.executeUpdate();
             
@@ -49,6 +78,7 @@ public class PatientDAO {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     patient.setId(generatedKeys.getInt(1));
+                    CHANGES.fireInserted(patient);
                     return patient;
                 } else {
                     throw new SQLException("Creating patient failed, no ID obtained.");
@@ -58,9 +88,15 @@ public class PatientDAO {
     }
     
     /**
-     * Get patient by ID
+     * Get patient by ID (served from the shared patient cache when possible)
      */
     public Optional<Patient> getPatientById(int id) throws SQLException {
+        Patient cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        
+        long stamp = cache.stamp();
         String sql = "SELECT * FROM patients WHERE id = ?";
         
         try (Connection conn = dbManager.getConnection();
@@ -70,7 +106,9 @@ public class PatientDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(mapResultSetToPatient(rs));
+                    Patient patient = mapResultSetToPatient(rs);
+                    cache.putLoaded(patient, stamp);
+                    return Optional.of(patient);
                 }
             }
         }
@@ -128,28 +166,263 @@ public class PatientDAO {
     }
     
     /**
-     * Update an existing patient
+     * Get patients by id, returned in the order of the given ids
      */
-    public boolean updatePatient(Patient patient) throws SQLException {
-        String sql = """
-            UPDATE patients 
-            SET name = ?, phone = ?, email = ?, address = ?, date_of_birth = ?, medical_notes = ?, updated_at = ?
-            WHERE id = ?
-            """;
+    public List<Patient> getPatientsByIds(List<Integer> ids) throws SQLException {
+        Map<Integer, Patient> byId = new HashMap<>(ids.size() * 2);
+        
+        try (Connection conn = dbManager.getConnection()) {
+            for (int from = 0; from < ids.size(); from += MAX_IN_PARAMETERS) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_PARAMETERS));
+                String sql = "SELECT * FROM patients WHERE id IN (" + "?,".repeat(chunk.size() - 1) + "?)";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Patient patient = mapResultSetToPatient(rs);
+                            byId.put(patient.getId(), patient);
+                        }
+                    }
+                }
+            }
+        }
+        
+        List<Patient> patients = new ArrayList<>(byId.size());
+        for (Integer id : ids) {
+            Patient patient = byId.get(id);
+            if (patient != null) {
+                patients.add(patient);
+            }
+        }
+        return patients;
+    }
+    
+    /**
+     * Get id, name, phone and date of birth of every patient, ordered by name.
+     * Answered from the idx_patients_summary covering index without touching the table.
+     */
+    public List<PatientSummary> getPatientSummaries() throws SQLException {
+        String sql = "SELECT id, name, phone, date_of_birth FROM patients ORDER BY name, id";
+        List<PatientSummary> summaries = new ArrayList<>();
         
         try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
             
-            stmt.setString(1, patient.getName());
-            stmt.setString(2, patient.getPhone());
-            stmt.setString(3, patient.getEmail());
-            stmt.setString(4, patient.getAddress());
-            stmt.setString(5, patient.getDateOfBirth() != null ? patient.getDateOfBirth().toString() : null);
-            stmt.setString(6, patient.getMedicalNotes());
-            stmt.setString(7, LocalDateTime.now().toString());
-            stmt.setInt(8, patient.getId());
+            while (rs.next()) {
+                String dobString = rs.getString("date_of_birth");
+                summaries.add(new PatientSummary(
+                    rs.getInt("id"),
+                    rs.getString("name"),
+                    rs.getString("phone"),
+                    dobString != null && !dobString.isEmpty() ? LocalDate.parse(dobString) : null
+                ));
+            }
+        }
+        
+        return summaries;
+    }
+    
+    /**
+     * Stream the searchable contact fields of every patient
+     */
+    public void loadSearchFields(SearchFieldSink sink) throws SQLException {
+        String sql = "SELECT id, name, phone, email FROM patients";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                sink.accept(rs.getInt("id"), rs.getString("name"), rs.getString("phone"), rs.getString("email"));
+            }
+        }
+    }
+    
+    /**
+     * Receives one patient's searchable fields
+     */
+    public interface SearchFieldSink {
+        void accept(int id, String name, String phone, String email);
+    }
+    
+    /**
+     * Stream every patient's name and stored phonetic key (fuzzy name index)
+     */
+    public void loadPhoneticKeys(PhoneticKeySink sink) throws SQLException {
+        String sql = "SELECT id, name, name_phonetic FROM patients";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                sink.accept(rs.getInt("id"), rs.getString("name"), rs.getString("name_phonetic"));
+            }
+        }
+    }
+    
+    /**
+     * Receives one patient's name and Double Metaphone key (the key may be null)
+     */
+    public interface PhoneticKeySink {
+        void accept(int id, String name, String namePhonetic);
+    }
+    
+    /**
+     * Stream the fields used to find duplicate patients
+     */
+    public void loadDuplicateKeys(DuplicateKeySink sink) throws SQLException {
+        String sql = "SELECT id, name, date_of_birth, phone_normalized, email_normalized, name_phonetic FROM patients";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                String dob = rs.getString("date_of_birth");
+                sink.accept(rs.getInt("id"), rs.getString("name"),
+                            dob != null && !dob.isEmpty() ? LocalDate.parse(dob) : null,
+                            rs.getString("phone_normalized"), rs.getString("email_normalized"),
+                            rs.getString("name_phonetic"));
+            }
+        }
+    }
+    
+    /**
+     * Receives one patient's duplicate-detection fields (all but id and name may be null)
+     */
+    public interface DuplicateKeySink {
+        void accept(int id, String name, LocalDate dateOfBirth, String phone, String email, String namePhonetic);
+    }
+    
+    /**
+     * Get one page of patients using keyset pagination.
+     * Sort keys: name (default), created, id.
+     */
+    public Page<Patient> getPatientPage(PageRequest request) throws SQLException {
+        String[] sortColumns = PAGE_SORT_COLUMNS.getOrDefault(request.getSortKey(), PAGE_SORT_COLUMNS.get("name"));
+        
+        try (Connection conn = dbManager.getConnection()) {
+            return KeysetPager.fetch(conn, "*", "patients", null, List.of(),
+                sortColumns, "id", request, this::mapResultSetToPatient);
+        }
+    }
+    
+    /**
+     * Update an existing patient if it is still at the version it was read at.
+     * Returns false if the patient no longer exists and throws
+     * OptimisticLockException if someone else updated it first.
+     */
+    public boolean updatePatient(Patient patient) throws SQLException {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_PATIENT_SQL)) {
             
-            return stmt.executeUpdate() > 0;
+            bindUpdate(stmt, patient);
+            boolean updated = Versioning.update(stmt, conn, "patients", patient.getId(), patient.getVersion());
+            if (updated) {
+                patient.setVersion(patient.getVersion() + 1);
+                CHANGES.fireUpdated(patient);
+            }
+            return updated;
+        } catch (OptimisticLockException e) {
+            // Another station wrote the row; the cached copy is stale, so the reload must read it
+            cache.remove(patient.getId());
+            throw e;
+        }
+    }
+    
+    private static final String UPDATE_PATIENT_SQL = """
+        UPDATE patients 
+        SET name = ?, phone = ?, email = ?, address = ?, date_of_birth = ?, medical_notes = ?, updated_at = ?,
+            phone_normalized = ?, email_normalized = ?, name_phonetic = ?, version = version + 1
+        WHERE id = ? AND version = ?
+        """;
+    
+    private void bindUpdate(PreparedStatement stmt, Patient patient) throws SQLException {
+        stmt.setString(1, patient.getName());
+        stmt.setString(2, patient.getPhone());
+        stmt.setString(3, patient.getEmail());
+        stmt.setString(4, patient.getAddress());
+        stmt.setString(5, patient.getDateOfBirth() != null ? patient.getDateOfBirth().toString() : null);
+        stmt.setString(6, patient.getMedicalNotes());
+        stmt.setString(7, LocalDateTime.now().toString());
+        stmt.setString(8, ContactNormalizer.normalizePhone(patient.getPhone()));
+        stmt.setString(9, ContactNormalizer.normalizeEmail(patient.getEmail()));
+        stmt.setString(10, DoubleMetaphone.encodeName(patient.getName()));
+        stmt.setInt(11, patient.getId());
+        stmt.setInt(12, patient.getVersion());
+    }
+    
+    /**
+     * Merge duplicate patients into a survivor in one transaction. Appointments,
+     * recurring series, invoices and waitlist entries of the duplicates move to
+     * the survivor (inventory usage and invoice payments follow through their
+     * appointment and invoice ids), the duplicates are deleted and the
+     * survivor is saved with the merged details.
+     */
+    public void mergePatients(Patient survivor, List<Integer> duplicateIds) throws SQLException {
+        String placeholders = "?,".repeat(duplicateIds.size() - 1) + "?";
+        boolean waitlistMoved = false;
+        
+        try (Connection conn = dbManager.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (String table : new String[] {"appointments", "appointment_series", "invoices", "waitlist"}) {
+                    String sql = "UPDATE " + table + " SET patient_id = ? WHERE patient_id IN (" + placeholders + ")";
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        stmt.setInt(1, survivor.getId());
+                        for (int i = 0; i < duplicateIds.size(); i++) {
+                            stmt.setInt(i + 2, duplicateIds.get(i));
+                        }
+                        int moved = stmt.executeUpdate();
+                        if (table.equals("waitlist")) {
+                            waitlistMoved = moved > 0;
+                        }
+                    }
+                }
+                
+                // Delete before saving the survivor: it may take over a duplicate's unique phone or email
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM patients WHERE id IN (" + placeholders + ")")) {
+                    for (int i = 0; i < duplicateIds.size(); i++) {
+                        stmt.setInt(i + 1, duplicateIds.get(i));
+                    }
+                    if (stmt.executeUpdate() != duplicateIds.size()) {
+                        throw new SQLException("Some of the duplicate patients no longer exist.");
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(UPDATE_PATIENT_SQL)) {
+                    bindUpdate(stmt, survivor);
+                    if (!Versioning.update(stmt, conn, "patients", survivor.getId(), survivor.getVersion())) {
+                        throw new SQLException("Surviving patient not found.");
+                    }
+                }
+                
+                conn.commit();
+                survivor.setVersion(survivor.getVersion() + 1);
+            } catch (SQLException e) {
+                conn.rollback();
+                if (e instanceof OptimisticLockException) {
+                    cache.remove(survivor.getId());
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        
+        for (Integer id : duplicateIds) {
+            CHANGES.fireDeleted(id);
+        }
+        CHANGES.fireUpdated(survivor);
+        if (waitlistMoved) {
+            // Indexed waitlist entries still carry the duplicate's id; reload them
+            WaitlistDAO.changes().fireInvalidated();
         }
     }
     
@@ -168,7 +441,11 @@ public class PatientDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, patientId);
-            return stmt.executeUpdate() > 0;
+            boolean deleted = stmt.executeUpdate() > 0;
+            if (deleted) {
+                CHANGES.fireDeleted(patientId);
+            }
+            return deleted;
         }
     }
     
@@ -219,52 +496,76 @@ public class PatientDAO {
     }
     
     /**
-     * Check if patient exists by phone or email
+     * Check if patient exists by phone or email (compared in normalised form)
      */
     public boolean patientExists(String phone, String email, Integer excludeId) throws SQLException {
-        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM patients WHERE ");
+        String normalizedPhone = ContactNormalizer.normalizePhone(phone);
+        String normalizedEmail = ContactNormalizer.normalizeEmail(email);
+        
+        StringBuilder sql = new StringBuilder("SELECT 1 FROM patients WHERE ");
         List<String> conditions = new ArrayList<>();
         
-        if (phone != null && !phone.trim().isEmpty()) {
-            conditions.add("phone = ?");
+        if (normalizedPhone != null) {
+            conditions.add("phone_normalized = ?");
         }
-        if (email != null && !email.trim().isEmpty()) {
-            conditions.add("email = ?");
+        if (normalizedEmail != null) {
+            conditions.add("email_normalized = ?");
         }
         
         if (conditions.isEmpty()) {
             return false;
         }
         
-        sql.append(String.join(" OR ", conditions));
+        // Parenthesised so the exclusion applies to both contact conditions
+        sql.append("(").append(String.join(" OR ", conditions)).append(")");
         
         if (excludeId != null) {
             sql.append(" AND id != ?");
         }
+        sql.append(" LIMIT 1");
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
             
             int paramIndex = 1;
             
-            if (phone != null && !phone.trim().isEmpty()) {
-                stmt.setString(paramIndex++, phone.trim());
+            if (normalizedPhone != null) {
+                stmt.setString(paramIndex++, normalizedPhone);
             }
-            if (email != null && !email.trim().isEmpty()) {
-                stmt.setString(paramIndex++, email.trim());
+            if (normalizedEmail != null) {
+                stmt.setString(paramIndex++, normalizedEmail);
             }
             if (excludeId != null) {
                 stmt.setInt(paramIndex, excludeId);
             }
             
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
-                }
+                return rs.next();
             }
         }
+    }
+    
+    /**
+     * Stream the normalised contact keys of every patient
+     */
+    public void loadContactKeys(ContactKeySink sink) throws SQLException {
+        String sql = "SELECT id, phone_normalized, email_normalized FROM patients";
         
-        return false;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                sink.accept(rs.getInt("id"), rs.getString("phone_normalized"), rs.getString("email_normalized"));
+            }
+        }
+    }
+    
+    /**
+     * Receives one patient's normalised phone and email (either may be null)
+     */
+    public interface ContactKeySink {
+        void accept(int id, String phone, String email);
     }
     
     /**
@@ -291,7 +592,7 @@ public class PatientDAO {
     /**
      * Map ResultSet to Patient object
      */
-    private Patient mapResultSetToPatient(ResultSet rs) throws SQLException {
+    Patient mapResultSetToPatient(ResultSet rs) throws SQLException {
         Patient patient = new Patient();
         
         patient.setId(rs.getInt("id"));
@@ -306,6 +607,7 @@ public class PatientDAO {
         }
         
         patient.setMedicalNotes(rs.getString("medical_notes"));
+        patient.setVersion(rs.getInt("version"));
         
         String createdAtString = rs.getString("created_at");
         if (createdAtString != null) {
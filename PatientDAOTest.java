@@ -0,0 +1,94 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * PatientDAOTest - Merging duplicates against a scratch database: either
+ * everything moves to the survivor or nothing does.
+ */
+class PatientDAOTest {
+    
+    private Path database;
+    private PatientDAO patientDAO;
+    
+    @BeforeEach
+    void openScratchDatabase() throws Exception {
+        database = Files.createTempFile("rebelle-test", ".db");
+        DatabaseManager.getInstance().useDatabase("jdbc:sqlite:" + database);
+        PatientCache.getInstance().clear();
+        patientDAO = new PatientDAO();
+        
+        execute("INSERT INTO patients (id, name, phone, created_at, updated_at) VALUES "
+            + "(1, 'Jane Doe', NULL, '2024-01-01T09:00', '2024-01-01T09:00'), "
+            + "(2, 'Jane Doe', '555-0101', '2024-02-01T09:00', '2024-02-01T09:00'), "
+            + "(3, 'J. Doe', NULL, '2024-03-01T09:00', '2024-03-01T09:00')");
+        execute("INSERT INTO appointments (id, patient_id, appointment_date, start_time, status) VALUES "
+            + "(10, 2, '2024-05-01', '09:00', 'SCHEDULED'), (11, 3, '2024-05-02', '10:00', 'SCHEDULED')");
+        execute("INSERT INTO invoices (id, invoice_number, patient_id, amount, total_amount, invoice_date) "
+            + "VALUES (20, 'INV-20', 3, 50, 50, '2024-05-02')");
+        execute("INSERT INTO waitlist (id, patient_id, duration_minutes, earliest_date, latest_date) "
+            + "VALUES (30, 2, 30, '2024-06-01', '2024-06-30')");
+    }
+    
+    @AfterEach
+    void dropScratchDatabase() throws Exception {
+        DatabaseManager.getInstance().closeConnection();
+        Files.deleteIfExists(database);
+    }
+    
+    @Test
+    void mergeMovesEverythingToTheSurvivor() throws Exception {
+        Patient survivor = patientDAO.getPatientById(1).orElseThrow();
+        survivor.setPhone("555-0101");
+        
+        patientDAO.mergePatients(survivor, List.of(2, 3));
+        
+        assertEquals(1, count("SELECT COUNT(*) FROM patients"));
+        assertEquals(2, count("SELECT COUNT(*) FROM appointments WHERE patient_id = 1"));
+        assertEquals(1, count("SELECT COUNT(*) FROM invoices WHERE patient_id = 1"));
+        assertEquals(1, count("SELECT COUNT(*) FROM waitlist WHERE patient_id = 1"));
+        assertEquals(1, survivor.getVersion());
+        assertEquals("555-0101", patientDAO.getPatientById(1).orElseThrow().getPhone());
+    }
+    
+    @Test
+    void failedMergeLeavesEveryRowWhereItWas() throws Exception {
+        Patient survivor = patientDAO.getPatientById(1).orElseThrow();
+        
+        // Patient 99 does not exist, so the delete step fails after the rows were re-pointed
+        assertThrows(SQLException.class, () -> patientDAO.mergePatients(survivor, List.of(2, 99)));
+        
+        assertEquals(3, count("SELECT COUNT(*) FROM patients"));
+        assertEquals(1, count("SELECT COUNT(*) FROM appointments WHERE patient_id = 2"));
+        assertEquals(1, count("SELECT COUNT(*) FROM waitlist WHERE patient_id = 2"));
+        assertEquals(0, count("SELECT version FROM patients WHERE id = 1"));
+    }
+    
+    private static void execute(String sql) throws SQLException {
+        try (Statement stmt = DatabaseManager.getInstance().getConnection().createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+    
+    private static long count(String sql) throws SQLException {
+        Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.AppointmentDAO;
+import com.rebelle.dao.OptimisticLockException;
+import com.rebelle.dao.PatientDAO;
+import com.rebelle.dao.PaymentDAO;
+import com.rebelle.models.Patient;
+import com.rebelle.utils.DoubleMetaphone;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * PatientDeduplicationService - Finds likely duplicate patients and merges them.
+ *
+ * Comparing every patient with every other one does not scale, so patients are
+ * first grouped by blocking keys - surname sound plus first initial, date of
+ * birth and the last seven phone digits - and only pairs sharing a block are
+ * scored. Scoring runs in parallel on a small fork-join pool, and pairs above
+ * the review threshold come back as a queue, best match first, for a person
+ * to confirm before merging.
+ */
+public class PatientDeduplicationService {
+    
+    /** Pairs scoring at least this are offered for review */
+    public static final double REVIEW_THRESHOLD = 0.6;
+    
+    /** Blocks larger than this (a common surname, a shared clinic phone) say too little to be worth pairing */
+    private static final int MAX_BLOCK_SIZE = 1000;
+    
+    /** Pairs scored per fork-join leaf */
+    private static final int SCORE_BATCH = 2048;
+    
+    private static final ForkJoinPool SCORING_POOL = new ForkJoinPool(
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    
+    private final PatientDAO patientDAO;
+    private final PaymentDAO paymentDAO;
+    
+    public PatientDeduplicationService() {
+        this.patientDAO = new PatientDAO();
+        this.paymentDAO = new PaymentDAO();
+    }
+    
+    /**
+     * Find likely duplicate pairs, highest score first
+     */
+    public ServiceResult<List<DuplicateCandidate>> findDuplicates() {
+        try {
+            List<PatientKeys> records = new ArrayList<>();
+            patientDAO.loadDuplicateKeys((id, name, dateOfBirth, phone, email, namePhonetic) ->
+                records.add(new PatientKeys(id, name, dateOfBirth, phone, email, namePhonetic)));
+            
+            long[] pairs = candidatePairs(records);
+            List<DuplicateCandidate> candidates = SCORING_POOL.invoke(new ScoreTask(records, pairs, 0, pairs.length));
+            candidates.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+            
+            return ServiceResult.success(candidates, candidates.size() + " possible duplicates found");
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Run findDuplicates on the service executor
+     */
+    public CompletableFuture<ServiceResult<List<DuplicateCandidate>>> findDuplicatesAsync() {
+        return ServiceExecutor.getInstance().submit(this::findDuplicates,
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+    }
+    
+    /**
+     * Merge duplicate patients into the survivor. Missing contact details and
+     * date of birth are taken from the duplicates, notes are combined, and all
+     * appointments, invoices and payments move to the survivor.
+     */
+    public ServiceResult<Patient> mergePatients(int survivorId, List<Integer> duplicateIds) {
+        Set<Integer> duplicates = new LinkedHashSet<>(duplicateIds);
+        duplicates.remove(survivorId);
+        if (duplicates.isEmpty()) {
+            return ServiceResult.error("Select at least one other patient to merge.");
+        }
+        
+        try {
+            Patient survivor = patientDAO.getPatientById(survivorId).orElse(null);
+            if (survivor == null) {
+                return ServiceResult.error("Patient not found.");
+            }
+            List<Integer> ids = new ArrayList<>(duplicates);
+            List<Patient> others = patientDAO.getPatientsByIds(ids);
+            if (others.size() != ids.size()) {
+                return ServiceResult.error("Some of the selected patients no longer exist.");
+            }
+            
+            Patient merged = mergeFields(survivor, others);
+            patientDAO.mergePatients(merged, ids);
+            AppointmentDAO.changes().fireInvalidated();
+            
+            // Payments are kept in a separate store and cannot join the patient transaction;
+            // they only move once the merge has committed, so a failed merge leaves them alone
+            try {
+                paymentDAO.reassignPatients(ids, survivorId);
+            } catch (SQLException e) {
+                return ServiceResult.error("Patients merged, but their payments could not be moved to patient "
+                    + survivorId + ": " + e.getMessage());
+            }
+            
+            return ServiceResult.success(merged, (ids.size() + 1) + " patient records merged");
+        } catch (OptimisticLockException e) {
+            return ServiceResult.error("The surviving patient was changed by someone else. Reload and try again.");
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    private Patient mergeFields(Patient survivor, List<Patient> others) {
+        Patient merged = new Patient(survivor.getId(), survivor.getName(), survivor.getPhone(), survivor.getEmail(),
+                                     survivor.getAddress(), survivor.getDateOfBirth(), survivor.getMedicalNotes(),
+                                     survivor.getCreatedAt(), survivor.getUpdatedAt());
+        merged.setVersion(survivor.getVersion());
+        Set<String> notes = new LinkedHashSet<>();
+        addNote(notes, survivor.getMedicalNotes());
+        
+        for (Patient other : others) {
+            if (isBlank(merged.getPhone())) merged.setPhone(other.getPhone());
+            if (isBlank(merged.getEmail())) merged.setEmail(other.getEmail());
+            if (isBlank(merged.getAddress())) merged.setAddress(other.getAddress());
+            if (merged.getDateOfBirth() == null) merged.setDateOfBirth(other.getDateOfBirth());
+            addNote(notes, other.getMedicalNotes());
+        }
+        merged.setMedicalNotes(notes.isEmpty() ? null : String.join("\n\n", notes));
+        return merged;
+    }
+    
+    private static void addNote(Set<String> notes, String note) {
+        if (!isBlank(note)) {
+            notes.add(note.trim());
+        }
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+    
+    /**
+     * Distinct pairs of record positions sharing at least one block, each
+     * packed into a long (lower position in the high half)
+     */
+    private static long[] candidatePairs(List<PatientKeys> records) {
+        Map<String, List<Integer>> blocks = new HashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            for (String key : records.get(i).blockingKeys()) {
+                blocks.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+        }
+        
+        long[] pairs = new long[16];
+        int count = 0;
+        for (List<Integer> block : blocks.values()) {
+            if (block.size() < 2 || block.size() > MAX_BLOCK_SIZE) {
+                continue;
+            }
+            for (int a = 0; a < block.size(); a++) {
+                for (int b = a + 1; b < block.size(); b++) {
+                    if (count == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, count * 2);
+                    }
+                    pairs[count++] = ((long) block.get(a) << 32) | block.get(b);
+                }
+            }
+        }
+        
+        // Pairs sharing several blocks appear once per block
+        Arrays.sort(pairs, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || pairs[i] != pairs[distinct - 1]) {
+                pairs[distinct++] = pairs[i];
+            }
+        }
+        return Arrays.copyOf(pairs, distinct);
+    }
+    
+    /**
+     * Scores a range of candidate pairs, splitting until the range is small
+     */
+    private static class ScoreTask extends RecursiveTask<List<DuplicateCandidate>> {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<PatientKeys> records;
+        private final long[] pairs;
+        private final int from;
+        private final int to;
+        
+        ScoreTask(List<PatientKeys> records, long[] pairs, int from, int to) {
+            this.records = records;
+            this.pairs = pairs;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected List<DuplicateCandidate> compute() {
+            if (to - from > SCORE_BATCH) {
+                int middle = (from + to) >>> 1;
+                ScoreTask left = new ScoreTask(records, pairs, from, middle);
+                left.fork();
+                List<DuplicateCandidate> right = new ScoreTask(records, pairs, middle, to).compute();
+                List<DuplicateCandidate> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+            
+            List<DuplicateCandidate> result = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                PatientKeys a = records.get((int) (pairs[i] >>> 32));
+                PatientKeys b = records.get((int) pairs[i]);
+                DuplicateCandidate candidate = score(a, b);
+                if (candidate != null) {
+                    result.add(candidate);
+                }
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Score one pair, or null when it is below the review threshold
+     */
+    private static DuplicateCandidate score(PatientKeys a, PatientKeys b) {
+        List<String> reasons = new ArrayList<>();
+        double nameSimilarity = jaroWinkler(a.normalizedName, b.normalizedName);
+        double score = 0.45 * nameSimilarity;
+        if (nameSimilarity >= 0.9) {
+            reasons.add("similar name");
+        }
+        
+        if (a.dateOfBirth != null && b.dateOfBirth != null) {
+            if (a.dateOfBirth.equals(b.dateOfBirth)) {
+                score += 0.25;
+                reasons.add("same date of birth");
+            } else {
+                score -= 0.3;
+            }
+        }
+        if (a.phone != null && b.phone != null) {
+            if (a.phone.equals(b.phone)) {
+                score += 0.2;
+                reasons.add("same phone");
+            } else if (a.phoneSuffix != null && a.phoneSuffix.equals(b.phoneSuffix)) {
+                score += 0.1;
+                reasons.add("same phone number without prefix");
+            }
+        }
+        if (a.email != null && a.email.equals(b.email)) {
+            score += 0.2;
+            reasons.add("same email");
+        }
+        if (a.namePhonetic != null && a.namePhonetic.equals(b.namePhonetic)) {
+            score += 0.1;
+            reasons.add("name sounds the same");
+        }
+        
+        score = Math.max(0, Math.min(1, score));
+        return score >= REVIEW_THRESHOLD
+            ? new DuplicateCandidate(a.id, a.name, b.id, b.name, score, reasons)
+            : null;
+    }
+    
+    /**
+     * Jaro-Winkler similarity, 1.0 for identical strings
+     */
+    private static double jaroWinkler(String s, String t) {
+        if (s.equals(t)) {
+            return 1.0;
+        }
+        if (s.isEmpty() || t.isEmpty()) {
+            return 0.0;
+        }
+        
+        int window = Math.max(0, Math.max(s.length(), t.length()) / 2 - 1);
+        boolean[] sMatched = new boolean[s.length()];
+        boolean[] tMatched = new boolean[t.length()];
+        int matches = 0;
+        for (int i = 0; i < s.length(); i++) {
+            int start = Math.max(0, i - window);
+            int end = Math.min(t.length(), i + window + 1);
+            for (int j = start; j < end; j++) {
+                if (!tMatched[j] && s.charAt(i) == t.charAt(j)) {
+                    sMatched[i] = true;
+                    tMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0.0;
+        }
+        
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < s.length(); i++) {
+            if (sMatched[i]) {
+                while (!tMatched[j]) {
+                    j++;
+                }
+                if (s.charAt(i) != t.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+        
+        double m = matches;
+        double jaro = (m / s.length() + m / t.length() + (m - transpositions / 2.0) / m) / 3.0;
+        
+        int prefix = 0;
+        while (prefix < 4 && prefix < s.length() && prefix < t.length() && s.charAt(prefix) == t.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+    
+    /**
+     * Fields of one patient used for blocking and scoring
+     */
+    private static class PatientKeys {
+        final int id;
+        final String name;
+        final String normalizedName;
+        final LocalDate dateOfBirth;
+        final String phone;
+        final String phoneSuffix;
+        final String email;
+        final String namePhonetic;
+        
+        PatientKeys(int id, String name, LocalDate dateOfBirth, String phone, String email, String namePhonetic) {
+            this.id = id;
+            this.name = name;
+            this.normalizedName = name == null ? "" : name.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+            this.dateOfBirth = dateOfBirth;
+            this.phone = phone;
+            this.phoneSuffix = phone != null && phone.length() >= 7 ? phone.substring(phone.length() - 7) : null;
+            this.email = email;
+            this.namePhonetic = namePhonetic != null && !namePhonetic.isEmpty()
+                ? namePhonetic : DoubleMetaphone.encodeName(name);
+        }
+        
+        List<String> blockingKeys() {
+            List<String> keys = new ArrayList<>(4);
+            if (namePhonetic != null && !namePhonetic.isEmpty() && !normalizedName.isEmpty()) {
+                String[] words = namePhonetic.split(" ");
+                char initial = normalizedName.charAt(0);
+                for (String code : DoubleMetaphone.codesOf(words[words.length - 1])) {
+                    keys.add("N:" + code + "|" + initial);
+                }
+            }
+            if (dateOfBirth != null) {
+                keys.add("D:" + dateOfBirth);
+            }
+            if (phoneSuffix != null) {
+                keys.add("P:" + phoneSuffix);
+            }
+            return keys;
+        }
+    }
+    
+    /**
+     * Two patients that may be the same person
+     */
+    public static class DuplicateCandidate {
+        private final int firstId;
+        private final String firstName;
+        private final int secondId;
+        private final String secondName;
+        private final double score;
+        private final List<String> reasons;
+        
+        public DuplicateCandidate(int firstId, String firstName, int secondId, String secondName,
+                                  double score, List<String> reasons) {
+            this.firstId = firstId;
+            this.firstName = firstName;
+            this.secondId = secondId;
+            this.secondName = secondName;
+            this.score = score;
+            this.reasons = List.copyOf(reasons);
+        }
+        
+        public int getFirstId() { return firstId; }
+        public String getFirstName() { return firstName; }
+        public int getSecondId() { return secondId; }
+        public String getSecondName() { return secondName; }
+        
+        /** Match confidence between 0 and 1 */
+        public double getScore() { return score; }
+        
+        /** What the two records have in common, for the reviewer */
+        public List<String> getReasons() { return reasons; }
+    }
+    
+    /**
+     * Service result wrapper class
+     */
+    public static class ServiceResult<T> {
+        private final boolean success;
+        private final T data;
+        private final String message;
+        
+        private ServiceResult(boolean success, T data, String message) {
+            this.success = success;
+            this.data = data;
+            this.message = message;
+        }
+        
+        public static <T> ServiceResult<T> success(T data) {
+            return new ServiceResult<>(true, data, null);
+        }
+        
+        public static <T> ServiceResult<T> success(T data, String message) {
+            return new ServiceResult<>(true, data, message);
+        }
+        
+        public static <T> ServiceResult<T> error(String message) {
+            return new ServiceResult<>(false, null, message);
+        }
+        
+        public boolean isSuccess() { return success; }
+        public T getData() { return data; }
+        public String getMessage() { return message; }
+    }
+}
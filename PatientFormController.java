@@ -7,9 +7,11 @@ import javafx.scene.control.*;
 import javafx.stage.Stage;
 import com.rebelle.models.Patient;
 import com.rebelle.services.PatientService;
+import com.rebelle.utils.ThreeWayMerge;
 
 import java.net.URL;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.ResourceBundle;
 
 /**
@@ -17,6 +19,15 @@ import java.util.ResourceBundle;
  */
 public class PatientFormController implements Initializable {
     
+    /** Fields merged when the patient was changed elsewhere during the edit */
+    private static final ThreeWayMerge<Patient> MERGE = new ThreeWayMerge<Patient>()
+        .field("Name", Patient::getName, Patient::setName)
+        .field("Phone", Patient::getPhone, Patient::setPhone)
+        .field("Email", Patient::getEmail, Patient::setEmail)
+        .field("Address", Patient::getAddress, Patient::setAddress)
+        .field("Date of birth", Patient::getDateOfBirth, Patient::setDateOfBirth)
+        .field("Medical notes", Patient::getMedicalNotes, Patient::setMedicalNotes);
+    
     // FXML Controls
     @FXML private Label formTitleLabel;
     @FXML private TextField nameField;
@@ -34,6 +45,7 @@ public class PatientFormController implements Initializable {
     private PatientController parentController;
     private Patient editingPatient;
     private boolean isEditMode = false;
+    private boolean retriedAfterConflict;
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -140,6 +152,15 @@ public class PatientFormController implements Initializable {
             errors.append("Invalid email format. ");
         }
         
+        // Duplicate contact check (in-memory, normalised phone/email)
+        if (!phone.isEmpty() || !email.isEmpty()) {
+            Integer excludeId = isEditMode && editingPatient != null ? editingPatient.getId() : null;
+            PatientService.ServiceResult<String> duplicate = patientService.checkDuplicateContact(phone, email, excludeId);
+            if (duplicate.isSuccess() && duplicate.getData() != null) {
+                errors.append(duplicate.getData()).append(" ");
+            }
+        }
+        
         // Date of birth validation
         if (dob != null) {
             if (dob.isAfter(LocalDate.now())) {
@@ -165,6 +186,11 @@ public class PatientFormController implements Initializable {
      */
     @FXML
     private void handleSave() {
+        retriedAfterConflict = false;
+        save();
+    }
+    
+    private void save() {
         if (!validateFormForSave()) {
             return;
         }
@@ -183,11 +209,13 @@ public class PatientFormController implements Initializable {
         Task<PatientService.ServiceResult<?>> task;
         
         if (isEditMode && editingPatient != null) {
-            // Update existing patient
+            // Update existing patient, only if nobody has changed it since it was loaded
+            int patientId = editingPatient.getId();
+            int version = editingPatient.getVersion();
             task = new Task<>() {
                 @Override
                 protected PatientService.ServiceResult<?> call() {
-                    return patientService.updatePatient(editingPatient.getId(), name, phone, email, address, dob, medicalNotes);
+                    return patientService.updatePatient(patientId, name, phone, email, address, dob, medicalNotes, version);
                 }
             };
         } else {
@@ -202,7 +230,9 @@ public class PatientFormController implements Initializable {
         
         task.setOnSucceeded(e -> {
             PatientService.ServiceResult<?> result = task.getValue();
-            if (result.isSuccess()) {
+            if (result.isConflict()) {
+                resolveConflict((Patient) result.getData());
+            } else if (result.isSuccess()) {
                 // Notify parent controller
                 if (parentController != null) {
                     parentController.onPatientSaved();
@@ -229,6 +259,50 @@ public class PatientFormController implements Initializable {
         new Thread(task).start();
     }
     
+    /**
+     * The patient was saved by someone else while this form was open. Merge
+     * their changes with the form's; save straight away when no field was
+     * changed by both, otherwise ask whose values win.
+     */
+    private void resolveConflict(Patient current) {
+        Patient mine = new Patient(nameField.getText().trim(), phoneField.getText().trim(),
+                                   emailField.getText().trim(), addressField.getText().trim(), dobField.getValue());
+        mine.setMedicalNotes(medicalNotesField.getText().trim());
+        
+        ThreeWayMerge.Result<Patient> merge = MERGE.merge(editingPatient, mine, current);
+        boolean keepMine = !merge.hasConflicts() || confirmKeepMine(merge.getConflicts());
+        if (!keepMine) {
+            merge.keepTheirs();
+        }
+        
+        // The saved patient is the new starting point of this edit
+        editingPatient = current;
+        populateForm(merge.getMerged());
+        if (keepMine && !retriedAfterConflict) {
+            // Retry once by itself; if it is changed again meanwhile, the user takes over
+            retriedAfterConflict = true;
+            save();
+        } else {
+            if (keepMine) {
+                showInfo("Edit Conflict", "This patient was changed again while saving. Check the merged values and save again.");
+            }
+            resetSaveButton();
+        }
+    }
+    
+    /**
+     * Ask whether the form's values replace the saved ones for fields both changed
+     */
+    private boolean confirmKeepMine(List<String> fields) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Edit Conflict");
+        alert.setHeaderText("This patient was changed by someone else");
+        alert.setContentText("Both of you changed: " + String.join(", ", fields) + ".\n\n"
+            + "OK saves your values. Cancel loads the saved values into the form for review; "
+            + "your other changes are kept.");
+        return alert.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK;
+    }
+    
     /**
      * Handle cancel button click
      */
@@ -0,0 +1,452 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.dao.PatientDAO;
+import com.rebelle.models.Patient;
+import com.rebelle.utils.DoubleMetaphone;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * PatientFuzzyIndex - Typo-tolerant and sound-alike patient name matching
+ * ("Jon Smyth" finds "John Smith").
+ *
+ * Name words are indexed two ways: by Double Metaphone key (the same keys as
+ * the indexed patients.name_phonetic column) and in a BK-tree of distinct
+ * words, which finds every word within edit distance 2 of a query word while
+ * comparing against only a small part of the vocabulary. Every query word must
+ * match some word of the patient's name; patients are ranked by how closely.
+ *
+ * Built on first use (or by warmUp at startup) and kept current from
+ * PatientDAO change events, like PatientSearchIndex.
+ */
+public class PatientFuzzyIndex {
+    
+    private static PatientFuzzyIndex instance;
+    
+    /** Shorter query words are left to exact matching */
+    private static final int MIN_WORD_LENGTH = 3;
+    /** Words up to this length allow one edit, longer words two */
+    private static final int SHORT_WORD_LENGTH = 4;
+    private static final int MAX_RESULTS = 50;
+    
+    private static final int SCORE_EXACT = 100;
+    private static final int SCORE_ONE_EDIT = 70;
+    private static final int SCORE_TWO_EDITS = 40;
+    private static final int SCORE_PHONETIC = 60;
+    private static final int SCORE_BOTH_BONUS = 15;
+    private static final int UNBOUNDED = Integer.MAX_VALUE - 1;
+    
+    private final PatientDAO patientDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Integer>> byWord = new HashMap<>();
+    private final Map<String, Set<Integer>> byCode = new HashMap<>();
+    private BkTree words = new BkTree();
+    private boolean built;
+    
+    private PatientFuzzyIndex() {
+        this.patientDAO = new PatientDAO();
+        registerListener();
+    }
+    
+    public static synchronized PatientFuzzyIndex getInstance() {
+        if (instance == null) {
+            instance = new PatientFuzzyIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Build the index ahead of the first search
+     */
+    public void warmUp() throws SQLException {
+        ensureBuilt();
+    }
+    
+    /**
+     * Ids of patients whose name sounds like or is a near-miss spelling of the
+     * query, best match first (at most 50)
+     */
+    public List<Integer> search(String query) throws SQLException {
+        List<String> queryWords = new ArrayList<>();
+        for (String word : splitWords(PatientSearchIndex.normalizeText(query))) {
+            if (word.length() >= MIN_WORD_LENGTH && isAlphabetic(word)) {
+                queryWords.add(word);
+            }
+        }
+        if (queryWords.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        ensureBuilt();
+        
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> scores = null;
+            for (String word : queryWords) {
+                Map<Integer, Integer> wordScores = scoreWord(word);
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    // Every query word has to match: keep the patients both maps have
+                    Map<Integer, Integer> combined = new HashMap<>();
+                    for (Map.Entry<Integer, Integer> score : scores.entrySet()) {
+                        Integer other = wordScores.get(score.getKey());
+                        if (other != null) {
+                            combined.put(score.getKey(), score.getValue() + other);
+                        }
+                    }
+                    scores = combined;
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            
+            Map<Integer, Integer> ranked = scores;
+            List<Integer> ids = new ArrayList<>(ranked.keySet());
+            ids.sort(Comparator.comparingInt((Integer id) -> -ranked.get(id))
+                .thenComparing(id -> entries.get(id).name)
+                .thenComparingInt(id -> id));
+            return ids.size() > MAX_RESULTS ? new ArrayList<>(ids.subList(0, MAX_RESULTS)) : ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Drop the index; it is rebuilt on the next search
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            built = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Best score per patient for one query word: near-miss spelling of any
+     * name word, a shared phonetic key, or both
+     */
+    private Map<Integer, Integer> scoreWord(String word) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        int maxDistance = word.length() <= SHORT_WORD_LENGTH ? 1 : 2;
+        words.find(word, maxDistance, (match, distance) -> {
+            Set<Integer> ids = byWord.get(match);
+            if (ids == null) {
+                return; // Word no longer used by any patient
+            }
+            int score = distance == 0 ? SCORE_EXACT : distance == 1 ? SCORE_ONE_EDIT : SCORE_TWO_EDITS;
+            for (Integer id : ids) {
+                scores.merge(id, score, Math::max);
+            }
+        });
+        
+        String[] codes = DoubleMetaphone.encode(word);
+        if (codes != null) {
+            Set<Integer> phonetic = new HashSet<>();
+            addAll(phonetic, byCode.get(codes[0]));
+            addAll(phonetic, byCode.get(codes[1]));
+            for (Integer id : phonetic) {
+                Integer spelling = scores.get(id);
+                scores.put(id, spelling == null ? SCORE_PHONETIC : spelling + SCORE_BOTH_BONUS);
+            }
+        }
+        return scores;
+    }
+    
+    private void ensureBuilt() throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            clear();
+            patientDAO.loadPhoneticKeys(this::put);
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void registerListener() {
+        PatientDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Patient patient) {
+                onUpdated(patient);
+            }
+            
+            @Override
+            public void onUpdated(Patient patient) {
+                applyChange(() -> put(patient.getId(), patient.getName(), DoubleMetaphone.encodeName(patient.getName())));
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                applyChange(() -> remove(id));
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    /**
+     * Changes that arrive before the first build are covered by the build itself
+     */
+    private void applyChange(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void put(int id, String name, String namePhonetic) {
+        remove(id);
+        String normalized = PatientSearchIndex.normalizeText(name);
+        Set<String> nameWords = new HashSet<>(splitWords(normalized));
+        nameWords.remove("");
+        Set<String> codes = namePhonetic != null
+            ? DoubleMetaphone.codesOf(namePhonetic)
+            : DoubleMetaphone.codesOf(DoubleMetaphone.encodeName(name));
+        
+        Entry entry = new Entry(normalized, nameWords, codes);
+        entries.put(id, entry);
+        for (String word : nameWords) {
+            Set<Integer> ids = byWord.get(word);
+            if (ids == null) {
+                ids = new HashSet<>(2);
+                byWord.put(word, ids);
+                words.add(word);
+            }
+            ids.add(id);
+        }
+        for (String code : codes) {
+            byCode.computeIfAbsent(code, k -> new HashSet<>(2)).add(id);
+        }
+    }
+    
+    private void remove(int id) {
+        Entry old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        // Unused words stay in the BK-tree (it cannot delete); lookups skip them
+        for (String word : old.words) {
+            removeId(byWord, word, id);
+        }
+        for (String code : old.codes) {
+            removeId(byCode, code, id);
+        }
+    }
+    
+    private void clear() {
+        entries.clear();
+        byWord.clear();
+        byCode.clear();
+        words = new BkTree();
+    }
+    
+    private static void removeId(Map<String, Set<Integer>> index, String key, int id) {
+        Set<Integer> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+    
+    private static void addAll(Set<Integer> target, Set<Integer> ids) {
+        if (ids != null) {
+            target.addAll(ids);
+        }
+    }
+    
+    private static List<String> splitWords(String normalized) {
+        List<String> result = new ArrayList<>();
+        for (String word : normalized.split("[\\s-]+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+    
+    private static boolean isAlphabetic(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isDigit(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Levenshtein distance, giving up (returning max + 1) once it must exceed max
+     */
+    static int distance(String a, String b, int max) {
+        return distance(a, b, max, new int[b.length() + 1], new int[b.length() + 1]);
+    }
+    
+    /**
+     * As above, with caller-supplied rows of length b.length() + 1
+     */
+    private static int distance(String a, String b, int max, int[] previous, int[] current) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+    
+    /**
+     * Indexed fields of one patient
+     */
+    private static final class Entry {
+        final String name;
+        final Set<String> words;
+        final Set<String> codes;
+        
+        Entry(String name, Set<String> words, Set<String> codes) {
+            this.name = name;
+            this.words = words;
+            this.codes = codes;
+        }
+    }
+    
+    /**
+     * Burkhard-Keller tree over distinct name words. Children are keyed by
+     * their distance to the parent, so by the triangle inequality a search
+     * within radius r of distance d only descends into children d-r..d+r.
+     */
+    private static final class BkTree {
+        private Node root;
+        
+        void add(String word) {
+            if (root == null) {
+                root = new Node(word);
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int d = distance(node.word, word, UNBOUNDED);
+                if (d == 0) {
+                    return;
+                }
+                Node child = node.child(d);
+                if (child == null) {
+                    node.addChild(d, new Node(word));
+                    return;
+                }
+                node = child;
+            }
+        }
+        
+        void find(String query, int maxDistance, MatchSink sink) {
+            if (root == null) {
+                return;
+            }
+            int[] previous = new int[query.length() + 1];
+            int[] current = new int[query.length() + 1];
+            List<Node> pending = new ArrayList<>();
+            pending.add(root);
+            while (!pending.isEmpty()) {
+                Node node = pending.remove(pending.size() - 1);
+                // The distance only matters up to the point where no child can qualify
+                int bound = node.maxChildDistance + maxDistance;
+                int d = distance(node.word, query, bound, previous, current);
+                if (d <= maxDistance) {
+                    sink.accept(node.word, d);
+                }
+                for (int i = 0; i < node.childCount; i++) {
+                    if (Math.abs(node.childDistances[i] - d) <= maxDistance) {
+                        pending.add(node.children[i]);
+                    }
+                }
+            }
+        }
+    }
+    
+    private static final class Node {
+        final String word;
+        int[] childDistances = new int[0];
+        Node[] children = new Node[0];
+        int childCount;
+        int maxChildDistance;
+        
+        Node(String word) {
+            this.word = word;
+        }
+        
+        Node child(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (childDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+        
+        void addChild(int distance, Node child) {
+            if (childCount == children.length) {
+                int size = Math.max(2, childCount * 2);
+                childDistances = Arrays.copyOf(childDistances, size);
+                children = Arrays.copyOf(children, size);
+            }
+            childDistances[childCount] = distance;
+            children[childCount++] = child;
+            maxChildDistance = Math.max(maxChildDistance, distance);
+        }
+    }
+    
+    private interface MatchSink {
+        void accept(String word, int distance);
+    }
+}
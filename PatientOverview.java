@@ -0,0 +1,118 @@
+package com.rebelle.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * PatientOverview - Everything the patient overview screen shows, read at one
+ * point in time: profile, upcoming and past appointments, payments with
+ * totals, invoice balance and supplies used. The lists cannot be modified.
+ */
+public final class PatientOverview {
+    
+    private final Patient patient;
+    private final List<Appointment> upcomingAppointments;
+    private final List<Appointment> pastAppointments;
+    private final List<Payment> payments;
+    private final BigDecimal totalPaid;
+    private final int invoiceCount;
+    private final int openInvoiceCount;
+    private final BigDecimal totalInvoiced;
+    private final BigDecimal outstandingBalance;
+    private final List<SupplyUsage> suppliesUsed;
+    private final LocalDateTime loadedAt;
+    
+    public PatientOverview(Patient patient, List<Appointment> upcomingAppointments, List<Appointment> pastAppointments,
+                           List<Payment> payments, BigDecimal totalPaid, int invoiceCount, int openInvoiceCount,
+                           BigDecimal totalInvoiced, BigDecimal outstandingBalance, List<SupplyUsage> suppliesUsed,
+                           LocalDateTime loadedAt) {
+        this.patient = patient;
+        this.upcomingAppointments = List.copyOf(upcomingAppointments);
+        this.pastAppointments = List.copyOf(pastAppointments);
+        this.payments = List.copyOf(payments);
+        this.totalPaid = totalPaid;
+        this.invoiceCount = invoiceCount;
+        this.openInvoiceCount = openInvoiceCount;
+        this.totalInvoiced = totalInvoiced;
+        this.outstandingBalance = outstandingBalance;
+        this.suppliesUsed = List.copyOf(suppliesUsed);
+        this.loadedAt = loadedAt;
+    }
+    
+    public Patient getPatient() { return patient; }
+    
+    /** Scheduled appointments from now on, soonest first */
+    public List<Appointment> getUpcomingAppointments() { return upcomingAppointments; }
+    
+    /** Earlier and no-longer-scheduled appointments, most recent first */
+    public List<Appointment> getPastAppointments() { return pastAppointments; }
+    
+    /** Payments, newest first */
+    public List<Payment> getPayments() { return payments; }
+    
+    public BigDecimal getTotalPaid() { return totalPaid; }
+    public int getInvoiceCount() { return invoiceCount; }
+    public int getOpenInvoiceCount() { return openInvoiceCount; }
+    public BigDecimal getTotalInvoiced() { return totalInvoiced; }
+    
+    /** Total of invoices not yet marked paid */
+    public BigDecimal getOutstandingBalance() { return outstandingBalance; }
+    
+    /** Supplies used during the patient's appointments, most used first */
+    public List<SupplyUsage> getSuppliesUsed() { return suppliesUsed; }
+    
+    public LocalDateTime getLoadedAt() { return loadedAt; }
+    
+    public Appointment getNextAppointment() {
+        return upcomingAppointments.isEmpty() ? null : upcomingAppointments.get(0);
+    }
+    
+    public LocalDate getLastVisitDate() {
+        for (Appointment appointment : pastAppointments) {
+            if (appointment.getStatus() == Appointment.Status.COMPLETED) {
+                return appointment.getAppointmentDate();
+            }
+        }
+        return null;
+    }
+    
+    public LocalDate getLastPaymentDate() {
+        return payments.isEmpty() ? null : payments.get(0).getPaymentDate();
+    }
+    
+    /**
+     * Quantity of one inventory item used for a patient
+     */
+    public static final class SupplyUsage {
+        private final int inventoryId;
+        private final String name;
+        private final String unit;
+        private final int quantity;
+        private final int appointmentCount;
+        private final BigDecimal costPerUnit;
+        
+        public SupplyUsage(int inventoryId, String name, String unit, int quantity, int appointmentCount,
+                           BigDecimal costPerUnit) {
+            this.inventoryId = inventoryId;
+            this.name = name;
+            this.unit = unit;
+            this.quantity = quantity;
+            this.appointmentCount = appointmentCount;
+            this.costPerUnit = costPerUnit;
+        }
+        
+        public int getInventoryId() { return inventoryId; }
+        public String getName() { return name; }
+        public String getUnit() { return unit; }
+        public int getQuantity() { return quantity; }
+        public int getAppointmentCount() { return appointmentCount; }
+        public BigDecimal getCostPerUnit() { return costPerUnit; }
+        
+        /** Quantity times unit cost, or null when the item has no cost */
+        public BigDecimal getTotalCost() {
+            return costPerUnit != null ? costPerUnit.multiply(BigDecimal.valueOf(quantity)) : null;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.Appointment;
+import com.rebelle.models.Patient;
+import com.rebelle.models.Payment;
+import com.rebelle.models.PatientOverview;
+import com.rebelle.utils.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * PatientOverviewDAO - The five queries behind the patient overview screen.
+ *
+ * Each method opens its own connection, so the service can run all of them at
+ * the same time instead of queueing on the shared connection. Related rows are
+ * joined in SQL: appointments carry their service, supply usage is aggregated
+ * per inventory item, and payments are read without looking the patient up
+ * again for every row.
+ */
+public class PatientOverviewDAO {
+    
+    private final DatabaseManager dbManager;
+    private final DatabaseConnection paymentConnection;
+    private final PatientDAO patientDAO;
+    private final AppointmentDAO appointmentDAO;
+    
+    public PatientOverviewDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+        this.paymentConnection = DatabaseConnection.getInstance();
+        this.patientDAO = new PatientDAO();
+        this.appointmentDAO = new AppointmentDAO();
+    }
+    
+    /**
+     * Patient profile
+     */
+    public Optional<Patient> getPatient(int patientId) throws SQLException {
+        String sql = "SELECT * FROM patients WHERE id = ?";
+        
+        try (Connection conn = dbManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, patientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Optional.of(patientDAO.mapResultSetToPatient(rs)) : Optional.empty();
+            }
+        }
+    }
+    
+    /**
+     * All appointments of the patient with their service, oldest first
+     */
+    public List<Appointment> getAppointments(int patientId) throws SQLException {
+        String sql = """
+            SELECT a.*, NULL AS patient_name, s.name AS service_name
+            FROM appointments a
+            LEFT JOIN services s ON a.service_id = s.id
+            WHERE a.patient_id = ?
+            ORDER BY a.start_minute
+            """;
+        List<Appointment> appointments = new ArrayList<>();
+        
+        try (Connection conn = dbManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, patientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Appointment appointment = appointmentDAO.mapResultSetToAppointment(rs);
+                    appointmentDAO.attachJoinedNames(rs, appointment);
+                    appointments.add(appointment);
+                }
+            }
+        }
+        return appointments;
+    }
+    
+    /**
+     * Payments of the patient, newest first. The patient is not attached; the
+     * caller already has it.
+     */
+    public List<Payment> getPayments(int patientId) throws SQLException {
+        String sql = "SELECT * FROM payments WHERE patient_id = ? ORDER BY payment_date DESC, id DESC";
+        List<Payment> payments = new ArrayList<>();
+        
+        try (Connection conn = paymentConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, patientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    payments.add(new Payment(
+                        rs.getInt("id"),
+                        rs.getInt("patient_id"),
+                        null,
+                        rs.getBigDecimal("amount"),
+                        Payment.PaymentMethod.valueOf(rs.getString("payment_method")),
+                        rs.getDate("payment_date").toLocalDate(),
+                        rs.getString("description"),
+                        rs.getString("notes"),
+                        rs.getTimestamp("created_at").toLocalDateTime()
+                    ));
+                }
+            }
+        }
+        return payments;
+    }
+    
+    /**
+     * Invoiced total and the part still open (invoices not marked paid)
+     */
+    public InvoiceBalance getInvoiceBalance(int patientId) throws SQLException {
+        String sql = """
+            SELECT COUNT(*) AS invoice_count,
+                   COALESCE(SUM(total_amount), 0) AS invoiced,
+                   COALESCE(SUM(CASE WHEN status <> 'paid' THEN total_amount END), 0) AS outstanding,
+                   COUNT(CASE WHEN status <> 'paid' THEN 1 END) AS open_count
+            FROM invoices
+            WHERE patient_id = ?
+            """;
+        
+        try (Connection conn = dbManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, patientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new InvoiceBalance(
+                    rs.getInt("invoice_count"),
+                    rs.getInt("open_count"),
+                    toBigDecimal(rs.getBigDecimal("invoiced")),
+                    toBigDecimal(rs.getBigDecimal("outstanding"))
+                );
+            }
+        }
+    }
+    
+    /**
+     * Inventory used during the patient's appointments, one row per item, most used first
+     */
+    public List<PatientOverview.SupplyUsage> getSupplyUsage(int patientId) throws SQLException {
+        String sql = """
+            SELECT i.id, i.name, i.unit, i.cost_per_unit,
+                   SUM(-t.quantity_change) AS quantity,
+                   COUNT(DISTINCT t.appointment_id) AS appointment_count
+            FROM inventory_transactions t
+            JOIN appointments a ON t.appointment_id = a.id
+            JOIN inventory i ON t.inventory_id = i.id
+            WHERE a.patient_id = ? AND t.quantity_change < 0
+            GROUP BY i.id, i.name, i.unit, i.cost_per_unit
+            ORDER BY quantity DESC, i.name
+            """;
+        List<PatientOverview.SupplyUsage> usage = new ArrayList<>();
+        
+        try (Connection conn = dbManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, patientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    usage.add(new PatientOverview.SupplyUsage(
+                        rs.getInt("id"),
+                        rs.getString("name"),
+                        rs.getString("unit"),
+                        rs.getInt("quantity"),
+                        rs.getInt("appointment_count"),
+                        rs.getBigDecimal("cost_per_unit")
+                    ));
+                }
+            }
+        }
+        return usage;
+    }
+    
+    private static BigDecimal toBigDecimal(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+    
+    /**
+     * Invoice totals of one patient
+     */
+    public static class InvoiceBalance {
+        private final int invoiceCount;
+        private final int openCount;
+        private final BigDecimal invoiced;
+        private final BigDecimal outstanding;
+        
+        public InvoiceBalance(int invoiceCount, int openCount, BigDecimal invoiced, BigDecimal outstanding) {
+            this.invoiceCount = invoiceCount;
+            this.openCount = openCount;
+            this.invoiced = invoiced;
+            this.outstanding = outstanding;
+        }
+        
+        public int getInvoiceCount() { return invoiceCount; }
+        public int getOpenCount() { return openCount; }
+        public BigDecimal getInvoiced() { return invoiced; }
+        public BigDecimal getOutstanding() { return outstanding; }
+    }
+}
@@ -0,0 +1,166 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.PatientOverviewDAO;
+import com.rebelle.models.Appointment;
+import com.rebelle.models.Patient;
+import com.rebelle.models.PatientOverview;
+import com.rebelle.models.Payment;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * PatientOverviewService - Assembles the "patient 360" view.
+ *
+ * Instead of one call per section (and one patient lookup per payment row),
+ * the overview is five queries - profile, appointments with services,
+ * payments, invoice balance and supply usage - combined into one
+ * PatientOverview once all are done. The four local queries run one after
+ * another as a single executor task, as the SQLite store takes one task at a
+ * time; the payments query goes to the payment database alongside them.
+ */
+public class PatientOverviewService {
+    
+    private final PatientOverviewDAO overviewDAO;
+    
+    public PatientOverviewService() {
+        this.overviewDAO = new PatientOverviewDAO();
+    }
+    
+    /**
+     * Load the overview of one patient. Cancelling the returned future cancels
+     * the queries still running.
+     */
+    public CompletableFuture<ServiceResult<PatientOverview>> getOverview(int patientId) {
+        CompletableFuture<ServiceResult<LocalParts>> local = ServiceExecutor.getInstance().submit(
+            () -> run(() -> new LocalParts(overviewDAO.getPatient(patientId), overviewDAO.getAppointments(patientId),
+                                           overviewDAO.getInvoiceBalance(patientId),
+                                           overviewDAO.getSupplyUsage(patientId))),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+        CompletableFuture<ServiceResult<List<Payment>>> payments = ServiceExecutor.getInstance().submitExternal(
+            () -> run(() -> overviewDAO.getPayments(patientId)),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+        
+        CompletableFuture<ServiceResult<PatientOverview>> result = local.thenCombine(payments, this::assemble);
+        
+        result.whenComplete((overview, error) -> {
+            if (result.isCancelled()) {
+                local.cancel(true);
+                payments.cancel(true);
+            }
+        });
+        return result;
+    }
+    
+    private ServiceResult<PatientOverview> assemble(ServiceResult<LocalParts> localResult,
+                                                    ServiceResult<List<Payment>> paymentResult) {
+        for (ServiceResult<?> part : List.of(localResult, paymentResult)) {
+            if (!part.isSuccess()) {
+                return ServiceResult.error(part.getMessage());
+            }
+        }
+        LocalParts parts = localResult.getData();
+        if (parts.patient.isEmpty()) {
+            return ServiceResult.error("Patient not found.");
+        }
+        Patient patient = parts.patient.get();
+        
+        // Appointments arrive oldest first
+        LocalDateTime now = LocalDateTime.now();
+        List<Appointment> upcoming = new ArrayList<>();
+        List<Appointment> past = new ArrayList<>();
+        for (Appointment appointment : parts.appointments) {
+            appointment.setPatient(patient);
+            if (appointment.getStatus() == Appointment.Status.SCHEDULED
+                    && !appointment.getAppointmentDateTime().isBefore(now)) {
+                upcoming.add(appointment);
+            } else {
+                past.add(appointment);
+            }
+        }
+        Collections.reverse(past);
+        
+        BigDecimal totalPaid = BigDecimal.ZERO;
+        for (Payment payment : paymentResult.getData()) {
+            payment.setPatient(patient);
+            totalPaid = totalPaid.add(payment.getAmount());
+        }
+        
+        PatientOverviewDAO.InvoiceBalance invoices = parts.invoices;
+        return ServiceResult.success(new PatientOverview(
+            patient, upcoming, past, paymentResult.getData(), totalPaid,
+            invoices.getInvoiceCount(), invoices.getOpenCount(), invoices.getInvoiced(), invoices.getOutstanding(),
+            parts.supplies, now
+        ));
+    }
+    
+    private static <T> ServiceResult<T> run(Query<T> query) {
+        try {
+            return ServiceResult.success(query.run());
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * One overview query
+     */
+    private interface Query<T> {
+        T run() throws SQLException;
+    }
+    
+    /**
+     * Results of the queries on the local database
+     */
+    private static class LocalParts {
+        private final Optional<Patient> patient;
+        private final List<Appointment> appointments;
+        private final PatientOverviewDAO.InvoiceBalance invoices;
+        private final List<PatientOverview.SupplyUsage> supplies;
+        
+        LocalParts(Optional<Patient> patient, List<Appointment> appointments,
+                   PatientOverviewDAO.InvoiceBalance invoices, List<PatientOverview.SupplyUsage> supplies) {
+            this.patient = patient;
+            this.appointments = appointments;
+            this.invoices = invoices;
+            this.supplies = supplies;
+        }
+    }
+    
+    /**
+     * Service result wrapper class
+     */
+    public static class ServiceResult<T> {
+        private final boolean success;
+        private final T data;
+        private final String message;
+        
+        private ServiceResult(boolean success, T data, String message) {
+            this.success = success;
+            this.data = data;
+            this.message = message;
+        }
+        
+        public static <T> ServiceResult<T> success(T data) {
+            return new ServiceResult<>(true, data, null);
+        }
+        
+        public static <T> ServiceResult<T> success(T data, String message) {
+            return new ServiceResult<>(true, data, message);
+        }
+        
+        public static <T> ServiceResult<T> error(String message) {
+            return new ServiceResult<>(false, null, message);
+        }
+        
+        public boolean isSuccess() { return success; }
+        public T getData() { return data; }
+        public String getMessage() { return message; }
+    }
+}
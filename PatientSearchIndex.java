@@ -0,0 +1,382 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.dao.PatientDAO;
+import com.rebelle.models.Patient;
+import com.rebelle.utils.ContactNormalizer;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * PatientSearchIndex - In-memory trigram index over patient name, phone digits
+ * and email for substring search.
+ *
+ * Each trigram maps to a sorted posting list of patient ids. A query intersects
+ * the postings of its trigrams (smallest first), verifies the few candidates
+ * against the normalised fields and ranks them. The index is built on first use
+ * (or by warmUp at startup) and kept current from PatientDAO change events.
+ */
+public class PatientSearchIndex {
+    
+    private static PatientSearchIndex instance;
+    
+    private static final int GRAM = 3;
+    
+    private final PatientDAO patientDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Long, Posting> postings = new HashMap<>();
+    private boolean built;
+    
+    private PatientSearchIndex() {
+        this.patientDAO = new PatientDAO();
+        registerListener();
+    }
+    
+    public static synchronized PatientSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new PatientSearchIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Build the index ahead of the first search
+     */
+    public void warmUp() throws SQLException {
+        ensureBuilt();
+    }
+    
+    /**
+     * Ids of patients whose name, phone or email contains the query, best match first
+     */
+    public List<Integer> search(String query) throws SQLException {
+        String text = normalizeText(query);
+        String digits = ContactNormalizer.digitsOnly(query);
+        if (text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        ensureBuilt();
+        
+        lock.readLock().lock();
+        try {
+            List<Match> matches = new ArrayList<>();
+            if (text.length() < GRAM && digits.length() < GRAM) {
+                // Too short for trigrams; the verification pass alone is still an in-memory scan
+                for (Entry entry : entries.values()) {
+                    addIfMatches(matches, entry, text, digits);
+                }
+            } else {
+                Set<Integer> candidates = new HashSet<>();
+                if (text.length() >= GRAM) {
+                    addAll(candidates, intersect(text));
+                }
+                if (digits.length() >= GRAM && !digits.equals(text)) {
+                    addAll(candidates, intersect(digits));
+                }
+                for (Integer id : candidates) {
+                    addIfMatches(matches, entries.get(id), text, digits);
+                }
+            }
+            
+            matches.sort(Comparator.comparingInt((Match m) -> -m.score)
+                .thenComparing(m -> m.entry.name)
+                .thenComparingInt(m -> m.entry.id));
+            
+            List<Integer> ids = new ArrayList<>(matches.size());
+            for (Match match : matches) {
+                ids.add(match.entry.id);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Drop the index; it is rebuilt on the next search
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            built = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void ensureBuilt() throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            entries.clear();
+            postings.clear();
+            patientDAO.loadSearchFields(this::put);
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void registerListener() {
+        PatientDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Patient patient) {
+                onUpdated(patient);
+            }
+            
+            @Override
+            public void onUpdated(Patient patient) {
+                applyChange(() -> put(patient.getId(), patient.getName(), patient.getPhone(), patient.getEmail()));
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                applyChange(() -> remove(id));
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    /**
+     * Changes that arrive before the first build are covered by the build itself
+     */
+    private void applyChange(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void put(int id, String name, String phone, String email) {
+        remove(id);
+        Entry entry = new Entry(id, normalizeText(name), ContactNormalizer.digitsOnly(phone), normalizeText(email));
+        entries.put(id, entry);
+        for (long gram : entry.grams()) {
+            postings.computeIfAbsent(gram, g -> new Posting()).add(id);
+        }
+    }
+    
+    private void remove(int id) {
+        Entry old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (long gram : old.grams()) {
+            Posting posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Ids present in the postings of every trigram of the text
+     */
+    private int[] intersect(String text) {
+        Set<Long> grams = new HashSet<>();
+        addGrams(grams, text);
+        
+        Posting[] lists = new Posting[grams.size()];
+        int n = 0;
+        for (long gram : grams) {
+            Posting posting = postings.get(gram);
+            if (posting == null) {
+                return new int[0];
+            }
+            lists[n++] = posting;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+        
+        int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int size = result.length;
+        for (int l = 1; l < lists.length && size > 0; l++) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (lists[l].contains(result[i])) {
+                    result[kept++] = result[i];
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+    
+    private static void addAll(Set<Integer> target, int[] ids) {
+        for (int id : ids) {
+            target.add(id);
+        }
+    }
+    
+    private static void addIfMatches(List<Match> matches, Entry entry, String text, String digits) {
+        if (entry == null) {
+            return;
+        }
+        int score = score(entry, text, digits);
+        if (score > 0) {
+            matches.add(new Match(entry, score));
+        }
+    }
+    
+    /**
+     * Rank: name prefix, then name word start, then anywhere in the name, then phone, then email
+     */
+    private static int score(Entry entry, String text, String digits) {
+        if (entry.name.startsWith(text)) {
+            return 100;
+        }
+        if (entry.name.contains(" " + text)) {
+            return 80;
+        }
+        if (entry.name.contains(text)) {
+            return 60;
+        }
+        if (!digits.isEmpty() && !entry.phone.isEmpty()) {
+            if (entry.phone.startsWith(digits)) {
+                return 50;
+            }
+            if (entry.phone.contains(digits)) {
+                return 40;
+            }
+        }
+        if (entry.email.startsWith(text)) {
+            return 35;
+        }
+        if (entry.email.contains(text)) {
+            return 30;
+        }
+        return 0;
+    }
+    
+    private static void addGrams(Set<Long> grams, String text) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+    
+    /**
+     * Lower-case, strip accents and collapse whitespace
+     */
+    static String normalizeText(String value) {
+        if (value == null) {
+            return "";
+        }
+        String stripped = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.toLowerCase().trim().replaceAll("\\s+", " ");
+    }
+    
+    /**
+     * Normalised searchable fields of one patient
+     */
+    private static final class Entry {
+        final int id;
+        final String name;
+        final String phone;
+        final String email;
+        
+        Entry(int id, String name, String phone, String email) {
+            this.id = id;
+            this.name = name;
+            this.phone = phone;
+            this.email = email;
+        }
+        
+        Set<Long> grams() {
+            Set<Long> grams = new HashSet<>();
+            addGrams(grams, name);
+            addGrams(grams, phone);
+            addGrams(grams, email);
+            return grams;
+        }
+    }
+    
+    private static final class Match {
+        final Entry entry;
+        final int score;
+        
+        Match(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+    
+    /**
+     * Sorted, growable list of patient ids. New patients get increasing ids,
+     * so inserts are almost always appends.
+     */
+    private static final class Posting {
+        int[] ids = new int[4];
+        int size;
+        
+        void add(int id) {
+            if (size == 0 || ids[size - 1] < id) {
+                grow();
+                ids[size++] = id;
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            int insertAt = -pos - 1;
+            grow();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+        
+        void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+        }
+        
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+        
+        private void grow() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+}
@@ -1,17 +1,29 @@
 package com.rebelle.services;
 
+import com.rebelle.dao.OptimisticLockException;
+import com.rebelle.dao.Page;
+import com.rebelle.dao.PageRequest;
 import com.rebelle.dao.PatientDAO;
 import com.rebelle.models.Patient;
+import com.rebelle.models.PatientSummary;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * PatientService - Business logic layer for patient operations
  */
 public class PatientService {
     
+    private static final String CONFLICT_MESSAGE =
+        "This patient was changed by someone else while you were editing.";
+    
     private final PatientDAO patientDAO;
     
     public PatientService() {
@@ -30,8 +42,8 @@ public class PatientService {
                 return ServiceResult.error(validation.getErrorMessage());
             }
             
-            // Check for duplicates
-            if (patientDAO.patientExists(phone, email, null)) {
+            // Check for duplicates (normalised phone/email, in memory)
+            if (PatientContactIndex.getInstance().isDuplicate(phone, email, null)) {
                 return ServiceResult.error("A patient with this phone number or email already exists.");
             }
             
@@ -56,12 +68,26 @@ public class PatientService {
      */
     public ServiceResult<Patient> updatePatient(int patientId, String name, String phone, String email, 
                                               String address, LocalDate dateOfBirth, String medicalNotes) {
+        return updatePatient(patientId, name, phone, email, address, dateOfBirth, medicalNotes, null);
+    }
+    
+    /**
+     * Update a patient that was read at expectedVersion. If it has changed
+     * since, nothing is written and the result is a conflict carrying the
+     * current patient, so the caller can merge and retry.
+     */
+    public ServiceResult<Patient> updatePatient(int patientId, String name, String phone, String email,
+                                              String address, LocalDate dateOfBirth, String medicalNotes,
+                                              Integer expectedVersion) {
         try {
             // Check if patient exists
             Optional<Patient> existingPatient = patientDAO.getPatientById(patientId);
             if (existingPatient.isEmpty()) {
                 return ServiceResult.error("Patient not found.");
             }
+            if (expectedVersion != null && existingPatient.get().getVersion() != expectedVersion) {
+                return ServiceResult.conflict(existingPatient.get(), CONFLICT_MESSAGE);
+            }
             
             // Validate input
             ValidationResult validation = validatePatientData(name, phone, email, dateOfBirth, patientId);
@@ -70,7 +96,7 @@ public class PatientService {
             }
             
             // Check for duplicates (excluding current patient)
-            if (patientDAO.patientExists(phone, email, patientId)) {
+            if (PatientContactIndex.getInstance().isDuplicate(phone, email, patientId)) {
                 return ServiceResult.error("Another patient with this phone number or email already exists.");
             }
             
@@ -90,6 +116,33 @@ public class PatientService {
                 return ServiceResult.error("Failed to update patient.");
             }
             
+        } catch (OptimisticLockException e) {
+            try {
+                Optional<Patient> current = patientDAO.getPatientById(patientId);
+                return current.isPresent()
+                    ? ServiceResult.conflict(current.get(), CONFLICT_MESSAGE)
+                    : ServiceResult.error("Patient not found.");
+            } catch (SQLException reloadError) {
+                return ServiceResult.error("Database error: " + reloadError.getMessage());
+            }
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Describe a phone/email clash with another patient; the data is null when there is none
+     */
+    public ServiceResult<String> checkDuplicateContact(String phone, String email, Integer excludeId) {
+        try {
+            PatientContactIndex contacts = PatientContactIndex.getInstance();
+            if (contacts.findByPhone(phone, excludeId).isPresent()) {
+                return ServiceResult.success("Another patient already has this phone number.");
+            }
+            if (contacts.findByEmail(email, excludeId).isPresent()) {
+                return ServiceResult.success("Another patient already has this email address.");
+            }
+            return ServiceResult.success(null);
         } catch (SQLException e) {
             return ServiceResult.error("Database error: " + e.getMessage());
         }
@@ -124,7 +177,29 @@ public class PatientService {
     }
     
     /**
-     * Search patients
+     * Get id/name/phone/date of birth of all patients for pickers (shared, cached list)
+     */
+    public ServiceResult<List<PatientSummary>> getPatientSummaries() {
+        try {
+            return ServiceResult.success(PatientSummaryCache.getInstance().getSummaries());
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Get one page of patients
+     */
+    public ServiceResult<Page<Patient>> getPatientPage(PageRequest request) {
+        try {
+            return ServiceResult.success(patientDAO.getPatientPage(request));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Search patients (substring matches first, then typo-tolerant and phonetic name matches)
      */
     public ServiceResult<List<Patient>> searchPatients(String searchTerm) {
         try {
@@ -132,7 +207,16 @@ public class PatientService {
                 return getAllPatients();
             }
             
-            List<Patient> patients = patientDAO.searchPatients(searchTerm.trim());
+            // Ranked ids come from the in-memory indexes; only the hits are read from the database.
+            // Exact (substring) matches rank first, then misspelt and sound-alike names.
+            String term = searchTerm.trim();
+            Set<Integer> ranked = new LinkedHashSet<>(PatientSearchIndex.getInstance().search(term));
+            ranked.addAll(PatientFuzzyIndex.getInstance().search(term));
+            List<Integer> ids = new ArrayList<>(ranked);
+            if (ids.isEmpty()) {
+                return ServiceResult.success(new ArrayList<>());
+            }
+            List<Patient> patients = patientDAO.getPatientsByIds(ids);
             return ServiceResult.success(patients);
         } catch (SQLException e) {
             return ServiceResult.error("Database error: " + e.getMessage());
@@ -236,6 +320,15 @@ public class PatientService {
         return email.matches("^[A-Za-z0-9+_.-]+@([A-Za-z0-9.-]+\\.[A-Za-z]{2,})$");
     }
     
+    /**
+     * Run any call on this service asynchronously on the shared service executor,
+     * e.g. service.async(s -> s.getAllPatients()). Cancel the future to abandon it.
+     */
+    public <T> CompletableFuture<ServiceResult<T>> async(Function<PatientService, ServiceResult<T>> call) {
+        return ServiceExecutor.getInstance().submit(() -> call.apply(this),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+    }
+    
     /**
      * Service result wrapper class
      */
@@ -243,11 +336,17 @@ public class PatientService {
         private final boolean success;
         private final T data;
         private final String message;
+        private final boolean conflict;
         
         private ServiceResult(boolean success, T data, String message) {
+            this(success, data, message, false);
+        }
+        
+        private ServiceResult(boolean success, T data, String message, boolean conflict) {
             this.success = success;
             this.data = data;
             this.message = message;
+            this.conflict = conflict;
         }
         
         public static <T> ServiceResult<T> success(T data) {
@@ -262,7 +361,15 @@ public class PatientService {
             return new ServiceResult<>(false, null, message);
         }
         
+        /**
+         * The record was changed by someone else; the data is its current state
+         */
+        public static <T> ServiceResult<T> conflict(T current, String message) {
+            return new ServiceResult<>(false, current, message, true);
+        }
+        
         public boolean isSuccess() { return success; }
+        public boolean isConflict() { return conflict; }
         public T getData() { return data; }
         public String getMessage() { return message; }
     }
@@ -0,0 +1,79 @@
+package com.rebelle.models;
+
+import java.time.LocalDate;
+
+/**
+ * PatientSummary - Read-only projection of a patient for pickers and combo boxes
+ * (id, name, phone and date of birth only)
+ */
+public final class PatientSummary {
+    
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    
+    private final int id;
+    private final String name;
+    private final String phone;
+    private final int dateOfBirthEpochDay;
+    
+    public PatientSummary(int id, String name, String phone, LocalDate dateOfBirth) {
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+        this.dateOfBirthEpochDay = dateOfBirth != null ? (int) dateOfBirth.toEpochDay() : NO_DATE;
+    }
+    
+    /**
+     * Summary of a full patient, or null for null
+     */
+    public static PatientSummary from(Patient patient) {
+        if (patient == null) {
+            return null;
+        }
+        return new PatientSummary(patient.getId(), patient.getName(), patient.getPhone(), patient.getDateOfBirth());
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public LocalDate getDateOfBirth() {
+        return dateOfBirthEpochDay != NO_DATE ? LocalDate.ofEpochDay(dateOfBirthEpochDay) : null;
+    }
+    
+    /**
+     * Get display name for UI
+     */
+    public String getDisplayName() {
+        if (name == null || name.trim().isEmpty()) {
+            return "Unnamed Patient";
+        }
+        return name.trim();
+    }
+    
+    @Override
+    public String toString() {
+        return getDisplayName();
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        
+        PatientSummary summary = (PatientSummary) obj;
+        return id == summary.id;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
+    }
+}
@@ -0,0 +1,109 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.dao.PatientDAO;
+import com.rebelle.models.Patient;
+import com.rebelle.models.PatientSummary;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * PatientSummaryCache - Shared, name-ordered list of patient summaries for pickers.
+ *
+ * Loaded once from a covering-index query and then kept current from PatientDAO
+ * change events, so opening a form that lists patients costs no query at all.
+ * Readers get an immutable snapshot; writers swap in a new one.
+ */
+public class PatientSummaryCache {
+    
+    private static PatientSummaryCache instance;
+    
+    /** Same order as the loading query: name, then id */
+    private static final Comparator<PatientSummary> ORDER =
+        Comparator.comparing(PatientSummary::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                  .thenComparingInt(PatientSummary::getId);
+    
+    private final PatientDAO patientDAO;
+    private volatile List<PatientSummary> snapshot;
+    
+    private PatientSummaryCache() {
+        this.patientDAO = new PatientDAO();
+        registerListener();
+    }
+    
+    public static synchronized PatientSummaryCache getInstance() {
+        if (instance == null) {
+            instance = new PatientSummaryCache();
+        }
+        return instance;
+    }
+    
+    /**
+     * All patients ordered by name (immutable)
+     */
+    public List<PatientSummary> getSummaries() throws SQLException {
+        List<PatientSummary> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = Collections.unmodifiableList(patientDAO.getPatientSummaries());
+            }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Drop the list; it is reloaded on next use
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+    
+    private void registerListener() {
+        PatientDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Patient patient) {
+                onUpdated(patient);
+            }
+            
+            @Override
+            public void onUpdated(Patient patient) {
+                PatientSummary summary = PatientSummary.from(patient);
+                applyChange(list -> {
+                    list.remove(summary);
+                    int position = Collections.binarySearch(list, summary, ORDER);
+                    list.add(position < 0 ? -position - 1 : position, summary);
+                });
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                applyChange(list -> list.removeIf(summary -> summary.getId() == id));
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    /**
+     * Copy-on-write update of a loaded snapshot; nothing to do before the first load
+     */
+    private synchronized void applyChange(Consumer<List<PatientSummary>> change) {
+        if (snapshot == null) {
+            return;
+        }
+        List<PatientSummary> copy = new ArrayList<>(snapshot);
+        change.accept(copy);
+        snapshot = Collections.unmodifiableList(copy);
+    }
+}
@@ -1,5 +1,6 @@
 package com.rebelle.controllers;
 
+import com.rebelle.dao.Page;
 import com.rebelle.models.Payment;
 import com.rebelle.services.PaymentService;
 import javafx.collections.FXCollections;
@@ -13,7 +14,6 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Callback;
 import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.SimpleObjectProperty;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -38,8 +38,12 @@ public class PaymentController {
     @FXML private TextField searchField;
     @FXML private Label totalLabel;
     
+    private static final int PAGE_SIZE = 100;
+    
     private final PaymentService paymentService;
     private final ObservableList<Payment> payments;
+    private PagedTableDataSource<Payment> pagedPayments;
+    private SearchPipeline<Payment> searchPipeline;
     
     public PaymentController() {
         this.paymentService = new PaymentService();
@@ -48,24 +52,12 @@ public class PaymentController {
     
     @FXML
     public void initialize() {
-        // Set up table columns
-        dateColumn.setCellValueFactory(cellData -> 
-            new SimpleObjectProperty<>(cellData.getValue().getPaymentDate()));
-        amountColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getFormattedAmount()));
-        methodColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getPaymentMethodDisplayName()));
-        descriptionColumn.setCellValueFactory(cellData -> 
-            new SimpleStringProperty(cellData.getValue().getDescription()));
-        patientColumn.setCellValueFactory(cellData -> {
-            Payment payment = cellData.getValue();
-            String patientName = payment.getPatient() != null ? 
-                payment.getPatient().getFullName() : "Unknown";
-            return new SimpleStringProperty(patientName);
-        });
+        // Set up table columns and paging
+        setupTable();
         
-        // Set up date pickers
+        // Set up date pickers and search
         setupDatePickers();
+        setupSearch();
         
         // Load initial data
         loadPayments();
@@ -74,7 +66,6 @@ public class PaymentController {
         // Add listeners
         startDatePicker.valueProperty().addListener((obs, oldVal, newVal) -> loadPayments());
         endDatePicker.valueProperty().addListener((obs, oldVal, newVal) -> loadPayments());
-        searchField.textProperty().addListener((obs, oldVal, newVal) -> loadPayments());
     }
     
     private void setupTable() {
@@ -85,11 +76,11 @@ public class PaymentController {
         dateColumn.setCellValueFactory(new PropertyValueFactory<>("paymentDate"));
         descriptionColumn.setCellValueFactory(new PropertyValueFactory<>("description"));
         
-        // Set up patient column to show patient name
+        // Set up patient column to show patient name (rows still loading have no payment)
         patientColumn.setCellValueFactory(cellData -> {
             Payment payment = cellData.getValue();
             return new SimpleStringProperty(
-                payment.getPatient() != null ? payment.getPatient().getDisplayName() : ""
+                payment != null && payment.getPatient() != null ? payment.getPatient().getDisplayName() : ""
             );
         });
         
@@ -101,8 +92,38 @@ public class PaymentController {
             }
         );
         
-        // Set table items
-        paymentTable.setItems(payments);
+        // Date range view is loaded page by page; search results use the plain list
+        pagedPayments = new PagedTableDataSource<>(PAGE_SIZE, "date", false);
+        pagedPayments.sortColumn(dateColumn, "date")
+                     .sortColumn(amountColumn, "amount")
+                     .sortColumn(methodColumn, "method");
+        pagedPayments.setOnError(message -> showError("Error", message));
+        pagedPayments.attach(paymentTable);
+    }
+    
+    /**
+     * Debounced search; results are refined locally while the query only grows
+     */
+    private void setupSearch() {
+        searchPipeline = new SearchPipeline<>(SearchPipeline.DEFAULT_DELAY, 1, term -> {
+            PaymentService.ServiceResult<List<Payment>> result = paymentService.searchPayments(term);
+            if (!result.isSuccess()) {
+                throw new IllegalStateException(result.getMessage());
+            }
+            return result.getData();
+        });
+        // Mirrors the LIKE '%term%' columns of the DAO search
+        searchPipeline.refineWith((payment, query) ->
+            SearchPipeline.containsIgnoreCase(payment.getDescription(), query)
+            || SearchPipeline.containsIgnoreCase(payment.getNotes(), query));
+        searchPipeline.setOnResults((term, results) -> {
+            payments.setAll(results);
+            paymentTable.setItems(payments);
+            updateTotal();
+        });
+        searchPipeline.setOnCleared(this::loadPayments);
+        searchPipeline.setOnError(message -> showError("Error", message));
+        searchPipeline.attach(searchField);
     }
     
     private void setupDatePickers() {
@@ -121,25 +142,21 @@ public class PaymentController {
             return;
         }
         
-        // Load payments in background
-        new Thread(() -> {
-            PaymentService.ServiceResult<List<Payment>> result;
-            if (!searchQuery.isEmpty()) {
-                result = paymentService.searchPayments(searchQuery);
-            } else {
-                result = paymentService.getPaymentsByDateRange(startDate, endDate);
-            }
-            
-            // Update UI on JavaFX thread
-            javafx.application.Platform.runLater(() -> {
-                if (result.isSuccess()) {
-                    payments.setAll(result.getData());
-                    updateTotal();
-                } else {
-                    showError("Error", result.getMessage());
+        if (searchQuery.isEmpty()) {
+            pagedPayments.setFetcher(request -> {
+                PaymentService.ServiceResult<Page<Payment>> result =
+                    paymentService.getPaymentPage(startDate, endDate, request);
+                if (!result.isSuccess()) {
+                    throw new IllegalStateException(result.getMessage());
                 }
+                return result.getData();
             });
-        }).start();
+            updateTotal();
+            return;
+        }
+        
+        // Search ignores the date range and is cached, so a date change is served from the cache
+        searchPipeline.searchNow(searchQuery);
     }
     
     private void updateTotal() {
@@ -187,7 +204,12 @@ public class PaymentController {
                     PaymentService.ServiceResult<Void> result = paymentService.deletePayment(selectedPayment.getId());
                     javafx.application.Platform.runLater(() -> {
                         if (result.isSuccess()) {
-                            payments.remove(selectedPayment);
+                            searchPipeline.invalidateCache();
+                            if (paymentTable.getItems() == pagedPayments) {
+                                pagedPayments.refresh();
+                            } else {
+                                payments.remove(selectedPayment);
+                            }
                             updateTotal();
                             showInfo("Success", "Payment deleted successfully");
                         } else {
@@ -223,6 +245,7 @@ public class PaymentController {
     }
     
     public void onPaymentSaved() {
+        searchPipeline.invalidateCache();
         loadPayments();
     }
     
@@ -8,12 +8,22 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.math.BigDecimal;
 
 /**
  * PaymentDAO - Data Access Object for handling patient payment operations
  */
 public class PaymentDAO {
+    private static final ChangeNotifier<Payment> CHANGES = new ChangeNotifier<>();
+    
+    private static final Map<String, String[]> PAGE_SORT_COLUMNS = Map.of(
+        "date", new String[] {"payment_date"},
+        "amount", new String[] {"amount"},
+        "method", new String[] {"payment_method"},
+        "id", new String[0]
+    );
+    
     private final DatabaseConnection dbConnection;
     private final PatientDAO patientDAO;
     
@@ -22,6 +32,13 @@ public class PaymentDAO {
         this.patientDAO = new PatientDAO();
     }
     
+    /**
+     * Listener registry notified after successful payment writes
+     */
+    public static ChangeNotifier<Payment> changes() {
+        return CHANGES;
+    }
+    
     /**
      * Create a new payment record
      */
@@ -48,6 +65,7 @@ public class PaymentDAO {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     payment.setId(generatedKeys.getInt(1));
+                    CHANGES.fireInserted(payment);
                     return payment;
                 } else {
                     throw new SQLException("Creating payment failed, no ID obtained.");
@@ -110,6 +128,20 @@ public class PaymentDAO {
         return payments;
     }
     
+    /**
+     * Get one page of payments in a date range using keyset pagination.
+     * Sort keys: date (default), amount, method, id.
+     */
+    public Page<Payment> getPaymentPage(LocalDate startDate, LocalDate endDate, PageRequest request) throws SQLException {
+        String[] sortColumns = PAGE_SORT_COLUMNS.getOrDefault(request.getSortKey(), PAGE_SORT_COLUMNS.get("date"));
+        List<Object> params = List.of(Date.valueOf(startDate), Date.valueOf(endDate));
+        
+        try (Connection conn = dbConnection.getConnection()) {
+            return KeysetPager.fetch(conn, "*", "payments", "payment_date BETWEEN ? AND ?", params,
+                sortColumns, "id", request, this::mapResultSetToPayment);
+        }
+    }
+    
     /**
      * Get payments by patient ID
      */
@@ -151,6 +183,7 @@ public class PaymentDAO {
                 throw new SQLException("Updating payment failed, no rows affected.");
             }
             
+            CHANGES.fireUpdated(payment);
             return payment;
         }
     }
@@ -167,10 +200,36 @@ public class PaymentDAO {
             stmt.setInt(1, id);
             
             int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0) {
+                CHANGES.fireDeleted(id);
+            }
             return affectedRows > 0;
         }
     }
     
+    /**
+     * Move the payments of merged duplicate patients to the surviving patient
+     */
+    public int reassignPatients(List<Integer> fromPatientIds, int toPatientId) throws SQLException {
+        String sql = "UPDATE payments SET patient_id = ? WHERE patient_id IN ("
+            + "?,".repeat(fromPatientIds.size() - 1) + "?)";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, toPatientId);
+            for (int i = 0; i < fromPatientIds.size(); i++) {
+                stmt.setInt(i + 2, fromPatientIds.get(i));
+            }
+            
+            int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0) {
+                CHANGES.fireInvalidated();
+            }
+            return affectedRows;
+        }
+    }
+    
     /**
      * Search payments by description or notes
      */
@@ -8,14 +8,12 @@ import javafx.scene.control.*;
 import javafx.stage.Stage;
 import javafx.util.StringConverter;
 import com.rebelle.models.Payment;
-import com.rebelle.models.Patient;
+import com.rebelle.models.PatientSummary;
 import com.rebelle.services.PaymentService;
-import com.rebelle.services.PatientService;
 
 import java.math.BigDecimal;
 import java.net.URL;
 import java.time.LocalDate;
-import java.util.List;
 import java.util.ResourceBundle;
 
 /**
@@ -25,7 +23,7 @@ public class PaymentFormController implements Initializable {
     
     // FXML Controls
     @FXML private Label formTitleLabel;
-    @FXML private ComboBox<Patient> patientComboBox;
+    @FXML private ComboBox<PatientSummary> patientComboBox;
     @FXML private Button newPatientBtn;
     @FXML private TextField amountField;
     @FXML private ComboBox<Payment.PaymentMethod> paymentMethodComboBox;
@@ -38,7 +36,7 @@ public class PaymentFormController implements Initializable {
     
     // Services and state
     private PaymentService paymentService;
-    private PatientService patientService;
+    private PatientAutocomplete patientAutocomplete;
     private PaymentController parentController;
     private Payment editingPayment;
     private boolean isEditMode = false;
@@ -46,29 +44,17 @@ public class PaymentFormController implements Initializable {
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         paymentService = new PaymentService();
-        patientService = new PatientService();
         
         setupForm();
         setupValidation();
-        loadFormData();
     }
     
     /**
      * Setup form initial state
      */
     private void setupForm() {
-        // Setup patient combo box
-        patientComboBox.setConverter(new StringConverter<Patient>() {
-            @Override
-            public String toString(Patient patient) {
-                return patient != null ? patient.getDisplayName() : "";
-            }
-            
-            @Override
-            public Patient fromString(String string) {
-                return null; // Not needed for display-only combo box
-            }
-        });
+        // Setup patient combo box (type-ahead; suggestions come from the autocomplete index)
+        patientAutocomplete = PatientAutocomplete.attach(patientComboBox);
         
         // Setup payment method combo box
         paymentMethodComboBox.setItems(FXCollections.observableArrayList(Payment.PaymentMethod.values()));
@@ -118,28 +104,6 @@ public class PaymentFormController implements Initializable {
         descriptionField.textProperty().addListener((obs, oldDesc, newDesc) -> validateForm());
     }
     
-    /**
-     * Load form data (patients)
-     */
-    private void loadFormData() {
-        // Load patients
-        Task<PatientService.ServiceResult<List<Patient>>> patientTask = new Task<>() {
-            @Override
-            protected PatientService.ServiceResult<List<Patient>> call() {
-                return patientService.getAllPatients();
-            }
-        };
-        
-        patientTask.setOnSucceeded(e -> {
-            PatientService.ServiceResult<List<Patient>> result = patientTask.getValue();
-            if (result.isSuccess()) {
-                patientComboBox.setItems(FXCollections.observableArrayList(result.getData()));
-            }
-        });
-        
-        new Thread(patientTask).start();
-    }
-    
     /**
      * Set the parent controller
      */
@@ -177,7 +141,7 @@ public class PaymentFormController implements Initializable {
     private void populateForm(Payment payment) {
         // Select patient
         if (payment.getPatient() != null) {
-            patientComboBox.getSelectionModel().select(payment.getPatient());
+            patientAutocomplete.select(PatientSummary.from(payment.getPatient()));
         }
         
         // Set amount
@@ -198,7 +162,7 @@ public class PaymentFormController implements Initializable {
      * Validate form inputs
      */
     private void validateForm() {
-        Patient patient = patientComboBox.getValue();
+        PatientSummary patient = patientComboBox.getValue();
         String amountText = amountField.getText();
         Payment.PaymentMethod paymentMethod = paymentMethodComboBox.getValue();
         LocalDate paymentDate = paymentDateField.getValue();
@@ -276,7 +240,7 @@ public class PaymentFormController implements Initializable {
             return;
         }
         
-        Patient patient = patientComboBox.getValue();
+        PatientSummary patient = patientComboBox.getValue();
         BigDecimal amount = new BigDecimal(amountField.getText());
         Payment.PaymentMethod paymentMethod = paymentMethodComboBox.getValue();
         LocalDate paymentDate = paymentDateField.getValue();
@@ -375,7 +339,7 @@ public class PaymentFormController implements Initializable {
      * Validate form for save operation
      */
     private boolean validateFormForSave() {
-        Patient patient = patientComboBox.getValue();
+        PatientSummary patient = patientComboBox.getValue();
         String amountText = amountField.getText();
         Payment.PaymentMethod paymentMethod = paymentMethodComboBox.getValue();
         LocalDate paymentDate = paymentDateField.getValue();
@@ -450,14 +414,14 @@ public class PaymentFormController implements Initializable {
     private boolean hasUnsavedChanges() {
         if (isEditMode && editingPayment != null) {
             // Compare current form values with original payment data
-            Patient selectedPatient = patientComboBox.getValue();
+            PatientSummary selectedPatient = patientComboBox.getValue();
             String amountText = amountField.getText();
             Payment.PaymentMethod selectedMethod = paymentMethodComboBox.getValue();
             
             try {
                 BigDecimal amount = amountText.isEmpty() ? BigDecimal.ZERO : new BigDecimal(amountText);
                 
-                return !java.util.Objects.equals(selectedPatient, editingPayment.getPatient()) ||
+                return !java.util.Objects.equals(selectedPatient, PatientSummary.from(editingPayment.getPatient())) ||
                        !java.util.Objects.equals(amount, editingPayment.getAmount()) ||
                        !java.util.Objects.equals(selectedMethod, editingPayment.getPaymentMethod()) ||
                        !java.util.Objects.equals(paymentDateField.getValue(), editingPayment.getPaymentDate()) ||
@@ -524,7 +488,7 @@ public class PaymentFormController implements Initializable {
         this.isEditMode = true;
         
         // Populate form fields
-        patientComboBox.setValue(payment.getPatient());
+        patientAutocomplete.select(PatientSummary.from(payment.getPatient()));
         amountField.setText(payment.getAmount().toString());
         paymentMethodComboBox.setValue(payment.getPaymentMethod());
         paymentDateField.setValue(payment.getPaymentDate());
@@ -1,5 +1,7 @@
 package com.rebelle.services;
 
+import com.rebelle.dao.Page;
+import com.rebelle.dao.PageRequest;
 import com.rebelle.dao.PaymentDAO;
 import com.rebelle.dao.PatientDAO;
 import com.rebelle.models.Payment;
@@ -10,6 +12,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * PaymentService - Business logic layer for patient payment operations
@@ -143,6 +147,17 @@ public class PaymentService {
         }
     }
     
+    /**
+     * Get one page of payments within a date range
+     */
+    public ServiceResult<Page<Payment>> getPaymentPage(LocalDate startDate, LocalDate endDate, PageRequest request) {
+        try {
+            return ServiceResult.success(paymentDAO.getPaymentPage(startDate, endDate, request));
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
     /**
      * Get today's payments
      */
@@ -243,15 +258,17 @@ public class PaymentService {
     }
     
     /**
-     * Get payment total for date range
+     * Get payment total for date range, summed from the in-memory analytics copy
      */
     public ServiceResult<BigDecimal> getPaymentTotal(LocalDate startDate, LocalDate endDate) {
-        try {
-            BigDecimal total = paymentDAO.getPaymentTotal(startDate, endDate);
-            return ServiceResult.success(total);
-        } catch (SQLException e) {
-            return ServiceResult.error("Database error: " + e.getMessage());
+        if (startDate != null && endDate != null && endDate.isBefore(startDate)) {
+            return ServiceResult.success(BigDecimal.ZERO);
+        }
+        AnalyticsStore.ServiceResult<BigDecimal> total = AnalyticsStore.getInstance().getPaymentTotal(startDate, endDate);
+        if (!total.isSuccess()) {
+            return ServiceResult.error(total.getMessage());
         }
+        return ServiceResult.success(total.getData());
     }
     
     /**
@@ -329,6 +346,15 @@ public class PaymentService {
         }
     }
     
+    /**
+     * Run any call on this service asynchronously on the shared service executor,
+     * e.g. service.async(s -> s.getAllPayments()). Cancel the future to abandon it.
+     */
+    public <T> CompletableFuture<ServiceResult<T>> async(Function<PaymentService, ServiceResult<T>> call) {
+        return ServiceExecutor.getInstance().submit(() -> call.apply(this),
+            e -> ServiceResult.error("Unexpected error: " + e.getMessage()));
+    }
+    
     /**
      * Service result wrapper class
      */
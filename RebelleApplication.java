@@ -6,12 +6,29 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import com.rebelle.dao.DatabaseManager;
+import com.rebelle.services.DailyCloseService;
+import com.rebelle.services.PatientAutocompleteIndex;
+import com.rebelle.services.PatientContactIndex;
+import com.rebelle.services.PatientFuzzyIndex;
+import com.rebelle.services.PatientSearchIndex;
+import com.rebelle.services.ServiceExecutor;
+import com.rebelle.services.WaitlistIndex;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main JavaFX Application for Rebelle Medical Practice Management System
  */
 public class RebelleApplication extends Application {
     
+    private ScheduledExecutorService closeScheduler;
+    
     public static void main(String[] args) {
         launch(args);
     }
@@ -22,6 +39,33 @@ public class RebelleApplication extends Application {
             // Initialize database
             DatabaseManager.getInstance().initializeDatabase();
             
+            // Background startup work, one step after another on the shared connection
+            ServiceExecutor.getInstance().submit(() -> {
+                // Build the patient search, contact and autocomplete indexes
+                try {
+                    PatientSearchIndex.getInstance().warmUp();
+                    PatientFuzzyIndex.getInstance().warmUp();
+                    PatientContactIndex.getInstance().warmUp();
+                    PatientAutocompleteIndex.getInstance().warmUp();
+                } catch (SQLException e) {
+                    System.err.println("Patient index warm-up failed: " + e.getMessage());
+                }
+                
+                // Load the waitlist so cancellations are offered to it from the start
+                try {
+                    WaitlistIndex.getInstance().warmUp();
+                } catch (SQLException e) {
+                    System.err.println("Waitlist warm-up failed: " + e.getMessage());
+                }
+                
+                // Close the days since the last run: leftover scheduled appointments become no-shows
+                closePendingDays();
+                return null;
+            }, e -> null);
+            
+            // And close each day as it ends, in case the application is left open overnight
+            scheduleDailyClose();
+            
             // Load main window FXML
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/main-window.fxml"));
             Scene scene = new Scene(loader.load(), 1200, 800);
@@ -49,6 +93,10 @@ public class RebelleApplication extends Application {
     @Override
     public void stop() {
         try {
+            if (closeScheduler != null) {
+                closeScheduler.shutdownNow();
+            }
+            
             // Clean shutdown - close database connections
             DatabaseManager.getInstance().closeConnection();
         } catch (Exception e) {
@@ -56,6 +104,38 @@ public class RebelleApplication extends Application {
         }
     }
     
+    /**
+     * Run the end-of-day close shortly after every midnight
+     */
+    private void scheduleDailyClose() {
+        closeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "daily-close");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleNextClose();
+    }
+    
+    private void scheduleNextClose() {
+        LocalDateTime next = LocalDate.now().plusDays(1).atTime(0, 1);
+        long delay = Duration.between(LocalDateTime.now(), next).toMillis();
+        closeScheduler.schedule(() -> {
+            // Through the service executor, as the close shares the database connection
+            ServiceExecutor.getInstance().submit(() -> {
+                closePendingDays();
+                return null;
+            }, e -> null);
+            scheduleNextClose();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+    
+    private static void closePendingDays() {
+        DailyCloseService.ServiceResult<?> result = new DailyCloseService().closePendingDays();
+        if (!result.isSuccess()) {
+            System.err.println("End-of-day close failed: " + result.getMessage());
+        }
+    }
+    
     /**
      * Show error alert dialog
      */
@@ -0,0 +1,120 @@
+package com.rebelle.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RecurrenceRule - Repeats an appointment every N days, weeks or months from
+ * a first date, until an end date or for a number of occurrences. Monthly
+ * repeats keep the day of month of the first date, falling back to the last
+ * day in shorter months.
+ */
+public final class RecurrenceRule {
+    
+    /** Upper bound on the occurrences one rule may expand to */
+    public static final int MAX_OCCURRENCES = 366;
+    
+    public enum Frequency {
+        DAILY("Daily"),
+        WEEKLY("Weekly"),
+        MONTHLY("Monthly");
+        
+        private final String displayName;
+        
+        Frequency(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
+    private final Frequency frequency;
+    private final int interval;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Integer count;
+    
+    private RecurrenceRule(Frequency frequency, int interval, LocalDate startDate, LocalDate endDate, Integer count) {
+        if (frequency == null || startDate == null) {
+            throw new IllegalArgumentException("Frequency and start date are required");
+        }
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1");
+        }
+        if (endDate != null && endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date cannot be before the start date");
+        }
+        if (count != null && (count < 1 || count > MAX_OCCURRENCES)) {
+            throw new IllegalArgumentException("Occurrences must be between 1 and " + MAX_OCCURRENCES);
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.count = count;
+    }
+    
+    /**
+     * Repeat until an end date (inclusive)
+     */
+    public static RecurrenceRule until(Frequency frequency, int interval, LocalDate startDate, LocalDate endDate) {
+        if (endDate == null) {
+            throw new IllegalArgumentException("End date is required");
+        }
+        return new RecurrenceRule(frequency, interval, startDate, endDate, null);
+    }
+    
+    /**
+     * Repeat a fixed number of times, the first date included
+     */
+    public static RecurrenceRule times(Frequency frequency, int interval, LocalDate startDate, int count) {
+        return new RecurrenceRule(frequency, interval, startDate, null, count);
+    }
+    
+    public Frequency getFrequency() { return frequency; }
+    public int getInterval() { return interval; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public Integer getCount() { return count; }
+    
+    /**
+     * The dates of all occurrences in order, at most MAX_OCCURRENCES
+     */
+    public List<LocalDate> expand() {
+        int limit = count != null ? count : MAX_OCCURRENCES;
+        List<LocalDate> dates = new ArrayList<>();
+        for (int i = 0; i < limit; i++) {
+            LocalDate date = occurrence(i);
+            if (endDate != null && date.isAfter(endDate)) {
+                break;
+            }
+            dates.add(date);
+        }
+        return dates;
+    }
+    
+    private LocalDate occurrence(int index) {
+        long steps = (long) index * interval;
+        switch (frequency) {
+            case DAILY:
+                return startDate.plusDays(steps);
+            case WEEKLY:
+                return startDate.plusWeeks(steps);
+            default:
+                // Always from the first date, so a 31st is not lost after February
+                return startDate.plusMonths(steps);
+        }
+    }
+    
+    /**
+     * Compact text form stored with a series, e.g. "WEEKLY;INTERVAL=2;COUNT=10"
+     */
+    @Override
+    public String toString() {
+        return frequency.name() + ";INTERVAL=" + interval
+            + (count != null ? ";COUNT=" + count : ";UNTIL=" + endDate);
+    }
+}
@@ -0,0 +1,79 @@
+package com.rebelle.models;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * RescheduleStrategy - Where the appointments of a bulk reschedule go: the
+ * same appointments shifted by a fixed offset, the earliest free slots in a
+ * date range, or nowhere (cancelled with a reason).
+ */
+public final class RescheduleStrategy {
+    
+    public enum Kind {
+        SHIFT("Shift by offset"),
+        NEXT_FREE_SLOTS("Move to next free slots"),
+        CANCEL("Cancel");
+        
+        private final String displayName;
+        
+        Kind(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
+    private final Kind kind;
+    private final Duration offset;
+    private final LocalDate searchFrom;
+    private final LocalDate searchUntil;
+    private final String reason;
+    
+    private RescheduleStrategy(Kind kind, Duration offset, LocalDate searchFrom, LocalDate searchUntil, String reason) {
+        this.kind = kind;
+        this.offset = offset;
+        this.searchFrom = searchFrom;
+        this.searchUntil = searchUntil;
+        this.reason = reason;
+    }
+    
+    /**
+     * Move every appointment by the same offset, e.g. one day or two hours later
+     */
+    public static RescheduleStrategy shift(Duration offset) {
+        if (offset == null || offset.isZero()) {
+            throw new IllegalArgumentException("A non-zero offset is required");
+        }
+        return new RescheduleStrategy(Kind.SHIFT, offset, null, null, null);
+    }
+    
+    /**
+     * Move the appointments, in their order, into the earliest free slots
+     * between two dates inclusive
+     */
+    public static RescheduleStrategy nextFreeSlots(LocalDate searchFrom, LocalDate searchUntil) {
+        if (searchFrom == null || searchUntil == null) {
+            throw new IllegalArgumentException("A search range is required");
+        }
+        if (searchUntil.isBefore(searchFrom)) {
+            throw new IllegalArgumentException("End date cannot be before the start date");
+        }
+        return new RescheduleStrategy(Kind.NEXT_FREE_SLOTS, null, searchFrom, searchUntil, null);
+    }
+    
+    /**
+     * Cancel the appointments, recording the reason in their notes
+     */
+    public static RescheduleStrategy cancel(String reason) {
+        return new RescheduleStrategy(Kind.CANCEL, null, null, null, reason);
+    }
+    
+    public Kind getKind() { return kind; }
+    public Duration getOffset() { return offset; }
+    public LocalDate getSearchFrom() { return searchFrom; }
+    public LocalDate getSearchUntil() { return searchUntil; }
+    public String getReason() { return reason; }
+}
@@ -0,0 +1,313 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.AppointmentDAO;
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.models.Appointment;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ScheduleIndex - In-memory interval index of booked appointments per day, so
+ * conflict checks (booking, rescheduling, the form's live warning) need no
+ * database round trip.
+ *
+ * A day is loaded on its first check and kept current from AppointmentDAO
+ * change events. Each day is a start-sorted array read as an implicit
+ * balanced tree whose nodes carry the latest end time below them, which
+ * answers overlap queries in O(log n + k).
+ */
+public class ScheduleIndex {
+    
+    private static ScheduleIndex instance;
+    
+    /** Days kept in memory; the oldest loaded day is dropped beyond this */
+    private static final int MAX_DAYS = 400;
+    
+    private final AppointmentDAO appointmentDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LinkedHashMap<LocalDate, DaySchedule> days = new LinkedHashMap<>();
+    private final Map<Integer, LocalDate> dayById = new HashMap<>();
+    
+    private ScheduleIndex() {
+        this.appointmentDAO = new AppointmentDAO();
+        registerListener();
+    }
+    
+    public static synchronized ScheduleIndex getInstance() {
+        if (instance == null) {
+            instance = new ScheduleIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Booked appointments overlapping the given slot, in start time order.
+     * Cancelled appointments do not block a slot.
+     */
+    public List<Appointment> findConflicts(LocalDate date, LocalTime startTime, int durationMinutes,
+                                           Integer excludeAppointmentId) throws SQLException {
+        int start = startTime.toSecondOfDay() / 60;
+        int exclude = excludeAppointmentId != null ? excludeAppointmentId : 0;
+        List<Appointment> conflicts = new ArrayList<>();
+        
+        lock.readLock().lock();
+        try {
+            DaySchedule day = days.get(date);
+            if (day != null) {
+                day.collect(start, start + durationMinutes, exclude, conflicts);
+                return conflicts;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            loadDay(date).collect(start, start + durationMinutes, exclude, conflicts);
+            return conflicts;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Check many proposed appointments at once, e.g. the occurrences of a
+     * recurring series. Days not yet in memory are loaded with one range
+     * query. The result holds the conflicts of each proposal, in input order.
+     */
+    public List<List<Appointment>> findConflicts(List<Appointment> proposed) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            LocalDate first = null;
+            LocalDate last = null;
+            for (Appointment appointment : proposed) {
+                LocalDate date = appointment.getAppointmentDate();
+                if (!days.containsKey(date)) {
+                    first = first == null || date.isBefore(first) ? date : first;
+                    last = last == null || date.isAfter(last) ? date : last;
+                }
+            }
+            if (first != null) {
+                loadDays(first, last, proposed);
+            }
+            
+            // Demote to the read lock for the checks
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        try {
+            List<List<Appointment>> conflicts = new ArrayList<>(proposed.size());
+            for (Appointment appointment : proposed) {
+                int start = appointment.getAppointmentTime().toSecondOfDay() / 60;
+                List<Appointment> found = new ArrayList<>();
+                DaySchedule day = days.get(appointment.getAppointmentDate());
+                if (day != null) {
+                    day.collect(start, start + appointment.getDurationMinutes(), appointment.getId(), found);
+                }
+                conflicts.add(found);
+            }
+            return conflicts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * True if any booked appointment overlaps the given slot
+     */
+    public boolean hasConflict(LocalDate date, LocalTime startTime, int durationMinutes,
+                               Integer excludeAppointmentId) throws SQLException {
+        return !findConflicts(date, startTime, durationMinutes, excludeAppointmentId).isEmpty();
+    }
+    
+    /**
+     * Drop all loaded days; they are reloaded on the next check
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            days.clear();
+            dayById.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Load a day under the write lock, unless another thread already has
+     */
+    private DaySchedule loadDay(LocalDate date) throws SQLException {
+        DaySchedule day = days.get(date);
+        if (day != null) {
+            return day;
+        }
+        
+        day = new DaySchedule();
+        for (Appointment appointment : appointmentDAO.getActiveAppointmentsByDate(date)) {
+            day.appointments.add(appointment);
+            dayById.put(appointment.getId(), date);
+        }
+        day.rebuild();
+        days.put(date, day);
+        evictOldest();
+        return day;
+    }
+    
+    /**
+     * Load the days of the proposals that are missing, with one query over the range they span
+     */
+    private void loadDays(LocalDate first, LocalDate last, List<Appointment> proposed) throws SQLException {
+        Map<LocalDate, DaySchedule> loaded = new HashMap<>();
+        for (Appointment appointment : proposed) {
+            if (!days.containsKey(appointment.getAppointmentDate())) {
+                loaded.put(appointment.getAppointmentDate(), new DaySchedule());
+            }
+        }
+        for (Appointment appointment : appointmentDAO.getActiveAppointmentsByDateRange(first, last)) {
+            DaySchedule day = loaded.get(appointment.getAppointmentDate());
+            if (day != null) {
+                day.appointments.add(appointment);
+            }
+        }
+        for (Map.Entry<LocalDate, DaySchedule> entry : loaded.entrySet()) {
+            entry.getValue().rebuild();
+            days.put(entry.getKey(), entry.getValue());
+            for (Appointment appointment : entry.getValue().appointments) {
+                dayById.put(appointment.getId(), entry.getKey());
+            }
+        }
+        evictOldest();
+    }
+    
+    private void evictOldest() {
+        Iterator<Map.Entry<LocalDate, DaySchedule>> oldest = days.entrySet().iterator();
+        while (days.size() > MAX_DAYS) {
+            for (Appointment appointment : oldest.next().getValue().appointments) {
+                dayById.remove(appointment.getId());
+            }
+            oldest.remove();
+        }
+    }
+    
+    private void registerListener() {
+        AppointmentDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Appointment appointment) {
+                onUpdated(appointment);
+            }
+            
+            @Override
+            public void onUpdated(Appointment appointment) {
+                lock.writeLock().lock();
+                try {
+                    remove(appointment.getId());
+                    DaySchedule day = days.get(appointment.getAppointmentDate());
+                    // Days not loaded yet pick the appointment up when they are
+                    if (day != null && appointment.getStatus() != Appointment.Status.CANCELLED) {
+                        day.appointments.add(appointment);
+                        day.rebuild();
+                        dayById.put(appointment.getId(), appointment.getAppointmentDate());
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                lock.writeLock().lock();
+                try {
+                    remove(id);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+    }
+    
+    private void remove(int appointmentId) {
+        LocalDate date = dayById.remove(appointmentId);
+        DaySchedule day = date != null ? days.get(date) : null;
+        if (day != null && day.appointments.removeIf(a -> a.getId() == appointmentId)) {
+            day.rebuild();
+        }
+    }
+    
+    /**
+     * One day's appointments. The arrays are sorted by start minute; the node
+     * for a range [lo, hi) is its middle element, and maxEnd of that node is
+     * the latest end minute within the range.
+     */
+    private static final class DaySchedule {
+        final List<Appointment> appointments = new ArrayList<>();
+        Appointment[] sorted = new Appointment[0];
+        int[] starts = new int[0];
+        int[] ends = new int[0];
+        int[] maxEnd = new int[0];
+        
+        void rebuild() {
+            appointments.sort(Comparator.comparing(Appointment::getAppointmentTime));
+            int n = appointments.size();
+            sorted = appointments.toArray(new Appointment[0]);
+            starts = new int[n];
+            ends = new int[n];
+            maxEnd = new int[n];
+            for (int i = 0; i < n; i++) {
+                starts[i] = sorted[i].getAppointmentTime().toSecondOfDay() / 60;
+                // Minutes past midnight, so a late appointment running over is not wrapped
+                ends[i] = starts[i] + sorted[i].getDurationMinutes();
+            }
+            buildMaxEnd(0, n);
+        }
+        
+        private int buildMaxEnd(int lo, int hi) {
+            if (lo >= hi) {
+                return Integer.MIN_VALUE;
+            }
+            int mid = (lo + hi) >>> 1;
+            maxEnd[mid] = Math.max(ends[mid], Math.max(buildMaxEnd(lo, mid), buildMaxEnd(mid + 1, hi)));
+            return maxEnd[mid];
+        }
+        
+        void collect(int start, int end, int excludeId, List<Appointment> out) {
+            collect(0, sorted.length, start, end, excludeId, out);
+        }
+        
+        private void collect(int lo, int hi, int start, int end, int excludeId, List<Appointment> out) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            if (maxEnd[mid] <= start) {
+                // Everything in this range ends before the slot starts
+                return;
+            }
+            collect(lo, mid, start, end, excludeId, out);
+            if (starts[mid] >= end) {
+                // This and everything to its right starts after the slot ends
+                return;
+            }
+            if (ends[mid] > start && sorted[mid].getId() != excludeId) {
+                out.add(sorted[mid]);
+            }
+            collect(mid + 1, hi, start, end, excludeId, out);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.DatabaseManager;
+import com.rebelle.models.Appointment;
+import com.rebelle.utils.DateTimeUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ScheduleIndexTest - Conflict checks against one seeded day: overlaps are
+ * found in start order, touching slots and cancelled bookings do not block.
+ */
+class ScheduleIndexTest {
+    
+    private static final LocalDate DAY = LocalDate.of(2030, 5, 6);
+    
+    private Path database;
+    private ScheduleIndex index;
+    
+    @BeforeEach
+    void openScratchDatabase() throws Exception {
+        database = Files.createTempFile("rebelle-test", ".db");
+        DatabaseManager.getInstance().useDatabase("jdbc:sqlite:" + database);
+        
+        Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO patients (id, name, created_at, updated_at) "
+                + "VALUES (1, 'Jane Doe', '2024-01-01T09:00', '2024-01-01T09:00')");
+        }
+        insertAppointment(conn, 1, "09:00", 30, "SCHEDULED");
+        insertAppointment(conn, 2, "10:00", 60, "SCHEDULED");
+        insertAppointment(conn, 3, "12:00", 30, "CANCELLED");
+        
+        index = ScheduleIndex.getInstance();
+        index.invalidate();
+    }
+    
+    @AfterEach
+    void dropScratchDatabase() throws Exception {
+        index.invalidate();
+        DatabaseManager.getInstance().closeConnection();
+        Files.deleteIfExists(database);
+    }
+    
+    @Test
+    void overlappingBookingsAreFoundInStartOrder() throws Exception {
+        assertEquals(List.of(1), ids(index.findConflicts(DAY, LocalTime.of(9, 15), 15, null)));
+        assertEquals(List.of(1, 2), ids(index.findConflicts(DAY, LocalTime.of(8, 45), 120, null)));
+    }
+    
+    @Test
+    void touchingSlotsDoNotConflict() throws Exception {
+        assertFalse(index.hasConflict(DAY, LocalTime.of(8, 30), 30, null));
+        assertFalse(index.hasConflict(DAY, LocalTime.of(9, 30), 30, null));
+        assertFalse(index.hasConflict(DAY, LocalTime.of(11, 0), 30, null));
+    }
+    
+    @Test
+    void cancelledBookingDoesNotBlock() throws Exception {
+        assertFalse(index.hasConflict(DAY, LocalTime.of(12, 0), 30, null));
+    }
+    
+    @Test
+    void rescheduledAppointmentDoesNotConflictWithItself() throws Exception {
+        assertTrue(index.hasConflict(DAY, LocalTime.of(10, 15), 30, null));
+        assertFalse(index.hasConflict(DAY, LocalTime.of(10, 15), 30, 2));
+    }
+    
+    private static void insertAppointment(Connection conn, int id, String time, int duration, String status)
+            throws Exception {
+        String sql = "INSERT INTO appointments (id, patient_id, appointment_date, start_time, duration_minutes, "
+            + "start_minute, end_minute, status) VALUES (?, 1, ?, ?, ?, ?, ?, ?)";
+        long start = DateTimeUtils.toEpochMinute(DAY, LocalTime.parse(time));
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            stmt.setString(2, DAY.toString());
+            stmt.setString(3, time);
+            stmt.setInt(4, duration);
+            stmt.setLong(5, start);
+            stmt.setLong(6, start + duration);
+            stmt.setString(7, status);
+            stmt.executeUpdate();
+        }
+    }
+    
+    private static List<Integer> ids(List<Appointment> appointments) {
+        return appointments.stream().map(Appointment::getId).toList();
+    }
+}
@@ -0,0 +1,289 @@
+package com.rebelle.controllers;
+
+import com.rebelle.services.ServiceExecutor;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.control.TextField;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+/**
+ * SearchPipeline - Debounced, cancellable search-as-you-type for list screens.
+ *
+ * Keystrokes restart a debounce timer; when it fires the query runs on the
+ * service executor and any query still in flight is cancelled. Only the latest
+ * query delivers results, so a slow early search can never overwrite a newer one.
+ * Results are cached per query, and with a matcher set a query that extends a
+ * cached one is answered by filtering the cached rows instead of searching again.
+ *
+ * All state is owned by the JavaFX thread.
+ */
+public class SearchPipeline<T> {
+    
+    /**
+     * Runs one query off the JavaFX thread
+     */
+    public interface Searcher<T> {
+        List<T> search(String query) throws Exception;
+    }
+    
+    public static final Duration DEFAULT_DELAY = Duration.millis(250);
+    
+    private static final int CACHE_SIZE = 32;
+    
+    private final Searcher<T> searcher;
+    private final int minLength;
+    private final PauseTransition debounce;
+    private final Map<String, List<T>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<T>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    
+    private BiPredicate<T, String> matcher;
+    private BiConsumer<String, List<T>> onResults;
+    private Runnable onCleared;
+    private Consumer<String> onSearching;
+    private Consumer<String> onError;
+    
+    private String pendingQuery = "";
+    private String currentQuery;
+    private CompletableFuture<Outcome<T>> inFlight;
+    private long generation;
+    
+    /**
+     * @param delay     quiet time after the last keystroke before searching
+     * @param minLength shortest typed query that triggers a search (Enter always searches)
+     */
+    public SearchPipeline(Duration delay, int minLength, Searcher<T> searcher) {
+        this.searcher = searcher;
+        this.minLength = minLength;
+        this.debounce = new PauseTransition(delay);
+        this.debounce.setOnFinished(e -> run(pendingQuery));
+    }
+    
+    /**
+     * Enable prefix refinement. The matcher must accept exactly the rows the
+     * searcher would return for the (lower-cased) query, and the searcher must
+     * return every match, not a limited subset.
+     */
+    public SearchPipeline<T> refineWith(BiPredicate<T, String> matcher) {
+        this.matcher = matcher;
+        return this;
+    }
+    
+    /**
+     * Search as the user types, and immediately on Enter
+     */
+    public void attach(TextField field) {
+        field.textProperty().addListener((obs, oldValue, newValue) -> submit(newValue));
+        field.setOnAction(e -> searchNow(field.getText()));
+    }
+    
+    public void setOnResults(BiConsumer<String, List<T>> onResults) {
+        this.onResults = onResults;
+    }
+    
+    /**
+     * Called when the query becomes empty, i.e. the screen should show its unfiltered list
+     */
+    public void setOnCleared(Runnable onCleared) {
+        this.onCleared = onCleared;
+    }
+    
+    public void setOnSearching(Consumer<String> onSearching) {
+        this.onSearching = onSearching;
+    }
+    
+    public void setOnError(Consumer<String> onError) {
+        this.onError = onError;
+    }
+    
+    /**
+     * Queue a query; it runs once typing pauses
+     */
+    public void submit(String text) {
+        String query = text == null ? "" : text.trim();
+        if (query.isEmpty()) {
+            clear();
+            return;
+        }
+        if (query.length() < minLength) {
+            cancel();
+            return;
+        }
+        pendingQuery = query;
+        debounce.playFromStart();
+    }
+    
+    /**
+     * Run a query now, skipping the debounce delay
+     */
+    public void searchNow(String text) {
+        debounce.stop();
+        String query = text == null ? "" : text.trim();
+        if (query.isEmpty()) {
+            clear();
+            return;
+        }
+        run(query);
+    }
+    
+    /**
+     * Search the current query again, bypassing the cache (e.g. after an edit)
+     */
+    public void rerun() {
+        cache.clear();
+        if (currentQuery != null) {
+            run(currentQuery);
+        }
+    }
+    
+    /**
+     * Forget cached results; call when the underlying data changes
+     */
+    public void invalidateCache() {
+        cache.clear();
+    }
+    
+    /**
+     * Drop the pending query and cancel the one in flight
+     */
+    public void cancel() {
+        debounce.stop();
+        generation++;
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+    }
+    
+    /**
+     * True when a query is shown rather than the unfiltered list
+     */
+    public boolean isActive() {
+        return currentQuery != null;
+    }
+    
+    /**
+     * Case-insensitive containment test for matchers; the query is already lower-cased
+     */
+    public static boolean containsIgnoreCase(String value, String lowerQuery) {
+        return value != null && value.toLowerCase().contains(lowerQuery);
+    }
+    
+    private void clear() {
+        cancel();
+        currentQuery = null;
+        if (onCleared != null) {
+            onCleared.run();
+        }
+    }
+    
+    private void run(String query) {
+        cancel();
+        long ticket = generation;
+        currentQuery = query;
+        String key = query.toLowerCase();
+        
+        List<T> cached = lookup(key);
+        if (cached != null) {
+            deliver(query, cached);
+            return;
+        }
+        
+        if (onSearching != null) {
+            onSearching.accept(query);
+        }
+        
+        CompletableFuture<Outcome<T>> future = ServiceExecutor.getInstance().submit(() -> {
+            try {
+                return Outcome.of(searcher.search(query));
+            } catch (Exception e) {
+                return Outcome.failed(e);
+            }
+        }, Outcome::failed);
+        inFlight = future;
+        
+        future.whenComplete((outcome, error) -> Platform.runLater(() -> {
+            // Cancelled or superseded by a newer query
+            if (error != null || ticket != generation) {
+                return;
+            }
+            inFlight = null;
+            if (outcome.error != null) {
+                if (onError != null) {
+                    onError.accept(outcome.error);
+                }
+                return;
+            }
+            List<T> rows = Collections.unmodifiableList(outcome.rows);
+            cache.put(key, rows);
+            deliver(query, rows);
+        }));
+    }
+    
+    /**
+     * Exact cache hit, or the longest cached prefix filtered down with the matcher
+     */
+    private List<T> lookup(String key) {
+        List<T> exact = cache.get(key);
+        if (exact != null || matcher == null) {
+            return exact;
+        }
+        for (int length = key.length() - 1; length > 0; length--) {
+            List<T> broader = cache.get(key.substring(0, length));
+            if (broader == null) {
+                continue;
+            }
+            List<T> refined = new ArrayList<>();
+            for (T row : broader) {
+                if (matcher.test(row, key)) {
+                    refined.add(row);
+                }
+            }
+            refined = Collections.unmodifiableList(refined);
+            cache.put(key, refined);
+            return refined;
+        }
+        return null;
+    }
+    
+    private void deliver(String query, List<T> rows) {
+        if (onResults != null) {
+            onResults.accept(query, rows);
+        }
+    }
+    
+    /**
+     * Rows or an error message from one background search
+     */
+    private static final class Outcome<T> {
+        final List<T> rows;
+        final String error;
+        
+        private Outcome(List<T> rows, String error) {
+            this.rows = rows;
+            this.error = error;
+        }
+        
+        static <T> Outcome<T> of(List<T> rows) {
+            return new Outcome<>(rows != null ? rows : new ArrayList<>(), null);
+        }
+        
+        static <T> Outcome<T> failed(Throwable error) {
+            String message = error.getMessage();
+            return new Outcome<>(null, message != null ? message : error.toString());
+        }
+    }
+}
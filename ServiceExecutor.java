@@ -0,0 +1,177 @@
+package com.rebelle.services;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ServiceExecutor - Shared executor behind the asynchronous service API.
+ *
+ * Work runs on virtual threads when the runtime provides them (Java 21+) and on
+ * a bounded daemon pool otherwise. Either way a semaphore lets one service call
+ * at a time touch the database: every DAO shares DatabaseManager's single
+ * SQLite connection and closes it when done, so two calls at once would close
+ * it under each other (and join each other's transactions). Futures returned here are cancellable:
+ * cancelling one interrupts its task if it is running and skips it if not.
+ */
+public class ServiceExecutor {
+    
+    private static ServiceExecutor instance;
+    
+    /** Concurrent service calls allowed to use the database; the SQLite connection is shared */
+    private static final int DB_CONCURRENCY = 1;
+    
+    private final ExecutorService executor;
+    private final Semaphore dbPermits = new Semaphore(DB_CONCURRENCY, true);
+    
+    private ServiceExecutor() {
+        this.executor = createExecutor();
+    }
+    
+    public static synchronized ServiceExecutor getInstance() {
+        if (instance == null) {
+            instance = new ServiceExecutor();
+        }
+        return instance;
+    }
+    
+    /**
+     * Run a service call asynchronously. Unexpected exceptions are turned into
+     * a result with onError, so the future only fails when it is cancelled.
+     */
+    public <R> CompletableFuture<R> submit(Supplier<R> work, Function<Throwable, R> onError) {
+        return submit(work, onError, dbPermits);
+    }
+    
+    /**
+     * Run a call that only uses a store opening its own connection per call
+     * (the payment database), so it runs alongside local database work
+     * instead of waiting for it
+     */
+    public <R> CompletableFuture<R> submitExternal(Supplier<R> work, Function<Throwable, R> onError) {
+        return submit(work, onError, null);
+    }
+    
+    private <R> CompletableFuture<R> submit(Supplier<R> work, Function<Throwable, R> onError, Semaphore permits) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        
+        Future<?> task = executor.submit(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (permits != null) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.cancel(false);
+                    return;
+                }
+            }
+            try {
+                result.complete(work.get());
+            } catch (Throwable t) {
+                result.complete(onError.apply(t));
+            } finally {
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        });
+        
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Run a dependent step once the previous future completes. Cancelling the
+     * returned future also cancels the previous one, so cancelling the last
+     * stage of a chain stops the whole chain.
+     */
+    public <A, R> CompletableFuture<R> thenSubmit(CompletableFuture<A> previous, Function<A, R> work,
+                                                  Function<Throwable, R> onError) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        
+        previous.whenComplete((value, error) -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                if (cause instanceof CancellationException) {
+                    result.cancel(false);
+                } else {
+                    result.complete(onError.apply(cause));
+                }
+                return;
+            }
+            
+            CompletableFuture<R> next = submit(() -> work.apply(value), onError);
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) {
+                    next.cancel(true);
+                }
+            });
+            next.whenComplete((r, e) -> {
+                if (e == null) {
+                    result.complete(r);
+                } else {
+                    result.cancel(false);
+                }
+            });
+        });
+        
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                previous.cancel(true);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Stop accepting work; running tasks are interrupted
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+    
+    /**
+     * Prefer a virtual-thread-per-task executor; looked up reflectively because
+     * the project still compiles for Java 17.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Object virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return (ExecutorService) virtual;
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(DB_CONCURRENCY * 2, Runtime.getRuntime().availableProcessors());
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "service-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.rebelle.dao;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Data Access Object for application settings (key/value pairs)
+ */
+public class SettingsDAO {
+    
+    private final DatabaseManager dbManager;
+    
+    public SettingsDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+    
+    /**
+     * Value of one setting
+     */
+    public Optional<String> getValue(String key) throws SQLException {
+        String sql = "SELECT value FROM settings WHERE key = ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Optional.ofNullable(rs.getString("value")) : Optional.empty();
+            }
+        }
+    }
+    
+    /**
+     * All settings by key
+     */
+    public Map<String, String> getAll() throws SQLException {
+        String sql = "SELECT key, value FROM settings";
+        Map<String, String> settings = new HashMap<>();
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                settings.put(rs.getString("key"), rs.getString("value"));
+            }
+        }
+        return settings;
+    }
+}
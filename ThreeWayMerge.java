@@ -0,0 +1,108 @@
+package com.rebelle.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * ThreeWayMerge - Field-by-field merge of an edit with a concurrent change.
+ *
+ * Given the object the edit started from (base), the edited values (mine)
+ * and what is saved now (theirs), each field takes whichever side changed
+ * it. A field both sides changed to different values is a conflict; mine is
+ * kept for it until the caller decides otherwise.
+ */
+public final class ThreeWayMerge<T> {
+    
+    private final List<Field<T, ?>> fields = new ArrayList<>();
+    
+    /**
+     * Add a field compared with equals(); empty text equals null
+     */
+    public <V> ThreeWayMerge<T> field(String name, Function<T, V> getter, BiConsumer<T, V> setter) {
+        fields.add(new Field<>(name, getter, setter));
+        return this;
+    }
+    
+    /**
+     * Merge theirs into mine. Fields only they changed are copied into mine;
+     * theirs and base are left untouched.
+     */
+    public Result<T> merge(T base, T mine, T theirs) {
+        List<Field<T, ?>> conflicts = new ArrayList<>();
+        for (Field<T, ?> field : fields) {
+            if (field.same(mine, base)) {
+                field.copy(theirs, mine);
+            } else if (!field.same(theirs, base) && !field.same(theirs, mine)) {
+                conflicts.add(field);
+            }
+        }
+        return new Result<>(mine, theirs, conflicts);
+    }
+    
+    public static final class Result<T> {
+        private final T merged;
+        private final T theirs;
+        private final List<Field<T, ?>> conflicts;
+        
+        private Result(T merged, T theirs, List<Field<T, ?>> conflicts) {
+            this.merged = merged;
+            this.theirs = theirs;
+            this.conflicts = conflicts;
+        }
+        
+        /** The merged object (mine, with their changes applied) */
+        public T getMerged() { return merged; }
+        
+        public boolean hasConflicts() {
+            return !conflicts.isEmpty();
+        }
+        
+        /** Names of the fields both sides changed */
+        public List<String> getConflicts() {
+            List<String> names = new ArrayList<>(conflicts.size());
+            for (Field<T, ?> field : conflicts) {
+                names.add(field.name);
+            }
+            return Collections.unmodifiableList(names);
+        }
+        
+        /**
+         * Resolve every conflict in favour of the saved values
+         */
+        public T keepTheirs() {
+            for (Field<T, ?> field : conflicts) {
+                field.copy(theirs, merged);
+            }
+            return merged;
+        }
+    }
+    
+    private static final class Field<T, V> {
+        final String name;
+        final Function<T, V> getter;
+        final BiConsumer<T, V> setter;
+        
+        Field(String name, Function<T, V> getter, BiConsumer<T, V> setter) {
+            this.name = name;
+            this.getter = getter;
+            this.setter = setter;
+        }
+        
+        boolean same(T a, T b) {
+            return Objects.equals(normalize(getter.apply(a)), normalize(getter.apply(b)));
+        }
+        
+        // Forms read blank fields as empty text, so that and null are the same value
+        private static Object normalize(Object value) {
+            return "".equals(value) ? null : value;
+        }
+        
+        void copy(T from, T to) {
+            setter.accept(to, getter.apply(from));
+        }
+    }
+}
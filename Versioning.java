@@ -0,0 +1,39 @@
+package com.rebelle.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Versioning - Compare-and-set support for tables with a version column.
+ *
+ * A versioned UPDATE sets "version = version + 1" and ends with
+ * "WHERE id = ? AND version = ?". When it touches no row, either the row is
+ * gone or another writer got there first; one primary key probe tells which.
+ */
+final class Versioning {
+    
+    private Versioning() {
+    }
+    
+    /**
+     * Run a prepared versioned update. True if the row was updated, false if it
+     * no longer exists; throws OptimisticLockException if its version moved on.
+     */
+    static boolean update(PreparedStatement stmt, Connection conn, String table, int id, int expectedVersion)
+            throws SQLException {
+        if (stmt.executeUpdate() > 0) {
+            return true;
+        }
+        try (PreparedStatement probe = conn.prepareStatement("SELECT 1 FROM " + table + " WHERE id = ?")) {
+            probe.setInt(1, id);
+            try (ResultSet rs = probe.executeQuery()) {
+                if (rs.next()) {
+                    throw new OptimisticLockException(table, id, expectedVersion);
+                }
+            }
+        }
+        return false;
+    }
+}
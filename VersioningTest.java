@@ -0,0 +1,114 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * VersioningTest - A versioned update either wins, finds the row gone, or
+ * reports the lost update; a lost update never leaves a stale cached copy.
+ */
+class VersioningTest {
+    
+    private static final String RENAME_SQL =
+        "UPDATE patients SET name = ?, version = version + 1 WHERE id = ? AND version = ?";
+    
+    private Path database;
+    
+    @BeforeEach
+    void openScratchDatabase() throws Exception {
+        database = Files.createTempFile("rebelle-test", ".db");
+        DatabaseManager.getInstance().useDatabase("jdbc:sqlite:" + database);
+        PatientCache.getInstance().clear();
+        execute("INSERT INTO patients (id, name, created_at, updated_at) "
+            + "VALUES (1, 'Jane Doe', '2024-01-01T09:00', '2024-01-01T09:00')");
+    }
+    
+    @AfterEach
+    void dropScratchDatabase() throws Exception {
+        DatabaseManager.getInstance().closeConnection();
+        Files.deleteIfExists(database);
+    }
+    
+    @Test
+    void matchingVersionUpdatesTheRow() throws Exception {
+        assertTrue(rename(1, 0, "Jane Roe"));
+        assertTrue(rename(1, 1, "Jane Poe"));
+    }
+    
+    @Test
+    void missingRowIsNotAConflict() throws Exception {
+        assertFalse(rename(42, 0, "Nobody"));
+    }
+    
+    @Test
+    void staleVersionThrows() throws Exception {
+        rename(1, 0, "Jane Roe");
+        
+        OptimisticLockException e = assertThrows(OptimisticLockException.class, () -> rename(1, 0, "Jane Poe"));
+        assertEquals("patients", e.getTable());
+        assertEquals(1, e.getId());
+        assertEquals(0, e.getExpectedVersion());
+    }
+    
+    @Test
+    void lostUpdateEvictsTheCachedPatient() throws Exception {
+        PatientDAO patientDAO = new PatientDAO();
+        Patient stale = patientDAO.getPatientById(1).orElseThrow();
+        
+        // Another station saves the same patient in between
+        execute("UPDATE patients SET name = 'Jane Roe', version = 1 WHERE id = 1");
+        stale.setName("Jane Poe");
+        
+        assertThrows(OptimisticLockException.class, () -> patientDAO.updatePatient(stale));
+        
+        Patient reloaded = patientDAO.getPatientById(1).orElseThrow();
+        assertEquals("Jane Roe", reloaded.getName());
+        assertEquals(1, reloaded.getVersion());
+        assertTrue(patientDAO.updatePatient(reloaded));
+    }
+    
+    @Test
+    void previouslyEditedSurvivorCanBeMerged() throws Exception {
+        execute("INSERT INTO patients (id, name, created_at, updated_at) "
+            + "VALUES (2, 'Jane Doe', '2024-02-01T09:00', '2024-02-01T09:00')");
+        PatientDAO patientDAO = new PatientDAO();
+        Patient survivor = patientDAO.getPatientById(1).orElseThrow();
+        survivor.setPhone("555-0101");
+        patientDAO.updatePatient(survivor);
+        
+        patientDAO.mergePatients(patientDAO.getPatientById(1).orElseThrow(), List.of(2));
+        
+        assertEquals(2, patientDAO.getPatientById(1).orElseThrow().getVersion());
+    }
+    
+    private static boolean rename(int id, int expectedVersion, String name) throws SQLException {
+        Connection conn = DatabaseManager.getInstance().getConnection();
+        try (PreparedStatement stmt = conn.prepareStatement(RENAME_SQL)) {
+            stmt.setString(1, name);
+            stmt.setInt(2, id);
+            stmt.setInt(3, expectedVersion);
+            return Versioning.update(stmt, conn, "patients", id, expectedVersion);
+        }
+    }
+    
+    private static void execute(String sql) throws SQLException {
+        try (Statement stmt = DatabaseManager.getInstance().getConnection().createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.rebelle.dao;
+
+import com.rebelle.models.WaitlistEntry;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * WaitlistDAO - Data Access Object for waitlist entries
+ */
+public class WaitlistDAO {
+    
+    private static final ChangeNotifier<WaitlistEntry> CHANGES = new ChangeNotifier<>();
+    
+    private final DatabaseManager dbManager;
+    
+    public WaitlistDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+    
+    /**
+     * Listener registry notified after successful waitlist writes
+     */
+    public static ChangeNotifier<WaitlistEntry> changes() {
+        return CHANGES;
+    }
+    
+    /**
+     * Add an entry to the waitlist
+     */
+    public WaitlistEntry createEntry(WaitlistEntry entry) throws SQLException {
+        String sql = """
+            INSERT INTO waitlist (patient_id, service_id, duration_minutes, earliest_date, latest_date,
+                                  urgency, status, notes, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            
+            stmt.setInt(1, entry.getPatientId());
+            stmt.setObject(2, entry.getServiceId());
+            stmt.setInt(3, entry.getDurationMinutes());
+            stmt.setString(4, entry.getEarliestDate().toString());
+            stmt.setString(5, entry.getLatestDate().toString());
+            stmt.setString(6, entry.getUrgency().name());
+            stmt.setString(7, entry.getStatus().name());
+            stmt.setString(8, entry.getNotes());
+            stmt.setString(9, entry.getCreatedAt().toString());
+            stmt.executeUpdate();
+            
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    entry.setId(generatedKeys.getInt(1));
+                    CHANGES.fireInserted(entry);
+                    return entry;
+                } else {
+                    throw new SQLException("Creating waitlist entry failed, no ID obtained.");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Save the status and offered slot of an entry
+     */
+    public boolean updateEntry(WaitlistEntry entry) throws SQLException {
+        String sql = "UPDATE waitlist SET status = ?, notes = ?, offered_appointment_id = ?, " +
+                    "offered_date = ?, offered_time = ? WHERE id = ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, entry.getStatus().name());
+            stmt.setString(2, entry.getNotes());
+            stmt.setObject(3, entry.getOfferedAppointmentId());
+            stmt.setString(4, entry.getOfferedDate() != null ? entry.getOfferedDate().toString() : null);
+            stmt.setString(5, entry.getOfferedTime() != null ? entry.getOfferedTime().toString() : null);
+            stmt.setInt(6, entry.getId());
+            
+            boolean updated = stmt.executeUpdate() > 0;
+            if (updated) {
+                CHANGES.fireUpdated(entry);
+            }
+            return updated;
+        }
+    }
+    
+    /**
+     * Get an entry by ID
+     */
+    public Optional<WaitlistEntry> getEntryById(int id) throws SQLException {
+        String sql = "SELECT * FROM waitlist WHERE id = ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapResultSetToEntry(rs)) : Optional.empty();
+            }
+        }
+    }
+    
+    /**
+     * Waiting and offered entries whose window has not passed, oldest first
+     */
+    public List<WaitlistEntry> getOpenEntries() throws SQLException {
+        String sql = "SELECT * FROM waitlist WHERE status IN ('WAITING', 'OFFERED') AND latest_date >= ? " +
+                    "ORDER BY created_at, id";
+        List<WaitlistEntry> entries = new ArrayList<>();
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, LocalDate.now().toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(mapResultSetToEntry(rs));
+                }
+            }
+        }
+        return entries;
+    }
+    
+    private WaitlistEntry mapResultSetToEntry(ResultSet rs) throws SQLException {
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setId(rs.getInt("id"));
+        entry.setPatientId(rs.getInt("patient_id"));
+        int serviceId = rs.getInt("service_id");
+        entry.setServiceId(rs.wasNull() ? null : serviceId);
+        entry.setDurationMinutes(rs.getInt("duration_minutes"));
+        entry.setEarliestDate(LocalDate.parse(rs.getString("earliest_date")));
+        entry.setLatestDate(LocalDate.parse(rs.getString("latest_date")));
+        entry.setUrgency(WaitlistEntry.Urgency.valueOf(rs.getString("urgency")));
+        entry.setStatus(WaitlistEntry.Status.valueOf(rs.getString("status")));
+        entry.setNotes(rs.getString("notes"));
+        
+        String createdAt = rs.getString("created_at");
+        if (createdAt != null) {
+            entry.setCreatedAt(LocalDateTime.parse(createdAt.replace(' ', 'T')));
+        }
+        
+        int offeredId = rs.getInt("offered_appointment_id");
+        if (!rs.wasNull()) {
+            String offeredDate = rs.getString("offered_date");
+            String offeredTime = rs.getString("offered_time");
+            entry.setOffer(offeredId,
+                           offeredDate != null ? LocalDate.parse(offeredDate) : null,
+                           offeredTime != null ? LocalTime.parse(offeredTime) : null);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,142 @@
+package com.rebelle.models;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * WaitlistEntry - A patient waiting for an appointment slot within a date
+ * window. When a cancellation frees a slot that fits, the entry is offered
+ * that slot until it is accepted or declined.
+ */
+public class WaitlistEntry {
+    
+    public enum Urgency {
+        ROUTINE("Routine"),
+        SOON("Soon"),
+        URGENT("Urgent");
+        
+        private final String displayName;
+        
+        Urgency(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
+    public enum Status {
+        WAITING("Waiting"),
+        OFFERED("Offered"),
+        BOOKED("Booked"),
+        WITHDRAWN("Withdrawn");
+        
+        private final String displayName;
+        
+        Status(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
+    private int id;
+    private int patientId;
+    private Integer serviceId; // Optional - can be null
+    private int durationMinutes;
+    private LocalDate earliestDate;
+    private LocalDate latestDate;
+    private Urgency urgency;
+    private Status status;
+    private String notes;
+    private LocalDateTime createdAt;
+    
+    // The freed slot on offer, set while the status is OFFERED
+    private Integer offeredAppointmentId;
+    private LocalDate offeredDate;
+    private LocalTime offeredTime;
+    
+    public WaitlistEntry() {
+        this.urgency = Urgency.ROUTINE;
+        this.status = Status.WAITING;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public WaitlistEntry(int patientId, Integer serviceId, int durationMinutes,
+                         LocalDate earliestDate, LocalDate latestDate, Urgency urgency) {
+        this();
+        this.patientId = patientId;
+        this.serviceId = serviceId;
+        this.durationMinutes = durationMinutes;
+        this.earliestDate = earliestDate;
+        this.latestDate = latestDate;
+        this.urgency = urgency;
+    }
+    
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    
+    public int getPatientId() { return patientId; }
+    public void setPatientId(int patientId) { this.patientId = patientId; }
+    
+    public Integer getServiceId() { return serviceId; }
+    public void setServiceId(Integer serviceId) { this.serviceId = serviceId; }
+    
+    public int getDurationMinutes() { return durationMinutes; }
+    public void setDurationMinutes(int durationMinutes) { this.durationMinutes = durationMinutes; }
+    
+    public LocalDate getEarliestDate() { return earliestDate; }
+    public void setEarliestDate(LocalDate earliestDate) { this.earliestDate = earliestDate; }
+    
+    public LocalDate getLatestDate() { return latestDate; }
+    public void setLatestDate(LocalDate latestDate) { this.latestDate = latestDate; }
+    
+    public Urgency getUrgency() { return urgency; }
+    public void setUrgency(Urgency urgency) { this.urgency = urgency; }
+    
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    
+    public String getNotes() { return notes; }
+    public void setNotes(String notes) { this.notes = notes; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public Integer getOfferedAppointmentId() { return offeredAppointmentId; }
+    public LocalDate getOfferedDate() { return offeredDate; }
+    public LocalTime getOfferedTime() { return offeredTime; }
+    
+    /**
+     * Offer the slot freed by a cancelled appointment
+     */
+    public void offer(Appointment freed) {
+        this.status = Status.OFFERED;
+        this.offeredAppointmentId = freed.getId();
+        this.offeredDate = freed.getAppointmentDate();
+        this.offeredTime = freed.getAppointmentTime();
+    }
+    
+    /**
+     * Set the offered slot as read from the database
+     */
+    public void setOffer(Integer appointmentId, LocalDate date, LocalTime time) {
+        this.offeredAppointmentId = appointmentId;
+        this.offeredDate = date;
+        this.offeredTime = time;
+    }
+    
+    /**
+     * Clear the offer and set the new status
+     */
+    public void clearOffer(Status status) {
+        this.status = status;
+        this.offeredAppointmentId = null;
+        this.offeredDate = null;
+        this.offeredTime = null;
+    }
+}
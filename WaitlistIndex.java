@@ -0,0 +1,336 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.AppointmentDAO;
+import com.rebelle.dao.DataChangeListener;
+import com.rebelle.dao.WaitlistDAO;
+import com.rebelle.models.Appointment;
+import com.rebelle.models.WaitlistEntry;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * WaitlistIndex - Offers slots freed by cancellations to the waitlist.
+ *
+ * Waiting entries are indexed per day of their window, and within a day by
+ * the length they need; each of those buckets is a set ordered by urgency,
+ * then by how long the entry has waited. A freed slot is matched by taking
+ * the head of every bucket that fits in it and keeping the best, which is
+ * O(k log n) for k distinct lengths. Matching runs on the AppointmentDAO
+ * cancellation event, never as a scan of the whole waitlist.
+ */
+public class WaitlistIndex {
+    
+    private static WaitlistIndex instance;
+    
+    /** Longest window an entry may wait for; bounds the per-day index */
+    public static final int MAX_WINDOW_DAYS = 90;
+    
+    private static final Comparator<WaitlistEntry> PRIORITY =
+        Comparator.comparing(WaitlistEntry::getUrgency, Comparator.reverseOrder())
+            .thenComparing(WaitlistEntry::getCreatedAt)
+            .thenComparingInt(WaitlistEntry::getId);
+    
+    private final WaitlistDAO waitlistDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<LocalDate, TreeMap<Integer, TreeSet<WaitlistEntry>>> byDay = new HashMap<>();
+    private final Map<Integer, WaitlistEntry> waiting = new HashMap<>();
+    // Cancelled appointments whose slot is on offer, so a repeated event does not offer it twice
+    private final Set<Integer> offeredSlots = new HashSet<>();
+    private boolean loaded;
+    
+    private WaitlistIndex() {
+        this.waitlistDAO = new WaitlistDAO();
+        registerListeners();
+    }
+    
+    public static synchronized WaitlistIndex getInstance() {
+        if (instance == null) {
+            instance = new WaitlistIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Load the open entries and start listening for cancellations
+     */
+    public void warmUp() throws SQLException {
+        ensureLoaded();
+    }
+    
+    /**
+     * Offer the slot of a cancelled appointment to the best waiting entry that
+     * fits it. Returns the entry now holding the offer, or null if none fits,
+     * the slot has passed, is already on offer or has been booked again.
+     */
+    public WaitlistEntry offerSlot(Appointment freed) throws SQLException {
+        LocalDateTime start = freed.getAppointmentDateTime();
+        if (start == null || start.isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        ensureLoaded();
+        
+        WaitlistEntry entry;
+        lock.writeLock().lock();
+        try {
+            if (!offeredSlots.add(freed.getId())) {
+                return null;
+            }
+            entry = pollBest(freed.getAppointmentDate(), freed.getDurationMinutes());
+            if (entry == null) {
+                offeredSlots.remove(freed.getId());
+                return null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        boolean saved = false;
+        try {
+            // Someone may have booked over the slot since it was freed
+            if (!ScheduleIndex.getInstance().hasConflict(freed.getAppointmentDate(), freed.getAppointmentTime(),
+                                                          freed.getDurationMinutes(), freed.getId())) {
+                entry.offer(freed);
+                saved = waitlistDAO.updateEntry(entry);
+                if (!saved) {
+                    // The entry was deleted meanwhile; leave it out of the index
+                    entry.clearOffer(WaitlistEntry.Status.WITHDRAWN);
+                }
+            }
+        } finally {
+            if (!saved) {
+                if (entry.getStatus() == WaitlistEntry.Status.OFFERED) {
+                    entry.clearOffer(WaitlistEntry.Status.WAITING);
+                }
+                restore(entry, freed.getId());
+            }
+        }
+        return saved ? entry : null;
+    }
+    
+    /**
+     * The slot of this cancelled appointment is no longer on offer (accepted,
+     * declined or withdrawn) and may be offered again
+     */
+    public void releaseSlot(int appointmentId) {
+        lock.writeLock().lock();
+        try {
+            offeredSlots.remove(appointmentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Number of entries waiting for a slot
+     */
+    public int getWaitingCount() throws SQLException {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Drop the index; it is reloaded on next use
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            byDay.clear();
+            waiting.clear();
+            offeredSlots.clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void ensureLoaded() throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            for (WaitlistEntry entry : waitlistDAO.getOpenEntries()) {
+                if (entry.getStatus() == WaitlistEntry.Status.WAITING) {
+                    add(entry);
+                } else if (entry.getOfferedAppointmentId() != null) {
+                    offeredSlots.add(entry.getOfferedAppointmentId());
+                }
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove and return the best entry that fits a slot of the given length
+     */
+    private WaitlistEntry pollBest(LocalDate date, int slotMinutes) {
+        TreeMap<Integer, TreeSet<WaitlistEntry>> buckets = byDay.get(date);
+        if (buckets == null) {
+            return null;
+        }
+        WaitlistEntry best = null;
+        for (TreeSet<WaitlistEntry> bucket : buckets.headMap(slotMinutes, true).values()) {
+            WaitlistEntry head = bucket.first();
+            if (best == null || PRIORITY.compare(head, best) < 0) {
+                best = head;
+            }
+        }
+        if (best != null) {
+            remove(best.getId());
+        }
+        return best;
+    }
+    
+    private void restore(WaitlistEntry entry, int appointmentId) {
+        lock.writeLock().lock();
+        try {
+            offeredSlots.remove(appointmentId);
+            if (entry.getStatus() == WaitlistEntry.Status.WAITING) {
+                add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void add(WaitlistEntry entry) {
+        LocalDate first = entry.getEarliestDate().isBefore(LocalDate.now()) ? LocalDate.now() : entry.getEarliestDate();
+        LocalDate last = entry.getLatestDate();
+        if (last.isAfter(first.plusDays(MAX_WINDOW_DAYS))) {
+            last = first.plusDays(MAX_WINDOW_DAYS);
+        }
+        if (last.isBefore(first)) {
+            return;
+        }
+        waiting.put(entry.getId(), entry);
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            byDay.computeIfAbsent(day, d -> new TreeMap<>())
+                 .computeIfAbsent(entry.getDurationMinutes(), d -> new TreeSet<>(PRIORITY))
+                 .add(entry);
+        }
+    }
+    
+    private void remove(int entryId) {
+        WaitlistEntry entry = waiting.remove(entryId);
+        if (entry == null) {
+            return;
+        }
+        for (LocalDate day = entry.getEarliestDate(); !day.isAfter(entry.getLatestDate()); day = day.plusDays(1)) {
+            NavigableMap<Integer, TreeSet<WaitlistEntry>> buckets = byDay.get(day);
+            if (buckets == null) {
+                continue;
+            }
+            TreeSet<WaitlistEntry> bucket = buckets.get(entry.getDurationMinutes());
+            if (bucket != null && bucket.remove(entry) && bucket.isEmpty()) {
+                buckets.remove(entry.getDurationMinutes());
+                if (buckets.isEmpty()) {
+                    byDay.remove(day);
+                }
+            }
+        }
+    }
+    
+    private void registerListeners() {
+        WaitlistDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(WaitlistEntry entry) {
+                onUpdated(entry);
+            }
+            
+            @Override
+            public void onUpdated(WaitlistEntry entry) {
+                lock.writeLock().lock();
+                try {
+                    if (!loaded) {
+                        return;
+                    }
+                    remove(entry.getId());
+                    // Entries in the index must not change under it, so index a copy
+                    if (entry.getStatus() == WaitlistEntry.Status.WAITING) {
+                        add(copyOf(entry));
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+                lock.writeLock().lock();
+                try {
+                    remove(id);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            
+            @Override
+            public void onInvalidated() {
+                invalidate();
+            }
+        });
+        
+        AppointmentDAO.changes().addListener(new DataChangeListener<>() {
+            @Override
+            public void onInserted(Appointment appointment) {
+            }
+            
+            @Override
+            public void onUpdated(Appointment appointment) {
+                if (appointment.getStatus() != Appointment.Status.CANCELLED || appointment.isPast()) {
+                    return;
+                }
+                // Off the writing thread, as the offer is saved to the database
+                Appointment freed = appointment.copy();
+                ServiceExecutor.getInstance().submit(() -> {
+                    try {
+                        offerSlot(freed);
+                    } catch (SQLException e) {
+                        System.err.println("Waitlist offer failed: " + e.getMessage());
+                    }
+                    return null;
+                }, e -> null);
+            }
+            
+            @Override
+            public void onDeleted(int id) {
+            }
+        });
+    }
+    
+    private static WaitlistEntry copyOf(WaitlistEntry entry) {
+        WaitlistEntry copy = new WaitlistEntry(entry.getPatientId(), entry.getServiceId(), entry.getDurationMinutes(),
+                                               entry.getEarliestDate(), entry.getLatestDate(), entry.getUrgency());
+        copy.setId(entry.getId());
+        copy.setNotes(entry.getNotes());
+        copy.setCreatedAt(entry.getCreatedAt());
+        return copy;
+    }
+}
@@ -0,0 +1,115 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.DatabaseManager;
+import com.rebelle.models.Appointment;
+import com.rebelle.models.WaitlistEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * WaitlistIndexTest - A freed slot goes to the most urgent entry that fits
+ * it, the longest waiting first among equals, and is offered only once.
+ */
+class WaitlistIndexTest {
+    
+    private static final LocalDate SLOT_DAY = LocalDate.now().plusDays(10);
+    
+    private Path database;
+    private WaitlistIndex index;
+    
+    @BeforeEach
+    void openScratchDatabase() throws Exception {
+        database = Files.createTempFile("rebelle-test", ".db");
+        DatabaseManager.getInstance().useDatabase("jdbc:sqlite:" + database);
+        
+        Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO patients (id, name, created_at, updated_at) "
+                + "VALUES (1, 'Jane Doe', '2024-01-01T09:00', '2024-01-01T09:00')");
+        }
+        LocalDate from = SLOT_DAY.minusDays(5);
+        LocalDate to = SLOT_DAY.plusDays(5);
+        insertEntry(conn, 1, 30, from, to, "ROUTINE", "2024-01-01 09:00:00");
+        insertEntry(conn, 2, 30, from, to, "URGENT", "2024-03-01 09:00:00");
+        insertEntry(conn, 3, 30, from, to, "URGENT", "2024-02-01 09:00:00");
+        // Urgent and older still, but needs a longer slot or another week
+        insertEntry(conn, 4, 60, from, to, "URGENT", "2024-01-01 09:00:00");
+        insertEntry(conn, 5, 30, to.plusDays(1), to.plusDays(7), "URGENT", "2024-01-01 09:00:00");
+        
+        ScheduleIndex.getInstance().invalidate();
+        index = WaitlistIndex.getInstance();
+        index.invalidate();
+    }
+    
+    @AfterEach
+    void dropScratchDatabase() throws Exception {
+        index.invalidate();
+        ScheduleIndex.getInstance().invalidate();
+        DatabaseManager.getInstance().closeConnection();
+        Files.deleteIfExists(database);
+    }
+    
+    @Test
+    void mostUrgentThenLongestWaitingEntryGetsTheOffer() throws Exception {
+        assertEquals(3, index.offerSlot(freedSlot(100)).getId());
+        assertEquals(2, index.offerSlot(freedSlot(101)).getId());
+        assertEquals(1, index.offerSlot(freedSlot(102)).getId());
+        assertNull(index.offerSlot(freedSlot(103)));
+        assertEquals("OFFERED", statusOf(3));
+    }
+    
+    @Test
+    void slotIsOfferedOnlyOnce() throws Exception {
+        assertNotNull(index.offerSlot(freedSlot(100)));
+        assertNull(index.offerSlot(freedSlot(100)));
+        assertEquals(4, index.getWaitingCount());
+    }
+    
+    private static Appointment freedSlot(int appointmentId) {
+        Appointment freed = new Appointment();
+        freed.setId(appointmentId);
+        freed.setAppointmentDateTime(SLOT_DAY.atTime(LocalTime.of(10, 0)));
+        freed.setDurationMinutes(30);
+        freed.setStatus(Appointment.Status.CANCELLED);
+        return freed;
+    }
+    
+    private static void insertEntry(Connection conn, int id, int duration, LocalDate earliest, LocalDate latest,
+                                    String urgency, String createdAt) throws Exception {
+        String sql = "INSERT INTO waitlist (id, patient_id, duration_minutes, earliest_date, latest_date, "
+            + "urgency, created_at) VALUES (?, 1, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            stmt.setInt(2, duration);
+            stmt.setString(3, earliest.toString());
+            stmt.setString(4, latest.toString());
+            stmt.setString(5, urgency);
+            stmt.setString(6, createdAt);
+            stmt.executeUpdate();
+        }
+    }
+    
+    private static String statusOf(int entryId) throws Exception {
+        Connection conn = DatabaseManager.getInstance().getConnection();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT status FROM waitlist WHERE id = ?")) {
+            stmt.setInt(1, entryId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.rebelle.services;
+
+import com.rebelle.dao.AppointmentDAO;
+import com.rebelle.dao.ServiceDAO;
+import com.rebelle.dao.WaitlistDAO;
+import com.rebelle.models.Appointment;
+import com.rebelle.models.Service;
+import com.rebelle.models.WaitlistEntry;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * WaitlistService - Business logic for the appointment waitlist. Slots freed
+ * by cancellations are offered by WaitlistIndex; this service adds entries
+ * and turns offers into bookings.
+ */
+public class WaitlistService {
+    
+    private final WaitlistDAO waitlistDAO;
+    private final AppointmentDAO appointmentDAO;
+    private final ServiceDAO serviceDAO;
+    private final AppointmentService appointmentService;
+    
+    public WaitlistService() {
+        this.waitlistDAO = new WaitlistDAO();
+        this.appointmentDAO = new AppointmentDAO();
+        this.serviceDAO = new ServiceDAO();
+        this.appointmentService = new AppointmentService();
+    }
+    
+    /**
+     * Put a patient on the waitlist for a service within a date window. The
+     * duration defaults to the service's.
+     */
+    public ServiceResult<WaitlistEntry> addToWaitlist(int patientId, Integer serviceId, Integer durationMinutes,
+                                                      LocalDate earliestDate, LocalDate latestDate,
+                                                      WaitlistEntry.Urgency urgency, String notes) {
+        if (earliestDate == null || latestDate == null) {
+            return ServiceResult.error("A date window is required.");
+        }
+        if (latestDate.isBefore(earliestDate)) {
+            return ServiceResult.error("The end of the window cannot be before its start.");
+        }
+        if (latestDate.isBefore(LocalDate.now())) {
+            return ServiceResult.error("The window has already passed.");
+        }
+        if (earliestDate.plusDays(WaitlistIndex.MAX_WINDOW_DAYS).isBefore(latestDate)) {
+            return ServiceResult.error("The window cannot be longer than " + WaitlistIndex.MAX_WINDOW_DAYS + " days.");
+        }
+        
+        int duration;
+        if (durationMinutes != null) {
+            duration = durationMinutes;
+        } else if (serviceId != null) {
+            Optional<Service> service = serviceDAO.getServiceById(serviceId);
+            if (service.isEmpty()) {
+                return ServiceResult.error("Selected service not found.");
+            }
+            duration = service.get().getDurationMinutes();
+        } else {
+            return ServiceResult.error("A service or a duration is required.");
+        }
+        if (duration < 5 || duration > 480) {
+            return ServiceResult.error("Duration must be between 5 minutes and 8 hours.");
+        }
+        
+        WaitlistEntry entry = new WaitlistEntry(patientId, serviceId, duration, earliestDate, latestDate,
+                                                urgency != null ? urgency : WaitlistEntry.Urgency.ROUTINE);
+        entry.setNotes(notes != null ? notes.trim() : null);
+        try {
+            return ServiceResult.success(waitlistDAO.createEntry(entry), "Patient added to the waitlist.");
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Book the slot on offer. If it has been taken meanwhile the entry goes
+     * back to waiting.
+     */
+    public ServiceResult<Appointment> acceptOffer(int entryId) {
+        try {
+            Optional<WaitlistEntry> found = waitlistDAO.getEntryById(entryId);
+            if (found.isEmpty() || found.get().getStatus() != WaitlistEntry.Status.OFFERED) {
+                return ServiceResult.error("This waitlist entry has no slot on offer.");
+            }
+            WaitlistEntry entry = found.get();
+            Integer freedId = entry.getOfferedAppointmentId();
+            
+            AppointmentService.ServiceResult<Appointment> booked = appointmentService.createAppointment(
+                entry.getPatientId(), entry.getServiceId(), entry.getOfferedDate(), entry.getOfferedTime(),
+                entry.getDurationMinutes(), entry.getNotes());
+            
+            entry.clearOffer(booked.isSuccess() ? WaitlistEntry.Status.BOOKED : WaitlistEntry.Status.WAITING);
+            waitlistDAO.updateEntry(entry);
+            if (freedId != null) {
+                WaitlistIndex.getInstance().releaseSlot(freedId);
+            }
+            
+            if (!booked.isSuccess()) {
+                return ServiceResult.error("The offered slot is no longer available: " + booked.getMessage());
+            }
+            return ServiceResult.success(booked.getData(), "Appointment booked from the waitlist.");
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Turn down the slot on offer; it is offered to the next entry that fits
+     * and this entry keeps waiting
+     */
+    public ServiceResult<WaitlistEntry> declineOffer(int entryId) {
+        return closeOffer(entryId, WaitlistEntry.Status.WAITING, "Offer declined.");
+    }
+    
+    /**
+     * Take an entry off the waitlist, passing on any slot it was offered
+     */
+    public ServiceResult<WaitlistEntry> withdraw(int entryId) {
+        return closeOffer(entryId, WaitlistEntry.Status.WITHDRAWN, "Removed from the waitlist.");
+    }
+    
+    /**
+     * Waiting and offered entries
+     */
+    public ServiceResult<List<WaitlistEntry>> getOpenEntries() {
+        try {
+            return ServiceResult.success(waitlistDAO.getOpenEntries());
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    private ServiceResult<WaitlistEntry> closeOffer(int entryId, WaitlistEntry.Status status, String message) {
+        try {
+            Optional<WaitlistEntry> found = waitlistDAO.getEntryById(entryId);
+            if (found.isEmpty()) {
+                return ServiceResult.error("Waitlist entry not found.");
+            }
+            WaitlistEntry entry = found.get();
+            if (entry.getStatus() == WaitlistEntry.Status.BOOKED || entry.getStatus() == WaitlistEntry.Status.WITHDRAWN) {
+                return ServiceResult.error("This waitlist entry is already closed.");
+            }
+            
+            // Pass the slot on while this entry still holds its offer, so it is not offered straight back
+            Integer freedId = entry.getOfferedAppointmentId();
+            WaitlistEntry next = null;
+            if (freedId != null) {
+                WaitlistIndex index = WaitlistIndex.getInstance();
+                index.releaseSlot(freedId);
+                Optional<Appointment> freed = appointmentDAO.getAppointmentById(freedId);
+                if (freed.isPresent() && freed.get().getStatus() == Appointment.Status.CANCELLED) {
+                    next = index.offerSlot(freed.get());
+                }
+            }
+            
+            entry.clearOffer(status);
+            waitlistDAO.updateEntry(entry);
+            return ServiceResult.success(entry, next != null ? message + " The slot was offered to the next patient." : message);
+        } catch (SQLException e) {
+            return ServiceResult.error("Database error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Service result wrapper class
+     */
+    public static class ServiceResult<T> {
+        private final boolean success;
+        private final T data;
+        private final String message;
+        
+        private ServiceResult(boolean success, T data, String message) {
+            this.success = success;
+            this.data = data;
+            this.message = message;
+        }
+        
+        public static <T> ServiceResult<T> success(T data) {
+            return new ServiceResult<>(true, data, null);
+        }
+        
+        public static <T> ServiceResult<T> success(T data, String message) {
+            return new ServiceResult<>(true, data, message);
+        }
+        
+        public static <T> ServiceResult<T> error(String message) {
+            return new ServiceResult<>(false, null, message);
+        }
+        
+        public boolean isSuccess() { return success; }
+        public T getData() { return data; }
+        public String getMessage() { return message; }
+    }
+}
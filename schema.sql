@@ -13,8 +13,12 @@ CREATE TABLE IF NOT EXISTS patients (
     address TEXT,
     date_of_birth TEXT,
     medical_notes TEXT,
+    phone_normalized TEXT, -- digits / E.164 form of phone, see ContactNormalizer
+    email_normalized TEXT, -- lower-cased email
+    name_phonetic TEXT,    -- Double Metaphone key per name word, see DoubleMetaphone.encodeName
     created_at TEXT DEFAULT CURRENT_TIMESTAMP,
-    updated_at TEXT DEFAULT CURRENT_TIMESTAMP
+    updated_at TEXT DEFAULT CURRENT_TIMESTAMP,
+    version INTEGER NOT NULL DEFAULT 0     -- bumped by every update, for optimistic locking
 );
 
 -- Services/Procedures table
@@ -33,15 +37,59 @@ CREATE TABLE IF NOT EXISTS appointments (
     patient_id INTEGER NOT NULL,
     service_id INTEGER,
     appointment_date TEXT NOT NULL,        -- ISO format: 2025-06-03
-    appointment_time TEXT NOT NULL,        -- HH:MM format
+    start_time TEXT NOT NULL,              -- HH:MM format
     duration_minutes INTEGER DEFAULT 30,
+    start_minute INTEGER,                  -- minutes since 1970-01-01 00:00, local time
+    end_minute INTEGER,                    -- start_minute + duration_minutes
     status TEXT DEFAULT 'scheduled',       -- scheduled, completed, cancelled, no_show
     notes TEXT,
     created_at TEXT DEFAULT CURRENT_TIMESTAMP,
+    updated_at TEXT,
+    series_id INTEGER,                     -- recurring series this occurrence belongs to
+    version INTEGER NOT NULL DEFAULT 0,    -- bumped by every update, for optimistic locking
+    FOREIGN KEY (patient_id) REFERENCES patients(id),
+    FOREIGN KEY (service_id) REFERENCES services(id),
+    FOREIGN KEY (series_id) REFERENCES appointment_series(id)
+);
+
+-- Recurring appointment series
+CREATE TABLE IF NOT EXISTS appointment_series (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    patient_id INTEGER NOT NULL,
+    rule TEXT NOT NULL,                    -- frequency, interval and count or end date
+    created_at TEXT DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (patient_id) REFERENCES patients(id)
+);
+
+-- Patients waiting for a slot, offered one when a cancellation frees it
+CREATE TABLE IF NOT EXISTS waitlist (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    patient_id INTEGER NOT NULL,
+    service_id INTEGER,
+    duration_minutes INTEGER NOT NULL,
+    earliest_date TEXT NOT NULL,           -- window the patient can come in, inclusive
+    latest_date TEXT NOT NULL,
+    urgency TEXT NOT NULL DEFAULT 'ROUTINE', -- ROUTINE, SOON, URGENT
+    status TEXT NOT NULL DEFAULT 'WAITING',  -- WAITING, OFFERED, BOOKED, WITHDRAWN
+    notes TEXT,
+    created_at TEXT DEFAULT CURRENT_TIMESTAMP,
+    offered_appointment_id INTEGER,        -- cancelled appointment whose slot is on offer
+    offered_date TEXT,
+    offered_time TEXT,
     FOREIGN KEY (patient_id) REFERENCES patients(id),
     FOREIGN KEY (service_id) REFERENCES services(id)
 );
 
+-- End-of-day summaries, one row per closed day
+CREATE TABLE IF NOT EXISTS daily_closes (
+    close_date TEXT PRIMARY KEY,           -- ISO format: 2025-06-03
+    completed INTEGER NOT NULL DEFAULT 0,
+    cancelled INTEGER NOT NULL DEFAULT 0,
+    no_show INTEGER NOT NULL DEFAULT 0,
+    revenue DECIMAL(10,2),                 -- payments taken that day, empty if unavailable
+    closed_at TEXT NOT NULL
+);
+
 -- Inventory table
 CREATE TABLE IF NOT EXISTS inventory (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
@@ -54,7 +102,8 @@ CREATE TABLE IF NOT EXISTS inventory (
     supplier TEXT,
     expiry_date TEXT,
     notes TEXT,
-    last_updated TEXT DEFAULT CURRENT_TIMESTAMP
+    last_updated TEXT DEFAULT CURRENT_TIMESTAMP,
+    version INTEGER NOT NULL DEFAULT 0     -- bumped by every update, for optimistic locking
 );
 
 -- Inventory transactions (usage tracking)
@@ -137,5 +186,6 @@ INSERT OR IGNORE INTO settings (key, value, description) VALUES
 ('clinic_name', 'Rebelle Medical Practice', 'Practice name'),
 ('working_hours_start', '09:00', 'Daily start time'),
 ('working_hours_end', '17:00', 'Daily end time'),
+('working_days', 'MON,TUE,WED,THU,FRI', 'Days appointments can be booked'),
 ('appointment_duration_default', '30', 'Default appointment length in minutes'),
 ('currency', 'USD', 'Currency for billing'); 
\ No newline at end of file